@@ -0,0 +1,90 @@
+package com.banking;
+
+import com.banking.model.CurrentAccount;
+import com.banking.model.Money;
+import com.banking.model.SavingsAccount;
+import com.banking.service.BankEvent;
+import com.banking.service.BankEventListener;
+
+/**
+ * Prints bank events for the console UI. Successful deposits, withdrawals and transfers
+ * are reported by Main itself; this covers rejections, warnings and lifecycle messages.
+ * Events from standing instructions, which the scheduler makes in the background, are
+ * left out but for errors; the service sums up each run that did not go through instead.
+ */
+class ConsoleEventListener implements BankEventListener {
+
+    @Override
+    public void onEvent(BankEvent event) {
+        if (event.isStandingInstruction() && event.getType() != BankEvent.Type.ERROR) {
+            return;
+        }
+        switch (event.getType()) {
+            case REJECTED:
+                printRejection(event);
+                break;
+            case OVERDRAFT_ENTERED:
+                System.out.println("⚠️  Account is in overdraft. Current balance: ₹" + Money.format(event.getBalance()));
+                break;
+            case INTEREST_CREDITED:
+                System.out.println("\n✅ Interest Calculation Complete!");
+                System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+                System.out.println("Interest Rate    : " + (SavingsAccount.getInterestRate() * 100) + "% per annum");
+                System.out.println("Interest Amount  : ₹" + Money.format(event.getAmount()));
+                System.out.println("New Balance      : ₹" + Money.format(event.getBalance()));
+                System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+                break;
+            case NOTICE:
+                System.out.println("✅ " + event.getMessage());
+                break;
+            case ERROR:
+                System.out.println("⚠️  " + event.getMessage());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void printRejection(BankEvent event) {
+        switch (event.getResult()) {
+            case ACCOUNT_NOT_FOUND:
+                System.out.println(event.getCounterparty() != null
+                        ? "❌ One or both accounts not found!" : "❌ Account not found!");
+                break;
+            case SAME_ACCOUNT:
+                System.out.println("❌ Cannot transfer to the same account!");
+                break;
+            case INVALID_AMOUNT:
+                System.out.println("❌ Invalid amount!");
+                break;
+            case INSUFFICIENT_FUNDS:
+                System.out.println("❌ Insufficient balance! Minimum balance of ₹" +
+                        Money.format(SavingsAccount.getMinimumBalance()) + " must be maintained.");
+                break;
+            case OVERDRAFT_LIMIT_EXCEEDED:
+                System.out.println("❌ Insufficient balance! Overdraft limit of ₹" +
+                        Money.format(CurrentAccount.getOverdraftLimit()) + " exceeded.");
+                System.out.println("Available balance (including overdraft): ₹" +
+                        Money.format(event.getBalance() + CurrentAccount.getOverdraftLimit()));
+                break;
+            case VELOCITY_LIMIT_EXCEEDED:
+                System.out.println("❌ Too many withdrawals or transfers from this account recently. Please try again later.");
+                break;
+            case NEW_ACCOUNT_HOLD:
+                System.out.println("❌ Large transfers out of newly opened accounts are on hold. Please try a smaller amount.");
+                break;
+            case JOURNAL_FAILED:
+                System.out.println("❌ The transaction could not be recorded and was not completed. Please contact the bank.");
+                break;
+            case NOT_SAVINGS_ACCOUNT:
+                System.out.println("❌ Interest calculation is only available for Savings Accounts!");
+                break;
+            case INVALID_ACCOUNT_TYPE:
+                System.out.println("❌ Invalid account type!");
+                break;
+            default:
+                System.out.println("❌ Operation failed: " + event.getResult());
+                break;
+        }
+    }
+}
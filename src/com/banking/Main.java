@@ -1,11 +1,42 @@
 package com.banking;
 
+import com.banking.model.HistoryPage;
+import com.banking.model.Money;
+import com.banking.model.TransactionKind;
+import com.banking.persistence.ArchiveFilter;
+import com.banking.persistence.ArchiveSummary;
+import com.banking.persistence.ArchivedPosting;
+import com.banking.server.BankHttpServer;
+import com.banking.server.PartitionRouter;
+import com.banking.service.AccountSummary;
+import com.banking.service.BankEvent;
 import com.banking.service.BankService;
+import com.banking.service.InterestRunSummary;
+import com.banking.service.StandingInstruction;
+import com.banking.service.StatementRunSummary;
+import com.banking.service.VelocityRules;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 /**
  * Console-Based Banking Management System
  * Features: Create Account, Deposit, Withdraw, Transfer, View Balance, Transaction History
+ * Run with --server [port] to serve the HTTP/JSON API headless instead of the menu.
+ * To split the bank across processes, run each partition (in its own directory) with
+ * --partition index count [port], and one router with --router port url0 url1 ...
+ * listing the partitions' base URLs in index order; clients then talk to the router.
  * @author B. Nikhil
  * @version 1.0
  */
@@ -13,15 +44,67 @@ public class Main {
 
     private static final Scanner scanner = new Scanner(System.in);
     private static final BankService bankService = new BankService();
+    private static final long CHECKPOINT_JOURNAL_BYTES = 64L * 1024 * 1024;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 5 * 60 * 1000;
+    private static final int SEARCH_LIMIT = 100;
+    private static final int HISTORY_PAGE_SIZE = 20;
+    private static final String STATEMENTS_DIR = "statements";
+    // History kept in memory per account; older entries are spilled to disk
+    private static final int HISTORY_HOT_ENTRIES = 1024;
+    private static final int HISTORY_HOT_DAYS = 90;
+    private static final long HISTORY_MAX_HOT_BYTES = 256L * 1024 * 1024;
+    // Accounts kept materialized from the account store; the rest are loaded on demand
+    private static final int ACCOUNT_CACHE_SIZE = 500_000;
+    private static final String TRANSFER_SAGA_LOG = "data/transfer-sagas.log";
+    // Velocity rules at the counter, applied when started with --velocity-rules: per account,
+    // at most 20 withdrawals and transfers out, together at most ₹5,00,000, in any hour; and
+    // no transfer above ₹50,000 out of an account opened in the last day
+    private static final long VELOCITY_WINDOW_MILLIS = 60 * 60 * 1000;
+    private static final int VELOCITY_MAX_DEBITS = 20;
+    private static final long VELOCITY_MAX_DEBIT_AMOUNT = Money.ofRupees(500_000);
+    private static final long NEW_ACCOUNT_MILLIS = 24 * 60 * 60 * 1000;
+    private static final long NEW_ACCOUNT_MAX_TRANSFER = Money.ofRupees(50_000);
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : BankHttpServer.DEFAULT_PORT, 0, 1);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("--partition")) {
+            runServer(args.length > 3 ? Integer.parseInt(args[3]) : BankHttpServer.DEFAULT_PORT,
+                    Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length > 2 && args[0].equals("--router")) {
+            List<URI> partitions = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                partitions.add(URI.create(args[i]));
+            }
+            runRouter(Integer.parseInt(args[1]), partitions);
+            return;
+        }
+
         System.out.println("╔════════════════════════════════════════════╗");
         System.out.println("║   WELCOME TO SECURE BANKING SYSTEM         ║");
         System.out.println("║   Developed by: B. Nikhil                  ║");
         System.out.println("╚════════════════════════════════════════════╝\n");
 
+        // Everything the bank reports goes through the console listener
+        bankService.addListener(new ConsoleEventListener());
+
         // Load existing accounts from file
+        bankService.useAccountStore();
+        bankService.useAccountCache(ACCOUNT_CACHE_SIZE);
+        bankService.useHistoryTiering(HISTORY_HOT_ENTRIES, HISTORY_HOT_DAYS, HISTORY_MAX_HOT_BYTES);
+        bankService.useHistoryArchive();
+        if (args.length > 0 && args[0].equals("--velocity-rules")) {
+            bankService.useVelocityRules(new VelocityRules(VELOCITY_WINDOW_MILLIS, VELOCITY_MAX_DEBITS,
+                    VELOCITY_MAX_DEBIT_AMOUNT, NEW_ACCOUNT_MILLIS, NEW_ACCOUNT_MAX_TRANSFER));
+        }
+        bankService.registerMetricsMBean();
         bankService.loadAccountsFromFile();
+        bankService.startCheckpointer(CHECKPOINT_JOURNAL_BYTES, CHECKPOINT_INTERVAL_MILLIS);
+        bankService.startInstructionScheduler();
 
         boolean running = true;
 
@@ -54,9 +137,28 @@ public class Main {
                 case 8:
                     calculateInterest();
                     break;
+                case 10:
+                    runMonthEndInterest();
+                    break;
+                case 11:
+                    searchAccounts();
+                    break;
+                case 12:
+                    exportStatements();
+                    break;
+                case 13:
+                    showMetrics();
+                    break;
+                case 14:
+                    standingInstructions();
+                    break;
+                case 15:
+                    auditQuery();
+                    break;
                 case 9:
                     System.out.println("\n✅ Saving data and exiting...");
                     bankService.saveAccountsToFile();
+                    bankService.close();
                     System.out.println("Thank you for using Secure Banking System!");
                     System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
                     running = false;
@@ -69,6 +171,60 @@ public class Main {
         scanner.close();
     }
 
+    private static void runServer(int port, int partitionIndex, int partitionCount) {
+        // Nobody reads per-operation messages here; only startup notices and errors are logged
+        bankService.addListener(event -> {
+            if (event.getType() == BankEvent.Type.NOTICE) {
+                System.out.println("✅ " + event.getMessage());
+            } else if (event.getType() == BankEvent.Type.ERROR) {
+                System.err.println("⚠️  " + event.getMessage());
+            }
+        });
+        bankService.useAccountStore();
+        bankService.useAccountCache(ACCOUNT_CACHE_SIZE);
+        bankService.useHistoryTiering(HISTORY_HOT_ENTRIES, HISTORY_HOT_DAYS, HISTORY_MAX_HOT_BYTES);
+        bankService.useHistoryArchive();
+        bankService.usePartition(partitionIndex, partitionCount);
+        bankService.registerMetricsMBean();
+        bankService.loadAccountsFromFile();
+        bankService.startCheckpointer(CHECKPOINT_JOURNAL_BYTES, CHECKPOINT_INTERVAL_MILLIS);
+
+        BankHttpServer server;
+        try {
+            server = new BankHttpServer(bankService, port);
+        } catch (IOException e) {
+            System.err.println("❌ Could not start server on port " + port + ": " + e.getMessage());
+            bankService.close();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("\n✅ Stopping server and saving data...");
+            server.stop(5);
+            bankService.saveAccountsToFile();
+            bankService.close();
+        }));
+        server.start();
+        System.out.println("🌐 Banking API" + (partitionCount > 1 ? " (partition " + partitionIndex + " of "
+                + partitionCount + ")" : "") + " listening on http://localhost:" + server.getPort() + " (Ctrl+C to stop)");
+    }
+
+    private static void runRouter(int port, List<URI> partitions) {
+        PartitionRouter router;
+        try {
+            router = new PartitionRouter(partitions, Paths.get(TRANSFER_SAGA_LOG), port);
+        } catch (IOException e) {
+            System.err.println("❌ Could not start router on port " + port + ": " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("\n✅ Stopping router...");
+            router.stop(5);
+        }));
+        router.start();
+        System.out.println("🌐 Routing over " + partitions.size() + " partitions on http://localhost:"
+                + router.getPort() + " (Ctrl+C to stop)");
+    }
+
     private static void displayMenu() {
         System.out.println("\n━━━━━━━━━━━━━━━ MAIN MENU ━━━━━━━━━━━━━━━");
         System.out.println("1. 🆕 Create New Account");
@@ -79,6 +235,12 @@ public class Main {
         System.out.println("6. 📊 View Transaction History");
         System.out.println("7. 📋 View All Accounts");
         System.out.println("8. 📈 Calculate Interest (Savings Only)");
+        System.out.println("10. 📆 Month-End Interest (All Savings Accounts)");
+        System.out.println("11. 🔎 Search Accounts");
+        System.out.println("12. 🧾 Export Statements (CSV)");
+        System.out.println("13. 📉 Show Metrics");
+        System.out.println("14. 🔁 Standing Instructions");
+        System.out.println("15. 🗄️ Audit Query (Archived History)");
         System.out.println("9. 🚪 Exit");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
     }
@@ -94,9 +256,9 @@ public class Main {
         System.out.println("2. Current Account (No interest, Overdraft allowed)");
         int type = getIntInput("Enter choice (1 or 2): ");
 
-        double initialDeposit = getDoubleInput("Enter Initial Deposit (Min ₹500): ");
+        long initialDeposit = getAmountInput("Enter Initial Deposit (Min ₹500): ");
 
-        if (initialDeposit < 500) {
+        if (initialDeposit < Money.ofRupees(500)) {
             System.out.println("❌ Minimum deposit of ₹500 required!");
             return;
         }
@@ -109,7 +271,7 @@ public class Main {
             System.out.println("📌 Account Number: " + accountNumber);
             System.out.println("📌 Account Holder: " + name);
             System.out.println("📌 Account Type: " + accountType);
-            System.out.println("📌 Initial Balance: ₹" + initialDeposit);
+            System.out.println("📌 Initial Balance: ₹" + Money.format(initialDeposit));
         } else {
             System.out.println("❌ Failed to create account!");
         }
@@ -118,11 +280,11 @@ public class Main {
     private static void deposit() {
         System.out.println("\n═══════ DEPOSIT MONEY ═══════");
         String accountNumber = getStringInput("Enter Account Number: ");
-        double amount = getDoubleInput("Enter Amount to Deposit: ₹");
+        long amount = getAmountInput("Enter Amount to Deposit: ₹");
 
-        if (bankService.deposit(accountNumber, amount)) {
-            System.out.println("✅ ₹" + amount + " deposited successfully!");
-            System.out.println("Current Balance: ₹" + bankService.getBalance(accountNumber));
+        if (bankService.deposit(accountNumber, amount).isSuccess()) {
+            System.out.println("✅ ₹" + Money.format(amount) + " deposited successfully!");
+            System.out.println("Current Balance: ₹" + Money.format(bankService.getBalance(accountNumber)));
         } else {
             System.out.println("❌ Deposit failed! Invalid account or amount.");
         }
@@ -131,11 +293,11 @@ public class Main {
     private static void withdraw() {
         System.out.println("\n═══════ WITHDRAW MONEY ═══════");
         String accountNumber = getStringInput("Enter Account Number: ");
-        double amount = getDoubleInput("Enter Amount to Withdraw: ₹");
+        long amount = getAmountInput("Enter Amount to Withdraw: ₹");
 
-        if (bankService.withdraw(accountNumber, amount)) {
-            System.out.println("✅ ₹" + amount + " withdrawn successfully!");
-            System.out.println("Current Balance: ₹" + bankService.getBalance(accountNumber));
+        if (bankService.withdraw(accountNumber, amount).isSuccess()) {
+            System.out.println("✅ ₹" + Money.format(amount) + " withdrawn successfully!");
+            System.out.println("Current Balance: ₹" + Money.format(bankService.getBalance(accountNumber)));
         } else {
             System.out.println("❌ Withdrawal failed! Insufficient balance or invalid account.");
         }
@@ -145,11 +307,11 @@ public class Main {
         System.out.println("\n═══════ TRANSFER FUNDS ═══════");
         String fromAccount = getStringInput("Enter Your Account Number: ");
         String toAccount = getStringInput("Enter Recipient Account Number: ");
-        double amount = getDoubleInput("Enter Amount to Transfer: ₹");
+        long amount = getAmountInput("Enter Amount to Transfer: ₹");
 
-        if (bankService.transfer(fromAccount, toAccount, amount)) {
-            System.out.println("✅ ₹" + amount + " transferred successfully!");
-            System.out.println("Your Balance: ₹" + bankService.getBalance(fromAccount));
+        if (bankService.transfer(fromAccount, toAccount, amount).isSuccess()) {
+            System.out.println("✅ ₹" + Money.format(amount) + " transferred successfully!");
+            System.out.println("Your Balance: ₹" + Money.format(bankService.getBalance(fromAccount)));
         } else {
             System.out.println("❌ Transfer failed! Check account numbers and balance.");
         }
@@ -158,10 +320,10 @@ public class Main {
     private static void checkBalance() {
         System.out.println("\n═══════ CHECK BALANCE ═══════");
         String accountNumber = getStringInput("Enter Account Number: ");
-        double balance = bankService.getBalance(accountNumber);
+        long balance = bankService.getBalance(accountNumber);
 
-        if (balance >= 0) {
-            System.out.println("💰 Current Balance: ₹" + balance);
+        if (balance != BankService.ACCOUNT_NOT_FOUND) {
+            System.out.println("💰 Current Balance: ₹" + Money.format(balance));
         } else {
             System.out.println("❌ Account not found!");
         }
@@ -170,12 +332,66 @@ public class Main {
     private static void viewTransactionHistory() {
         System.out.println("\n═══════ TRANSACTION HISTORY ═══════");
         String accountNumber = getStringInput("Enter Account Number: ");
-        bankService.displayTransactionHistory(accountNumber);
+        HistoryPage page = bankService.getTransactionHistory(accountNumber, Long.MIN_VALUE, Long.MAX_VALUE, 0, HISTORY_PAGE_SIZE);
+
+        if (page == null) {
+            System.out.println("❌ Account not found!");
+            return;
+        }
+        if (page.getEntries().isEmpty()) {
+            System.out.println("No transactions found.");
+            return;
+        }
+
+        System.out.println("\n📊 Transaction History for A/C: " + accountNumber);
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        while (true) {
+            for (String transaction : page.getEntries()) {
+                System.out.println(transaction);
+            }
+            if (!page.hasMore() || getStringInput("-- Enter for more, q to stop: ").equalsIgnoreCase("q")) {
+                break;
+            }
+            page = bankService.getTransactionHistory(accountNumber, Long.MIN_VALUE, Long.MAX_VALUE,
+                    page.getNextOffset(), HISTORY_PAGE_SIZE);
+        }
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
     }
 
     private static void viewAllAccounts() {
         System.out.println("\n═══════ ALL ACCOUNTS ═══════");
-        bankService.displayAllAccounts();
+        if (bankService.getTotalAccounts() == 0) {
+            System.out.println("No accounts found in the system.");
+            return;
+        }
+
+        System.out.println("\n╔════════════════════════════════════════════════════════════════════╗");
+        System.out.println("║                        ALL BANK ACCOUNTS                           ║");
+        System.out.println("╠════════════════════════════════════════════════════════════════════╣");
+        System.out.printf("║ %-12s ║ %-20s ║ %-10s ║ %-12s ║%n",
+                "A/C Number", "Holder Name", "Type", "Balance");
+        System.out.println("╠════════════════════════════════════════════════════════════════════╣");
+
+        int[] total = {0};
+        bankService.forEachAccount(account -> {
+            System.out.printf("║ %-12s ║ %-20s ║ %-10s ║ ₹%-11s ║%n",
+                    account.getAccountNumber(),
+                    truncate(account.getAccountHolderName(), 20),
+                    account.getAccountType(),
+                    Money.format(account.getBalance())
+            );
+            total[0]++;
+        });
+
+        System.out.println("╚════════════════════════════════════════════════════════════════════╝");
+        System.out.println("Total Accounts: " + total[0]);
+    }
+
+    private static String truncate(String str, int length) {
+        if (str.length() <= length) {
+            return str;
+        }
+        return str.substring(0, length - 3) + "...";
     }
 
     private static void calculateInterest() {
@@ -184,6 +400,272 @@ public class Main {
         bankService.calculateAndAddInterest(accountNumber);
     }
 
+    private static void runMonthEndInterest() {
+        System.out.println("\n═══════ MONTH-END INTEREST ═══════");
+        String input = getStringInput("Enter Period (YYYY-MM, blank for this month): ");
+        YearMonth period;
+        try {
+            period = input.isEmpty() ? YearMonth.now() : YearMonth.parse(input);
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid period! Use the form 2024-03.");
+            return;
+        }
+
+        InterestRunSummary summary = bankService.runInterest(period);
+        System.out.println("\n✅ Interest Run Complete!");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        System.out.println("Period           : " + summary.getPeriod());
+        System.out.println("Accounts Credited: " + summary.getAccountsCredited());
+        System.out.println("Already Credited : " + summary.getAccountsSkipped());
+        System.out.println("Total Interest   : ₹" + Money.format(summary.getTotalInterest()));
+        System.out.println("Time Taken       : " + summary.getElapsedMillis() + " ms");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    }
+
+    private static void exportStatements() {
+        System.out.println("\n═══════ EXPORT STATEMENTS ═══════");
+        String input = getStringInput("Enter Period (YYYY-MM, blank for this month): ");
+        YearMonth period;
+        try {
+            period = input.isEmpty() ? YearMonth.now() : YearMonth.parse(input);
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid period! Use the form 2024-03.");
+            return;
+        }
+        long from = period.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long to = period.plusMonths(1).atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+        Path directory = Paths.get(STATEMENTS_DIR, period.toString());
+        String accountNumber = getStringInput("Enter Account Number (blank for all accounts): ");
+
+        if (!accountNumber.isEmpty()) {
+            if (bankService.getBalance(accountNumber) == BankService.ACCOUNT_NOT_FOUND) {
+                System.out.println("❌ Account not found!");
+                return;
+            }
+            Path file = directory.resolve(accountNumber + ".csv");
+            try {
+                Files.createDirectories(directory);
+                try (Writer out = Files.newBufferedWriter(file)) {
+                    long rows = bankService.exportStatement(accountNumber, from, to, out);
+                    System.out.println("✅ Statement written to " + file + " (" + rows + " entries)");
+                }
+            } catch (IOException e) {
+                System.out.println("❌ Could not write statement: " + e.getMessage());
+            }
+            return;
+        }
+
+        StatementRunSummary summary = bankService.exportStatements(from, to, directory);
+        System.out.println("\n✅ Statement Run Complete!");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        System.out.println("Directory        : " + summary.getDirectory());
+        System.out.println("Statements       : " + summary.getStatementsWritten());
+        System.out.println("Failed           : " + summary.getStatementsFailed());
+        System.out.println("Entries          : " + summary.getRowsWritten());
+        System.out.println("Time Taken       : " + summary.getElapsedMillis() + " ms");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    }
+
+    private static void showMetrics() {
+        System.out.println("\n═══════ METRICS ═══════");
+        System.out.println(bankService.getMetrics().snapshot());
+        System.out.println("Checkpoints  : " + bankService.getCheckpointStats());
+        System.out.println("Account cache: " + bankService.getAccountCacheStats());
+        System.out.println("History tier : " + bankService.getHistoryTierStats());
+        System.out.println("Totals       : " + bankService.getTotals());
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    }
+
+    private static void standingInstructions() {
+        System.out.println("\n═══════ STANDING INSTRUCTIONS ═══════");
+        System.out.println("1. Set Up Standing Instruction");
+        System.out.println("2. View Standing Instructions");
+        System.out.println("3. Cancel Standing Instruction");
+        int choice = getIntInput("Enter choice: ");
+
+        switch (choice) {
+            case 1:
+                addStandingInstruction();
+                break;
+            case 2:
+                viewStandingInstructions();
+                break;
+            case 3:
+                String id = getStringInput("Enter Instruction Id: ");
+                if (bankService.cancelStandingInstruction(id)) {
+                    System.out.println("✅ Standing instruction " + id + " cancelled.");
+                } else {
+                    System.out.println("❌ No standing instruction " + id + "!");
+                }
+                break;
+            default:
+                System.out.println("❌ Invalid choice!");
+        }
+    }
+
+    private static void addStandingInstruction() {
+        String fromAccount = getStringInput("Enter Your Account Number: ");
+        String toAccount = getStringInput("Enter Recipient Account Number: ");
+        long amount = getAmountInput("Enter Amount per Transfer: ₹");
+        int frequency = getIntInput("Enter Frequency (1 Daily, 2 Weekly, 3 Monthly): ");
+        if (frequency < 1 || frequency > 3) {
+            System.out.println("❌ Invalid frequency!");
+            return;
+        }
+        String input = getStringInput("Enter First Date (YYYY-MM-DD, blank for today): ");
+        LocalDateTime firstDue;
+        try {
+            firstDue = input.isEmpty() ? LocalDateTime.now() : LocalDate.parse(input).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid date! Use the form 2024-03-01.");
+            return;
+        }
+        int occurrences = getIntInput("Enter Number of Transfers (0 until cancelled): ");
+        if (occurrences < 0) {
+            System.out.println("❌ Invalid number of transfers!");
+            return;
+        }
+
+        String id = bankService.addStandingInstruction(fromAccount, toAccount, amount,
+                StandingInstruction.Frequency.values()[frequency - 1], firstDue, occurrences);
+        if (id == null) {
+            System.out.println("❌ Standing instruction rejected! Check account numbers and amount.");
+        }
+    }
+
+    private static void viewStandingInstructions() {
+        String accountNumber = getStringInput("Enter Account Number: ");
+        List<StandingInstruction> instructions = bankService.getStandingInstructions(accountNumber);
+        if (instructions.isEmpty()) {
+            System.out.println("No standing instructions found.");
+            return;
+        }
+        for (StandingInstruction instruction : instructions) {
+            System.out.println(instruction.getId() + ": ₹" + Money.format(instruction.getAmount()) + " "
+                    + instruction.getFromAccountNumber() + " → " + instruction.getToAccountNumber() + ", "
+                    + instruction.getFrequency() + ", made " + instruction.getCompleted()
+                    + (instruction.getOccurrences() > 0 ? " of " + instruction.getOccurrences() : "")
+                    + ", next due " + instruction.getNextDue());
+        }
+    }
+
+    private static void auditQuery() {
+        System.out.println("\n═══════ AUDIT QUERY ═══════");
+        System.out.println("Searches postings archived at checkpoints; the latest ones follow at the next checkpoint.");
+        int kind = getIntInput("Kind (1 Transfers, 2 Deposits, 3 Withdrawals, 4 Interest, 5 All): ");
+        ArchiveFilter filter = ArchiveFilter.all();
+        switch (kind) {
+            case 1:
+                filter = filter.kinds(TransactionKind.TRANSFER_OUT, TransactionKind.TRANSFER_IN,
+                        TransactionKind.TRANSFER_REVERSED);
+                break;
+            case 2:
+                filter = filter.kinds(TransactionKind.DEPOSIT);
+                break;
+            case 3:
+                filter = filter.kinds(TransactionKind.WITHDRAWAL);
+                break;
+            case 4:
+                filter = filter.kinds(TransactionKind.INTEREST);
+                break;
+            case 5:
+                break;
+            default:
+                System.out.println("❌ Invalid choice!");
+                return;
+        }
+        filter = filter.amountAtLeast(getAmountInput("Minimum Amount (0 for any): ₹"));
+        try {
+            String from = getStringInput("From Date (YYYY-MM-DD, blank for the beginning): ");
+            String to = getStringInput("To Date (YYYY-MM-DD, blank for today): ");
+            long fromMillis = from.isEmpty() ? Long.MIN_VALUE
+                    : LocalDate.parse(from).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long toMillis = to.isEmpty() ? Long.MAX_VALUE
+                    : LocalDate.parse(to).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+            filter = filter.between(fromMillis, toMillis);
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid date! Use the form 2024-03-01.");
+            return;
+        }
+        String accountNumber = getStringInput("Account Number (blank for all accounts): ");
+        if (!accountNumber.isEmpty()) {
+            filter = filter.involving(accountNumber);
+        }
+
+        try {
+            ArchiveSummary summary = bankService.summarizeArchive(filter);
+            List<ArchivedPosting> postings = bankService.searchArchive(filter, SEARCH_LIMIT);
+            for (ArchivedPosting posting : postings) {
+                System.out.println(posting);
+            }
+            System.out.println("\n✅ Audit Query Complete!");
+            System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+            System.out.println("Postings         : " + summary.getPostings()
+                    + (summary.getPostings() > postings.size() ? " (first " + postings.size() + " shown)" : ""));
+            System.out.println("Total Amount     : ₹" + Money.format(summary.getTotalAmount()));
+            System.out.println("Largest          : ₹" + Money.format(summary.getMaxAmount()));
+            System.out.println("Segments Read    : " + summary.getSegmentsScanned() + " of "
+                    + (summary.getSegmentsScanned() + summary.getSegmentsSkipped()));
+            System.out.println("Time Taken       : " + summary.getElapsedMillis() + " ms");
+            System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        } catch (IOException e) {
+            System.out.println("❌ Could not read the archive: " + e.getMessage());
+        }
+    }
+
+    private static void searchAccounts() {
+        System.out.println("\n═══════ SEARCH ACCOUNTS ═══════");
+        System.out.println("1. By Holder Name");
+        System.out.println("2. Top Balances");
+        System.out.println("3. Current Accounts in Overdraft");
+        System.out.println("4. By Balance Range");
+        System.out.println("5. By Account Type");
+        int choice = getIntInput("Enter choice: ");
+
+        List<AccountSummary> results;
+        switch (choice) {
+            case 1:
+                results = bankService.searchByHolderName(getStringInput("Enter Name (or start of it): "), SEARCH_LIMIT);
+                break;
+            case 2:
+                results = bankService.getTopBalances(SEARCH_LIMIT);
+                break;
+            case 3:
+                results = bankService.findOverdrawnAccounts(SEARCH_LIMIT);
+                break;
+            case 4:
+                long min = getAmountInput("Enter Minimum Balance: ₹");
+                long max = getAmountInput("Enter Maximum Balance: ₹");
+                results = bankService.findByBalanceRange(min, max, SEARCH_LIMIT);
+                break;
+            case 5:
+                int type = getIntInput("Enter Type (1 Savings, 2 Current): ");
+                results = bankService.findByAccountType(type == 1 ? "SAVINGS" : "CURRENT", SEARCH_LIMIT);
+                break;
+            default:
+                System.out.println("❌ Invalid choice!");
+                return;
+        }
+
+        if (results.isEmpty()) {
+            System.out.println("No matching accounts found.");
+            return;
+        }
+        System.out.println("\n╔════════════════════════════════════════════════════════════════════╗");
+        System.out.printf("║ %-12s ║ %-20s ║ %-10s ║ %-12s ║%n",
+                "A/C Number", "Holder Name", "Type", "Balance");
+        System.out.println("╠════════════════════════════════════════════════════════════════════╣");
+        for (AccountSummary account : results) {
+            System.out.printf("║ %-12s ║ %-20s ║ %-10s ║ ₹%-11s ║%n",
+                    account.getAccountNumber(),
+                    truncate(account.getHolderName(), 20),
+                    account.getAccountType(),
+                    Money.format(account.getBalance()));
+        }
+        System.out.println("╚════════════════════════════════════════════════════════════════════╝");
+        System.out.println("Showing " + results.size() + (results.size() == SEARCH_LIMIT ? " (limit reached)" : "") + " accounts");
+    }
+
     // Utility methods for input validation
     private static int getIntInput(String prompt) {
         System.out.print(prompt);
@@ -196,15 +678,19 @@ public class Main {
         return value;
     }
 
-    private static double getDoubleInput(String prompt) {
+    // Amounts are read as text and converted to paise exactly; at most two decimal places
+    private static long getAmountInput(String prompt) {
         System.out.print(prompt);
-        while (!scanner.hasNextDouble()) {
-            System.out.print("❌ Invalid input! Enter a valid amount: ");
-            scanner.next();
+        while (true) {
+            String token = scanner.next();
+            try {
+                long value = Money.parse(token);
+                scanner.nextLine(); // Consume newline
+                return value;
+            } catch (NumberFormatException e) {
+                System.out.print("❌ Invalid input! Enter a valid amount: ");
+            }
         }
-        double value = scanner.nextDouble();
-        scanner.nextLine(); // Consume newline
-        return value;
     }
 
     private static String getStringInput(String prompt) {
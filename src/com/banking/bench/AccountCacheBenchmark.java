@@ -0,0 +1,149 @@
+package com.banking.bench;
+
+import com.banking.service.AccountCacheStats;
+import com.banking.service.BankEvent;
+import com.banking.service.BankService;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the same skewed deposit/withdraw/transfer workload against an account store twice:
+ * first with only a bounded number of accounts in memory, then with no bound. Both runs
+ * checkpoint along the way. Reports throughput, heap and the cache counters, and checks
+ * that no money appears or disappears, neither in memory nor after reopening the store,
+ * i.e. that evicted accounts were written back with every change.
+ *
+ * Runs in ./data, which is wiped first (see SyntheticData.resetDataDirectory).
+ *
+ * Usage: java com.banking.bench.AccountCacheBenchmark [accounts] [capacity] [operations] [threads]
+ */
+public class AccountCacheBenchmark {
+
+    private static final Path DATA_FILE = Path.of("data", "accounts.txt");
+    // Share of operations that go to the hottest tenth of the accounts
+    private static final double HOT_SHARE = 0.8;
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 400_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        SyntheticData.resetDataDirectory();
+        new SyntheticData(42).writeLegacyFile(DATA_FILE, accountCount, 2);
+        // The store starts empty, so this loads accounts.txt and the checkpoint moves it in
+        BankService bankService = newBank(0);
+        bankService.loadAccountsFromFile();
+        bankService.checkpoint();
+        long total = totalBalance(bankService);
+        bankService.close();
+
+        for (int bound : new int[] {capacity, 0}) {
+            bankService = newBank(bound);
+            bankService.loadAccountsFromFile();
+            long heapBefore = usedHeap();
+            LongAdder net = new LongAdder();
+            long start = System.nanoTime();
+            run(bankService, accountCount, operations, threads, net);
+            long nanos = System.nanoTime() - start;
+            long heap = usedHeap() - heapBefore;
+            AccountCacheStats stats = bankService.getAccountCacheStats();
+
+            System.out.printf("%n%s: %,.0f ops/s, %,d KB heap for materialized accounts%n",
+                    bound == 0 ? "No bound" : String.format("Bounded to %,d", bound),
+                    operations * 1e9 / nanos, heap >> 10);
+            System.out.println("  " + stats);
+
+            total += net.sum();
+            check(totalBalance(bankService), total, "in memory");
+            if (bound > 0 && stats.getSize() > bound + bound / 10) {
+                fail(stats.getSize() + " accounts in memory, bound is " + bound);
+            }
+            bankService.checkpoint();
+            bankService.close();
+
+            BankService reopened = newBank(0);
+            reopened.loadAccountsFromFile();
+            check(totalBalance(reopened), total, "after reopening the store");
+            reopened.close();
+        }
+        System.out.println("\n✅ Balances add up with and without eviction, in memory and on disk.");
+    }
+
+    private static void run(BankService bankService, int accountCount, int operations, int threads,
+                            LongAdder net) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            int share = operations / threads;
+            boolean checkpointing = t == 0;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < share; i++) {
+                    String account = pick(random, accountCount);
+                    long amount = 1 + random.nextLong(100_000);
+                    int kind = random.nextInt(10);
+                    if (kind < 3) {
+                        if (bankService.deposit(account, amount).isSuccess()) {
+                            net.add(amount);
+                        }
+                    } else if (kind < 6) {
+                        if (bankService.withdraw(account, amount).isSuccess()) {
+                            net.add(-amount);
+                        }
+                    } else {
+                        bankService.transfer(account, pick(random, accountCount), amount);
+                    }
+                    if (checkpointing && i > 0 && i % (share / 3) == 0) {
+                        bankService.checkpoint();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static String pick(SplittableRandom random, int accountCount) {
+        int hot = Math.max(1, accountCount / 10);
+        int index = random.nextDouble() < HOT_SHARE ? random.nextInt(hot) : random.nextInt(accountCount);
+        return SyntheticData.accountNumber(index);
+    }
+
+    private static long totalBalance(BankService bankService) {
+        long[] total = {0};
+        bankService.forEachAccount(account -> total[0] += account.getBalance());
+        return total[0];
+    }
+
+    private static void check(long actual, long expected, String where) {
+        if (actual != expected) {
+            fail("total balance " + where + " is " + actual + ", expected " + expected);
+        }
+    }
+
+    private static BankService newBank(int capacity) {
+        BankService bankService = new BankService();
+        bankService.addListener(event -> {
+            if (event.getType() == BankEvent.Type.ERROR) {
+                throw new IllegalStateException(event.getMessage());
+            }
+        });
+        bankService.useAccountStore();
+        bankService.useAccountCache(capacity);
+        return bankService;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,90 @@
+package com.banking.bench;
+
+import com.banking.model.AccountNumbers;
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Onboards accounts from many threads at once and checks that every account number is
+ * unique and every account can be found. The bank then journals to ./data (wiped first, see
+ * SyntheticData.resetDataDirectory), is closed and reopened, and the numbers handed out
+ * after the restart must not collide with any from before it.
+ *
+ * Usage: java com.banking.bench.AccountCreationStressCheck [accountsPerThread] [threads]
+ */
+public class AccountCreationStressCheck {
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        SyntheticData.resetDataDirectory();
+        BankService bankService = new BankService();
+        bankService.configureJournal(1024, 2);
+        bankService.loadAccountsFromFile();
+
+        List<List<String>> created = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            List<String> mine = new ArrayList<>(perThread);
+            created.add(mine);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    mine.add(bankService.createAccount("Onboard " + i, i % 2 == 0 ? "SAVINGS" : "CURRENT",
+                            Money.ofRupees(1_000)));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        int expected = perThread * threads;
+        Set<String> numbers = new HashSet<>();
+        long highest = 0;
+        for (List<String> mine : created) {
+            for (String accountNumber : mine) {
+                if (accountNumber == null || !numbers.add(accountNumber)) {
+                    fail("Duplicate or missing account number: " + accountNumber);
+                }
+                highest = Math.max(highest, AccountNumbers.toSequence(accountNumber));
+                if (bankService.getBalance(accountNumber) != Money.ofRupees(1_000)) {
+                    fail("Created account not found: " + accountNumber);
+                }
+            }
+        }
+        if (bankService.getTotalAccounts() != expected) {
+            fail("Expected " + expected + " accounts, found " + bankService.getTotalAccounts());
+        }
+        System.out.printf("Created %,d accounts on %d threads: %,.0f accounts/s, highest %s%n",
+                expected, threads, expected * 1e9 / elapsedNanos, AccountNumbers.fromSequence(highest));
+        bankService.close();
+
+        BankService reopened = new BankService();
+        reopened.loadAccountsFromFile();
+        if (reopened.getTotalAccounts() != expected) {
+            fail("Expected " + expected + " accounts after restart, found " + reopened.getTotalAccounts());
+        }
+        String next = reopened.createAccount("After restart", "SAVINGS", Money.ofRupees(1_000));
+        reopened.close();
+        if (numbers.contains(next) || AccountNumbers.toSequence(next) <= highest) {
+            fail("Number reused after restart: " + next);
+        }
+        System.out.println("✅ All account numbers unique; first after restart: " + next);
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
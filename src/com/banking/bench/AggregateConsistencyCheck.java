@@ -0,0 +1,148 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import com.banking.service.BankTotals;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks the running totals on both engines, with the account store and a small account
+ * cache so most accounts are only in the store: threads run random deposits, withdrawals
+ * (driving current accounts into overdraft) and transfers while the totals are read, then
+ * an interest run; afterwards the totals must equal a full scan and the net balance must
+ * equal opening balances + deposits - withdrawals + interest. The totals must come back
+ * the same after a restart. Then compares reading the totals with scanning for them.
+ *
+ * Runs in ./data, which it empties first.
+ *
+ * Usage: java com.banking.bench.AggregateConsistencyCheck [accounts=20000] [threads=8] [opsPerThread=50000]
+ */
+public class AggregateConsistencyCheck {
+
+    private static final int CACHE_SIZE = 4_096;
+    private static final int READS = 1_000_000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+
+        for (boolean sequencer : new boolean[] {false, true}) {
+            System.out.println("== " + (sequencer ? "Sequencer" : "Lock-based") + " engine ==");
+            SyntheticData.resetDataDirectory();
+            run(sequencer, accountCount, threads, perThread);
+        }
+
+        if (failures > 0) {
+            System.out.println("\n❌ " + failures + " aggregate check(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("\n✅ Running totals agree with a full scan.");
+    }
+
+    private static BankService open(boolean sequencer) {
+        BankService bankService = new BankService();
+        bankService.useAccountStore();
+        bankService.useAccountCache(CACHE_SIZE);
+        if (sequencer) {
+            bankService.useSequencer(2, 1024);
+        }
+        bankService.loadAccountsFromFile();
+        return bankService;
+    }
+
+    private static void run(boolean sequencer, int accountCount, int threads, int perThread) throws InterruptedException {
+        BankService bankService = open(sequencer);
+        List<String> accounts = new ArrayList<>();
+        long opening = 0;
+        for (int i = 0; i < accountCount; i++) {
+            long initial = Money.ofRupees(1_000) + 37 * i;
+            accounts.add(bankService.createAccount("Aggregate " + i, i % 2 == 0 ? "SAVINGS" : "CURRENT", initial));
+            opening += initial;
+        }
+        // Pushes most accounts out to the store, so the scan reads them from their records
+        bankService.checkpoint();
+        check("Opening totals match a scan", bankService.getTotals().equals(bankService.scanTotals()));
+
+        LongAdder deposited = new LongAdder();
+        LongAdder withdrawn = new LongAdder();
+        LongAdder reads = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    String account = accounts.get(random.nextInt(accountCount));
+                    long amount = 1 + random.nextLong(Money.ofRupees(1_500));
+                    int op = random.nextInt(100);
+                    if (op < 30) {
+                        if (bankService.deposit(account, amount).isSuccess()) {
+                            deposited.add(amount);
+                        }
+                    } else if (op < 60) {
+                        if (bankService.withdraw(account, amount).isSuccess()) {
+                            withdrawn.add(amount);
+                        }
+                    } else if (op < 99) {
+                        String to = accounts.get(random.nextInt(accountCount));
+                        if (!to.equals(account)) {
+                            bankService.transfer(account, to, amount);
+                        }
+                    } else if (bankService.getTotals().getAccounts() == accountCount) {
+                        reads.increment();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long interest = bankService.runInterest(YearMonth.now()).getTotalInterest();
+
+        BankTotals running = bankService.getTotals();
+        BankTotals scanned = bankService.scanTotals();
+        System.out.println("  Running: " + running);
+        System.out.println("  Scanned: " + scanned);
+        check("Totals read under load counted every account", reads.sum() > 0);
+        check("Running totals match a full scan", running.equals(scanned) && bankService.checkTotals());
+        check("Some current accounts are in overdraft", running.getOverdrawnAccounts() > 0);
+        check("Net balance is opening + deposits - withdrawals + interest",
+                running.getNetBalance() == opening + deposited.sum() - withdrawn.sum() + interest);
+        bankService.close();
+
+        BankService reopened = open(sequencer);
+        check("Totals are rebuilt the same after a restart",
+                reopened.getTotals().equals(running) && reopened.scanTotals().equals(running));
+        measure(reopened);
+        reopened.close();
+    }
+
+    private static void measure(BankService bankService) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            sink += bankService.getTotals().getNetBalance();
+        }
+        long readNanos = (System.nanoTime() - start) / READS;
+
+        start = System.nanoTime();
+        sink += bankService.scanTotals().getNetBalance();
+        long scanMicros = (System.nanoTime() - start) / 1_000;
+        System.out.printf("  getTotals %,d ns, scanTotals %,d µs (%d)%n", readNanos, scanMicros, sink & 1);
+    }
+
+    private static void check(String what, boolean passed) {
+        System.out.println("  " + (passed ? "✅ " : "❌ ") + what);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
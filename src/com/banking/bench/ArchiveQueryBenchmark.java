@@ -0,0 +1,184 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.model.TransactionKind;
+import com.banking.persistence.ArchiveFilter;
+import com.banking.persistence.ArchiveSummary;
+import com.banking.service.BankService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Compares answering an audit query from the history archive with what it takes without
+ * one: rendering and parsing the transaction history of every account. Threads run random
+ * deposits, withdrawals and transfers (up to ₹2,00,000) on both engines with checkpoints in
+ * between, which archive them; then "every transfer of ₹1,00,000 or more" and "everything
+ * involving one account" must give the same counts and totals both ways. After a restart
+ * and another checkpoint nothing may be archived twice.
+ *
+ * Runs in ./data, which it empties first.
+ *
+ * Usage: java com.banking.bench.ArchiveQueryBenchmark [accounts=20000] [threads=8] [opsPerThread=100000]
+ */
+public class ArchiveQueryBenchmark {
+
+    private static final long OPENING = Money.ofRupees(10_000_000);
+    private static final long LARGE = Money.ofRupees(100_000);
+    private static final int CHECKPOINTS = 4;
+    private static final String TRANSFERRED = "] Transferred ₹";
+    private static final String RECEIVED = "] Received ₹";
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        for (boolean sequencer : new boolean[] {false, true}) {
+            System.out.println("== " + (sequencer ? "Sequencer" : "Lock-based") + " engine ==");
+            SyntheticData.resetDataDirectory();
+            run(sequencer, accountCount, threads, perThread);
+        }
+
+        if (failures > 0) {
+            System.out.println("\n❌ " + failures + " archive check(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("\n✅ Archive queries agree with the account histories.");
+    }
+
+    private static BankService open(boolean sequencer) {
+        BankService bankService = new BankService();
+        bankService.useHistoryArchive();
+        if (sequencer) {
+            bankService.useSequencer(2, 1024);
+        }
+        bankService.loadAccountsFromFile();
+        return bankService;
+    }
+
+    private static void run(boolean sequencer, int accountCount, int threads, int perThread) throws Exception {
+        BankService bankService = open(sequencer);
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(bankService.createAccount("Audit " + i, "SAVINGS", OPENING));
+        }
+
+        long start = System.nanoTime();
+        for (int round = 0; round < CHECKPOINTS; round++) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < perThread / CHECKPOINTS; i++) {
+                        String account = accounts.get(random.nextInt(accountCount));
+                        long amount = 1 + random.nextLong(2 * LARGE);
+                        int op = random.nextInt(10);
+                        if (op < 2) {
+                            bankService.deposit(account, amount);
+                        } else if (op < 4) {
+                            bankService.withdraw(account, amount);
+                        } else {
+                            String to = accounts.get(random.nextInt(accountCount));
+                            if (!to.equals(account)) {
+                                bankService.transfer(account, to, amount);
+                            }
+                        }
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            bankService.checkpoint();
+        }
+        System.out.printf("  Posted and archived %,d operations in %,d ms; archive %,d bytes%n",
+                (long) threads * perThread, (System.nanoTime() - start) / 1_000_000, directorySize(Path.of("data/archive")));
+
+        ArchiveFilter large = ArchiveFilter.all().kinds(TransactionKind.TRANSFER_OUT).amountAtLeast(LARGE);
+        ArchiveFilter involving = ArchiveFilter.all().involving(accounts.get(0));
+        long[] parsed = new long[2];
+        long parseStart = System.nanoTime();
+        for (String account : accounts) {
+            for (String line : bankService.getTransactionHistory(account)) {
+                int at = line.indexOf(TRANSFERRED);
+                if (at > 0) {
+                    long amount = Money.parse(line.substring(at + TRANSFERRED.length(), line.indexOf(' ', at + TRANSFERRED.length())));
+                    if (amount >= LARGE) {
+                        parsed[0]++;
+                        parsed[1] += amount;
+                    }
+                }
+            }
+        }
+        long parseMillis = (System.nanoTime() - parseStart) / 1_000_000;
+        ArchiveSummary summary = bankService.summarizeArchive(large);
+        System.out.printf("  Large transfers: parsing histories %,d ms, archive %,d ms (%s)%n",
+                parseMillis, summary.getElapsedMillis(), summary);
+        check("Archive finds the large transfers the histories record",
+                summary.getPostings() == parsed[0] && summary.getTotalAmount() == parsed[1] && parsed[0] > 0);
+        check("Search returns the large transfers",
+                bankService.searchArchive(large, 10).stream().allMatch(p -> p.getAmount() >= LARGE
+                        && p.getKind() == TransactionKind.TRANSFER_OUT));
+
+        ArchiveSummary ofAccount = bankService.summarizeArchive(involving);
+        System.out.println("  One account: " + ofAccount);
+        check("Archive has every posting of one account",
+                ofAccount.getPostings() == postingsInHistory(bankService.getTransactionHistory(accounts.get(0))));
+
+        ArchiveFilter firstHalf = large.between(0, System.currentTimeMillis() - (System.nanoTime() - start) / 2_000_000);
+        ArchiveSummary early = bankService.summarizeArchive(firstHalf);
+        System.out.println("  First half only: " + early);
+        check("A time range skips segments outside it",
+                early.getSegmentsSkipped() > 0 && early.getPostings() < summary.getPostings());
+        measure(bankService, large);
+        bankService.close();
+
+        BankService reopened = open(sequencer);
+        reopened.deposit(accounts.get(0), LARGE);
+        reopened.checkpoint();
+        check("Nothing is archived twice after a restart",
+                reopened.summarizeArchive(large).getPostings() == summary.getPostings()
+                        && reopened.summarizeArchive(involving).getPostings() == ofAccount.getPostings() + 1);
+        reopened.close();
+    }
+
+    private static void measure(BankService bankService, ArchiveFilter filter) throws IOException {
+        int runs = 20;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            sink += bankService.summarizeArchive(filter).getPostings();
+        }
+        System.out.printf("  Archive query warm: %,d µs (%d)%n", (System.nanoTime() - start) / 1_000 / runs, sink & 1);
+    }
+
+    /**
+     * A transfer adds two lines to a history, the balance change and "Transferred" or
+     * "Received"; the archive has it once.
+     */
+    private static long postingsInHistory(List<String> history) {
+        return history.stream().filter(line -> !line.contains(TRANSFERRED) && !line.contains(RECEIVED)).count();
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void check(String what, boolean passed) {
+        System.out.println("  " + (passed ? "✅ " : "❌ ") + what);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
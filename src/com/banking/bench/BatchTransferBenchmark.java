@@ -0,0 +1,123 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import com.banking.service.BatchLeg;
+import com.banking.service.BatchMode;
+import com.banking.service.BatchResult;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Posts the same settlement file of random transfers once leg by leg through transfer()
+ * and once through submitBatch(), then checks that both runs end with identical balances
+ * and that a failing all-or-nothing batch changes nothing.
+ *
+ * With "journal" as the last argument each run journals to a freshly wiped ./data (see
+ * SyntheticData.resetDataDirectory),
+ * so the per-leg path pays one durable append per transfer and the batch path one per batch.
+ *
+ * Usage: java com.banking.bench.BatchTransferBenchmark [legs] [batchSize] [accounts] [journal]
+ */
+public class BatchTransferBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int legCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        boolean journaled = args.length > 3 && args[3].equals("journal");
+
+        Random random = new Random(42);
+        List<BatchLeg> legs = new ArrayList<>(legCount);
+        for (int i = 0; i < legCount; i++) {
+            int from = random.nextInt(accountCount);
+            int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+            legs.add(BatchLeg.transfer(accountNumber(from), accountNumber(to),
+                    1 + random.nextInt((int) Money.ofRupees(100))));
+        }
+
+        // Warm-up pass on throwaway in-memory banks so both paths are compiled before timing
+        runSingle(newBank(accountCount, false), legs);
+        runBatched(newBank(accountCount, false), legs, batchSize);
+
+        BankService single = newBank(accountCount, journaled);
+        long start = System.nanoTime();
+        runSingle(single, legs);
+        long singleNanos = System.nanoTime() - start;
+        long[] singleBalances = balances(single, accountCount);
+        single.close();
+
+        BankService batched = newBank(accountCount, journaled);
+        start = System.nanoTime();
+        int applied = runBatched(batched, legs, batchSize);
+        long batchNanos = System.nanoTime() - start;
+
+        System.out.printf("transfer() one by one : %,.0f legs/s%n", legCount * 1e9 / singleNanos);
+        System.out.printf("submitBatch(%,d)     : %,.0f legs/s (%,d applied)%n",
+                batchSize, legCount * 1e9 / batchNanos, applied);
+
+        long[] batchedBalances = balances(batched, accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            if (singleBalances[i] != batchedBalances[i]) {
+                System.out.println("❌ Balances differ for " + accountNumber(i));
+                System.exit(1);
+            }
+        }
+
+        // The last leg overdraws, so the whole batch must be rejected
+        String payer = accountNumber(0);
+        long before = batched.getBalance(payer);
+        List<BatchLeg> doomed = List.of(
+                BatchLeg.transfer(payer, accountNumber(1), Money.ofRupees(10)),
+                BatchLeg.withdraw(payer, before + Money.ofRupees(1_000_000)));
+        BatchResult result = batched.submitBatch(doomed, BatchMode.ALL_OR_NOTHING);
+        if (result.getAppliedCount() != 0 || batched.getBalance(payer) != before) {
+            System.out.println("❌ All-or-nothing batch was partially applied: " + result.getStatuses());
+            System.exit(1);
+        }
+        batched.close();
+        System.out.println("✅ Batched and single-leg balances match; failed batch left no trace.");
+    }
+
+    private static BankService newBank(int accountCount, boolean journaled) throws IOException {
+        BankService bankService = new BankService();
+        if (journaled) {
+            SyntheticData.resetDataDirectory();
+            bankService.loadAccountsFromFile();
+        }
+        for (int i = 0; i < accountCount; i++) {
+            bankService.createAccount("Payee " + i, "CURRENT", Money.ofRupees(1_000_000));
+        }
+        return bankService;
+    }
+
+    // Account numbers are handed out sequentially from ACC1001
+    private static String accountNumber(int index) {
+        return "ACC" + (1001 + index);
+    }
+
+    private static long[] balances(BankService bankService, int accountCount) {
+        long[] balances = new long[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            balances[i] = bankService.getBalance(accountNumber(i));
+        }
+        return balances;
+    }
+
+    private static void runSingle(BankService bankService, List<BatchLeg> legs) {
+        for (BatchLeg leg : legs) {
+            bankService.transfer(leg.getAccountNumber(), leg.getCounterparty(), leg.getAmount());
+        }
+    }
+
+    private static int runBatched(BankService bankService, List<BatchLeg> legs, int batchSize) {
+        int applied = 0;
+        for (int from = 0; from < legs.size(); from += batchSize) {
+            List<BatchLeg> chunk = legs.subList(from, Math.min(legs.size(), from + batchSize));
+            applied += bankService.submitBatch(chunk, BatchMode.INDEPENDENT).getAppliedCount();
+        }
+        return applied;
+    }
+}
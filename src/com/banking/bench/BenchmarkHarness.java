@@ -0,0 +1,119 @@
+package com.banking.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.Supplier;
+
+/**
+ * Minimal stand-in for a JMH run: each scenario is warmed up, then measured twice on the
+ * same number of threads. The first pass counts throughput and bytes allocated per
+ * operation; the second times every operation on its own for latency percentiles, so the
+ * timer overhead never leaks into the throughput figure. Every pass starts from freshly
+ * built state, so history growth in one pass does not slow down or bloat the next.
+ */
+final class BenchmarkHarness {
+
+    /** One benchmarked operation. Each thread gets its own seeded random. */
+    @FunctionalInterface
+    interface Operation {
+        void run(int thread, SplittableRandom random);
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long seed;
+
+    BenchmarkHarness(long seed) {
+        this.seed = seed;
+    }
+
+    static void printHeader() {
+        System.out.printf("%-40s %7s %14s %10s %9s %9s %9s %9s%n",
+                "benchmark", "threads", "ops/s", "B/op", "p50 ns", "p99 ns", "p99.9 ns", "max ns");
+    }
+
+    void run(String name, int threads, int opsPerThread, Supplier<Operation> setup) throws InterruptedException {
+        execute(threads, Math.max(1, opsPerThread / 5), setup.get(), false);
+
+        long[][] passOne = execute(threads, opsPerThread, setup.get(), false);
+        long slowest = 0;
+        long allocated = 0;
+        for (long[] result : passOne) {
+            slowest = Math.max(slowest, result[0]);
+            allocated += result[1];
+        }
+        long totalOps = (long) threads * opsPerThread;
+
+        long[][] passTwo = execute(threads, opsPerThread, setup.get(), true);
+        long[] latencies = new long[(int) Math.min(Integer.MAX_VALUE - 8, totalOps)];
+        int filled = 0;
+        for (long[] samples : passTwo) {
+            int take = Math.min(samples.length - 2, latencies.length - filled);
+            System.arraycopy(samples, 2, latencies, filled, take);
+            filled += take;
+        }
+        Arrays.sort(latencies, 0, filled);
+
+        System.out.printf("%-40s %7d %,14.0f %10.1f %9d %9d %9d %9d%n",
+                name, threads, totalOps * 1e9 / slowest, (double) allocated / totalOps,
+                percentile(latencies, filled, 0.50), percentile(latencies, filled, 0.99),
+                percentile(latencies, filled, 0.999), filled > 0 ? latencies[filled - 1] : 0);
+    }
+
+    /**
+     * Runs the operation opsPerThread times on each thread, all starting together. Each
+     * thread returns {elapsed nanos, allocated bytes, latency samples...}.
+     */
+    private long[][] execute(int threads, int opsPerThread, Operation operation, boolean timeEach)
+            throws InterruptedException {
+        long[][] results = new long[threads][];
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed + thread);
+                long[] result = new long[timeEach ? opsPerThread + 2 : 2];
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+                long begin = System.nanoTime();
+                if (timeEach) {
+                    for (int i = 0; i < opsPerThread; i++) {
+                        long opStart = System.nanoTime();
+                        operation.run(thread, random);
+                        result[i + 2] = System.nanoTime() - opStart;
+                    }
+                } else {
+                    for (int i = 0; i < opsPerThread; i++) {
+                        operation.run(thread, random);
+                    }
+                }
+                result[0] = System.nanoTime() - begin;
+                result[1] = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+                results[thread] = result;
+            }, "bench-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return results;
+    }
+
+    private static long percentile(long[] sorted, int length, double fraction) {
+        if (length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(length - 1, Math.ceil(fraction * length) - 1)];
+    }
+}
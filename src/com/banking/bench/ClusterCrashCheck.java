@@ -0,0 +1,363 @@
+package com.banking.bench;
+
+import com.banking.Main;
+import com.banking.model.AccountNumbers;
+import com.banking.model.Money;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a partitioned bank as separate processes on loopback (Main --partition for each
+ * partition, Main --router in front) and checks that crashes in the middle of transfers
+ * between partitions neither create nor lose money:
+ *
+ *   1. Clients send random transfers through the router, one in twenty to an account that
+ *      does not exist, so the credit is refused and the saga has to reverse the debit.
+ *      Meanwhile partitions and the router are killed with SIGKILL and restarted. Once the
+ *      router reports no transfers in flight, the balances must add up to what was opened.
+ *   2. One transfer leg is sent to a partition again and again: twice in a row, after the
+ *      partition was killed (so its journal is replayed), and after a clean restart (so it
+ *      comes from the checkpointed leg file). It must be applied exactly once.
+ *   3. Every process is stopped cleanly and started again; the balances must be unchanged.
+ *
+ * Runs in ./data, which is wiped first (see SyntheticData.resetDataDirectory); each process
+ * works in its own directory under data/cluster, where its output is kept in out.log.
+ *
+ * Usage: java com.banking.bench.ClusterCrashCheck [partitions] [accounts] [clients] [transfersPerClient]
+ */
+public class ClusterCrashCheck {
+
+    private static final Pattern ACCOUNT_NUMBER = Pattern.compile("\"accountNumber\":\"([^\"]+)\"");
+    private static final Pattern BALANCE = Pattern.compile("\"balance\":\"([^\"]+)\"");
+    private static final Pattern RESULT = Pattern.compile("\"result\":\"([^\"]+)\"");
+    private static final Pattern STATE = Pattern.compile("\"state\":\"([^\"]+)\"");
+    private static final Pattern IN_FLIGHT = Pattern.compile("\"transfersInFlight\":(\\d+)");
+    private static final long OPENING_DEPOSIT = Money.ofRupees(10_000);
+    // Far above any number the partitions hand out in this run
+    private static final long MISSING_ACCOUNTS_FROM = 900_000_000L;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static HttpClient client;
+    private static Path clusterDirectory;
+    private static int[] ports;
+    private static String[] urls;
+    // Partitions first, the router last
+    private static Process[] processes;
+
+    public static void main(String[] args) throws Exception {
+        int partitionCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int transfersPerClient = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+
+        SyntheticData.resetDataDirectory();
+        clusterDirectory = Path.of("data", "cluster").toAbsolutePath();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        ports = new int[partitionCount + 1];
+        urls = new String[partitionCount + 1];
+        processes = new Process[partitionCount + 1];
+        for (int i = 0; i <= partitionCount; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[i] = socket.getLocalPort();
+            }
+            urls[i] = "http://localhost:" + ports[i];
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Process process : processes) {
+                if (process != null) {
+                    process.destroyForcibly();
+                }
+            }
+        }));
+        for (int i = 0; i <= partitionCount; i++) {
+            start(i);
+        }
+        String router = urls[partitionCount];
+
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            HttpResponse<String> response = post(router + "/accounts", "{\"name\":\"Cluster " + i + "\",\"type\":\""
+                    + (i % 2 == 0 ? "SAVINGS" : "CURRENT") + "\",\"initialDeposit\":\"" + Money.format(OPENING_DEPOSIT) + "\"}");
+            String accountNumber = field(ACCOUNT_NUMBER, response.body());
+            if (response.statusCode() != 201 || accountNumber == null) {
+                fail("could not open an account: " + response.statusCode() + " " + response.body());
+            }
+            int owner = AccountNumbers.partitionOf(accountNumber, partitionCount);
+            if (get(urls[owner] + "/accounts/" + accountNumber).statusCode() != 200) {
+                fail(accountNumber + " is not on partition " + owner);
+            }
+            accounts.add(accountNumber);
+        }
+        long opened = OPENING_DEPOSIT * accountCount;
+        System.out.printf("Opened %d accounts over %d partitions, %s in total%n", accountCount, partitionCount,
+                Money.format(opened));
+
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        Thread[] workers = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            SplittableRandom random = new SplittableRandom(c);
+            workers[c] = new Thread(() -> {
+                for (int i = 0; i < transfersPerClient; i++) {
+                    String from = accounts.get(random.nextInt(accountCount));
+                    String to = random.nextInt(20) == 0
+                            ? AccountNumbers.fromSequence(MISSING_ACCOUNTS_FROM + random.nextInt(1_000_000))
+                            : accounts.get(random.nextInt(accountCount));
+                    long amount = 1 + random.nextLong(Money.ofRupees(2_000));
+                    outcomes.computeIfAbsent(transfer(router, from, to, amount), key -> new LongAdder()).increment();
+                }
+            });
+            workers[c].start();
+        }
+        Thread chaos = new Thread(() -> {
+            try {
+                Thread.sleep(1_500);
+                crash(1 % partitionCount, "mid-transfer");
+                Thread.sleep(1_500);
+                crash(partitionCount, "mid-transfer");
+                Thread.sleep(1_500);
+                crash(0, "mid-transfer");
+            } catch (Exception e) {
+                fail("restarting a process failed: " + e);
+            }
+        });
+        chaos.start();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        chaos.join();
+
+        awaitNoTransfersInFlight(router);
+        System.out.println("\nTransfer outcomes seen by clients:");
+        outcomes.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(outcome -> System.out.printf("  %-36s %,8d%n", outcome.getKey(), outcome.getValue().sum()));
+        checkTotal(router, accounts, opened, "after the crashes");
+        long reversals = 0;
+        for (String account : accounts) {
+            HttpResponse<String> history = get(router + "/accounts/" + account + "/history?limit=1000");
+            reversals += history.body().split("Reversed ", -1).length - 1;
+        }
+        if (reversals == 0) {
+            fail("no transfer to a missing account was reversed");
+        }
+        System.out.printf("%,d reversed transfers are in the senders' histories%n", reversals);
+
+        checkLegApplyOnce(accounts, partitionCount);
+
+        for (int i = 0; i <= partitionCount; i++) {
+            stop(i);
+        }
+        for (int i = 0; i <= partitionCount; i++) {
+            start(i);
+        }
+        checkTotal(router, accounts, opened, "after a clean restart");
+        for (int i = 0; i <= partitionCount; i++) {
+            stop(i);
+        }
+        System.out.println("\n✅ No money was created or lost across partition and router crashes.");
+    }
+
+    // Returns the outcome as reported, or what went wrong on the way
+    private static String transfer(String router, String from, String to, long amount) {
+        try {
+            HttpResponse<String> response = post(router + "/transfers",
+                    "{\"from\":\"" + from + "\",\"to\":\"" + to + "\",\"amount\":\"" + Money.format(amount) + "\"}");
+            String result = field(RESULT, response.body());
+            String state = field(STATE, response.body());
+            if (result == null) {
+                return "HTTP " + response.statusCode();
+            }
+            return state == null ? result : result + " (" + state + ")";
+        } catch (IOException e) {
+            // The router is down; its saga log finishes the transfer once it is back
+            sleep(100);
+            return "no answer";
+        }
+    }
+
+    private static void checkLegApplyOnce(List<String> accounts, int partitionCount) throws Exception {
+        String account = accounts.get(0);
+        int partition = AccountNumbers.partitionOf(account, partitionCount);
+        String leg = urls[partition] + "/transfer-legs/check-leg/";
+        String body = "{\"from\":\"" + account + "\",\"to\":\"" + AccountNumbers.fromSequence(MISSING_ACCOUNTS_FROM)
+                + "\",\"amount\":\"1.00\"}";
+        long before = balance(urls[partition], account);
+
+        post(leg + "debit", body);
+        post(leg + "debit", body);
+        expectBalance(urls[partition], account, before - 100, "after the same debit leg twice");
+        crash(partition, "after the debit leg");
+        post(leg + "debit", body);
+        expectBalance(urls[partition], account, before - 100, "after the journal was replayed");
+        stop(partition);
+        start(partition);
+        post(leg + "debit", body);
+        expectBalance(urls[partition], account, before - 100, "after a checkpoint dropped the journal");
+
+        post(leg + "reverse", body);
+        post(leg + "reverse", body);
+        expectBalance(urls[partition], account, before, "after the reversal leg twice");
+        System.out.println("A retried transfer leg was applied exactly once across a crash and a clean restart");
+    }
+
+    private static void expectBalance(String url, String account, long expected, String when) throws Exception {
+        long balance = balance(url, account);
+        if (balance != expected) {
+            fail(account + " holds " + Money.format(balance) + " " + when + ", expected " + Money.format(expected));
+        }
+    }
+
+    private static void checkTotal(String router, List<String> accounts, long opened, String when) throws Exception {
+        long total = 0;
+        for (String account : accounts) {
+            total += balance(router, account);
+        }
+        if (total != opened) {
+            fail("balances add up to " + Money.format(total) + " " + when + ", " + Money.format(opened) + " was opened");
+        }
+        System.out.println("Balances add up to " + Money.format(total) + " " + when);
+    }
+
+    private static void awaitNoTransfersInFlight(String router) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (true) {
+            try {
+                String inFlight = field(IN_FLIGHT, get(router + "/cluster").body());
+                if ("0".equals(inFlight)) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Still starting
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("transfers are still in flight after " + TIMEOUT.toSeconds() + "s");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static long balance(String url, String account) throws Exception {
+        HttpResponse<String> response = get(url + "/accounts/" + account);
+        String balance = field(BALANCE, response.body());
+        if (response.statusCode() != 200 || balance == null) {
+            fail("could not read " + account + ": " + response.statusCode() + " " + response.body());
+        }
+        return Money.parse(balance);
+    }
+
+    private static void crash(int process, String when) throws Exception {
+        processes[process].destroyForcibly().waitFor();
+        System.out.println("Killed " + name(process) + " " + when);
+        Thread.sleep(500);
+        start(process);
+    }
+
+    private static void stop(int process) throws Exception {
+        // SIGTERM runs the shutdown hook, which saves and checkpoints
+        processes[process].destroy();
+        processes[process].waitFor();
+    }
+
+    private static void start(int process) throws Exception {
+        int partitionCount = processes.length - 1;
+        Path directory = clusterDirectory.resolve(name(process).replace(' ', '-'));
+        Files.createDirectories(directory);
+        List<String> command = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"), "-Xmx256m",
+                "-cp", absoluteClassPath(), Main.class.getName()));
+        if (process < partitionCount) {
+            command.addAll(List.of("--partition", String.valueOf(process), String.valueOf(partitionCount),
+                    String.valueOf(ports[process])));
+        } else {
+            command.addAll(List.of("--router", String.valueOf(ports[process])));
+            command.addAll(List.of(urls).subList(0, partitionCount));
+        }
+        processes[process] = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(directory.resolve("out.log").toFile()))
+                .start();
+
+        String probe = process < partitionCount ? urls[process] + "/accounts/ACC0" : urls[process] + "/cluster";
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (true) {
+            try {
+                get(probe);
+                return;
+            } catch (IOException e) {
+                if (!processes[process].isAlive() || System.currentTimeMillis() > deadline) {
+                    fail(name(process) + " did not start; see " + directory.resolve("out.log"));
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static String name(int process) {
+        return process < processes.length - 1 ? "partition " + process : "router";
+    }
+
+    private static String absoluteClassPath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(Path.of(entry).toAbsolutePath().toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static HttpResponse<String> get(String url) throws IOException {
+        return send(HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build());
+    }
+
+    private static HttpResponse<String> post(String url, String json) throws IOException {
+        return send(HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build());
+    }
+
+    private static HttpResponse<String> send(HttpRequest request) throws IOException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static String field(Pattern pattern, String json) {
+        Matcher matcher = pattern.matcher(json);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
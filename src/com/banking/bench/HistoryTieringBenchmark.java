@@ -0,0 +1,179 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.model.HistoryPage;
+import com.banking.model.HistoryTierStats;
+import com.banking.model.HistoryTiering;
+import com.banking.persistence.StatementWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Builds the same accounts twice, first with all history in memory and then with the
+ * history cold tier enabled, and compares the heap they take. Then checks that everything
+ * that reads history sees the same entries after spilling (accounts.txt lines, CSV
+ * statements, snapshot records and pages), times reading recent and old history, and
+ * checks that the evictor kept the hot history within its bound.
+ *
+ * SyntheticData stamps history in 2024, so with a day window everything but each account's
+ * newest chunk counts as old; the default window is entries only.
+ *
+ * Usage: java com.banking.bench.HistoryTieringBenchmark [accounts] [historyPerAccount] [hotEntries] [hotDays] [maxHotMB]
+ */
+public class HistoryTieringBenchmark {
+
+    private static final int PAGE = 100;
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int historyPerAccount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int hotEntries = args.length > 2 ? Integer.parseInt(args[2]) : 1_024;
+        int hotDays = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        long maxHotBytes = (args.length > 4 ? Long.parseLong(args[4]) : 32) << 20;
+        SyntheticData data = new SyntheticData(7);
+
+        long before = usedHeap();
+        List<Account> accounts = build(data, accountCount, historyPerAccount);
+        long inMemory = usedHeap() - before;
+        int[] expected = new int[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            expected[i] = fingerprint(accounts.get(i));
+        }
+        long inMemoryScan = timeStatements(accounts);
+        accounts = null;
+        System.out.printf("All history in memory:  %,10d KB heap, all statements in %,d ms%n",
+                inMemory >> 10, inMemoryScan);
+
+        Path directory = Files.createTempDirectory("history");
+        try {
+            HistoryTiering.enable(directory, hotEntries, TimeUnit.DAYS.toMillis(hotDays), maxHotBytes);
+            before = usedHeap();
+            accounts = build(data, accountCount, historyPerAccount);
+            // Let the evictor catch up with what was loaded
+            Thread.sleep(2_500);
+            long tieredHeap = usedHeap() - before;
+            HistoryTierStats afterLoad = HistoryTiering.stats();
+            long tieredScan = timeStatements(accounts);
+            System.out.printf("Hot window %,d entries: %,10d KB heap, all statements in %,d ms%n",
+                    hotEntries, tieredHeap >> 10, tieredScan);
+            System.out.println("After load:       " + afterLoad);
+            System.out.println("After statements: " + HistoryTiering.stats());
+            System.out.printf("Cold tier on disk: %,d KB%n", diskBytes(directory) >> 10);
+
+            Account account = accounts.get(0);
+            int newest = Math.max(0, account.getTransactionHistory().size() - PAGE);
+            // Alternating between two old pages makes every read fetch a cold chunk
+            System.out.printf("Newest page: %8.1f µs   old pages: %8.1f µs%n",
+                    pageMicros(account, newest, newest), pageMicros(account, 0, 512));
+
+            for (int i = 0; i < accountCount; i++) {
+                if (fingerprint(accounts.get(i)) != expected[i]) {
+                    fail("account " + i + " reads differently after spilling");
+                }
+            }
+            if (afterLoad.getChunksSpilled() == 0) {
+                fail("nothing was spilled");
+            }
+            if (maxHotBytes > 0 && afterLoad.getHotBytes() > maxHotBytes) {
+                fail("hot history is " + afterLoad.getHotBytes() + " bytes, over the bound of " + maxHotBytes);
+            }
+            System.out.println("✅ History reads the same with cold chunks on disk.");
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static List<Account> build(SyntheticData data, int count, int historyPerAccount) {
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            accounts.add(data.account(i, historyPerAccount));
+        }
+        return accounts;
+    }
+
+    // Hash of everything that reads an account's history
+    private static int fingerprint(Account account) throws IOException {
+        StringWriter csv = new StringWriter();
+        StatementWriter.writeCsv(account, Long.MIN_VALUE, Long.MAX_VALUE, csv);
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        account.lock();
+        try {
+            account.getTransactionLog().writeTo(new DataOutputStream(snapshot));
+        } finally {
+            account.unlock();
+        }
+        List<String> pages = new ArrayList<>();
+        HistoryPage page = account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, 0, 777);
+        while (true) {
+            pages.addAll(page.getEntries());
+            if (!page.hasMore()) {
+                break;
+            }
+            page = account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, page.getNextOffset(), 777);
+        }
+        String file = account.toFileString();
+        if (!pages.equals(account.getTransactionHistory())) {
+            fail(account.getAccountNumber() + ": pages differ from the full history");
+        }
+        return ((file.hashCode() * 31 + csv.toString().hashCode()) * 31
+                + Arrays.hashCode(snapshot.toByteArray())) * 31 + pages.hashCode();
+    }
+
+    private static long timeStatements(List<Account> accounts) throws IOException {
+        long start = System.nanoTime();
+        for (Account account : accounts) {
+            StatementWriter.writeCsv(account, Long.MIN_VALUE, Long.MAX_VALUE, Writer.nullWriter());
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static double pageMicros(Account account, int offset, int otherOffset) {
+        int runs = 2_000;
+        for (int i = 0; i < runs; i++) {
+            account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, i % 2 == 0 ? offset : otherOffset, PAGE);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, i % 2 == 0 ? offset : otherOffset, PAGE);
+        }
+        return (System.nanoTime() - start) / 1e3 / runs;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long diskBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long total = 0;
+            for (Path file : files.toList()) {
+                total += Files.size(file);
+            }
+            return total;
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.service.BankService;
+
+/**
+ * Throughput, allocation and latency percentiles for the operations every request goes
+ * through: the Account primitives on one thread, then BankService operations on several
+ * threads, both spread over a large book and contended on a handful of hot accounts.
+ * Every pass starts from the same seeded accounts, so runs are comparable.
+ *
+ * Usage: java com.banking.bench.HotPathBenchmark [opsPerThread] [threads] [seed]
+ */
+public class HotPathBenchmark {
+
+    private static final int SMALL_BOOK = 10_000;
+    private static final int LARGE_BOOK = 100_000;
+    private static final int HOT_ACCOUNTS = 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        int ops = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors());
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        SyntheticData data = new SyntheticData(seed);
+        BenchmarkHarness harness = new BenchmarkHarness(seed);
+        BenchmarkHarness.printHeader();
+
+        harness.run("Account.deposit", 1, ops, () -> {
+            Account[] book = accounts(data, SMALL_BOOK);
+            return (thread, random) -> book[random.nextInt(book.length)].deposit(1 + random.nextInt(10_000));
+        });
+        harness.run("Account.withdraw", 1, ops, () -> {
+            Account[] book = accounts(data, SMALL_BOOK);
+            return (thread, random) -> book[random.nextInt(book.length)].withdraw(1 + random.nextInt(10_000));
+        });
+        harness.run("Account.transfer", 1, ops, () -> {
+            Account[] book = accounts(data, SMALL_BOOK);
+            return (thread, random) -> {
+                int from = random.nextInt(book.length);
+                int to = (from + 1 + random.nextInt(book.length - 1)) % book.length;
+                book[from].transfer(book[to], 1 + random.nextInt(10_000));
+            };
+        });
+
+        harness.run("BankService.createAccount", threads, ops, () -> {
+            BankService bankService = new BankService();
+            return (thread, random) -> bankService.createAccount("Bench Holder", "CURRENT", 1 + random.nextInt(10_000));
+        });
+
+        harness.run("BankService.getBalance", threads, ops, () -> {
+            BankService bankService = bank(data, LARGE_BOOK);
+            return (thread, random) -> bankService.getBalance(SyntheticData.accountNumber(random.nextInt(LARGE_BOOK)));
+        });
+        harness.run("BankService.deposit (spread)", threads, ops, () -> {
+            BankService bankService = bank(data, LARGE_BOOK);
+            return (thread, random) -> bankService.deposit(
+                    SyntheticData.accountNumber(random.nextInt(LARGE_BOOK)), 1 + random.nextInt(10_000));
+        });
+        harness.run("BankService.transfer (spread)", threads, ops, () -> transfers(bank(data, LARGE_BOOK), LARGE_BOOK));
+        harness.run("BankService.transfer (" + HOT_ACCOUNTS + " hot)", threads, ops,
+                () -> transfers(bank(data, HOT_ACCOUNTS), HOT_ACCOUNTS));
+    }
+
+    private static BenchmarkHarness.Operation transfers(BankService bankService, int accountCount) {
+        return (thread, random) -> {
+            int from = random.nextInt(accountCount);
+            int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+            bankService.transfer(SyntheticData.accountNumber(from), SyntheticData.accountNumber(to),
+                    1 + random.nextInt(10_000));
+        };
+    }
+
+    private static Account[] accounts(SyntheticData data, int count) {
+        Account[] book = new Account[count];
+        for (int i = 0; i < count; i++) {
+            book[i] = data.account(i, 0);
+        }
+        return book;
+    }
+
+    // An in-memory bank whose account i matches data.account(i) in holder, type and balance
+    private static BankService bank(SyntheticData data, int count) {
+        BankService bankService = new BankService();
+        for (int i = 0; i < count; i++) {
+            Account account = data.account(i, 0);
+            bankService.createAccount(account.getAccountHolderName(), account.getAccountType(), account.getBalance());
+        }
+        return bankService;
+    }
+}
@@ -0,0 +1,184 @@
+package com.banking.bench;
+
+import com.banking.server.BankHttpServer;
+import com.banking.service.BankService;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives the HTTP API with a fixed number of concurrent clients, each on a virtual thread,
+ * sending a mix of 50% balance reads, 30% deposits and 20% transfers for a fixed time.
+ * Reports throughput and latency percentiles for all requests, and how many were
+ * rejected with 503 by admission control or failed otherwise.
+ *
+ * With "local" (the default) as the URL, an in-memory bank and server are started in this
+ * JVM on a free port; otherwise the bank at the URL is used, e.g. one started with
+ * Main --server.
+ *
+ * Usage: java com.banking.bench.HttpLoadGenerator [url|local] [clients] [seconds] [accounts]
+ */
+public class HttpLoadGenerator {
+
+    private static final Pattern ACCOUNT_NUMBER = Pattern.compile("\"accountNumber\":\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "local";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int accountCount = args.length > 3 ? Integer.parseInt(args[3]) : 1_000;
+
+        BankHttpServer server = null;
+        String baseUrl = target;
+        if (target.equals("local")) {
+            server = new BankHttpServer(new BankService(), 0);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        List<String> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            HttpResponse<String> response = post(client, baseUrl + "/accounts",
+                    "{\"name\":\"Load " + i + "\",\"type\":\"CURRENT\",\"initialDeposit\":\"1000000\"}");
+            Matcher matcher = ACCOUNT_NUMBER.matcher(response.body());
+            if (response.statusCode() != 201 || !matcher.find()) {
+                System.out.println("❌ Could not create account: " + response.statusCode() + " " + response.body());
+                System.exit(1);
+            }
+            accounts.add(matcher.group(1));
+        }
+
+        // Short warm-up so the server and client are compiled before measuring
+        runClients(client, baseUrl, accounts, clients, Math.min(2, seconds) * 1_000_000_000L);
+        long[][] results = runClients(client, baseUrl, accounts, clients, seconds * 1_000_000_000L);
+
+        long ok = 0;
+        long busy = 0;
+        long failed = 0;
+        int total = 0;
+        for (long[] result : results) {
+            ok += result[0];
+            busy += result[1];
+            failed += result[2];
+            total += (int) result[3];
+        }
+        long[] latencies = new long[total];
+        int filled = 0;
+        for (long[] result : results) {
+            int count = (int) result[3];
+            System.arraycopy(result, 4, latencies, filled, count);
+            filled += count;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("Clients: %d, duration: %d s, accounts: %,d%n", clients, seconds, accountCount);
+        System.out.printf("Throughput : %,.0f requests/s (%,d ok, %,d rejected 503, %,d failed)%n",
+                total / (double) seconds, ok, busy, failed);
+        System.out.printf("Latency    : p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                percentile(latencies, 0.999) / 1e6, total > 0 ? latencies[total - 1] / 1e6 : 0.0);
+
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Runs the clients until the deadline. Each returns {ok, 503s, failures, count,
+     * latency nanos...}.
+     */
+    private static long[][] runClients(HttpClient client, String baseUrl, List<String> accounts,
+                                       int clients, long durationNanos) throws Exception {
+        long deadline = System.nanoTime() + durationNanos;
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                SplittableRandom random = new SplittableRandom(42 + c);
+                futures.add(executor.submit(() -> runClient(client, baseUrl, accounts, random, deadline)));
+            }
+        }
+        long[][] results = new long[clients][];
+        for (int c = 0; c < clients; c++) {
+            results[c] = futures.get(c).get();
+        }
+        return results;
+    }
+
+    private static long[] runClient(HttpClient client, String baseUrl, List<String> accounts,
+                                    SplittableRandom random, long deadline) {
+        long[] result = new long[4 + 1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            int index = random.nextInt(accounts.size());
+            String account = accounts.get(index);
+            int pick = random.nextInt(10);
+            long start = System.nanoTime();
+            int status;
+            try {
+                if (pick < 5) {
+                    status = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/accounts/" + account)).build(),
+                            HttpResponse.BodyHandlers.ofString()).statusCode();
+                } else if (pick < 8) {
+                    status = post(client, baseUrl + "/accounts/" + account + "/deposit",
+                            "{\"amount\":\"" + (1 + random.nextInt(100)) + ".50\"}").statusCode();
+                } else {
+                    String to = accounts.get((index + 1 + random.nextInt(accounts.size() - 1)) % accounts.size());
+                    status = post(client, baseUrl + "/transfers", "{\"from\":\"" + account + "\",\"to\":\"" + to
+                            + "\",\"amount\":\"" + (1 + random.nextInt(100)) + "\"}").statusCode();
+                }
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long nanos = System.nanoTime() - start;
+
+            if (status == 200) {
+                result[0]++;
+            } else if (status == 503) {
+                result[1]++;
+            } else {
+                result[2]++;
+            }
+            if (4 + count == result.length) {
+                result = Arrays.copyOf(result, result.length * 2);
+            }
+            result[4 + count++] = nanos;
+        }
+        result[3] = count;
+        return result;
+    }
+
+    private static HttpResponse<String> post(HttpClient client, String url, String json)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
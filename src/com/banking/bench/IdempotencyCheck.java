@@ -0,0 +1,203 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.model.OperationResult;
+import com.banking.service.BankService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Checks idempotency keys on both engines: a retried deposit, transfer or account opening
+ * is applied once and answered with the first result, also when the retries race each
+ * other; a key reused for a different request is refused; keys survive a restart, both
+ * from the journal and from a checkpoint; and the cache stays within its capacity, which
+ * rejected calls do not use up. Then compares deposit throughput with and without keys on an in-memory bank.
+ *
+ * Runs in ./data, which it empties first.
+ *
+ * Usage: java com.banking.bench.IdempotencyCheck [threads=16] [depositsPerThread=50000]
+ */
+public class IdempotencyCheck {
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        for (boolean sequencer : new boolean[] {false, true}) {
+            System.out.println("== " + (sequencer ? "Sequencer" : "Lock-based") + " engine ==");
+            SyntheticData.resetDataDirectory();
+            checkRetries(sequencer);
+            checkCapacity(sequencer);
+        }
+        measureThroughput(threads, perThread);
+
+        if (failures > 0) {
+            System.out.println("\n❌ " + failures + " idempotency check(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("\n✅ Retried operations were applied exactly once.");
+    }
+
+    private static BankService open(boolean sequencer) {
+        BankService bankService = new BankService();
+        if (sequencer) {
+            bankService.useSequencer(2, 1024);
+        }
+        bankService.loadAccountsFromFile();
+        return bankService;
+    }
+
+    private static void checkRetries(boolean sequencer) throws InterruptedException {
+        BankService first = open(sequencer);
+        BankService bankService = first;
+        String alice = bankService.createAccount("Alice", "SAVINGS", Money.ofRupees(1_000), "open-alice");
+        String again = bankService.createAccount("Alice", "SAVINGS", Money.ofRupees(1_000), "open-alice");
+        check("A retried account opening returns the same account", alice != null && alice.equals(again));
+        check("Only one account was opened", bankService.getTotalAccounts() == 1);
+        String bob = bankService.createAccount("Bob", "CURRENT", Money.ofRupees(1_000), "open-bob");
+        check("A key reused to open a different account is refused",
+                bankService.createAccount("Carol", "CURRENT", Money.ofRupees(1_000), "open-bob") == null
+                        && bankService.isIdempotencyKeyUsed("open-bob"));
+
+        bankService.deposit(alice, Money.ofRupees(100), "deposit-1");
+        OperationResult retried = bankService.deposit(alice, Money.ofRupees(100), "deposit-1");
+        check("A retried deposit succeeds without being applied again",
+                retried == OperationResult.SUCCESS && bankService.getBalance(alice) == Money.ofRupees(1_100));
+        check("A key reused for a different deposit is refused",
+                bankService.deposit(alice, Money.ofRupees(200), "deposit-1") == OperationResult.IDEMPOTENCY_KEY_REUSED);
+
+        // Racing retries: one of them applies the transfer, the others wait for its result
+        int racers = 8;
+        List<OperationResult> results = new ArrayList<>();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < racers; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                OperationResult result = first.transfer(alice, bob, Money.ofRupees(50), "transfer-1");
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check("Racing retries of a transfer all see SUCCESS",
+                results.size() == racers && results.stream().allMatch(result -> result == OperationResult.SUCCESS));
+        check("The transfer was applied once", bankService.getBalance(bob) == Money.ofRupees(1_050));
+
+        // A rejected call is not remembered; its retry is evaluated again
+        check("A withdrawal beyond the balance is refused",
+                !bankService.withdraw(alice, Money.ofRupees(5_000), "withdraw-1").isSuccess());
+        bankService.deposit(alice, Money.ofRupees(5_000), "deposit-2");
+        check("Its retry succeeds once the money is there",
+                bankService.withdraw(alice, Money.ofRupees(5_000), "withdraw-1").isSuccess());
+        long aliceBalance = bankService.getBalance(alice);
+        long bobBalance = bankService.getBalance(bob);
+        bankService.close();
+
+        // Replayed from the journal
+        bankService = open(sequencer);
+        bankService.deposit(alice, Money.ofRupees(100), "deposit-1");
+        bankService.transfer(alice, bob, Money.ofRupees(50), "transfer-1");
+        bankService.withdraw(alice, Money.ofRupees(5_000), "withdraw-1");
+        check("Retries after a restart are not applied again",
+                bankService.getBalance(alice) == aliceBalance && bankService.getBalance(bob) == bobBalance);
+        check("An account opening retried after a restart returns the same account",
+                alice.equals(bankService.createAccount("Alice", "SAVINGS", Money.ofRupees(1_000), "open-alice"))
+                        && bankService.getTotalAccounts() == 2);
+        bankService.checkpoint();
+        bankService.close();
+
+        // Read back from the checkpoint, the journal segments holding them being gone
+        bankService = open(sequencer);
+        bankService.deposit(alice, Money.ofRupees(100), "deposit-1");
+        bankService.transfer(alice, bob, Money.ofRupees(50), "transfer-1");
+        check("Retries after a checkpoint and restart are not applied again",
+                bankService.getBalance(alice) == aliceBalance && bankService.getBalance(bob) == bobBalance);
+        check("A reused key is still refused after a restart",
+                bankService.deposit(bob, Money.ofRupees(100), "deposit-1") == OperationResult.IDEMPOTENCY_KEY_REUSED);
+        bankService.close();
+    }
+
+    private static void checkCapacity(boolean sequencer) {
+        BankService bankService = open(sequencer);
+        bankService.configureIdempotency(1_000, 60_000);
+        String account = bankService.createAccount("Capacity", "CURRENT", Money.ofRupees(1_000));
+        for (int i = 0; i < 5_000; i++) {
+            bankService.deposit(account, 1, "capacity-" + i);
+        }
+        check("The oldest keys were evicted", !bankService.isIdempotencyKeyUsed("capacity-0"));
+        check("The newest keys are still remembered", bankService.isIdempotencyKeyUsed("capacity-4999"));
+
+        // Rejected calls leave nothing behind, so however many there are they cannot push out a live key
+        bankService.deposit(account, 1, "live-key");
+        for (int i = 0; i < 5_000; i++) {
+            bankService.withdraw(account, Money.ofRupees(1_000_000), "rejected-" + (i % 10));
+        }
+        check("Repeated rejected keys do not evict a live key", bankService.isIdempotencyKeyUsed("live-key"));
+        long balance = bankService.getBalance(account);
+        bankService.deposit(account, 1, "live-key");
+        check("A retry of that key is still not applied again", bankService.getBalance(account) == balance);
+        bankService.close();
+    }
+
+    private static void measureThroughput(int threads, int perThread) throws InterruptedException {
+        System.out.println("\n== Deposit throughput, in memory, " + threads + " threads ==");
+        for (boolean keyed : new boolean[] {false, true}) {
+            BankService bankService = new BankService();
+            List<String> accounts = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                accounts.add(bankService.createAccount("Throughput " + i, "CURRENT", Money.ofRupees(1_000)));
+            }
+            // Keep the JIT from discarding results
+            ConcurrentHashMap<OperationResult, Boolean> seen = new ConcurrentHashMap<>();
+            List<Thread> workers = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                Thread thread = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < perThread; i++) {
+                        String accountNumber = accounts.get(random.nextInt(accounts.size()));
+                        OperationResult result = keyed
+                                ? bankService.deposit(accountNumber, 100, "t" + worker + "-" + i)
+                                : bankService.deposit(accountNumber, 100);
+                        if (!result.isSuccess()) {
+                            seen.put(result, Boolean.TRUE);
+                        }
+                    }
+                });
+                workers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : workers) {
+                thread.join();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            long operations = (long) threads * perThread;
+            System.out.printf("  %-12s %,12d deposits/s%s%n", keyed ? "with keys" : "without keys",
+                    operations * 1_000_000_000L / elapsedNanos, seen.isEmpty() ? "" : "  (rejected: " + seen.keySet() + ")");
+        }
+    }
+
+    private static void check(String what, boolean passed) {
+        System.out.println("  " + (passed ? "✅ " : "❌ ") + what);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
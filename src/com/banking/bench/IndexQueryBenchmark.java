@@ -0,0 +1,160 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.model.Money;
+import com.banking.service.AccountSummary;
+import com.banking.service.BankService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times the secondary-index queries on a large book of seeded accounts while other threads
+ * keep moving money, then stops the writers and checks every query against a full scan.
+ *
+ * Usage: java com.banking.bench.IndexQueryBenchmark [accounts] [writerThreads] [queriesPerKind]
+ */
+public class IndexQueryBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        SyntheticData data = new SyntheticData(42);
+        BankService bankService = new BankService();
+        for (int i = 0; i < accountCount; i++) {
+            Account account = data.account(i, 0);
+            bankService.createAccount(account.getAccountHolderName(), account.getAccountType(), account.getBalance());
+        }
+
+        // Writers push some current accounts into overdraft and keep balances moving
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < writers; t++) {
+            SplittableRandom random = new SplittableRandom(7 + t);
+            Thread writer = new Thread(() -> {
+                while (!stop.get()) {
+                    String from = SyntheticData.accountNumber(random.nextInt(accountCount));
+                    String to = SyntheticData.accountNumber(random.nextInt(accountCount));
+                    if (random.nextInt(4) == 0) {
+                        bankService.withdraw(from, Money.ofRupees(1 + random.nextInt(1_000_000)));
+                    } else if (!from.equals(to)) {
+                        bankService.transfer(from, to, 1 + random.nextInt((int) Money.ofRupees(10_000)));
+                    }
+                }
+            });
+            threads.add(writer);
+            writer.start();
+        }
+
+        SplittableRandom random = new SplittableRandom(99);
+        String[] prefixes = {"ra", "pri", "aarav sh", "kavya i", "s", "vikram k"};
+        time("searchByHolderName(100)", queries,
+                () -> bankService.searchByHolderName(prefixes[random.nextInt(prefixes.length)], 100));
+        time("getTopBalances(100)", queries, () -> bankService.getTopBalances(100));
+        time("findOverdrawnAccounts(100)", queries, () -> bankService.findOverdrawnAccounts(100));
+        time("findByBalanceRange(100)", queries, () -> {
+            long min = Money.ofRupees(random.nextInt(1_000_000));
+            return bankService.findByBalanceRange(min, min + Money.ofRupees(1_000), 100);
+        });
+        time("findByAccountType(100)", queries, () -> bankService.findByAccountType("CURRENT", 100));
+
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Quiescent now, so every index must agree exactly with a scan
+        List<Account> all = new ArrayList<>(accountCount);
+        bankService.forEachAccount(all::add);
+        all.sort(Comparator.comparingLong(Account::getBalance).thenComparing(Account::getAccountNumber));
+
+        List<String> expectedTop = new ArrayList<>();
+        for (int i = all.size() - 1; i >= 0 && expectedTop.size() < 100; i--) {
+            expectedTop.add(describe(all.get(i)));
+        }
+        List<String> expectedSavings = new ArrayList<>();
+        for (int i = all.size() - 1; i >= 0 && expectedSavings.size() < 100; i--) {
+            if (all.get(i).getAccountType().equals("SAVINGS")) {
+                expectedSavings.add(describe(all.get(i)));
+            }
+        }
+        List<String> expectedOverdrawn = new ArrayList<>();
+        int overdrawnTotal = 0;
+        for (Account account : all) {
+            if (account.getBalance() < 0 && account.getAccountType().equals("CURRENT")) {
+                overdrawnTotal++;
+                if (expectedOverdrawn.size() < 100) {
+                    expectedOverdrawn.add(describe(account));
+                }
+            }
+        }
+        long min = Money.ofRupees(500_000);
+        long max = min + Money.ofRupees(100);
+        List<String> expectedRange = new ArrayList<>();
+        for (Account account : all) {
+            if (account.getBalance() >= min && account.getBalance() <= max && expectedRange.size() < 1_000) {
+                expectedRange.add(describe(account));
+            }
+        }
+        long expectedRahul = all.stream().filter(a -> a.getAccountHolderName().startsWith("Rahul ")).count();
+
+        check("top balances", expectedTop, describeAll(bankService.getTopBalances(100)));
+        check("savings by type", expectedSavings, describeAll(bankService.findByAccountType("savings", 100)));
+        check("overdrawn", expectedOverdrawn, describeAll(bankService.findOverdrawnAccounts(100)));
+        check("balance range", expectedRange, describeAll(bankService.findByBalanceRange(min, max, 1_000)));
+        int rahul = bankService.searchByHolderName("rahul", accountCount).size();
+        if (rahul != expectedRahul) {
+            fail("name search found " + rahul + ", scan found " + expectedRahul);
+        }
+        System.out.println("✅ Indexes match a full scan (" + overdrawnTotal + " accounts overdrawn, "
+                + rahul + " named Rahul).");
+    }
+
+    private interface Query {
+        List<AccountSummary> run();
+    }
+
+    private static void time(String name, int count, Query query) {
+        for (int i = 0; i < count / 4; i++) {
+            query.run();
+        }
+        long[] nanos = new long[count];
+        int rows = 0;
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            rows += query.run().size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-30s p50 %8.1f µs  p99 %8.1f µs  (%.0f rows avg)%n",
+                name, nanos[count / 2] / 1e3, nanos[(int) (count * 0.99)] / 1e3, rows / (double) count);
+    }
+
+    private static String describe(Account account) {
+        return account.getAccountNumber() + "=" + account.getBalance();
+    }
+
+    private static List<String> describeAll(List<AccountSummary> summaries) {
+        List<String> described = new ArrayList<>(summaries.size());
+        for (AccountSummary summary : summaries) {
+            described.add(summary.getAccountNumber() + "=" + summary.getBalance());
+        }
+        return described;
+    }
+
+    private static void check(String what, List<String> expected, List<String> actual) {
+        if (!expected.equals(actual)) {
+            fail(what + " differ from a scan: expected " + expected.size() + " rows, got " + actual.size());
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
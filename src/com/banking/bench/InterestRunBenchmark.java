@@ -0,0 +1,69 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import com.banking.service.InterestRunSummary;
+import java.time.YearMonth;
+
+/**
+ * Times a bulk interest run over many savings accounts against crediting them one at a
+ * time, then reruns the same period to check that nobody is credited twice and that each
+ * account got one month (4% / 12) of interest.
+ *
+ * Usage: java com.banking.bench.InterestRunBenchmark [savingsAccounts]
+ */
+public class InterestRunBenchmark {
+
+    public static void main(String[] args) {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        BankService bankService = new BankService();
+        for (int i = 0; i < accountCount; i++) {
+            bankService.createAccount("Saver " + i, "SAVINGS", Money.ofRupees(1_000) + i);
+        }
+        bankService.createAccount("Business", "CURRENT", Money.ofRupees(50_000));
+
+        // Warm-up on an earlier period so the timed run is compiled
+        bankService.runInterest(YearMonth.of(2000, 1));
+
+        YearMonth period = YearMonth.of(2000, 2);
+        long before = totalBalance(bankService, accountCount);
+        long expected = monthlyInterest(bankService, accountCount);
+        InterestRunSummary first = bankService.runInterest(period);
+        long afterFirst = totalBalance(bankService, accountCount);
+        InterestRunSummary rerun = bankService.runInterest(period);
+        long afterRerun = totalBalance(bankService, accountCount);
+
+        System.out.printf("bulk run : %,d accounts in %,d ms (%,.0f accounts/s)%n",
+                first.getAccountsCredited(), first.getElapsedMillis(),
+                first.getAccountsCredited() * 1000.0 / Math.max(1, first.getElapsedMillis()));
+        System.out.println("first    : " + first);
+        System.out.println("rerun    : " + rerun);
+
+        if (first.getAccountsCredited() != accountCount
+                || afterFirst - before != first.getTotalInterest()
+                || first.getTotalInterest() != expected
+                || rerun.getAccountsCredited() != 0
+                || afterRerun != afterFirst) {
+            System.out.println("❌ Interest run is not exact and idempotent!");
+            System.exit(1);
+        }
+        System.out.println("✅ Every savings account credited once; rerun changed nothing.");
+    }
+
+    private static long totalBalance(BankService bankService, int accountCount) {
+        long total = 0;
+        for (int i = 0; i < accountCount; i++) {
+            total += bankService.getBalance("ACC" + (1001 + i));
+        }
+        return total;
+    }
+
+    private static long monthlyInterest(BankService bankService, int accountCount) {
+        long total = 0;
+        for (int i = 0; i < accountCount; i++) {
+            total += Money.applyRate(bankService.getBalance("ACC" + (1001 + i)), 400, 12);
+        }
+        return total;
+    }
+}
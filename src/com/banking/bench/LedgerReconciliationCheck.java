@@ -0,0 +1,121 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.model.CurrentAccount;
+import com.banking.model.Money;
+import com.banking.model.SavingsAccount;
+import com.banking.model.TransactionKind;
+import com.banking.model.TransactionLog;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reconciliation check for fixed-point money: threads run random deposits, withdrawals,
+ * transfers and interest credits (amounts with odd paise so rounding is exercised), then
+ * the ledger must sum exactly:
+ *  - every account's history replays to its balance, and
+ *  - the bank total equals opening balances + deposits - withdrawals + interest.
+ *
+ * Usage: java com.banking.bench.LedgerReconciliationCheck [operations] [threads] [accounts]
+ */
+public class LedgerReconciliationCheck {
+
+    public static void main(String[] args) throws InterruptedException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        List<Account> accounts = new ArrayList<>();
+        long opening = 0;
+        for (int i = 0; i < accountCount; i++) {
+            long initial = Money.ofRupees(10_000) + 37 * i;
+            String accountNumber = "ACC" + (1001 + i);
+            accounts.add(i % 2 == 0
+                    ? new SavingsAccount(accountNumber, "Ledger " + i, initial)
+                    : new CurrentAccount(accountNumber, "Ledger " + i, initial));
+            opening += initial;
+        }
+
+        AtomicLong deposited = new AtomicLong();
+        AtomicLong withdrawn = new AtomicLong();
+        AtomicLong interest = new AtomicLong();
+        int perThread = operations / threads;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    Account account = accounts.get(random.nextInt(accountCount));
+                    long amount = 1 + random.nextLong(Money.ofRupees(200));
+                    int op = random.nextInt(100);
+                    if (op < 35) {
+                        if (account.deposit(amount).isSuccess()) {
+                            deposited.addAndGet(amount);
+                        }
+                    } else if (op < 65) {
+                        if (account.withdraw(amount).isSuccess()) {
+                            withdrawn.addAndGet(amount);
+                        }
+                    } else if (op < 99) {
+                        Account to = accounts.get(random.nextInt(accountCount));
+                        if (to != account) {
+                            account.transfer(to, amount);
+                        }
+                    } else if (account instanceof SavingsAccount savings) {
+                        interest.addAndGet(savings.creditInterest());
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int mismatched = 0;
+        long total = 0;
+        for (Account account : accounts) {
+            long replayed = replay(account.getTransactionLog());
+            if (replayed != account.getBalance()) {
+                mismatched++;
+                System.out.println("❌ " + account.getAccountNumber() + " history sums to ₹" + Money.format(replayed)
+                        + " but balance is ₹" + Money.format(account.getBalance()));
+            }
+            total += account.getBalance();
+        }
+        long expected = opening + deposited.get() - withdrawn.get() + interest.get();
+
+        System.out.println("Opening balances    : ₹" + Money.format(opening));
+        System.out.println("Deposits            : ₹" + Money.format(deposited.get()));
+        System.out.println("Withdrawals         : ₹" + Money.format(withdrawn.get()));
+        System.out.println("Interest credited   : ₹" + Money.format(interest.get()));
+        System.out.println("Expected total      : ₹" + Money.format(expected));
+        System.out.println("Actual total        : ₹" + Money.format(total));
+
+        if (mismatched > 0 || total != expected) {
+            System.out.println("❌ Ledger does not reconcile!");
+            System.exit(1);
+        }
+        System.out.println("✅ Ledger reconciles to the paisa.");
+    }
+
+    private static long replay(TransactionLog log) {
+        long balance = 0;
+        for (int i = 0; i < log.size(); i++) {
+            TransactionKind kind = log.kind(i);
+            long amount = log.amount(i);
+            // Transfer entries annotate the withdrawal/deposit entry recorded just before them
+            switch (kind) {
+                case OPENED, DEPOSIT, INTEREST -> balance += amount;
+                case WITHDRAWAL -> balance -= amount;
+                default -> {
+                }
+            }
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,171 @@
+package com.banking.bench;
+
+import com.banking.model.OperationResult;
+import com.banking.service.BankMetrics;
+import com.banking.service.BankService;
+import com.banking.service.MetricsSnapshot;
+import com.banking.service.OperationMetrics;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Checks the operation metrics of an in-memory BankService and prices them. A mix of
+ * deposits, withdrawals (some against the minimum balance or past the overdraft limit) and
+ * transfers is counted by hand and compared with the snapshot and with what the JMX MBean
+ * reports. Then the same loop of withdrawals too large to go through, which leave every
+ * account as it was, runs with every operation timed, with the default sampling, with
+ * timing practically off, and on a second service with the same accounts and metrics
+ * disabled. Against that service, timing off gives what counting costs per operation and
+ * the default sampling what the metrics cost in all, which must stay under 50 ns.
+ *
+ * Usage: java com.banking.bench.MetricsOverheadBenchmark [operations] [accounts]
+ */
+public class MetricsOverheadBenchmark {
+
+    private static final int ROUNDS = 6;
+    private static final double BUDGET_NANOS = 50;
+    // More than any account in the run holds or may overdraw
+    private static final long UNAFFORDABLE = 1_000_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        // Both services get the same accounts, created side by side, and the same mix below
+        BankService bankService = new BankService();
+        BankService uncounted = new BankService();
+        uncounted.disableMetrics();
+        // Each service is passed its own account numbers, so lookups compare by identity in both
+        String[] accounts = new String[accountCount];
+        String[] uncountedAccounts = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = bankService.createAccount("Metrics Holder " + i, i % 2 == 0 ? "SAVINGS" : "CURRENT", 100_000);
+            uncountedAccounts[i] = uncounted.createAccount("Metrics Holder " + i, i % 2 == 0 ? "SAVINGS" : "CURRENT", 100_000);
+        }
+        bankService.registerMetricsMBean();
+
+        long[] expected = new long[OperationResult.values().length];
+        long[] transfers = new long[OperationResult.values().length];
+        int checked = Math.min(operations, 200_000);
+        runMix(bankService, accounts, checked, expected, transfers);
+        runMix(uncounted, uncountedAccounts, checked, new long[expected.length], new long[transfers.length]);
+        MetricsSnapshot snapshot = bankService.getMetrics().snapshot();
+        System.out.println(snapshot);
+        checkOutcomes(snapshot.get(BankMetrics.Operation.WITHDRAW), expected);
+        checkOutcomes(snapshot.get(BankMetrics.Operation.TRANSFER), transfers);
+        if (snapshot.get(BankMetrics.Operation.CREATE_ACCOUNT).getCount() != accountCount) {
+            fail("created " + accountCount + " accounts, counted "
+                    + snapshot.get(BankMetrics.Operation.CREATE_ACCOUNT).getCount());
+        }
+        if (snapshot.get(BankMetrics.Operation.WITHDRAW).getOutcome(OperationResult.INSUFFICIENT_FUNDS) == 0
+                || snapshot.get(BankMetrics.Operation.WITHDRAW).getOutcome(OperationResult.OVERDRAFT_LIMIT_EXCEEDED) == 0) {
+            fail("the mix produced no minimum-balance or no overdraft rejections");
+        }
+        checkJmx(snapshot);
+
+        // Same withdrawals each round and setting, in alternating order, so only the metrics differ
+        int[] intervals = {1, BankMetrics.DEFAULT_SAMPLE_INTERVAL, 1 << 30};
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < best.length; i++) {
+                int setting = round % 2 == 0 ? i : best.length - 1 - i;
+                if (setting == intervals.length) {
+                    best[setting] = Math.min(best[setting], rejectedWithdrawalNanos(uncounted, uncountedAccounts, operations));
+                    continue;
+                }
+                bankService.getMetrics().setLatencySampleInterval(intervals[setting]);
+                best[setting] = Math.min(best[setting], rejectedWithdrawalNanos(bankService, accounts, operations));
+            }
+        }
+        if (uncounted.getMetrics().snapshot().get(BankMetrics.Operation.WITHDRAW).getCount() != 0) {
+            fail("a service with metrics disabled counted withdrawals");
+        }
+        System.out.printf("%nrejected withdraw, every operation timed:   %6.1f ns/op%n", best[0]);
+        System.out.printf("rejected withdraw, 1 in %d timed (default): %6.1f ns/op%n", intervals[1], best[1]);
+        System.out.printf("rejected withdraw, timing off:               %6.1f ns/op%n", best[2]);
+        System.out.printf("rejected withdraw, metrics disabled:         %6.1f ns/op%n", best[3]);
+        System.out.printf("counting costs %.1f ns/op; timing adds %.1f ns/op when sampled, %.1f ns/op when every"
+                + " operation is timed%n", best[2] - best[3], best[1] - best[2], best[0] - best[2]);
+        double overhead = best[1] - best[3];
+        System.out.printf("metrics at the default sampling cost %.1f ns/op (budget %.0f ns/op)%n", overhead, BUDGET_NANOS);
+        if (overhead >= BUDGET_NANOS) {
+            fail("metrics cost " + String.format("%.1f", overhead) + " ns/op, over the " + BUDGET_NANOS + " ns budget");
+        }
+        bankService.close();
+        uncounted.close();
+        System.out.println("\n✅ Metrics count every outcome, match over JMX and stay within budget.");
+    }
+
+    private static void runMix(BankService bankService, String[] accounts, int operations, long[] withdrawals,
+            long[] transfers) {
+        SplittableRandom random = new SplittableRandom(17);
+        for (int i = 0; i < operations; i++) {
+            String account = accounts[random.nextInt(accounts.length)];
+            // Large enough that savings withdrawals hit the minimum balance and current ones the overdraft limit
+            long amount = 1 + random.nextLong(200_000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    bankService.deposit(account, amount);
+                    break;
+                case 1:
+                    withdrawals[bankService.withdraw(account, amount).ordinal()]++;
+                    break;
+                default:
+                    transfers[bankService.transfer(account, accounts[random.nextInt(accounts.length)], amount).ordinal()]++;
+                    break;
+            }
+        }
+    }
+
+    private static double rejectedWithdrawalNanos(BankService bankService, String[] accounts, int operations) {
+        SplittableRandom random = new SplittableRandom(3);
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            bankService.withdraw(accounts[random.nextInt(accounts.length)], UNAFFORDABLE);
+        }
+        return (double) (System.nanoTime() - start) / operations;
+    }
+
+    private static void checkOutcomes(OperationMetrics metrics, long[] expected) {
+        for (OperationResult result : OperationResult.values()) {
+            if (metrics.getOutcome(result) != expected[result.ordinal()]) {
+                fail(metrics.getOperation().label() + " " + result + ": counted " + metrics.getOutcome(result)
+                        + ", expected " + expected[result.ordinal()]);
+            }
+        }
+    }
+
+    private static void checkJmx(MetricsSnapshot snapshot) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.banking:type=BankMetrics");
+        TabularData counters = (TabularData) server.getAttribute(name, "Counters");
+        long withdrawals = 0;
+        for (Object row : counters.values()) {
+            CompositeData entry = (CompositeData) row;
+            if (entry.get("key").equals("withdraw.count")) {
+                withdrawals = (Long) entry.get("value");
+            }
+        }
+        if (withdrawals != snapshot.get(BankMetrics.Operation.WITHDRAW).getCount()) {
+            fail("JMX reports " + withdrawals + " withdrawals, the snapshot "
+                    + snapshot.get(BankMetrics.Operation.WITHDRAW).getCount());
+        }
+        TabularData latencies = (TabularData) server.getAttribute(name, "LatencyMicros");
+        if (latencies.isEmpty()) {
+            fail("JMX reports no latencies");
+        }
+        String dump = (String) server.invoke(name, "dump", null, null);
+        if (!dump.contains("withdraw")) {
+            fail("JMX dump has no withdrawals: " + dump);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
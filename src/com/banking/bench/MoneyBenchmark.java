@@ -0,0 +1,102 @@
+package com.banking.bench;
+
+import com.banking.model.CurrentAccount;
+import com.banking.model.Money;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the old double balance arithmetic with long paise: raw throughput of the
+ * deposit/interest arithmetic, drift after repeated interest credits, and allocation per
+ * operation on Account.deposit/withdraw.
+ *
+ * Usage: java com.banking.bench.MoneyBenchmark [operations]
+ */
+public class MoneyBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Keeps results alive so the JIT cannot drop the loops
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        for (int round = 0; round < 3; round++) {
+            boolean warmup = round < 2;
+            long doubleNanos = timeDouble(operations);
+            long longNanos = timeLong(operations);
+            if (!warmup) {
+                System.out.printf("double arithmetic   : %,.0f ops/s%n", operations * 1e9 / doubleNanos);
+                System.out.printf("paise arithmetic    : %,.0f ops/s%n", operations * 1e9 / longNanos);
+            }
+        }
+
+        interestDrift(10_000);
+        accountAllocation(operations / 10);
+    }
+
+    private static long timeDouble(int operations) {
+        double balance = 1000.0;
+        double interest = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            balance += 0.10;
+            interest += balance * 0.04;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = Double.doubleToLongBits(balance + interest);
+        return elapsed;
+    }
+
+    private static long timeLong(int operations) {
+        long balance = Money.ofRupees(1000);
+        long interest = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            balance += 10;
+            interest += Money.applyRate(balance, 400);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = balance + interest;
+        return elapsed;
+    }
+
+    // Adds ₹0.10 repeatedly: the double total wanders off the exact value, paise do not
+    private static void interestDrift(int credits) {
+        double doubleBalance = 0;
+        long paiseBalance = 0;
+        for (int i = 0; i < credits; i++) {
+            doubleBalance += 0.10;
+            paiseBalance += 10;
+        }
+        System.out.println("\n" + credits + " credits of ₹0.10");
+        System.out.println("double total        : ₹" + doubleBalance);
+        System.out.println("paise total         : ₹" + Money.format(paiseBalance));
+    }
+
+    private static void accountAllocation(int operations) {
+        CurrentAccount account = new CurrentAccount("ACC1001", "Bench", Money.ofRupees(1_000_000));
+        long threadId = Thread.currentThread().threadId();
+
+        // History chunks are allocated as the log grows; measure in steady state after warm-up
+        for (int i = 0; i < operations; i++) {
+            account.deposit(150);
+            account.withdraw(150);
+        }
+
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            account.deposit(150);
+            account.withdraw(150);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%nAccount deposit+withdraw: %,.0f pairs/s, %.1f bytes allocated per pair%n",
+                operations * 1e9 / elapsed, (double) bytes / operations);
+        System.out.println("(allocation is the history log's chunk storage; the balance path itself allocates nothing)");
+        sink = account.getBalance();
+    }
+}
@@ -0,0 +1,143 @@
+package com.banking.bench;
+
+import com.banking.service.BankEvent;
+import com.banking.service.BankService;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Times loading and saving whole books of seeded synthetic accounts: the legacy
+ * accounts.txt load, a full save (accounts.txt plus snapshot), a reload from the snapshot,
+ * the first checkpoint into the account store and a reopen of that store. Reports file
+ * sizes and the heap the loaded book occupies, and checks that the saved accounts.txt is
+ * byte for byte the generated one, less its old-style first line.
+ *
+ * Runs in ./data, which is wiped before each size (see SyntheticData.resetDataDirectory).
+ * Ten million accounts need roughly -Xmx8g with the default two history entries.
+ *
+ * Usage: java com.banking.bench.PersistenceBenchmark [sizes] [historyPerAccount] [seed]
+ *        e.g. java -Xmx8g com.banking.bench.PersistenceBenchmark 10000,1000000,10000000
+ */
+public class PersistenceBenchmark {
+
+    private static final Path DATA_FILE = Path.of("data", "accounts.txt");
+    private static final Path GENERATED_FILE = Path.of("data", "generated.txt");
+    private static final Path SNAPSHOT_FILE = Path.of("data", "snapshot.bin");
+    private static final Path STORE_FILE = Path.of("data", "accounts.dat");
+
+    public static void main(String[] args) throws IOException {
+        String sizes = args.length > 0 ? args[0] : "10000,1000000";
+        int history = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        SyntheticData data = new SyntheticData(seed);
+
+        System.out.printf("%-12s %-26s %10s %14s %12s%n", "accounts", "step", "ms", "accounts/s", "MB");
+        for (String size : sizes.split(",")) {
+            int count = Integer.parseInt(size.trim());
+            SyntheticData.resetDataDirectory();
+
+            long start = System.nanoTime();
+            long textBytes = data.writeLegacyFile(DATA_FILE, count, history);
+            report(count, "generate accounts.txt", start, textBytes);
+            Files.copy(DATA_FILE, GENERATED_FILE);
+
+            BankService bankService = newBank(false);
+            start = System.nanoTime();
+            bankService.loadAccountsFromFile();
+            report(count, "load accounts.txt", start, textBytes);
+            expectCount(bankService, count);
+            report(count, "heap after load", 0, usedHeap());
+
+            start = System.nanoTime();
+            bankService.saveAccountsToFile();
+            report(count, "save (txt + snapshot)", start, Files.size(DATA_FILE) + Files.size(SNAPSHOT_FILE));
+            bankService.close();
+            if (!sameAfterFirstLine(GENERATED_FILE, DATA_FILE)) {
+                System.out.println("❌ Saved accounts.txt differs from the one loaded");
+                System.exit(1);
+            }
+            Files.delete(GENERATED_FILE);
+
+            bankService = newBank(false);
+            start = System.nanoTime();
+            bankService.loadAccountsFromFile();
+            report(count, "load snapshot", start, Files.size(SNAPSHOT_FILE));
+            expectCount(bankService, count);
+            bankService.close();
+
+            // The store is empty, so this load falls back to the snapshot and the checkpoint
+            // writes every account into the store
+            bankService = newBank(true);
+            bankService.loadAccountsFromFile();
+            start = System.nanoTime();
+            bankService.checkpoint();
+            report(count, "checkpoint into store", start, Files.size(STORE_FILE));
+            bankService.close();
+
+            bankService = newBank(true);
+            start = System.nanoTime();
+            bankService.loadAccountsFromFile();
+            report(count, "reopen store", start, Files.size(STORE_FILE));
+            expectCount(bankService, count);
+            bankService.close();
+        }
+    }
+
+    private static BankService newBank(boolean accountStore) {
+        BankService bankService = new BankService();
+        bankService.addListener(event -> {
+            if (event.getType() == BankEvent.Type.ERROR) {
+                throw new IllegalStateException(event.getMessage());
+            }
+        });
+        if (accountStore) {
+            bankService.useAccountStore();
+        }
+        return bankService;
+    }
+
+    private static boolean sameAfterFirstLine(Path original, Path saved) throws IOException {
+        try (InputStream expected = new BufferedInputStream(Files.newInputStream(original), 1 << 16);
+             InputStream actual = new BufferedInputStream(Files.newInputStream(saved), 1 << 16)) {
+            int b;
+            while ((b = expected.read()) != '\n' && b >= 0) {
+                // Skipped: the next account number, which saves no longer write
+            }
+            int e;
+            do {
+                e = expected.read();
+                if (e != actual.read()) {
+                    return false;
+                }
+            } while (e >= 0);
+            return true;
+        }
+    }
+
+    private static void expectCount(BankService bankService, int count) {
+        if (bankService.getTotalAccounts() != count) {
+            System.out.println("❌ Expected " + count + " accounts, found " + bankService.getTotalAccounts());
+            System.exit(1);
+        }
+    }
+
+    // A start of 0 reports only the size, for steps that are not timed
+    private static void report(int count, String step, long start, long bytes) {
+        if (start == 0) {
+            System.out.printf("%,-12d %-26s %10s %14s %,12.1f%n", count, step, "", "", bytes / 1e6);
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%,-12d %-26s %,10d %,14.0f %,12.1f%n",
+                count, step, nanos / 1_000_000, count * 1e9 / nanos, bytes / 1e6);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
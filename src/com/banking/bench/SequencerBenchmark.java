@@ -0,0 +1,136 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.service.BankEvent;
+import com.banking.service.BankService;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the lock-based engine with the single-writer sequencer on transfers: every
+ * payer paying one merchant account (all callers contend on one lock) and transfers spread
+ * over the whole book, each with the journal on and in memory only. Reports throughput and
+ * caller-side latency percentiles and checks that the total balance is unchanged; with the
+ * journal it also reopens the bank to check that replay (batch records included) rebuilds
+ * every balance exactly.
+ *
+ * Runs in ./data, which is wiped first (see SyntheticData.resetDataDirectory).
+ *
+ * Usage: java com.banking.bench.SequencerBenchmark [accounts] [threads] [opsPerThread] [partitions]
+ */
+public class SequencerBenchmark {
+
+    private static final Path DATA_FILE = Path.of("data", "accounts.txt");
+    private static final String MERCHANT = SyntheticData.accountNumber(0);
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int opsPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int partitions = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        System.out.printf("%-34s %12s %10s %10s %10s%n", "engine / workload", "ops/s", "p50 µs", "p99 µs", "p99.9 µs");
+        for (boolean journaled : new boolean[] {true, false}) {
+            for (boolean hot : new boolean[] {true, false}) {
+                for (int engine : new int[] {0, 1, partitions}) {
+                    String name = (engine == 0 ? "locks" : "sequencer x" + engine) + (hot ? ", one merchant" : ", spread")
+                            + (journaled ? "" : ", memory");
+                    run(name, engine, journaled, hot, accountCount, threads, opsPerThread);
+                }
+            }
+        }
+        System.out.println("\n✅ Balances add up and replay exactly under both engines.");
+    }
+
+    private static void run(String name, int partitions, boolean journaled, boolean hot, int accountCount,
+                            int threads, int opsPerThread) throws Exception {
+        SyntheticData data = new SyntheticData(11);
+        BankService bankService;
+        if (journaled) {
+            SyntheticData.resetDataDirectory();
+            data.writeLegacyFile(DATA_FILE, accountCount, 0);
+            bankService = open(partitions);
+        } else {
+            // Never loaded, so there is no journal
+            bankService = new BankService();
+            bankService.useSequencer(partitions, 4_096);
+            for (int i = 0; i < accountCount; i++) {
+                Account account = data.account(i, 0);
+                bankService.createAccount(account.getAccountHolderName(), account.getAccountType(), account.getBalance());
+            }
+        }
+        long[] before = balances(bankService, accountCount);
+
+        long[][] latencies = new long[threads][opsPerThread];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            long[] latency = latencies[t];
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < opsPerThread; i++) {
+                    String from = SyntheticData.accountNumber(1 + random.nextInt(accountCount - 1));
+                    String to = hot ? MERCHANT : SyntheticData.accountNumber(random.nextInt(accountCount));
+                    long start = System.nanoTime();
+                    bankService.transfer(from, to, 1 + random.nextInt(10_000));
+                    latency[i] = System.nanoTime() - start;
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - start;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-34s %,12.0f %10.1f %10.1f %10.1f%n", name, all.length * 1e9 / nanos,
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3, all[(int) (all.length * 0.999)] / 1e3);
+
+        long[] after = balances(bankService, accountCount);
+        if (Arrays.stream(after).sum() != Arrays.stream(before).sum()) {
+            fail(name + ": total balance changed from " + Arrays.stream(before).sum() + " to " + Arrays.stream(after).sum());
+        }
+        bankService.close();
+        if (!journaled) {
+            return;
+        }
+
+        BankService reopened = open(0);
+        long[] replayed = balances(reopened, accountCount);
+        reopened.close();
+        for (int i = 0; i < accountCount; i++) {
+            if (replayed[i] != after[i]) {
+                fail(name + ": " + SyntheticData.accountNumber(i) + " replays to " + replayed[i] + ", was " + after[i]);
+            }
+        }
+    }
+
+    private static BankService open(int partitions) {
+        BankService bankService = new BankService();
+        bankService.addListener(event -> {
+            if (event.getType() == BankEvent.Type.ERROR) {
+                throw new IllegalStateException(event.getMessage());
+            }
+        });
+        bankService.useSequencer(partitions, 4_096);
+        bankService.loadAccountsFromFile();
+        return bankService;
+    }
+
+    private static long[] balances(BankService bankService, int accountCount) {
+        long[] balances = new long[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            balances[i] = bankService.getBalance(SyntheticData.accountNumber(i));
+        }
+        return balances;
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+}
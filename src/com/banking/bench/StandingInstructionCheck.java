@@ -0,0 +1,181 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import com.banking.service.InstructionRunSummary;
+import com.banking.service.StandingInstruction;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks standing instructions on both engines. A month-start burst of monthly
+ * instructions, all due at the same minute, must be made exactly once each (every balance
+ * is checked against the transfers expected) and its throughput is reported. An
+ * instruction short of funds must be retried with backoff and succeed once money arrives;
+ * one that stays short must be skipped for the month. After a restart that replays the
+ * journal, and again after one from a checkpoint, no occurrence may be paid twice and the
+ * next month's must be paid once; finished instructions must be gone.
+ *
+ * Runs in ./data, which it empties first.
+ *
+ * Usage: java com.banking.bench.StandingInstructionCheck [instructions=100000] [accounts=20000]
+ */
+public class StandingInstructionCheck {
+
+    private static final LocalDateTime FIRST_DUE = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final int OCCURRENCES = 3;
+    private static final long OPENING = Money.ofRupees(1_000_000);
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int instructionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        for (boolean sequencer : new boolean[] {false, true}) {
+            System.out.println("== " + (sequencer ? "Sequencer" : "Lock-based") + " engine ==");
+            SyntheticData.resetDataDirectory();
+            run(sequencer, instructionCount, accountCount);
+        }
+
+        if (failures > 0) {
+            System.out.println("\n❌ " + failures + " standing instruction check(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("\n✅ Standing instructions are made exactly once, retried and recovered.");
+    }
+
+    private static BankService open(boolean sequencer) {
+        BankService bankService = new BankService();
+        bankService.useAccountStore();
+        if (sequencer) {
+            bankService.useSequencer(2, 1024);
+        }
+        bankService.loadAccountsFromFile();
+        return bankService;
+    }
+
+    private static void run(boolean sequencer, int instructionCount, int accountCount) {
+        BankService bankService = open(sequencer);
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(bankService.createAccount("Standing " + i, "SAVINGS", OPENING));
+        }
+        // What one month of the burst moves in and out of each account
+        long[] monthly = new long[accountCount];
+        for (int i = 0; i < instructionCount; i++) {
+            int from = i % accountCount;
+            int to = (from + 1 + i / accountCount % (accountCount - 1)) % accountCount;
+            long amount = Money.ofRupees(1) + i % 100;
+            bankService.addStandingInstruction(accounts.get(from), accounts.get(to), amount,
+                    StandingInstruction.Frequency.MONTHLY, FIRST_DUE, OCCURRENCES);
+            monthly[from] -= amount;
+            monthly[to] += amount;
+        }
+
+        InstructionRunSummary burst = bankService.runStandingInstructions(FIRST_DUE);
+        System.out.printf("  Burst: %s (%,d transfers/s)%n", burst,
+                burst.getMade() * 1000 / Math.max(1, burst.getElapsedMillis()));
+        check("Every instruction due was made", burst.getMade() == instructionCount);
+        check("Balances reflect one month of instructions", balancesMatch(bankService, accounts, monthly, 1));
+        check("Running again in the same minute makes nothing",
+                bankService.runStandingInstructions(FIRST_DUE.plusSeconds(30)).getMade() == 0);
+
+        checkRetries(bankService);
+
+        // Restart replaying the journal: the second month must be paid once, the first not again
+        bankService.close();
+        bankService = open(sequencer);
+        check("Instructions survive a restart", bankService.getStandingInstructionCount() == instructionCount);
+        check("First month is not paid again after a restart",
+                bankService.runStandingInstructions(FIRST_DUE.plusDays(1)).getMade() == 0);
+        check("Second month is paid after a restart",
+                bankService.runStandingInstructions(FIRST_DUE.plusMonths(1)).getMade() == instructionCount);
+        check("Balances reflect two months of instructions", balancesMatch(bankService, accounts, monthly, 2));
+
+        // Restart from a checkpoint, with the journal that recorded the instructions gone
+        bankService.checkpoint();
+        bankService.close();
+        bankService = open(sequencer);
+        check("Instructions survive a checkpoint and restart",
+                bankService.getStandingInstructionCount() == instructionCount);
+        check("Second month is not paid again after a checkpoint",
+                bankService.runStandingInstructions(FIRST_DUE.plusMonths(1).plusDays(1)).getMade() == 0);
+        check("Third month is paid after a checkpoint",
+                bankService.runStandingInstructions(FIRST_DUE.plusMonths(2)).getMade() == instructionCount);
+        check("Balances reflect three months of instructions", balancesMatch(bankService, accounts, monthly, 3));
+        check("Finished instructions are dropped", bankService.getStandingInstructionCount() == 0);
+        check("Nothing is made after the last occurrence",
+                bankService.runStandingInstructions(FIRST_DUE.plusMonths(6)).getMade() == 0);
+        bankService.close();
+    }
+
+    /**
+     * A transfer short of funds is retried when its backoff has passed and succeeds once
+     * money arrives; one that stays short is skipped and waits for the next month.
+     */
+    private static void checkRetries(BankService bankService) {
+        String payee = bankService.createAccount("Payee", "SAVINGS", OPENING);
+        String late = bankService.createAccount("Late Payer", "SAVINGS", Money.ofRupees(1_000));
+        String broke = bankService.createAccount("Broke Payer", "SAVINGS", Money.ofRupees(1_000));
+        LocalDateTime due = FIRST_DUE.plusDays(10);
+        String lateId = bankService.addStandingInstruction(late, payee, Money.ofRupees(2_000),
+                StandingInstruction.Frequency.MONTHLY, due, 2);
+        String brokeId = bankService.addStandingInstruction(broke, payee, Money.ofRupees(2_000),
+                StandingInstruction.Frequency.MONTHLY, due, 2);
+
+        InstructionRunSummary first = bankService.runStandingInstructions(due);
+        check("Short instructions are retried", first.getRetried() == 2 && first.getMade() == 0);
+        LocalDateTime retryAt = nextDue(bankService, late, lateId);
+        check("Retry waits for its backoff", retryAt.isAfter(due)
+                && bankService.runStandingInstructions(retryAt.minusMinutes(2)).getRetried() == 0);
+
+        bankService.deposit(late, Money.ofRupees(5_000));
+        InstructionRunSummary second = bankService.runStandingInstructions(retryAt);
+        check("Retry succeeds once money arrives", second.getMade() == 1 && second.getRetried() == 1
+                && bankService.getBalance(late) == Money.ofRupees(4_000));
+        Duration firstBackoff = Duration.between(due, retryAt);
+        check("Later retries wait longer", Duration.between(retryAt, nextDue(bankService, broke, brokeId))
+                .compareTo(firstBackoff.multipliedBy(2)) >= 0);
+
+        long skipped = 0;
+        for (int attempt = 0; attempt < 10 && skipped == 0; attempt++) {
+            skipped = bankService.runStandingInstructions(nextDue(bankService, broke, brokeId)).getSkipped();
+        }
+        check("An instruction that stays short is skipped for the month",
+                skipped == 1 && nextDue(bankService, broke, brokeId).equals(due.plusMonths(1))
+                        && bankService.getBalance(broke) == Money.ofRupees(1_000));
+        bankService.cancelStandingInstruction(lateId);
+        bankService.cancelStandingInstruction(brokeId);
+        check("Cancelled instructions are gone", bankService.getStandingInstructions(payee).isEmpty());
+    }
+
+    private static LocalDateTime nextDue(BankService bankService, String accountNumber, String id) {
+        for (StandingInstruction instruction : bankService.getStandingInstructions(accountNumber)) {
+            if (instruction.getId().equals(id)) {
+                return instruction.getNextDue();
+            }
+        }
+        throw new IllegalStateException("No standing instruction " + id);
+    }
+
+    private static boolean balancesMatch(BankService bankService, List<String> accounts, long[] monthly, int months) {
+        for (int i = 0; i < accounts.size(); i++) {
+            if (bankService.getBalance(accounts.get(i)) != OPENING + monthly[i] * months) {
+                System.out.println("  " + accounts.get(i) + " has ₹" + Money.format(bankService.getBalance(accounts.get(i)))
+                        + ", expected ₹" + Money.format(OPENING + monthly[i] * months));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String what, boolean passed) {
+        System.out.println("  " + (passed ? "✅ " : "❌ ") + what);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
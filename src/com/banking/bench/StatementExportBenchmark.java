@@ -0,0 +1,175 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.model.HistoryPage;
+import com.banking.model.Money;
+import com.banking.persistence.StatementWriter;
+import com.banking.service.BankService;
+import com.banking.service.StatementRunSummary;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares reading one very long history the old way (copying every rendered line) with
+ * paging through it and streaming it out as a CSV statement or an accounts.txt line, by
+ * time and by bytes allocated. Then runs a month-end statement export over a whole bank
+ * and checks that every account's file has one row per history entry.
+ *
+ * Usage: java com.banking.bench.StatementExportBenchmark [longHistory] [accounts] [historyPerAccount]
+ */
+public class StatementExportBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // SyntheticData stamps entry j at 2024-01-01T00:00Z + j minutes
+    private static final long BASE_MILLIS = 1_704_067_200_000L;
+
+    private interface Step {
+        long run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int longHistory = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int historyPerAccount = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        Account account = new SyntheticData(42).account(0, longHistory);
+        // Withdrawals the account refuses leave no entry, so count what is there
+        int entries = account.getTransactionHistory().size();
+        System.out.printf("One account, %,d history entries%n", entries);
+
+        measure("getTransactionHistory() copy", () -> account.getTransactionHistory().size());
+        measure("first page (100)", () -> account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, 0, 100).getEntries().size());
+        measure("page at offset " + (entries - 200), () ->
+                account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, entries - 200, 100).getEntries().size());
+        long dayStart = BASE_MILLIS + (longHistory / 2) * 60_000L;
+        measure("one day by time range (100)", () ->
+                account.getTransactionHistory(dayStart, dayStart + 86_399_999L, 0, 100).getEntries().size());
+        measure("CSV statement, streamed", () -> StatementWriter.writeCsv(account, Long.MIN_VALUE, Long.MAX_VALUE, new NullWriter()));
+        measure("toFileString()", () -> account.toFileString().length());
+        measure("writeFileString(), streamed", () -> {
+            NullWriter out = new NullWriter();
+            account.writeFileString(out);
+            return out.chars;
+        });
+
+        // Paging with next offsets must visit every entry exactly once, in order
+        List<String> all = account.getTransactionHistory();
+        int seen = 0;
+        HistoryPage page = account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, 0, 1_000);
+        while (true) {
+            for (String line : page.getEntries()) {
+                if (!line.equals(all.get(seen++))) {
+                    fail("page entry " + (seen - 1) + " differs from the full history");
+                }
+            }
+            if (!page.hasMore()) {
+                break;
+            }
+            page = account.getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, page.getNextOffset(), 1_000);
+        }
+        if (seen != all.size()) {
+            fail("paging returned " + seen + " entries, expected " + all.size());
+        }
+        StringWriter streamed = new StringWriter();
+        account.writeFileString(streamed);
+        if (!streamed.toString().equals(account.toFileString())) {
+            fail("writeFileString() differs from toFileString()");
+        }
+
+        BankService bankService = new BankService();
+        for (int i = 0; i < accountCount; i++) {
+            String accountNumber = bankService.createAccount("Statement " + i, i % 2 == 0 ? "SAVINGS" : "CURRENT",
+                    Money.ofRupees(10_000));
+            for (int j = 0; j < historyPerAccount; j++) {
+                bankService.deposit(accountNumber, 100 + j);
+            }
+        }
+        Path directory = Files.createTempDirectory("statements");
+        try {
+            StatementRunSummary summary = bankService.exportStatements(Long.MIN_VALUE, Long.MAX_VALUE, directory);
+            System.out.printf("%nMonth-end run: %,d statements, %,d rows in %,d ms (%d threads)%n",
+                    summary.getStatementsWritten(), summary.getRowsWritten(), summary.getElapsedMillis(),
+                    Runtime.getRuntime().availableProcessors());
+            long expectedRows = (long) accountCount * (historyPerAccount + 1);
+            if (summary.getStatementsWritten() != accountCount || summary.getRowsWritten() != expectedRows) {
+                fail("expected " + accountCount + " statements and " + expectedRows + " rows: " + summary);
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                long lines = Files.readAllLines(files.findFirst().orElseThrow()).size();
+                if (lines != historyPerAccount + 2) {
+                    fail("a statement has " + lines + " lines, expected " + (historyPerAccount + 2));
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        System.out.println("✅ Pages, streamed lines and statements match the full history.");
+    }
+
+    private static void measure(String name, Step step) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            step.run();
+        }
+        int runs = 5;
+        long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long result = 0;
+        for (int i = 0; i < runs; i++) {
+            result = step.run();
+        }
+        long nanos = (System.nanoTime() - start) / runs;
+        long bytes = (THREADS.getCurrentThreadAllocatedBytes() - bytesBefore) / runs;
+        System.out.printf("%-34s %12.3f ms %14s allocated  (%,d)%n", name, nanos / 1e6, humanBytes(bytes), result);
+    }
+
+    private static String humanBytes(long bytes) {
+        if (bytes >= 1 << 20) {
+            return String.format("%.1f MB", bytes / (double) (1 << 20));
+        }
+        if (bytes >= 1 << 10) {
+            return String.format("%.1f KB", bytes / (double) (1 << 10));
+        }
+        return bytes + " B";
+    }
+
+    private static void fail(String message) {
+        System.out.println("❌ " + message);
+        System.exit(1);
+    }
+
+    /** Counts what is written and keeps none of it, like a fast file or socket. */
+    private static final class NullWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            chars += text.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.banking.bench;
+
+import com.banking.model.Account;
+import com.banking.model.CurrentAccount;
+import com.banking.model.Money;
+import com.banking.model.SavingsAccount;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Reproducible synthetic accounts for the benchmarks: the same seed and index always give
+ * the same account, history timestamps included, so runs can be compared file for file.
+ * Account i is ACC(1001 + i), matching what a fresh BankService hands out.
+ */
+final class SyntheticData {
+
+    private static final String[] FIRST_NAMES = {
+            "Aarav", "Vivaan", "Aditya", "Diya", "Ananya", "Ishaan", "Kavya", "Rohan",
+            "Saanvi", "Arjun", "Meera", "Nikhil", "Priya", "Rahul", "Sneha", "Vikram"
+    };
+    private static final String[] LAST_NAMES = {
+            "Sharma", "Verma", "Iyer", "Reddy", "Nair", "Patel", "Gupta", "Rao",
+            "Menon", "Das", "Joshi", "Kapoor", "Singh", "Bose", "Pillai", "Khan"
+    };
+    // Left in ./data by the benchmarks; a data directory without it belongs to a real bank
+    private static final String MARKER = ".bench";
+    // 2024-01-01T00:00:00Z; history entry j of an account is stamped BASE + j minutes
+    private static final long BASE_MILLIS = 1_704_067_200_000L;
+
+    private final long seed;
+
+    SyntheticData(long seed) {
+        this.seed = seed;
+    }
+
+    static String accountNumber(int index) {
+        return "ACC" + (1001 + index);
+    }
+
+    /** Roughly 60% savings, 40% current, balances between ₹500 and ₹10,00,000. */
+    Account account(int index, int historyEntries) {
+        SplittableRandom random = new SplittableRandom(seed * 1_000_003L + index);
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        long opening = Money.ofRupees(500) + random.nextLong(Money.ofRupees(1_000_000));
+        boolean savings = random.nextInt(10) < 6;
+
+        Account.setEffectiveTimestamp(BASE_MILLIS);
+        try {
+            Account account = savings
+                    ? new SavingsAccount(accountNumber(index), name, opening)
+                    : new CurrentAccount(accountNumber(index), name, opening);
+            account.setCreatedDate(LocalDateTime.ofEpochSecond(BASE_MILLIS / 1000, 0, ZoneOffset.UTC));
+            for (int j = 1; j <= historyEntries; j++) {
+                Account.setEffectiveTimestamp(BASE_MILLIS + j * 60_000L);
+                long amount = 1 + random.nextLong(Money.ofRupees(5_000));
+                if (random.nextBoolean()) {
+                    account.deposit(amount);
+                } else {
+                    account.withdraw(amount);
+                }
+            }
+            return account;
+        } finally {
+            Account.setEffectiveTimestamp(0);
+        }
+    }
+
+    /**
+     * Writes count accounts in the accounts.txt format, streaming so that books far larger
+     * than the heap can be generated. Returns the file size in bytes.
+     */
+    long writeLegacyFile(Path file, int count, int historyEntries) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(Integer.toString(1001 + count));
+            writer.newLine();
+            for (int i = 0; i < count; i++) {
+                account(i, historyEntries).writeFileString(writer);
+                writer.newLine();
+            }
+        }
+        return Files.size(file);
+    }
+
+    /**
+     * Empties ./data for a benchmark run. Refuses to touch a data directory that a benchmark
+     * did not create, so running one from the wrong directory cannot wipe real accounts.
+     */
+    static void resetDataDirectory() throws IOException {
+        Path directory = Path.of("data");
+        if (Files.exists(directory)) {
+            if (!Files.exists(directory.resolve(MARKER))) {
+                throw new IOException("./data was not created by a benchmark; move it aside first");
+            }
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        Files.createDirectories(directory);
+        Files.createFile(directory.resolve(MARKER));
+    }
+}
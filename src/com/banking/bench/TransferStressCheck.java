@@ -0,0 +1,79 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency stress check for BankService: many threads fire random transfers
+ * (in both directions between the same pairs) and the total money in the bank
+ * must be unchanged once they finish.
+ *
+ * Usage: java com.banking.bench.TransferStressCheck [transfers] [threads] [accounts]
+ */
+public class TransferStressCheck {
+
+    public static void main(String[] args) throws InterruptedException {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        // Well above the core count, so threads are preempted mid-transfer even on one CPU
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        BankService bankService = new BankService();
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            accountNumbers.add(bankService.createAccount("Stress " + i, "CURRENT", Money.ofRupees(1_000_000)));
+        }
+
+        long totalBefore = totalBalance(bankService, accountNumbers);
+        AtomicLong completed = new AtomicLong();
+        int perThread = transfers / threads;
+
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    String from = accountNumbers.get(random.nextInt(accountCount));
+                    String to = accountNumbers.get(random.nextInt(accountCount));
+                    if (from.equals(to)) {
+                        continue;
+                    }
+                    if (bankService.transfer(from, to, Money.ofRupees(1 + random.nextInt(100))).isSuccess()) {
+                        completed.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long totalAfter = totalBalance(bankService, accountNumbers);
+        System.out.println("Transfers completed : " + completed.get() + " in " + elapsedMillis + " ms on " + threads + " threads");
+        System.out.println("Total before        : ₹" + Money.format(totalBefore));
+        System.out.println("Total after         : ₹" + Money.format(totalAfter));
+
+        if (totalBefore != totalAfter) {
+            System.out.println("❌ Money was not conserved!");
+            System.exit(1);
+        }
+        System.out.println("✅ Money conserved.");
+    }
+
+    private static long totalBalance(BankService bankService, List<String> accountNumbers) {
+        long total = 0;
+        for (String accountNumber : accountNumbers) {
+            total += bankService.getBalance(accountNumber);
+        }
+        return total;
+    }
+}
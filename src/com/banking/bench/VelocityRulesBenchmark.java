@@ -0,0 +1,72 @@
+package com.banking.bench;
+
+import com.banking.model.Money;
+import com.banking.service.BankService;
+import com.banking.service.VelocityRules;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of velocity rules on the debit path: withdrawals and transfers spread over a large
+ * book, with and without rules that never trigger, so the difference is the checking and
+ * counting alone. Every account is debited once before measuring, so each already has its
+ * window and the rules allocate nothing more. Then two scenarios where the rules refuse:
+ * a few hot accounts past their debit limit, and large transfers out of new accounts.
+ *
+ * Each book is built once and reused by every pass of its scenarios; building a million
+ * accounts takes a while and needs a heap of a couple of GB (-Xmx3g).
+ *
+ * Usage: java com.banking.bench.VelocityRulesBenchmark [accounts=1000000] [opsPerThread=500000] [threads]
+ */
+public class VelocityRulesBenchmark {
+
+    private static final int HOT_ACCOUNTS = 16;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    // Never reached by the spread scenarios
+    private static final VelocityRules GENEROUS = new VelocityRules(HOUR, 1_000_000, Long.MAX_VALUE, DAY, Money.ofRupees(1_000_000));
+    private static final VelocityRules STRICT = new VelocityRules(HOUR, 20, Money.ofRupees(500_000), DAY, Money.ofRupees(50_000));
+
+    public static void main(String[] args) throws InterruptedException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        BenchmarkHarness harness = new BenchmarkHarness(42);
+        BenchmarkHarness.printHeader();
+        for (VelocityRules rules : new VelocityRules[] {null, GENEROUS}) {
+            String suffix = rules == null ? ", no rules" : ", rules";
+            BankService bankService = bank(accounts, rules);
+            harness.run("withdraw (" + accounts + suffix + ")", threads, ops, () -> (thread, random) ->
+                    bankService.withdraw(SyntheticData.accountNumber(random.nextInt(accounts)), 1 + random.nextInt(10_000)));
+            harness.run("transfer (" + accounts + suffix + ")", threads, ops, () -> (thread, random) -> {
+                int from = random.nextInt(accounts);
+                int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                bankService.transfer(SyntheticData.accountNumber(from), SyntheticData.accountNumber(to),
+                        1 + random.nextInt(10_000));
+            });
+        }
+
+        BankService hot = bank(HOT_ACCOUNTS, STRICT);
+        harness.run("withdraw (" + HOT_ACCOUNTS + " hot, over limit)", threads, ops, () -> (thread, random) ->
+                hot.withdraw(SyntheticData.accountNumber(random.nextInt(HOT_ACCOUNTS)), 1 + random.nextInt(10_000)));
+        harness.run("transfer (new accounts, on hold)", threads, ops, () -> (thread, random) -> {
+            int from = random.nextInt(HOT_ACCOUNTS);
+            hot.transfer(SyntheticData.accountNumber(from), SyntheticData.accountNumber((from + 1) % HOT_ACCOUNTS),
+                    Money.ofRupees(60_000));
+        });
+    }
+
+    // Accounts numbered as SyntheticData.accountNumber(i), each debited once
+    private static BankService bank(int count, VelocityRules rules) {
+        BankService bankService = new BankService();
+        bankService.useVelocityRules(rules);
+        for (int i = 0; i < count; i++) {
+            bankService.createAccount("Bench Holder", "CURRENT", Money.ofRupees(10_000_000));
+        }
+        for (int i = 0; i < count; i++) {
+            bankService.withdraw(SyntheticData.accountNumber(i), 1);
+        }
+        return bankService;
+    }
+}
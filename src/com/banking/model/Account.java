@@ -1,67 +1,269 @@
 package com.banking.model;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class Account {
 
     private String accountNumber;
     private String accountHolderName;
-    private double balance;
+    private volatile long balance;
     private String accountType;
     private LocalDateTime createdDate;
-    private List<String> transactionHistory;
+    private TransactionLog history;
+    private long lastLsn;
+    private BalanceObserver balanceObserver;
+    // Set when the account is looked up; a bounded account cache clears it and evicts
+    // accounts it finds still cleared on its next pass
+    private volatile boolean recentlyUsed;
 
-    public Account(String accountNumber, String accountHolderName, double initialBalance, String accountType) {
+    // Guards balance and history; transfers take two of these in account-number order
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // History entries rendered per lock hold when streaming
+    private static final int STREAM_CHUNK = 256;
+    private static final int DISPLAY_PAGE = 100;
+
+    // Per-thread override of the time stamped on new history entries (0 = now)
+    private static final ThreadLocal<long[]> EFFECTIVE_TIMESTAMP = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Balances and amounts throughout are in paise; see Money.
+     */
+    public Account(String accountNumber, String accountHolderName, long initialBalance, String accountType) {
         this.accountNumber = accountNumber;
         this.accountHolderName = accountHolderName;
         this.balance = initialBalance;
         this.accountType = accountType;
         this.createdDate = LocalDateTime.now();
-        this.transactionHistory = new ArrayList<>();
+        this.history = new TransactionLog();
+        history.guardWith(lock);
+
+        recordTransaction(TransactionKind.OPENED, initialBalance);
+    }
 
-        addTransaction("Account created with initial deposit of ₹" + initialBalance);
+    public final OperationResult withdraw(long amount) {
+        lock.lock();
+        try {
+            OperationResult result = checkWithdrawal(balance, amount);
+            if (result.isSuccess()) {
+                changeBalance(balance - amount);
+                recordTransaction(TransactionKind.WITHDRAWAL, amount);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether withdrawing amount from the given balance is allowed under this account type's
+     * rules, without changing anything. Batches pass in a working balance rather than the
+     * current one.
+     */
+    public abstract OperationResult checkWithdrawal(long balance, long amount);
+
+    /**
+     * Debits an amount the caller has already validated with checkWithdrawal(). toAccountNumber
+     * is set when this is the sending side of a transfer, null for a plain withdrawal.
+     * Called with this account's lock held.
+     */
+    public void postDebit(long amount, String toAccountNumber) {
+        changeBalance(Math.subtractExact(this.balance, amount));
+        recordTransaction(TransactionKind.WITHDRAWAL, amount);
+        if (toAccountNumber != null) {
+            recordTransfer(TransactionKind.TRANSFER_OUT, amount, toAccountNumber);
+        }
     }
 
-    public abstract boolean withdraw(double amount);
+    /**
+     * Credit counterpart of postDebit(); fromAccountNumber is null for a plain deposit.
+     * Called with this account's lock held.
+     */
+    public void postCredit(long amount, String fromAccountNumber) {
+        changeBalance(Math.addExact(this.balance, amount));
+        recordTransaction(TransactionKind.DEPOSIT, amount);
+        if (fromAccountNumber != null) {
+            recordTransfer(TransactionKind.TRANSFER_IN, amount, fromAccountNumber);
+        }
+    }
 
-    public boolean deposit(double amount) {
+    public OperationResult deposit(long amount) {
         if (amount <= 0) {
-            return false;
+            return OperationResult.INVALID_AMOUNT;
+        }
+
+        lock.lock();
+        try {
+            changeBalance(Math.addExact(this.balance, amount));
+            recordTransaction(TransactionKind.DEPOSIT, amount);
+            return OperationResult.SUCCESS;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public OperationResult transfer(Account toAccount, long amount) {
+        lockInOrder(this, toAccount);
+        try {
+            OperationResult result = this.debitTransfer(toAccount.getAccountNumber(), amount);
+            if (result.isSuccess()) {
+                toAccount.creditTransfer(this.accountNumber, amount);
+            }
+            return result;
+        } finally {
+            unlockBoth(this, toAccount);
+        }
+    }
+
+    /**
+     * Sending side of a transfer on its own, for callers that apply the two legs separately.
+     */
+    public OperationResult debitTransfer(String toAccountNumber, long amount) {
+        lock.lock();
+        try {
+            OperationResult result = withdraw(amount);
+            if (result.isSuccess()) {
+                recordTransfer(TransactionKind.TRANSFER_OUT, amount, toAccountNumber);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Receiving side of a transfer on its own.
+     */
+    public OperationResult creditTransfer(String fromAccountNumber, long amount) {
+        lock.lock();
+        try {
+            OperationResult result = deposit(amount);
+            if (result.isSuccess()) {
+                recordTransfer(TransactionKind.TRANSFER_IN, amount, fromAccountNumber);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Credits back the sending side of a transfer whose receiving side could not be applied,
+     * for transfers whose legs are applied separately.
+     */
+    public OperationResult reverseTransfer(String toAccountNumber, long amount) {
+        lock.lock();
+        try {
+            OperationResult result = deposit(amount);
+            if (result.isSuccess()) {
+                recordTransfer(TransactionKind.TRANSFER_REVERSED, amount, toAccountNumber);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void lock() {
+        lock.lock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /** Takes the lock only if it is free right now. */
+    public boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+
+    public void markUsed() {
+        if (!recentlyUsed) {
+            recentlyUsed = true;
+        }
+    }
+
+    /** Clears the used mark, returning whether it was set. */
+    public boolean clearUsed() {
+        boolean used = recentlyUsed;
+        if (used) {
+            recentlyUsed = false;
         }
+        return used;
+    }
 
-        this.balance += amount;
-        addTransaction("Deposited ₹" + amount + " | Balance: ₹" + this.balance);
-        return true;
+    /**
+     * Locks both accounts in a fixed global order (by account number) so that two
+     * opposite-direction transfers can never deadlock on each other.
+     */
+    public static void lockInOrder(Account a, Account b) {
+        if (a == b) {
+            a.lock();
+            return;
+        }
+        Account first = a.accountNumber.compareTo(b.accountNumber) <= 0 ? a : b;
+        Account second = first == a ? b : a;
+        first.lock();
+        second.lock();
     }
 
-    public boolean transfer(Account toAccount, double amount) {
-        if (this.withdraw(amount)) {
-            toAccount.deposit(amount);
-            addTransaction("Transferred ₹" + amount + " to A/C " + toAccount.getAccountNumber());
-            toAccount.addTransaction("Received ₹" + amount + " from A/C " + this.accountNumber);
-            return true;
+    public static void unlockBoth(Account a, Account b) {
+        a.unlock();
+        if (a != b) {
+            b.unlock();
         }
-        return false;
     }
 
-    protected void addTransaction(String transaction) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        transactionHistory.add("[" + timestamp + "] " + transaction);
+    // Called with this account's lock held, after the balance has been updated
+    protected void recordTransaction(TransactionKind kind, long amount) {
+        history.add(currentTimestamp(), kind, amount, balance, -1);
+    }
+
+    private void recordTransfer(TransactionKind kind, long amount, String otherAccountNumber) {
+        history.addTransfer(currentTimestamp(), kind, amount, balance, otherAccountNumber);
+    }
+
+    private static long currentTimestamp() {
+        long effective = EFFECTIVE_TIMESTAMP.get()[0];
+        return effective != 0 ? effective : System.currentTimeMillis();
+    }
+
+    /**
+     * Makes history entries recorded by the calling thread carry the given epoch-millis time
+     * instead of the current time, so journal replay reproduces the original timestamps.
+     * Pass 0 to go back to the current time.
+     */
+    public static void setEffectiveTimestamp(long timestamp) {
+        EFFECTIVE_TIMESTAMP.get()[0] = timestamp;
     }
 
     public void displayTransactionHistory() {
-        if (transactionHistory.isEmpty()) {
+        HistoryPage page = getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, 0, DISPLAY_PAGE);
+        if (page.getEntries().isEmpty()) {
             System.out.println("No transactions found.");
             return;
         }
 
         System.out.println("\n📊 Transaction History for A/C: " + accountNumber);
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        for (String transaction : transactionHistory) {
-            System.out.println(transaction);
+        while (true) {
+            for (String transaction : page.getEntries()) {
+                System.out.println(transaction);
+            }
+            if (!page.hasMore()) {
+                break;
+            }
+            page = getTransactionHistory(Long.MIN_VALUE, Long.MAX_VALUE, page.getNextOffset(), DISPLAY_PAGE);
         }
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
     }
@@ -73,21 +275,71 @@ public abstract class Account {
         System.out.printf("│ Account Number  : %-21s │%n", accountNumber);
         System.out.printf("│ Holder Name     : %-21s │%n", accountHolderName);
         System.out.printf("│ Account Type    : %-21s │%n", accountType);
-        System.out.printf("│ Balance         : ₹%-20.2f │%n", balance);
+        System.out.printf("│ Balance         : ₹%-20s │%n", Money.format(balance));
         System.out.printf("│ Created Date    : %-21s │%n",
                 createdDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
         System.out.println("└─────────────────────────────────────────┘");
     }
 
     public String toFileString() {
-        StringBuilder sb = new StringBuilder();
+        lock.lock();
+        try {
+            StringBuilder sb = new StringBuilder();
+            appendFileHeader(sb);
+            history.appendTo(sb, ";;");
+            return sb.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the same line as toFileString(), without the line break, and without building
+     * it in memory: the fields and the history length are read under the lock, then the
+     * history is rendered a chunk at a time, re-taking the lock for each. Entries never
+     * change once added, so the line is still the account as it was when the fields were read.
+     */
+    public void writeFileString(Writer out) throws IOException {
+        writeFileString(out, new StringBuilder(STREAM_CHUNK * 96));
+    }
+
+    /**
+     * As above, rendering through sb, which is cleared first. Writers of many accounts pass
+     * the same builder each time, so it is allocated (and widened for the ₹ signs) only once.
+     */
+    public void writeFileString(Writer out, StringBuilder sb) throws IOException {
+        sb.setLength(0);
+        TransactionLog log;
+        int end;
+        lock.lock();
+        try {
+            appendFileHeader(sb);
+            log = history;
+            end = log.size();
+        } finally {
+            lock.unlock();
+        }
+        out.append(sb);
+
+        for (int from = 0; from < end; from += STREAM_CHUNK) {
+            sb.setLength(0);
+            lock.lock();
+            try {
+                log.appendTo(sb, ";;", from, Math.min(end, from + STREAM_CHUNK));
+            } finally {
+                lock.unlock();
+            }
+            out.append(sb);
+        }
+    }
+
+    private void appendFileHeader(StringBuilder sb) {
         sb.append(accountNumber).append("|");
         sb.append(accountHolderName).append("|");
-        sb.append(balance).append("|");
+        Money.appendTo(sb, balance);
+        sb.append("|");
         sb.append(accountType).append("|");
         sb.append(createdDate).append("|");
-        sb.append(String.join(";;", transactionHistory));
-        return sb.toString();
     }
 
     public String getAccountNumber() {
@@ -98,24 +350,115 @@ public abstract class Account {
         return accountHolderName;
     }
 
-    public double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    protected void setBalance(double balance) {
-        this.balance = balance;
+    protected void setBalance(long balance) {
+        changeBalance(balance);
+    }
+
+    // Every balance change goes through here, with the lock held, so observers see them all
+    private void changeBalance(long newBalance) {
+        long oldBalance = this.balance;
+        this.balance = newBalance;
+        BalanceObserver observer = balanceObserver;
+        if (observer != null) {
+            observer.balanceChanged(this, oldBalance, newBalance);
+        }
+    }
+
+    /** Replaces the observer told about balance changes; null for none. */
+    public void setBalanceObserver(BalanceObserver observer) {
+        lock.lock();
+        try {
+            this.balanceObserver = observer;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public String getAccountType() {
         return accountType;
     }
 
+    /** Renders the history to its text form; entries are only formatted here. */
     public List<String> getTransactionHistory() {
-        return new ArrayList<>(transactionHistory);
+        lock.lock();
+        try {
+            return history.toStrings();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Renders at most limit history entries with times from "from" to "to" (epoch millis,
+     * inclusive), starting at offset 0 or a previous page's next offset. Only the entries
+     * returned are rendered; the start is found by binary search when the history is in
+     * time order.
+     */
+    public HistoryPage getTransactionHistory(long from, long to, int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Offset must not be negative and limit must be positive");
+        }
+        lock.lock();
+        try {
+            int size = history.size();
+            boolean ordered = history.isTimeOrdered();
+            int index = Math.max(offset, history.indexAtOrAfter(from));
+            List<String> entries = new ArrayList<>(Math.min(limit, Math.max(0, size - index)));
+            for (; index < size && entries.size() < limit; index++) {
+                long timestamp = history.timestamp(index);
+                if (ordered && timestamp > to) {
+                    index = size;
+                    break;
+                }
+                if (timestamp >= from && timestamp <= to) {
+                    entries.add(history.render(index));
+                }
+            }
+            boolean more = index < size && !(ordered && history.timestamp(index) > to);
+            return new HistoryPage(entries, more ? index : HistoryPage.END);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Replaces the history with previously rendered lines, e.g. read from accounts.txt. */
+    public void setTransactionHistory(List<String> lines) {
+        TransactionLog log = new TransactionLog();
+        for (String line : lines) {
+            log.addRendered(line);
+        }
+        setTransactionLog(log);
+    }
+
+    /** The typed history itself; callers must hold this account's lock while using it. */
+    public TransactionLog getTransactionLog() {
+        return history;
+    }
+
+    public void setTransactionLog(TransactionLog log) {
+        lock.lock();
+        try {
+            log.guardWith(lock);
+            this.history = log;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sequence number of the last journal record applied to this account; recovery skips
+     * records at or below it because the snapshot already contains their effect.
+     */
+    public long getLastLsn() {
+        return lastLsn;
     }
 
-    public void setTransactionHistory(List<String> history) {
-        this.transactionHistory = new ArrayList<>(history);
+    public void setLastLsn(long lastLsn) {
+        this.lastLsn = lastLsn;
     }
 
     public LocalDateTime getCreatedDate() {
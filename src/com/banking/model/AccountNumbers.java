@@ -0,0 +1,46 @@
+package com.banking.model;
+
+/**
+ * Conversions between account numbers ("ACC1042") and their numeric sequence (1042).
+ */
+public final class AccountNumbers {
+
+    public static final String PREFIX = "ACC";
+
+    private AccountNumbers() {
+    }
+
+    /** Numeric part of an account number, or -1 if it does not have the ACC#### form. */
+    public static long toSequence(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() <= PREFIX.length() || !accountNumber.startsWith(PREFIX)) {
+            return -1;
+        }
+        long sequence = 0;
+        for (int i = PREFIX.length(); i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9' || sequence > Integer.MAX_VALUE) {
+                return -1;
+            }
+            sequence = sequence * 10 + (c - '0');
+        }
+        return sequence;
+    }
+
+    public static String fromSequence(long sequence) {
+        return PREFIX + sequence;
+    }
+
+    /**
+     * Which of a cluster's partitions holds the account: its number's hash, mixed so that
+     * consecutive numbers spread evenly, modulo the partition count.
+     */
+    public static int partitionOf(String accountNumber, int partitions) {
+        int h = accountNumber.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, partitions);
+    }
+}
@@ -0,0 +1,11 @@
+package com.banking.model;
+
+/**
+ * Told about every change to an account's balance. Called with the account's lock held,
+ * so calls for one account arrive one at a time and in order; keep the work small.
+ */
+@FunctionalInterface
+public interface BalanceObserver {
+
+    void balanceChanged(Account account, long oldBalance, long newBalance);
+}
@@ -2,42 +2,27 @@ package com.banking.model;
 
 public class CurrentAccount extends Account {
 
-    private static final double OVERDRAFT_LIMIT = 5000.0;
+    private static final long OVERDRAFT_LIMIT = Money.ofRupees(5000);
 
-    public CurrentAccount(String accountNumber, String accountHolderName, double initialBalance) {
+    public CurrentAccount(String accountNumber, String accountHolderName, long initialBalance) {
         super(accountNumber, accountHolderName, initialBalance, "CURRENT");
     }
 
     @Override
-    public boolean withdraw(double amount) {
+    public OperationResult checkWithdrawal(long balance, long amount) {
         if (amount <= 0) {
-            System.out.println("❌ Invalid amount!");
-            return false;
+            return OperationResult.INVALID_AMOUNT;
         }
 
-        double balanceAfterWithdrawal = getBalance() - amount;
+        long balanceAfterWithdrawal = balance - amount;
 
         if (balanceAfterWithdrawal < -OVERDRAFT_LIMIT) {
-            System.out.println("❌ Insufficient balance! Overdraft limit of ₹" +
-                    OVERDRAFT_LIMIT + " exceeded.");
-            System.out.println("Available balance (including overdraft): ₹" +
-                    (getBalance() + OVERDRAFT_LIMIT));
-            return false;
+            return OperationResult.OVERDRAFT_LIMIT_EXCEEDED;
         }
-
-        setBalance(balanceAfterWithdrawal);
-
-        String status = balanceAfterWithdrawal < 0 ? " (Overdraft)" : "";
-        addTransaction("Withdrawn ₹" + amount + status + " | Balance: ₹" + getBalance());
-
-        if (balanceAfterWithdrawal < 0) {
-            System.out.println("⚠️  Account is in overdraft. Current balance: ₹" + getBalance());
-        }
-
-        return true;
+        return balanceAfterWithdrawal < 0 ? OperationResult.OVERDRAFT_ENTERED : OperationResult.SUCCESS;
     }
 
-    public double getAvailableBalance() {
+    public long getAvailableBalance() {
         return getBalance() + OVERDRAFT_LIMIT;
     }
 
@@ -45,7 +30,7 @@ public class CurrentAccount extends Account {
         return getBalance() < 0;
     }
 
-    public static double getOverdraftLimit() {
+    public static long getOverdraftLimit() {
         return OVERDRAFT_LIMIT;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.banking.model;
+
+import java.util.List;
+
+/**
+ * One page of rendered history lines, oldest first, and the offset the next page starts at.
+ * Offsets are positions in the append-only history, so they stay valid while new entries
+ * are added.
+ */
+public final class HistoryPage {
+
+    /** Next offset of the last page. */
+    public static final int END = -1;
+
+    private final List<String> entries;
+    private final int nextOffset;
+
+    HistoryPage(List<String> entries, int nextOffset) {
+        this.entries = entries;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<String> getEntries() {
+        return entries;
+    }
+
+    /** Offset to ask for to continue, or END. */
+    public int getNextOffset() {
+        return nextOffset;
+    }
+
+    public boolean hasMore() {
+        return nextOffset != END;
+    }
+}
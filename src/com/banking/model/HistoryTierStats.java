@@ -0,0 +1,64 @@
+package com.banking.model;
+
+/** Counters of the history cold tier since startup; see HistoryTiering. */
+public final class HistoryTierStats {
+
+    private final long hotBytes;
+    private final long maxHotBytes;
+    private final long chunksSpilled;
+    private final long bytesSpilled;
+    private final long chunksFetched;
+    private final long spillFailures;
+    private final long evictions;
+
+    HistoryTierStats(long hotBytes, long maxHotBytes, long chunksSpilled, long bytesSpilled,
+                     long chunksFetched, long spillFailures, long evictions) {
+        this.hotBytes = hotBytes;
+        this.maxHotBytes = maxHotBytes;
+        this.chunksSpilled = chunksSpilled;
+        this.bytesSpilled = bytesSpilled;
+        this.chunksFetched = chunksFetched;
+        this.spillFailures = spillFailures;
+        this.evictions = evictions;
+    }
+
+    /** History entry bytes held in memory by all accounts, fetched chunks included. */
+    public long getHotBytes() {
+        return hotBytes;
+    }
+
+    /** The configured bound, 0 for none. */
+    public long getMaxHotBytes() {
+        return maxHotBytes;
+    }
+
+    public long getChunksSpilled() {
+        return chunksSpilled;
+    }
+
+    public long getBytesSpilled() {
+        return bytesSpilled;
+    }
+
+    /** Cold chunks read back from disk. */
+    public long getChunksFetched() {
+        return chunksFetched;
+    }
+
+    /** Chunks that could not be written and so stayed in memory. */
+    public long getSpillFailures() {
+        return spillFailures;
+    }
+
+    /** Accounts whose history the evictor spilled to get back under the bound. */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "hotBytes=" + hotBytes + ", maxHotBytes=" + maxHotBytes + ", chunksSpilled=" + chunksSpilled
+                + ", bytesSpilled=" + bytesSpilled + ", chunksFetched=" + chunksFetched
+                + ", spillFailures=" + spillFailures + ", evictions=" + evictions;
+    }
+}
@@ -0,0 +1,245 @@
+package com.banking.model;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cold tier for transaction history. When enabled, every TransactionLog keeps only a hot
+ * window of recent entries in memory: a full chunk of entries is spilled to disk once it
+ * falls outside the last hotEntries entries, or once all its entries are older than
+ * hotMillis. Spilled chunks are read back one at a time when something walks that part of
+ * the history (viewing it, statements, snapshots).
+ *
+ * On top of the per-account window, maxHotBytes bounds the history held in memory by all
+ * accounts together. When it is exceeded, a background evictor spills the spillable chunks
+ * of accounts in the order they grew, taking each account's lock with tryLock so it never
+ * waits behind an operation. Each account's newest chunk always stays in memory, so the
+ * bound is maxHotBytes plus one chunk (at most 256 entries) per account.
+ *
+ * The cold tier is a cache, not a record: snapshots, the account store and accounts.txt
+ * still hold every entry, so the segment files are cleared when the tier is enabled at
+ * startup. Chunks are written to fixed-size slots in shared segment files rather than a
+ * file per account, which would run out of file handles at millions of accounts.
+ *
+ * Process-wide, like the effective timestamp in Account; disabled by default, which keeps
+ * all history in memory.
+ */
+public final class HistoryTiering {
+
+    // One chunk of TransactionLog entries: timestamp, amount, balance, counterparty and kind
+    static final int SLOT_BYTES = TransactionLog.CHUNK_SIZE * (4 * Long.BYTES + 1);
+    private static final long SLOTS_PER_SEGMENT = 8_192;
+    // The evictor stops once memory is back under this fraction of the bound
+    private static final double EVICT_TO = 0.9;
+    // How often the evictor gives back the memory of logs that were dropped
+    private static final long SWEEP_MILLIS = 1_000;
+
+    private static volatile boolean enabled;
+    private static volatile int hotEntries = Integer.MAX_VALUE;
+    private static volatile long hotMillis;
+    private static volatile long maxHotBytes;
+    private static Path directory;
+    private static final List<FileChannel> segments = new ArrayList<>();
+    private static final AtomicLong nextSlot = new AtomicLong();
+
+    // Logs with spillable chunks, in the order they got them
+    private static final ConcurrentLinkedQueue<Tracked> evictable = new ConcurrentLinkedQueue<>();
+    // Every log holding hot bytes, so that those of a dropped log can be given back
+    private static final Set<Tracked> tracked = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<TransactionLog> dropped = new ReferenceQueue<>();
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(SLOT_BYTES));
+    private static Thread evictor;
+
+    private static final AtomicLong hotBytes = new AtomicLong();
+    private static final LongAdder chunksSpilled = new LongAdder();
+    private static final LongAdder chunksFetched = new LongAdder();
+    private static final LongAdder spillFailures = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+
+    private HistoryTiering() {
+    }
+
+    /** A log's share of the hot bytes; updated under the log's lock. */
+    static final class Tracked extends WeakReference<TransactionLog> {
+        private volatile long bytes;
+        // Set while in the evictable queue; only changed under the log's lock
+        boolean queued;
+
+        private Tracked(TransactionLog log) {
+            super(log, dropped);
+        }
+
+        void add(long delta) {
+            bytes += delta;
+            hotBytes.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Turns the cold tier on, or changes its limits if it is already on. hotMillis and
+     * maxHotBytes of 0 mean no age limit and no overall bound. Only logs created afterwards
+     * are tiered, so call it before accounts are loaded.
+     */
+    public static synchronized void enable(Path spillDirectory, int hotEntries, long hotMillis,
+                                           long maxHotBytes) throws IOException {
+        if (hotEntries < 1 || hotMillis < 0 || maxHotBytes < 0) {
+            throw new IllegalArgumentException("hotEntries must be positive and limits must not be negative");
+        }
+        if (directory == null) {
+            Files.createDirectories(spillDirectory);
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(spillDirectory, "cold-*.seg")) {
+                for (Path segment : stale) {
+                    Files.delete(segment);
+                }
+            }
+            directory = spillDirectory;
+        } else if (!directory.equals(spillDirectory)) {
+            throw new IllegalStateException("History tiering already uses " + directory);
+        }
+
+        HistoryTiering.hotEntries = hotEntries;
+        HistoryTiering.hotMillis = hotMillis;
+        HistoryTiering.maxHotBytes = maxHotBytes;
+        enabled = true;
+        if (evictor == null) {
+            evictor = new Thread(HistoryTiering::evictLoop, "history-evictor");
+            evictor.setDaemon(true);
+            evictor.start();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static HistoryTierStats stats() {
+        return new HistoryTierStats(hotBytes.get(), maxHotBytes, chunksSpilled.sum(),
+                chunksSpilled.sum() * SLOT_BYTES, chunksFetched.sum(), spillFailures.sum(), evictions.sum());
+    }
+
+    // Chunks holding none of a log's last this many entries are cold
+    static int hotEntries() {
+        return hotEntries;
+    }
+
+    // Chunks whose last entry is older than this are cold
+    static long coldBefore() {
+        long age = hotMillis;
+        return age == 0 ? Long.MIN_VALUE : System.currentTimeMillis() - age;
+    }
+
+    static Tracked track(TransactionLog log) {
+        Tracked entry = new Tracked(log);
+        tracked.add(entry);
+        return entry;
+    }
+
+    // Cleared by the caller before use; one per thread since spills and fetches run under
+    // different accounts' locks at once
+    static ByteBuffer buffer() {
+        return buffers.get().clear();
+    }
+
+    /** Called by a log, under its lock, when it is left with spillable chunks after a new one. */
+    static void chunkAdded(Tracked log) {
+        if (!log.queued) {
+            log.queued = true;
+            evictable.add(log);
+        }
+        long bound = maxHotBytes;
+        if (bound > 0 && hotBytes.get() > bound) {
+            LockSupport.unpark(evictor);
+        }
+    }
+
+    /** Writes one encoded chunk to a free slot and returns the slot, or -1 if it could not be written. */
+    static long write(ByteBuffer chunk) {
+        long slot = nextSlot.getAndIncrement();
+        try {
+            FileChannel channel = segment(slot / SLOTS_PER_SEGMENT);
+            long position = (slot % SLOTS_PER_SEGMENT) * SLOT_BYTES;
+            while (chunk.hasRemaining()) {
+                position += channel.write(chunk, position);
+            }
+            chunksSpilled.increment();
+            return slot;
+        } catch (IOException e) {
+            spillFailures.increment();
+            return -1;
+        }
+    }
+
+    static void read(long slot, ByteBuffer chunk) throws IOException {
+        FileChannel channel = segment(slot / SLOTS_PER_SEGMENT);
+        long position = (slot % SLOTS_PER_SEGMENT) * SLOT_BYTES;
+        while (chunk.hasRemaining()) {
+            int read = channel.read(chunk, position);
+            if (read < 0) {
+                throw new IOException("Cold history slot " + slot + " is past the end of its segment");
+            }
+            position += read;
+        }
+        chunksFetched.increment();
+    }
+
+    private static FileChannel segment(long number) throws IOException {
+        synchronized (segments) {
+            while (segments.size() <= number) {
+                Path file = directory.resolve(String.format("cold-%06d.seg", segments.size()));
+                segments.add(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE));
+            }
+            return segments.get((int) number);
+        }
+    }
+
+    private static void evictLoop() {
+        while (true) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SWEEP_MILLIS));
+            Reference<? extends TransactionLog> reference;
+            while ((reference = dropped.poll()) != null) {
+                Tracked entry = (Tracked) reference;
+                tracked.remove(entry);
+                hotBytes.addAndGet(-entry.bytes);
+            }
+
+            long bound = maxHotBytes;
+            int attempts = evictable.size();
+            while (bound > 0 && hotBytes.get() > bound * EVICT_TO && attempts-- > 0) {
+                Tracked entry = evictable.poll();
+                if (entry == null) {
+                    break;
+                }
+                TransactionLog log = entry.get();
+                if (log == null) {
+                    // Dropped; its bytes are given back once the reference is enqueued
+                    continue;
+                }
+                if (log.evict()) {
+                    evictions.increment();
+                } else {
+                    // Its account is busy; try again on a later pass
+                    evictable.add(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money helpers. Amounts are plain longs counting paise (1/100 rupee), so
+ * arithmetic on the hot path is exact and allocation-free; only parsing and formatting
+ * touch strings.
+ */
+public final class Money {
+
+    public static final long PAISE_PER_RUPEE = 100;
+    private static final long BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    public static long ofRupees(long rupees) {
+        return Math.multiplyExact(rupees, PAISE_PER_RUPEE);
+    }
+
+    /**
+     * Parses a rupee amount such as "1500", "1500.5", "1500.50" or the legacy "1.0E7".
+     * Throws NumberFormatException if it has more than two decimal places.
+     */
+    public static long parse(String rupees) {
+        long plain = parsePlain(rupees);
+        if (plain != Long.MIN_VALUE) {
+            return plain;
+        }
+        try {
+            return new BigDecimal(rupees.trim()).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Not a whole number of paise: " + rupees);
+        }
+    }
+
+    // The usual "-1500.50" form without going through BigDecimal; Long.MIN_VALUE for anything else
+    private static long parsePlain(String rupees) {
+        int length = rupees.length();
+        int i = length > 0 && rupees.charAt(0) == '-' ? 1 : 0;
+        int digitsStart = i;
+        long paise = 0;
+        for (; i < length && i - digitsStart < 16; i++) {
+            char c = rupees.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            paise = paise * 10 + (c - '0');
+        }
+        if (i == digitsStart || i - digitsStart >= 16) {
+            return Long.MIN_VALUE;
+        }
+        paise *= PAISE_PER_RUPEE;
+        if (i < length) {
+            int decimals = length - i - 1;
+            if (rupees.charAt(i) != '.' || decimals < 1 || decimals > 2) {
+                return Long.MIN_VALUE;
+            }
+            for (int d = 0; d < 2; d++) {
+                char c = d < decimals ? rupees.charAt(i + 1 + d) : '0';
+                if (c < '0' || c > '9') {
+                    return Long.MIN_VALUE;
+                }
+                paise += (c - '0') * (d == 0 ? 10 : 1);
+            }
+        }
+        return digitsStart == 1 ? -paise : paise;
+    }
+
+    /**
+     * Applies a rate given in basis points (400 = 4%) and rounds half-even to the paisa,
+     * so repeated credits do not drift in either direction.
+     */
+    public static long applyRate(long paise, long basisPoints) {
+        return applyRate(paise, basisPoints, 1);
+    }
+
+    /**
+     * Applies one of {@code periodsPerYear} equal parts of an annual rate in basis points,
+     * e.g. (balance, 400, 12) for a month at 4% per annum, rounding half-even only once.
+     */
+    public static long applyRate(long paise, long basisPoints, int periodsPerYear) {
+        long product = Math.multiplyExact(paise, basisPoints);
+        long divisor = BASIS_POINTS * periodsPerYear;
+        long quotient = product / divisor;
+        long remainder = Math.abs(product % divisor);
+        long twice = remainder * 2;
+        if (twice > divisor || (twice == divisor && (quotient & 1) != 0)) {
+            quotient += product < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /** Formats as rupees with exactly two decimals, e.g. 150050 -> "1500.50". */
+    public static String format(long paise) {
+        StringBuilder sb = new StringBuilder(16);
+        appendTo(sb, paise);
+        return sb.toString();
+    }
+
+    public static void appendTo(StringBuilder sb, long paise) {
+        if (paise < 0) {
+            sb.append('-');
+            if (paise == Long.MIN_VALUE) {
+                sb.append("92233720368547758.08");
+                return;
+            }
+            paise = -paise;
+        }
+        long fraction = paise % PAISE_PER_RUPEE;
+        sb.append(paise / PAISE_PER_RUPEE).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    /** Rupee value as a double, for display code that still formats doubles. */
+    public static double toRupees(long paise) {
+        return paise / (double) PAISE_PER_RUPEE;
+    }
+}
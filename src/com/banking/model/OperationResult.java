@@ -0,0 +1,35 @@
+package com.banking.model;
+
+/**
+ * Outcome of an account or bank operation. Nothing in the model or service prints; callers
+ * and event listeners decide what to show for each outcome.
+ */
+public enum OperationResult {
+    SUCCESS,
+    // Succeeded, but left a current account below zero
+    OVERDRAFT_ENTERED,
+    ACCOUNT_NOT_FOUND,
+    INVALID_AMOUNT,
+    INVALID_ACCOUNT_TYPE,
+    // A savings withdrawal would break the minimum balance
+    INSUFFICIENT_FUNDS,
+    // A current account withdrawal would go past the overdraft limit
+    OVERDRAFT_LIMIT_EXCEEDED,
+    SAME_ACCOUNT,
+    NOT_SAVINGS_ACCOUNT,
+    // Valid on its own, but not applied because another leg of an all-or-nothing batch failed
+    ABORTED,
+    // The idempotency key was used before, for a different request
+    IDEMPOTENCY_KEY_REUSED,
+    // The account's recent withdrawals and transfers out already reach a velocity limit
+    VELOCITY_LIMIT_EXCEEDED,
+    // Too large a transfer out of an account opened too recently
+    NEW_ACCOUNT_HOLD,
+    // The journal could not record the operation, so it is not confirmed; until a restart
+    // nothing else can be journaled either
+    JOURNAL_FAILED;
+
+    public boolean isSuccess() {
+        return this == SUCCESS || this == OVERDRAFT_ENTERED;
+    }
+}
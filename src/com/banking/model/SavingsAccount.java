@@ -2,52 +2,79 @@ package com.banking.model;
 
 public class SavingsAccount extends Account {
 
-    private static final double MINIMUM_BALANCE = 500.0;
-    private static final double INTEREST_RATE = 0.04;
+    private static final long MINIMUM_BALANCE = Money.ofRupees(500);
+    private static final long INTEREST_RATE_BASIS_POINTS = 400;
+    private static final int MONTHS_PER_YEAR = 12;
 
-    public SavingsAccount(String accountNumber, String accountHolderName, double initialBalance) {
+    // Latest period (yyyymm) credited by a bulk interest run, so a rerun skips this account
+    private int lastInterestPeriod;
+
+    public SavingsAccount(String accountNumber, String accountHolderName, long initialBalance) {
         super(accountNumber, accountHolderName, initialBalance, "SAVINGS");
     }
 
     @Override
-    public boolean withdraw(double amount) {
+    public OperationResult checkWithdrawal(long balance, long amount) {
         if (amount <= 0) {
-            System.out.println("❌ Invalid amount!");
-            return false;
+            return OperationResult.INVALID_AMOUNT;
         }
+        if (balance - amount < MINIMUM_BALANCE) {
+            return OperationResult.INSUFFICIENT_FUNDS;
+        }
+        return OperationResult.SUCCESS;
+    }
 
-        double balanceAfterWithdrawal = getBalance() - amount;
-
-        if (balanceAfterWithdrawal < MINIMUM_BALANCE) {
-            System.out.println("❌ Insufficient balance! Minimum balance of ₹" +
-                    MINIMUM_BALANCE + " must be maintained.");
-            return false;
+    /**
+     * Credits one period of interest and returns the amount in paise. Interest is rounded
+     * half-even to the paisa.
+     */
+    public long creditInterest() {
+        lock();
+        try {
+            long interest = interestDue();
+            postInterest(interest);
+            return interest;
+        } finally {
+            unlock();
         }
+    }
+
+    /** One period of interest on the current balance, without crediting it. */
+    public long interestDue() {
+        return Money.applyRate(getBalance(), INTEREST_RATE_BASIS_POINTS);
+    }
+
+    /** One month's share of the annual rate on the current balance, for the month-end run. */
+    public long monthlyInterestDue() {
+        return Money.applyRate(getBalance(), INTEREST_RATE_BASIS_POINTS, MONTHS_PER_YEAR);
+    }
 
-        setBalance(balanceAfterWithdrawal);
-        addTransaction("Withdrawn ₹" + amount + " | Balance: ₹" + getBalance());
-        return true;
+    /**
+     * Credits an interest amount computed earlier, e.g. when replaying a journaled interest
+     * run. Called with this account's lock held.
+     */
+    public void postInterest(long interest) {
+        setBalance(Math.addExact(getBalance(), interest));
+        recordTransaction(TransactionKind.INTEREST, interest);
     }
 
-    public void calculateInterest() {
-        double interest = getBalance() * INTEREST_RATE;
-        setBalance(getBalance() + interest);
-        addTransaction("Interest credited ₹" + String.format("%.2f", interest) +
-                " @ " + (INTEREST_RATE * 100) + "% | Balance: ₹" + getBalance());
+    public int getLastInterestPeriod() {
+        return lastInterestPeriod;
+    }
 
-        System.out.println("\n✅ Interest Calculation Complete!");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("Interest Rate    : " + (INTEREST_RATE * 100) + "% per annum");
-        System.out.println("Interest Amount  : ₹" + String.format("%.2f", interest));
-        System.out.println("New Balance      : ₹" + String.format("%.2f", getBalance()));
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    public void setLastInterestPeriod(int period) {
+        this.lastInterestPeriod = period;
     }
 
-    public static double getMinimumBalance() {
+    public static long getMinimumBalance() {
         return MINIMUM_BALANCE;
     }
 
     public static double getInterestRate() {
-        return INTEREST_RATE;
+        return INTEREST_RATE_BASIS_POINTS / 10_000.0;
+    }
+
+    public static long getInterestRateBasisPoints() {
+        return INTEREST_RATE_BASIS_POINTS;
     }
-}
\ No newline at end of file
+}
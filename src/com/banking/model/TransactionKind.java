@@ -0,0 +1,20 @@
+package com.banking.model;
+
+public enum TransactionKind {
+    OPENED,
+    DEPOSIT,
+    WITHDRAWAL,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    INTEREST,
+    // Free-text entry that could not be recognised as one of the kinds above
+    NOTE,
+    // Sending side of a cross-partition transfer credited back because the other side failed
+    TRANSFER_REVERSED;
+
+    private static final TransactionKind[] VALUES = values();
+
+    public static TransactionKind fromCode(int code) {
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,643 @@
+package com.banking.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Append-only transaction history packed into primitive arrays.
+ *
+ * Entries are stored as (timestamp, kind, amount, balance after, counterparty) in chunks of
+ * CHUNK_SIZE entries; the last chunk starts small and doubles, so short histories stay
+ * cheap. Amounts are paise. Nothing is formatted until an entry is rendered. Entries
+ * parsed from the old double-based text keep a flag so they render exactly as they were
+ * read. Not thread-safe: the owning Account's lock guards it.
+ *
+ * Logs created while HistoryTiering is enabled keep only their recent chunks in memory;
+ * older full chunks are spilled to the cold tier and read back one at a time on access.
+ */
+public final class TransactionLog {
+
+    static final int CHUNK_SIZE = 256;
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long NO_COUNTERPARTY = -1;
+    /** Balance-after of entries whose source text did not record it. */
+    public static final long UNKNOWN_BALANCE = Long.MIN_VALUE;
+
+    // Set in the kind byte for entries that render amounts the old way (Double.toString)
+    private static final int LEGACY_FORMAT = 0x40;
+    private static final int KIND_MASK = 0x3F;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String RUPEE = "₹";
+
+    private Chunk[] chunks = new Chunk[1];
+    private int chunkCount;
+    private int size;
+
+    // Cold tier state, only used when tiered: chunks[k] is null once chunk k is spilled to
+    // slots[k], and chunks before firstHot are all spilled. Spilled chunks are always full.
+    private final boolean tiered = HistoryTiering.isEnabled();
+    private long[] slots;
+    private long[] chunkEnds = tiered ? new long[1] : null;
+    private int firstHot;
+    // The cold chunk read most recently, so a scan reads each one only once
+    private Chunk fetched;
+    private int fetchedIndex = -1;
+    private HistoryTiering.Tracked tracked;
+    private volatile Lock guard;
+    // Cleared once an entry is older than the one before it (e.g. an undated legacy line), so
+    // time lookups can no longer binary search
+    private boolean timeOrdered = true;
+    private long lastTimestamp = Long.MIN_VALUE;
+    // Text of NOTE entries, referenced from the counterparty column
+    private List<String> notes;
+
+    private static final class Chunk {
+        long[] timestamps;
+        byte[] kinds;
+        long[] amounts;
+        long[] balances;
+        long[] counterparties;
+        int count;
+
+        Chunk(int capacity) {
+            timestamps = new long[capacity];
+            kinds = new byte[capacity];
+            amounts = new long[capacity];
+            balances = new long[capacity];
+            counterparties = new long[capacity];
+        }
+
+        void grow() {
+            int capacity = Math.min(CHUNK_SIZE, timestamps.length * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            counterparties = Arrays.copyOf(counterparties, capacity);
+        }
+    }
+
+    public void add(long timestamp, TransactionKind kind, long amount, long balanceAfter, long counterparty) {
+        append(timestamp, kind.ordinal(), amount, balanceAfter, counterparty);
+    }
+
+    private void append(long timestamp, int kindCode, long amount, long balanceAfter, long counterparty) {
+        Chunk chunk = chunkCount == 0 ? null : chunks[chunkCount - 1];
+        if (chunk == null || chunk.count == CHUNK_SIZE) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                if (tiered) {
+                    chunkEnds = Arrays.copyOf(chunkEnds, chunks.length);
+                }
+            }
+            chunk = new Chunk(chunkCount == 0 ? INITIAL_CAPACITY : CHUNK_SIZE);
+            chunks[chunkCount++] = chunk;
+            if (tiered) {
+                chunkStarted();
+            }
+        } else if (chunk.count == chunk.timestamps.length) {
+            chunk.grow();
+        }
+
+        if (timestamp < lastTimestamp) {
+            timeOrdered = false;
+        }
+        lastTimestamp = timestamp;
+        int i = chunk.count++;
+        chunk.timestamps[i] = timestamp;
+        chunk.kinds[i] = (byte) kindCode;
+        chunk.amounts[i] = amount;
+        chunk.balances[i] = balanceAfter;
+        chunk.counterparties[i] = counterparty;
+        size++;
+        if (tiered) {
+            chunkEnds[chunkCount - 1] = timestamp;
+        }
+    }
+
+    // A new last chunk was just added: the one before it is full and can now be spilled
+    private void chunkStarted() {
+        if (chunkCount == 1) {
+            return;
+        }
+        if (chunks[chunkCount - 2] != null) {
+            addHotBytes(HistoryTiering.SLOT_BYTES);
+        }
+        int hotEntries = HistoryTiering.hotEntries();
+        long coldBefore = HistoryTiering.coldBefore();
+        while (firstHot < chunkCount - 1
+                && ((long) firstHot * CHUNK_SIZE + CHUNK_SIZE <= (long) size - hotEntries || chunkEnds[firstHot] < coldBefore)) {
+            if (!spill(firstHot)) {
+                break;
+            }
+            firstHot++;
+        }
+        if (firstHot < chunkCount - 1) {
+            HistoryTiering.chunkAdded(tracked);
+        }
+    }
+
+    private boolean spill(int index) {
+        Chunk chunk = chunks[index];
+        ByteBuffer buffer = HistoryTiering.buffer();
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            buffer.putLong(chunk.timestamps[i]);
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            buffer.putLong(chunk.amounts[i]);
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            buffer.putLong(chunk.balances[i]);
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            buffer.putLong(chunk.counterparties[i]);
+        }
+        buffer.put(chunk.kinds, 0, CHUNK_SIZE).flip();
+        long slot = HistoryTiering.write(buffer);
+        if (slot < 0) {
+            return false;
+        }
+        if (slots == null) {
+            slots = new long[chunks.length];
+        } else if (slots.length < chunks.length) {
+            slots = Arrays.copyOf(slots, chunks.length);
+        }
+        slots[index] = slot;
+        chunks[index] = null;
+        addHotBytes(-HistoryTiering.SLOT_BYTES);
+        return true;
+    }
+
+    private Chunk fetch(int index) {
+        if (index == fetchedIndex) {
+            return fetched;
+        }
+        ByteBuffer buffer = HistoryTiering.buffer();
+        try {
+            HistoryTiering.read(slots[index], buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read cold history", e);
+        }
+        buffer.flip();
+        if (fetched == null) {
+            fetched = new Chunk(CHUNK_SIZE);
+            addHotBytes(HistoryTiering.SLOT_BYTES);
+        }
+        Chunk chunk = fetched;
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            chunk.timestamps[i] = buffer.getLong();
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            chunk.amounts[i] = buffer.getLong();
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            chunk.balances[i] = buffer.getLong();
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            chunk.counterparties[i] = buffer.getLong();
+        }
+        buffer.get(chunk.kinds, 0, CHUNK_SIZE);
+        chunk.count = CHUNK_SIZE;
+        fetchedIndex = index;
+        return chunk;
+    }
+
+    private void addHotBytes(long delta) {
+        if (tracked == null) {
+            tracked = HistoryTiering.track(this);
+        }
+        tracked.add(delta);
+    }
+
+    /** The lock callers hold while using this log; lets the cold tier evict it in the background. */
+    void guardWith(Lock lock) {
+        this.guard = lock;
+    }
+
+    /**
+     * Spills every full chunk but the newest and drops the fetched one, if the guarding lock
+     * is free right now. Called by the cold tier's evictor thread.
+     */
+    boolean evict() {
+        Lock lock = guard;
+        if (lock == null || !lock.tryLock()) {
+            return false;
+        }
+        try {
+            while (firstHot < chunkCount - 1 && spill(firstHot)) {
+                firstHot++;
+            }
+            if (tracked != null) {
+                tracked.queued = false;
+            }
+            if (fetched != null) {
+                fetched = null;
+                fetchedIndex = -1;
+                addHotBytes(-HistoryTiering.SLOT_BYTES);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a transfer entry. Account numbers outside the ACC#### scheme cannot be packed
+     * into the counterparty column, so those entries are kept as rendered text.
+     */
+    public void addTransfer(long timestamp, TransactionKind kind, long amount, long balanceAfter,
+                            String otherAccountNumber) {
+        long sequence = AccountNumbers.toSequence(otherAccountNumber);
+        if (sequence >= 0 && AccountNumbers.fromSequence(sequence).equals(otherAccountNumber)) {
+            add(timestamp, kind, amount, balanceAfter, sequence);
+            return;
+        }
+        add(timestamp, kind, amount, balanceAfter, 0);
+        String rendered = render(size - 1);
+        removeLast();
+        addNote(timestamp, rendered.substring(0, rendered.lastIndexOf(' ') + 1) + otherAccountNumber);
+    }
+
+    /** Adds a free-text entry; text is the complete rendered line including its timestamp. */
+    public void addNote(long timestamp, String text) {
+        if (notes == null) {
+            notes = new ArrayList<>();
+        }
+        notes.add(text);
+        add(timestamp, TransactionKind.NOTE, 0, 0, notes.size() - 1);
+    }
+
+    /**
+     * Adds a previously rendered history line, storing it as a typed entry when it can be
+     * recognised and re-rendered byte for byte, and as a NOTE otherwise.
+     */
+    public void addRendered(String line) {
+        long timestamp = parseTimestamp(line);
+        if (timestamp != Long.MIN_VALUE && (parseTyped(line, timestamp, false) || parseTyped(line, timestamp, true))) {
+            return;
+        }
+        addNote(timestamp == Long.MIN_VALUE ? 0 : timestamp, line);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** True while every entry is at or after the one before it. */
+    public boolean isTimeOrdered() {
+        return timeOrdered;
+    }
+
+    /**
+     * Index of the first entry at or after the given epoch-millis time, or size() if there is
+     * none. When the log is not in time order any entry may match, so this is 0 and callers
+     * check each entry's time.
+     */
+    public int indexAtOrAfter(long timestamp) {
+        if (!timeOrdered) {
+            return 0;
+        }
+        int low = 0;
+        int high = size;
+        if (slots != null) {
+            // Find the chunk first from the chunks' last times, so at most one cold chunk is read
+            int lowChunk = 0;
+            int highChunk = chunkCount - 1;
+            while (lowChunk < highChunk) {
+                int middle = (lowChunk + highChunk) >>> 1;
+                if (chunkEnds[middle] < timestamp) {
+                    lowChunk = middle + 1;
+                } else {
+                    highChunk = middle;
+                }
+            }
+            low = lowChunk * CHUNK_SIZE;
+            high = Math.min(size, low + CHUNK_SIZE);
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public long timestamp(int index) {
+        return chunk(index).timestamps[index % CHUNK_SIZE];
+    }
+
+    public TransactionKind kind(int index) {
+        return TransactionKind.fromCode(chunk(index).kinds[index % CHUNK_SIZE] & KIND_MASK);
+    }
+
+    /** Amount in paise. */
+    public long amount(int index) {
+        return chunk(index).amounts[index % CHUNK_SIZE];
+    }
+
+    /** Balance after the entry in paise, or UNKNOWN_BALANCE. */
+    public long balanceAfter(int index) {
+        return chunk(index).balances[index % CHUNK_SIZE];
+    }
+
+    /** Sequence number of the other account for transfer entries, -1 otherwise. */
+    public long counterparty(int index) {
+        TransactionKind kind = kind(index);
+        return kind == TransactionKind.TRANSFER_IN || kind == TransactionKind.TRANSFER_OUT
+                || kind == TransactionKind.TRANSFER_REVERSED
+                ? chunk(index).counterparties[index % CHUNK_SIZE] : NO_COUNTERPARTY;
+    }
+
+    public String render(int index) {
+        StringBuilder sb = new StringBuilder(96);
+        renderTo(index, sb);
+        return sb.toString();
+    }
+
+    public void renderTo(int index, StringBuilder sb) {
+        Chunk chunk = chunk(index);
+        int i = index % CHUNK_SIZE;
+        int code = chunk.kinds[i];
+        TransactionKind kind = TransactionKind.fromCode(code & KIND_MASK);
+        boolean legacy = (code & LEGACY_FORMAT) != 0;
+        if (kind == TransactionKind.NOTE) {
+            sb.append(notes.get((int) chunk.counterparties[i]));
+            return;
+        }
+
+        sb.append('[');
+        appendTimestamp(sb, LocalDateTime.ofInstant(Instant.ofEpochMilli(chunk.timestamps[i]), ZoneId.systemDefault()));
+        sb.append("] ");
+
+        long amount = chunk.amounts[i];
+        long balance = chunk.balances[i];
+        switch (kind) {
+            case OPENED:
+                sb.append("Account created with initial deposit of ").append(RUPEE);
+                appendAmount(sb, amount, legacy);
+                break;
+            case DEPOSIT:
+                sb.append("Deposited ").append(RUPEE);
+                appendAmount(sb, amount, legacy);
+                sb.append(" | Balance: ").append(RUPEE);
+                appendAmount(sb, balance, legacy);
+                break;
+            case WITHDRAWAL:
+                sb.append("Withdrawn ").append(RUPEE);
+                appendAmount(sb, amount, legacy);
+                sb.append(balance < 0 ? " (Overdraft)" : "").append(" | Balance: ").append(RUPEE);
+                appendAmount(sb, balance, legacy);
+                break;
+            case TRANSFER_OUT:
+                sb.append("Transferred ").append(RUPEE);
+                appendAmount(sb, amount, legacy);
+                sb.append(" to A/C ").append(AccountNumbers.fromSequence(chunk.counterparties[i]));
+                break;
+            case TRANSFER_IN:
+                sb.append("Received ").append(RUPEE);
+                appendAmount(sb, amount, legacy);
+                sb.append(" from A/C ").append(AccountNumbers.fromSequence(chunk.counterparties[i]));
+                break;
+            case TRANSFER_REVERSED:
+                sb.append("Reversed ").append(RUPEE);
+                appendAmount(sb, amount, legacy);
+                sb.append(" of transfer to A/C ").append(AccountNumbers.fromSequence(chunk.counterparties[i]));
+                break;
+            case INTEREST:
+                // The interest amount was always printed with two decimals
+                sb.append("Interest credited ").append(RUPEE);
+                Money.appendTo(sb, amount);
+                sb.append(" @ ").append(SavingsAccount.getInterestRate() * 100).append("% | Balance: ").append(RUPEE);
+                appendAmount(sb, balance, legacy);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // As TIMESTAMP_FORMAT would, digit by digit
+    private static void appendTimestamp(StringBuilder sb, LocalDateTime time) {
+        int year = time.getYear();
+        if (year < 1000 || year > 9999) {
+            TIMESTAMP_FORMAT.formatTo(time, sb);
+            return;
+        }
+        sb.append(year).append('-');
+        appendTwoDigits(sb, time.getMonthValue()).append('-');
+        appendTwoDigits(sb, time.getDayOfMonth()).append(' ');
+        appendTwoDigits(sb, time.getHour()).append(':');
+        appendTwoDigits(sb, time.getMinute()).append(':');
+        appendTwoDigits(sb, time.getSecond());
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static void appendAmount(StringBuilder sb, long paise, boolean legacy) {
+        if (legacy) {
+            sb.append(Money.toRupees(paise));
+        } else {
+            Money.appendTo(sb, paise);
+        }
+    }
+
+    public List<String> toStrings() {
+        List<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(render(i));
+        }
+        return lines;
+    }
+
+    /** Appends every rendered entry to sb, separated by separator. */
+    public void appendTo(StringBuilder sb, String separator) {
+        appendTo(sb, separator, 0, size);
+    }
+
+    /** Appends entries from (inclusive) to to (exclusive), each but the very first preceded by separator. */
+    public void appendTo(StringBuilder sb, String separator, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            renderTo(i, sb);
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int index = 0; index < size; index++) {
+            Chunk chunk = chunk(index);
+            int i = index % CHUNK_SIZE;
+            out.writeByte(chunk.kinds[i]);
+            out.writeLong(chunk.timestamps[i]);
+            if ((chunk.kinds[i] & KIND_MASK) == TransactionKind.NOTE.ordinal()) {
+                out.writeUTF(notes.get((int) chunk.counterparties[i]));
+            } else {
+                out.writeLong(chunk.amounts[i]);
+                out.writeLong(chunk.balances[i]);
+                out.writeLong(chunk.counterparties[i]);
+            }
+        }
+    }
+
+    public static TransactionLog readFrom(DataInput in) throws IOException {
+        TransactionLog log = new TransactionLog();
+        int count = in.readInt();
+        for (int index = 0; index < count; index++) {
+            int code = in.readByte();
+            long timestamp = in.readLong();
+            if ((code & KIND_MASK) == TransactionKind.NOTE.ordinal()) {
+                log.addNote(timestamp, in.readUTF());
+            } else {
+                log.append(timestamp, code, in.readLong(), in.readLong(), in.readLong());
+            }
+        }
+        return log;
+    }
+
+    private Chunk chunk(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Chunk chunk = chunks[index / CHUNK_SIZE];
+        return chunk != null ? chunk : fetch(index / CHUNK_SIZE);
+    }
+
+    private static long parseTimestamp(String line) {
+        // "[yyyy-MM-dd HH:mm:ss] "
+        if (line.length() < 22 || line.charAt(0) != '[' || line.charAt(20) != ']' || line.charAt(21) != ' ') {
+            return Long.MIN_VALUE;
+        }
+        LocalDateTime time = null;
+        if (line.charAt(5) == '-' && line.charAt(8) == '-' && line.charAt(11) == ' '
+                && line.charAt(14) == ':' && line.charAt(17) == ':') {
+            int year = digits(line, 1, 4);
+            int month = digits(line, 6, 2);
+            int day = digits(line, 9, 2);
+            int hour = digits(line, 12, 2);
+            int minute = digits(line, 15, 2);
+            int second = digits(line, 18, 2);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                try {
+                    time = LocalDateTime.of(year, month, day, hour, minute, second);
+                } catch (DateTimeException e) {
+                    // Left to the formatter, which resolves some out-of-range days
+                }
+            }
+        }
+        try {
+            if (time == null) {
+                time = LocalDateTime.parse(line.substring(1, 20), TIMESTAMP_FORMAT);
+            }
+            return time.toEpochSecond(ZoneId.systemDefault().getRules().getOffset(time)) * 1000;
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // The count decimal digits at from, or -1 if any is not a digit
+    private static int digits(String text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private boolean parseTyped(String line, long timestamp, boolean legacy) {
+        String text = line.substring(22);
+        TransactionKind kind;
+        long amount;
+        long balance = 0;
+        long counterparty = NO_COUNTERPARTY;
+
+        try {
+            if (text.startsWith("Account created with initial deposit of " + RUPEE)) {
+                kind = TransactionKind.OPENED;
+                amount = Money.parse(text.substring(41));
+            } else if (text.startsWith("Deposited " + RUPEE) || text.startsWith("Withdrawn " + RUPEE)
+                    || text.startsWith("Interest credited " + RUPEE)) {
+                kind = text.startsWith("D") ? TransactionKind.DEPOSIT
+                        : text.startsWith("W") ? TransactionKind.WITHDRAWAL : TransactionKind.INTEREST;
+                int amountStart = text.indexOf(RUPEE) + 1;
+                int amountEnd = text.indexOf(' ', amountStart);
+                int balanceStart = text.lastIndexOf(" | Balance: " + RUPEE);
+                if (amountEnd < 0 || balanceStart < 0) {
+                    return false;
+                }
+                amount = Money.parse(text.substring(amountStart, amountEnd));
+                balance = Money.parse(text.substring(balanceStart + 12 + RUPEE.length()));
+            } else if (text.startsWith("Transferred " + RUPEE) || text.startsWith("Received " + RUPEE)
+                    || text.startsWith("Reversed " + RUPEE)) {
+                kind = text.startsWith("T") ? TransactionKind.TRANSFER_OUT
+                        : text.startsWith("Rec") ? TransactionKind.TRANSFER_IN : TransactionKind.TRANSFER_REVERSED;
+                int amountStart = text.indexOf(RUPEE) + 1;
+                int amountEnd = text.indexOf(' ', amountStart);
+                int accountStart = text.lastIndexOf("A/C ");
+                if (amountEnd < 0 || accountStart < 0) {
+                    return false;
+                }
+                amount = Money.parse(text.substring(amountStart, amountEnd));
+                // The text never included the balance after a transfer
+                balance = UNKNOWN_BALANCE;
+                counterparty = AccountNumbers.toSequence(text.substring(accountStart + 4));
+                if (counterparty < 0) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        append(timestamp, kind.ordinal() | (legacy ? LEGACY_FORMAT : 0), amount, balance, counterparty);
+        if (render(size - 1).equals(line)) {
+            return true;
+        }
+        removeLast();
+        return false;
+    }
+
+    private void removeLast() {
+        Chunk chunk = chunks[chunkCount - 1];
+        chunk.count--;
+        size--;
+        if (chunk.count == 0) {
+            chunks[--chunkCount] = null;
+            if (tiered && chunkCount > 0 && chunks[chunkCount - 1] != null) {
+                // The chunk before is the last one again, which is not counted until it is followed
+                addHotBytes(-HistoryTiering.SLOT_BYTES);
+            }
+        } else if (tiered) {
+            chunkEnds[chunkCount - 1] = chunk.timestamps[chunk.count - 1];
+        }
+    }
+}
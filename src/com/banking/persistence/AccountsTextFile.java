@@ -0,0 +1,346 @@
+package com.banking.persistence;
+
+import com.banking.model.Account;
+import com.banking.model.CurrentAccount;
+import com.banking.model.Money;
+import com.banking.model.SavingsAccount;
+import com.banking.model.TransactionLog;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * The legacy pipe-delimited accounts.txt, one account per line:
+ * number|holder|balance|type|created|history, the history entries separated by ";;".
+ * Files from older versions start with a line holding the next account number.
+ *
+ * Both directions are spread over the common fork-join pool. Reading splits the file into
+ * slices of about SLICE_BYTES that end at line breaks and parses each slice straight from
+ * its bytes; writing renders slices of accounts in parallel and appends them to the file in
+ * order, so the output is the same whatever the parallelism. Lines are written in account
+ * number order, which makes a save of a loaded file reproduce it byte for byte.
+ */
+public final class AccountsTextFile {
+
+    private static final int SLICE_BYTES = 4 << 20;
+    private static final int SLICE_ACCOUNTS = 2_048;
+    // Bytes read at a time while looking for the line break that ends a slice
+    private static final int SCAN_BYTES = 64 * 1024;
+
+    /** Looks up an account to write; null if it no longer exists. */
+    @FunctionalInterface
+    public interface AccountSource {
+        Account find(String accountNumber) throws IOException;
+    }
+
+    private AccountsTextFile() {
+    }
+
+    /**
+     * Parses every account line of file and hands each account to sink, which is called
+     * from several threads at once and in no particular order. Lines with fewer than five
+     * fields are skipped. Returns the next account number from an old file's first line,
+     * or 0 if it has none.
+     */
+    public static long read(Path file, Consumer<Account> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            long nextAccountNumber = 0;
+            // Older files start with the next account number, now kept in account-numbers
+            long firstBreak = nextBreak(channel, 0, size);
+            byte[] first = read(channel, 0, (int) Math.min(firstBreak, SCAN_BYTES));
+            if (size > 0 && indexOf(first, 0, first.length, (byte) '|') < 0) {
+                nextAccountNumber = Long.parseLong(new String(first, StandardCharsets.US_ASCII).trim());
+                start = firstBreak;
+            }
+
+            List<ParseTask> tasks = new ArrayList<>();
+            while (start < size) {
+                long end = start + SLICE_BYTES >= size ? size : nextBreak(channel, start + SLICE_BYTES, size);
+                tasks.add(new ParseTask(channel, start, end, sink));
+                start = end;
+            }
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            return nextAccountNumber;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the accounts in accountNumbers, in that order, to a temporary file and moves it
+     * over file. Slices are rendered ahead of the one being written by at most twice the
+     * pool's parallelism, which bounds the memory held. Returns the number of accounts written.
+     */
+    public static long write(Path file, List<String> accountNumbers, AccountSource source) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int ahead = Math.max(2, pool.getParallelism() * 2);
+        long written = 0;
+        try (OutputStream out = new FileOutputStream(temp.toFile())) {
+            ArrayDeque<ForkJoinTask<RenderedSlice>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < accountNumbers.size() || !pending.isEmpty()) {
+                while (pending.size() < ahead && next < accountNumbers.size()) {
+                    List<String> slice = accountNumbers.subList(next, Math.min(accountNumbers.size(), next + SLICE_ACCOUNTS));
+                    pending.add(pool.submit(() -> render(slice, source)));
+                    next += slice.size();
+                }
+                RenderedSlice rendered = pending.remove().get();
+                rendered.writeTo(out);
+                written += rendered.accounts;
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while saving " + file);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /** The lines of one slice of accounts, UTF-8 encoded. */
+    private static final class RenderedSlice extends ByteArrayOutputStream {
+        int accounts;
+
+        RenderedSlice() {
+            super(256 * 1024);
+        }
+    }
+
+    private static RenderedSlice render(List<String> slice, AccountSource source) {
+        RenderedSlice rendered = new RenderedSlice();
+        StringBuilder line = new StringBuilder(64 * 1024);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(rendered, StandardCharsets.UTF_8), 64 * 1024)) {
+            for (String accountNumber : slice) {
+                Account account = source.find(accountNumber);
+                if (account != null) {
+                    account.writeFileString(writer, line);
+                    writer.write(System.lineSeparator());
+                    rendered.accounts++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rendered;
+    }
+
+    /** Parses the lines in [start, end) of the file, which begins and ends on line boundaries. */
+    @SuppressWarnings("serial")
+    private static final class ParseTask extends RecursiveAction {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final Consumer<Account> sink;
+
+        ParseTask(FileChannel channel, long start, long end, Consumer<Account> sink) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            byte[] bytes;
+            try {
+                bytes = read(channel, start, (int) (end - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = indexOf(bytes, lineStart, bytes.length, (byte) '\n');
+                int next = lineEnd < 0 ? bytes.length : lineEnd + 1;
+                lineEnd = lineEnd < 0 ? bytes.length : lineEnd;
+                if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                    lineEnd--;
+                }
+                Account account = parseLine(bytes, lineStart, lineEnd);
+                if (account != null) {
+                    sink.accept(account);
+                }
+                lineStart = next;
+            }
+        }
+    }
+
+    // One account line, or null if it has fewer than five fields
+    private static Account parseLine(byte[] bytes, int from, int to) {
+        // Positions of the first five '|'; history entries contain more of them
+        int[] bars = new int[5];
+        int found = 0;
+        for (int i = from; i < to && found < 5; i++) {
+            if (bytes[i] == '|') {
+                bars[found++] = i;
+            }
+        }
+        if (found < 4) {
+            return null;
+        }
+        int createdEnd = found == 5 ? bars[4] : to;
+
+        String accountNumber = text(bytes, from, bars[0]);
+        String holderName = text(bytes, bars[0] + 1, bars[1]);
+        long balance = Money.parse(text(bytes, bars[1] + 1, bars[2]));
+        Account account = matches(bytes, bars[2] + 1, bars[3], "SAVINGS")
+                ? new SavingsAccount(accountNumber, holderName, balance)
+                : new CurrentAccount(accountNumber, holderName, balance);
+        account.setCreatedDate(parseDateTime(bytes, bars[3] + 1, createdEnd));
+
+        if (found == 5 && bars[4] + 1 < to) {
+            account.setTransactionLog(parseHistory(bytes, bars[4] + 1, to));
+        }
+        return account;
+    }
+
+    // Entries separated by ";;", dropping trailing empty ones as String.split did
+    private static TransactionLog parseHistory(byte[] bytes, int from, int to) {
+        TransactionLog log = new TransactionLog();
+        int emptyPending = 0;
+        int entryStart = from;
+        while (entryStart <= to) {
+            int entryEnd = entryStart;
+            while (entryEnd < to && !(bytes[entryEnd] == ';' && entryEnd + 1 < to && bytes[entryEnd + 1] == ';')) {
+                entryEnd++;
+            }
+            if (entryEnd == entryStart) {
+                emptyPending++;
+            } else {
+                for (; emptyPending > 0; emptyPending--) {
+                    log.addRendered("");
+                }
+                log.addRendered(text(bytes, entryStart, entryEnd));
+            }
+            entryStart = entryEnd + 2;
+        }
+        return log;
+    }
+
+    // LocalDateTime.toString() output: yyyy-MM-ddTHH:mm, then optionally :ss and a fraction
+    private static LocalDateTime parseDateTime(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (length >= 16 && bytes[from + 4] == '-' && bytes[from + 7] == '-' && bytes[from + 10] == 'T'
+                && bytes[from + 13] == ':') {
+            int year = digits(bytes, from, 4);
+            int month = digits(bytes, from + 5, 2);
+            int day = digits(bytes, from + 8, 2);
+            int hour = digits(bytes, from + 11, 2);
+            int minute = digits(bytes, from + 14, 2);
+            int second = 0;
+            int nano = 0;
+            boolean valid = length == 16;
+            if (length >= 19 && bytes[from + 16] == ':') {
+                second = digits(bytes, from + 17, 2);
+                int fraction = length - 20;
+                valid = length == 19 || (bytes[from + 19] == '.' && fraction >= 1 && fraction <= 9);
+                if (length > 19 && valid) {
+                    nano = digits(bytes, from + 20, fraction);
+                    for (int i = fraction; i < 9; i++) {
+                        nano *= 10;
+                    }
+                }
+            }
+            if (valid && (year | month | day | hour | minute | second | nano) >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+                } catch (DateTimeException e) {
+                    // Reported by the parse below
+                }
+            }
+        }
+        return LocalDateTime.parse(text(bytes, from, to));
+    }
+
+    // The count decimal digits at from, or -1 if any is not a digit
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean matches(byte[] bytes, int from, int to, String ascii) {
+        if (to - from != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[from + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String text(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte wanted) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == wanted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Position just past the first line break at or after position, or size if there is none
+    private static long nextBreak(FileChannel channel, long position, long size) throws IOException {
+        while (position < size) {
+            byte[] window = read(channel, position, (int) Math.min(SCAN_BYTES, size - position));
+            int found = indexOf(window, 0, window.length, (byte) '\n');
+            if (found >= 0) {
+                return position + found + 1;
+            }
+            position += window.length;
+        }
+        return size;
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("accounts file ended early");
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,104 @@
+package com.banking.persistence;
+
+import com.banking.model.Money;
+import com.banking.model.TransactionKind;
+
+/**
+ * Which archived postings a HistoryArchive query looks at. Immutable: each method returns
+ * a narrower copy, e.g. ArchiveFilter.all().kinds(TransactionKind.TRANSFER_OUT)
+ * .amountAtLeast(Money.ofRupees(100_000)).between(from, to).
+ */
+public final class ArchiveFilter {
+
+    static final int ALL_KINDS = (1 << TransactionKind.values().length) - 1;
+    private static final ArchiveFilter ALL = new ArchiveFilter(ALL_KINDS, Long.MIN_VALUE, Long.MAX_VALUE,
+            Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+    // Bit per TransactionKind ordinal
+    final int kinds;
+    final long fromMillis;
+    final long toMillis;
+    final long minAmount;
+    final long maxAmount;
+    final String accountNumber;
+
+    private ArchiveFilter(int kinds, long fromMillis, long toMillis, long minAmount, long maxAmount,
+                          String accountNumber) {
+        this.kinds = kinds;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.accountNumber = accountNumber;
+    }
+
+    public static ArchiveFilter all() {
+        return ALL;
+    }
+
+    /** Only postings of these kinds. */
+    public ArchiveFilter kinds(TransactionKind... kinds) {
+        int mask = 0;
+        for (TransactionKind kind : kinds) {
+            mask |= 1 << kind.ordinal();
+        }
+        return new ArchiveFilter(mask, fromMillis, toMillis, minAmount, maxAmount, accountNumber);
+    }
+
+    /** Only postings made from fromMillis to toMillis, both inclusive. */
+    public ArchiveFilter between(long fromMillis, long toMillis) {
+        return new ArchiveFilter(kinds, fromMillis, toMillis, minAmount, maxAmount, accountNumber);
+    }
+
+    /** Only postings of at least this many paise. */
+    public ArchiveFilter amountAtLeast(long paise) {
+        return new ArchiveFilter(kinds, fromMillis, toMillis, paise, maxAmount, accountNumber);
+    }
+
+    /** Only postings of at most this many paise. */
+    public ArchiveFilter amountAtMost(long paise) {
+        return new ArchiveFilter(kinds, fromMillis, toMillis, minAmount, paise, accountNumber);
+    }
+
+    /** Only postings of this account or with it as the counterparty. */
+    public ArchiveFilter involving(String accountNumber) {
+        return new ArchiveFilter(kinds, fromMillis, toMillis, minAmount, maxAmount, accountNumber);
+    }
+
+    boolean hasTimeRange() {
+        return fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+    }
+
+    boolean hasAmountRange() {
+        return minAmount != Long.MIN_VALUE || maxAmount != Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("kinds=");
+        if (kinds == ALL_KINDS) {
+            sb.append("all");
+        } else {
+            String separator = "";
+            for (TransactionKind kind : TransactionKind.values()) {
+                if ((kinds & (1 << kind.ordinal())) != 0) {
+                    sb.append(separator).append(kind);
+                    separator = "|";
+                }
+            }
+        }
+        if (hasTimeRange()) {
+            sb.append(", from=").append(fromMillis).append(", to=").append(toMillis);
+        }
+        if (minAmount != Long.MIN_VALUE) {
+            sb.append(", min=₹").append(Money.format(minAmount));
+        }
+        if (maxAmount != Long.MAX_VALUE) {
+            sb.append(", max=₹").append(Money.format(maxAmount));
+        }
+        if (accountNumber != null) {
+            sb.append(", account=").append(accountNumber);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.banking.persistence;
+
+import com.banking.model.Money;
+
+/**
+ * Aggregates of the postings one HistoryArchive query matched. Segments whose time,
+ * amount and kind ranges rule out a match are skipped without being read.
+ */
+public final class ArchiveSummary {
+
+    private final long postings;
+    private final long totalAmount;
+    private final long minAmount;
+    private final long maxAmount;
+    private final long rowsScanned;
+    private final int segmentsScanned;
+    private final int segmentsSkipped;
+    private final long elapsedMillis;
+
+    ArchiveSummary(long postings, long totalAmount, long minAmount, long maxAmount, long rowsScanned,
+                   int segmentsScanned, int segmentsSkipped, long elapsedMillis) {
+        this.postings = postings;
+        this.totalAmount = totalAmount;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.rowsScanned = rowsScanned;
+        this.segmentsScanned = segmentsScanned;
+        this.segmentsSkipped = segmentsSkipped;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getPostings() {
+        return postings;
+    }
+
+    /** Paise. */
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    /** Paise; 0 if nothing matched. */
+    public long getMinAmount() {
+        return minAmount;
+    }
+
+    /** Paise; 0 if nothing matched. */
+    public long getMaxAmount() {
+        return maxAmount;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public int getSegmentsScanned() {
+        return segmentsScanned;
+    }
+
+    public int getSegmentsSkipped() {
+        return segmentsSkipped;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "postings=" + postings + ", total=" + Money.format(totalAmount) + ", min=" + Money.format(minAmount)
+                + ", max=" + Money.format(maxAmount) + ", rowsScanned=" + rowsScanned + ", segments="
+                + segmentsScanned + " scanned/" + segmentsSkipped + " skipped, elapsedMillis=" + elapsedMillis;
+    }
+}
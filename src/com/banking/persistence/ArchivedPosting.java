@@ -0,0 +1,61 @@
+package com.banking.persistence;
+
+import com.banking.model.Money;
+import com.banking.model.TransactionKind;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * One posting read back from the HistoryArchive. A transfer within the bank is archived
+ * once, as TRANSFER_OUT of the sending account with the receiver as counterparty.
+ */
+public final class ArchivedPosting {
+
+    private final long timestamp;
+    private final TransactionKind kind;
+    private final String accountNumber;
+    private final String counterparty;
+    private final long amount;
+
+    ArchivedPosting(long timestamp, TransactionKind kind, String accountNumber, String counterparty, long amount) {
+        this.timestamp = timestamp;
+        this.kind = kind;
+        this.accountNumber = accountNumber;
+        this.counterparty = counterparty;
+        this.amount = amount;
+    }
+
+    /** Epoch millis the posting was journaled at. */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public LocalDateTime getTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    public TransactionKind getKind() {
+        return kind;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    /** The other account of a transfer, otherwise null. */
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    /** Paise. */
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return getTime() + " " + kind + " " + accountNumber + (counterparty != null ? " → " + counterparty : "")
+                + " ₹" + Money.format(amount);
+    }
+}
@@ -0,0 +1,726 @@
+package com.banking.persistence;
+
+import com.banking.model.TransactionKind;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+
+/**
+ * Columnar archive of posted transactions for audit queries, kept as a directory of
+ * immutable segment files of up to SEGMENT_ROWS postings each, named after the first LSN
+ * they hold.
+ *
+ * Postings are archived from the journal: before a checkpoint drops journal segments,
+ * archive() encodes the operations they record, so the archive grows as history ages and
+ * never needs the accounts. Each segment stores its columns one after the other:
+ * timestamps as zigzag varint deltas, kinds as one-byte codes into a per-segment
+ * dictionary, account numbers and counterparties as varint ids into a per-segment
+ * dictionary of account numbers, and amounts as varints. A fixed header records the
+ * segment's LSN, time and amount ranges and the kinds it holds, so queries skip segments
+ * that cannot match without reading them.
+ *
+ * Queries run over the segments in parallel on the common fork-join pool. Within a
+ * segment they decode only the columns the query needs into primitive arrays and apply
+ * one predicate at a time to a vector of selected rows, aggregating at the end.
+ */
+public final class HistoryArchive {
+
+    static final int SEGMENT_ROWS = 65_536;
+    private static final int MAGIC = 0x424B4152;
+    private static final int VERSION = 1;
+    private static final String SEGMENT_SUFFIX = ".col";
+    // Column sections, in file order
+    private static final int DICTIONARY = 0;
+    private static final int TIMESTAMPS = 1;
+    private static final int KINDS = 2;
+    private static final int ACCOUNTS = 3;
+    private static final int COUNTERPARTIES = 4;
+    private static final int AMOUNTS = 5;
+    private static final int SECTIONS = 6;
+    // magic, version, rows, kind mask, LSN, time and amount ranges, section lengths
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 6 * Long.BYTES + SECTIONS * Integer.BYTES;
+    private static final TransactionKind[] KIND_VALUES = TransactionKind.values();
+
+    /** What the header of one segment file says. */
+    private static final class Segment {
+        final Path file;
+        final int rows;
+        final int kinds;
+        final long firstLsn;
+        final long lastLsn;
+        final long minTimestamp;
+        final long maxTimestamp;
+        final long minAmount;
+        final long maxAmount;
+        final int[] sectionLengths;
+
+        Segment(Path file, ByteBuffer header) throws IOException {
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            this.file = file;
+            this.rows = header.getInt();
+            this.kinds = header.getInt();
+            this.firstLsn = header.getLong();
+            this.lastLsn = header.getLong();
+            this.minTimestamp = header.getLong();
+            this.maxTimestamp = header.getLong();
+            this.minAmount = header.getLong();
+            this.maxAmount = header.getLong();
+            this.sectionLengths = new int[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) {
+                sectionLengths[i] = header.getInt();
+            }
+        }
+
+        // From the header alone: false if no row of this segment can match
+        boolean mayMatch(ArchiveFilter filter) {
+            return (kinds & filter.kinds) != 0
+                    && maxTimestamp >= filter.fromMillis && minTimestamp <= filter.toMillis
+                    && maxAmount >= filter.minAmount && minAmount <= filter.maxAmount;
+        }
+
+        int sectionStart(int section) {
+            int offset = HEADER_BYTES;
+            for (int i = 0; i < section; i++) {
+                offset += sectionLengths[i];
+            }
+            return offset;
+        }
+    }
+
+    private final Path directory;
+    // Replaced, never changed, so queries work on a fixed set while archive() adds segments
+    private volatile Segment[] segments;
+    private long archivedLsn;
+
+    private HistoryArchive(Path directory, Segment[] segments) {
+        this.directory = directory;
+        this.segments = segments;
+        for (Segment segment : segments) {
+            archivedLsn = Math.max(archivedLsn, segment.lastLsn);
+        }
+    }
+
+    /** Opens the archive in directory, creating it if needed; reads only the segment headers. */
+    public static HistoryArchive open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Segment> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                found.add(readHeader(file));
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.firstLsn, b.firstLsn));
+        return new HistoryArchive(directory, found.toArray(new Segment[0]));
+    }
+
+    private static Segment readHeader(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Archive segment is truncated: " + file);
+                }
+            }
+        }
+        return new Segment(file, header.flip());
+    }
+
+    /**
+     * Archives the postings of every journal record that deleteSegmentsUpTo(cutLsn) would
+     * drop, except those archived before (e.g. by a checkpoint that failed after archiving).
+     * Each new segment is fsynced and moved into place whole. Returns the postings added.
+     */
+    public synchronized long archive(TransactionJournal journal, long cutLsn) throws IOException {
+        List<byte[]> encoded = new ArrayList<>();
+        SegmentBuilder[] current = {new SegmentBuilder()};
+        long after = archivedLsn;
+        journal.readSegmentsUpTo(cutLsn, record -> {
+            if (record.getLsn() <= after) {
+                return;
+            }
+            current[0].add(record);
+            if (current[0].size >= SEGMENT_ROWS) {
+                encoded.add(current[0].encode());
+                current[0] = new SegmentBuilder();
+            }
+        });
+        if (current[0].size > 0) {
+            encoded.add(current[0].encode());
+        }
+
+        long added = 0;
+        List<Segment> written = new ArrayList<>(Arrays.asList(segments));
+        for (byte[] bytes : encoded) {
+            long firstLsn = ByteBuffer.wrap(bytes).getLong(4 * Integer.BYTES);
+            Path file = directory.resolve(String.format("%020d", firstLsn) + SEGMENT_SUFFIX);
+            Path temp = directory.resolve(file.getFileName() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Segment segment = new Segment(file, ByteBuffer.wrap(bytes, 0, HEADER_BYTES));
+            written.add(segment);
+            archivedLsn = Math.max(archivedLsn, segment.lastLsn);
+            added += segment.rows;
+            segments = written.toArray(new Segment[0]);
+        }
+        return added;
+    }
+
+    /** Counts and sums the matching postings. */
+    public ArchiveSummary summarize(ArchiveFilter filter) throws IOException {
+        long start = System.nanoTime();
+        Segment[] current = segments;
+        Partial result = scan(current, filter, 0);
+        return new ArchiveSummary(result.postings, result.total, result.postings == 0 ? 0 : result.min,
+                result.postings == 0 ? 0 : result.max, result.rowsScanned, result.segmentsScanned,
+                result.segmentsSkipped, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** The first limit matching postings, in the order they were journaled. */
+    public List<ArchivedPosting> find(ArchiveFilter filter, int limit) throws IOException {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return scan(segments, filter, limit).postingsFound;
+    }
+
+    private static Partial scan(Segment[] segments, ArchiveFilter filter, int limit) throws IOException {
+        if (segments.length == 0) {
+            return new Partial();
+        }
+        try {
+            return ForkJoinPool.commonPool().invoke(new ScanTask(segments, 0, segments.length, filter, limit));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public long getPostingCount() {
+        long rows = 0;
+        for (Segment segment : segments) {
+            rows += segment.rows;
+        }
+        return rows;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /** Highest LSN whose postings are archived. */
+    public synchronized long getArchivedLsn() {
+        return archivedLsn;
+    }
+
+    /** What a query over some segments found so far. */
+    private static final class Partial {
+        long postings;
+        long total;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long rowsScanned;
+        int segmentsScanned;
+        int segmentsSkipped;
+        List<ArchivedPosting> postingsFound = new ArrayList<>();
+
+        Partial merge(Partial other, int limit) {
+            postings += other.postings;
+            total += other.total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            rowsScanned += other.rowsScanned;
+            segmentsScanned += other.segmentsScanned;
+            segmentsSkipped += other.segmentsSkipped;
+            for (int i = 0; i < other.postingsFound.size() && postingsFound.size() < limit; i++) {
+                postingsFound.add(other.postingsFound.get(i));
+            }
+            return this;
+        }
+    }
+
+    /** Scans a range of segments, one segment per leaf. */
+    @SuppressWarnings("serial")
+    private static final class ScanTask extends RecursiveTask<Partial> {
+
+        private final Segment[] segments;
+        private final int from;
+        private final int to;
+        private final ArchiveFilter filter;
+        private final int limit;
+
+        ScanTask(Segment[] segments, int from, int to, ArchiveFilter filter, int limit) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.limit = limit;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(segments, from, middle, filter, limit);
+                left.fork();
+                Partial right = new ScanTask(segments, middle, to, filter, limit).compute();
+                return left.join().merge(right, limit);
+            }
+            Partial partial = new Partial();
+            Segment segment = segments[from];
+            if (!segment.mayMatch(filter)) {
+                partial.segmentsSkipped++;
+                return partial;
+            }
+            try {
+                new SegmentScan(segment, Files.readAllBytes(segment.file)).run(filter, limit, partial);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            partial.segmentsScanned++;
+            partial.rowsScanned += segment.rows;
+            return partial;
+        }
+    }
+
+    /**
+     * One query over one segment: columns are decoded on first use, and selected holds the
+     * rows still matching, in order, as predicates are applied one column at a time.
+     */
+    private static final class SegmentScan {
+        private final Segment segment;
+        private final byte[] data;
+        private int[] selected;
+        private int count;
+
+        SegmentScan(Segment segment, byte[] data) throws IOException {
+            int length = data.length - Integer.BYTES;
+            if (length < HEADER_BYTES) {
+                throw new IOException("Archive segment is truncated: " + segment.file);
+            }
+            CRC32 check = new CRC32();
+            check.update(data, 0, length);
+            if ((int) check.getValue() != ByteBuffer.wrap(data, length, Integer.BYTES).getInt()) {
+                throw new IOException("Archive segment is corrupt: " + segment.file);
+            }
+            this.segment = segment;
+            this.data = data;
+            this.selected = new int[segment.rows];
+            for (int i = 0; i < segment.rows; i++) {
+                selected[i] = i;
+            }
+            this.count = segment.rows;
+        }
+
+        void run(ArchiveFilter filter, int limit, Partial partial) {
+            int[] accounts = null;
+            int[] counterparties = null;
+            byte[] kinds = null;
+            byte[] kindOrdinals = null;
+            long[] timestamps = null;
+
+            if (filter.accountNumber != null) {
+                int id = findAccount(filter.accountNumber);
+                if (id < 0) {
+                    return;
+                }
+                accounts = decodeIds(ACCOUNTS);
+                counterparties = decodeIds(COUNTERPARTIES);
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = selected[i];
+                    if (accounts[row] == id || counterparties[row] == id + 1) {
+                        selected[kept++] = row;
+                    }
+                }
+                count = kept;
+            }
+            if ((segment.kinds & ~filter.kinds) != 0) {
+                int start = segment.sectionStart(KINDS);
+                kindOrdinals = Arrays.copyOfRange(data, start + 1, start + 1 + data[start]);
+                kinds = Arrays.copyOfRange(data, start + 1 + data[start], start + segment.sectionLengths[KINDS]);
+                boolean[] wanted = new boolean[kindOrdinals.length];
+                for (int code = 0; code < kindOrdinals.length; code++) {
+                    wanted[code] = (filter.kinds & (1 << kindOrdinals[code])) != 0;
+                }
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = selected[i];
+                    if (wanted[kinds[row]]) {
+                        selected[kept++] = row;
+                    }
+                }
+                count = kept;
+            }
+            if (count > 0 && (segment.minTimestamp < filter.fromMillis || segment.maxTimestamp > filter.toMillis)) {
+                timestamps = decodeTimestamps();
+                long from = filter.fromMillis;
+                long to = filter.toMillis;
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = selected[i];
+                    long timestamp = timestamps[row];
+                    if (timestamp >= from && timestamp <= to) {
+                        selected[kept++] = row;
+                    }
+                }
+                count = kept;
+            }
+            if (count == 0) {
+                return;
+            }
+
+            long[] amounts = decodeAmounts();
+            if (segment.minAmount < filter.minAmount || segment.maxAmount > filter.maxAmount) {
+                long min = filter.minAmount;
+                long max = filter.maxAmount;
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = selected[i];
+                    long amount = amounts[row];
+                    if (amount >= min && amount <= max) {
+                        selected[kept++] = row;
+                    }
+                }
+                count = kept;
+            }
+            long total = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                long amount = amounts[selected[i]];
+                total += amount;
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+            }
+            partial.postings += count;
+            partial.total += total;
+            partial.min = Math.min(partial.min, min);
+            partial.max = Math.max(partial.max, max);
+
+            int wanted = Math.min(count, limit);
+            if (wanted == 0) {
+                return;
+            }
+            if (timestamps == null) {
+                timestamps = decodeTimestamps();
+            }
+            if (kinds == null) {
+                int start = segment.sectionStart(KINDS);
+                kindOrdinals = Arrays.copyOfRange(data, start + 1, start + 1 + data[start]);
+                kinds = Arrays.copyOfRange(data, start + 1 + data[start], start + segment.sectionLengths[KINDS]);
+            }
+            if (accounts == null) {
+                accounts = decodeIds(ACCOUNTS);
+                counterparties = decodeIds(COUNTERPARTIES);
+            }
+            String[] dictionary = decodeDictionary();
+            for (int i = 0; i < wanted; i++) {
+                int row = selected[i];
+                partial.postingsFound.add(new ArchivedPosting(timestamps[row], KIND_VALUES[kindOrdinals[kinds[row]]],
+                        dictionary[accounts[row]], counterparties[row] == 0 ? null : dictionary[counterparties[row] - 1],
+                        amounts[row]));
+            }
+        }
+
+        // Id of accountNumber in this segment's dictionary, or -1; compares bytes, building no strings
+        private int findAccount(String accountNumber) {
+            byte[] target = accountNumber.getBytes(StandardCharsets.UTF_8);
+            int[] position = {segment.sectionStart(DICTIONARY)};
+            int words = (int) readVarLong(data, position);
+            for (int id = 0; id < words; id++) {
+                int length = (int) readVarLong(data, position);
+                if (length == target.length
+                        && Arrays.equals(data, position[0], position[0] + length, target, 0, length)) {
+                    return id;
+                }
+                position[0] += length;
+            }
+            return -1;
+        }
+
+        private String[] decodeDictionary() {
+            int[] position = {segment.sectionStart(DICTIONARY)};
+            String[] words = new String[(int) readVarLong(data, position)];
+            for (int id = 0; id < words.length; id++) {
+                int length = (int) readVarLong(data, position);
+                words[id] = new String(data, position[0], length, StandardCharsets.UTF_8);
+                position[0] += length;
+            }
+            return words;
+        }
+
+        private long[] decodeTimestamps() {
+            long[] timestamps = new long[segment.rows];
+            int[] position = {segment.sectionStart(TIMESTAMPS)};
+            long previous = segment.minTimestamp;
+            for (int row = 0; row < timestamps.length; row++) {
+                long zigzag = readVarLong(data, position);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                timestamps[row] = previous;
+            }
+            return timestamps;
+        }
+
+        private int[] decodeIds(int section) {
+            int[] ids = new int[segment.rows];
+            int[] position = {segment.sectionStart(section)};
+            for (int row = 0; row < ids.length; row++) {
+                ids[row] = (int) readVarLong(data, position);
+            }
+            return ids;
+        }
+
+        private long[] decodeAmounts() {
+            long[] amounts = new long[segment.rows];
+            int[] position = {segment.sectionStart(AMOUNTS)};
+            for (int row = 0; row < amounts.length; row++) {
+                amounts[row] = readVarLong(data, position);
+            }
+            return amounts;
+        }
+    }
+
+    /** Postings of one segment being collected, one array per column. */
+    private static final class SegmentBuilder {
+        private long[] timestamps = new long[1024];
+        private byte[] kinds = new byte[1024];
+        private int[] accounts = new int[1024];
+        private int[] counterparties = new int[1024];
+        private long[] amounts = new long[1024];
+        int size;
+        private long firstLsn;
+        private long lastLsn;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> words = new ArrayList<>();
+
+        void add(JournalRecord record) {
+            switch (record.getType()) {
+                case JournalRecord.CREATE:
+                    add(record, record, TransactionKind.OPENED, false);
+                    break;
+                case JournalRecord.DEPOSIT:
+                    add(record, record, TransactionKind.DEPOSIT, false);
+                    break;
+                case JournalRecord.WITHDRAW:
+                    add(record, record, TransactionKind.WITHDRAWAL, false);
+                    break;
+                case JournalRecord.TRANSFER:
+                case JournalRecord.TRANSFER_DEBIT:
+                    add(record, record, TransactionKind.TRANSFER_OUT, true);
+                    break;
+                case JournalRecord.TRANSFER_CREDIT:
+                    add(record, record, TransactionKind.TRANSFER_IN, true);
+                    break;
+                case JournalRecord.TRANSFER_REVERSAL:
+                    add(record, record, TransactionKind.TRANSFER_REVERSED, true);
+                    break;
+                case JournalRecord.INTEREST:
+                    add(record, record, TransactionKind.INTEREST, false);
+                    break;
+                case JournalRecord.BATCH:
+                case JournalRecord.INTEREST_RUN:
+                    for (JournalRecord leg : record.getLegs()) {
+                        switch (leg.getType()) {
+                            case JournalRecord.DEPOSIT:
+                                add(record, leg, TransactionKind.DEPOSIT, false);
+                                break;
+                            case JournalRecord.WITHDRAW:
+                                add(record, leg, TransactionKind.WITHDRAWAL, false);
+                                break;
+                            case JournalRecord.TRANSFER:
+                                add(record, leg, TransactionKind.TRANSFER_OUT, true);
+                                break;
+                            case JournalRecord.INTEREST:
+                                add(record, leg, TransactionKind.INTEREST, false);
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    break;
+                default:
+                    // Standing instructions and the like post nothing
+                    break;
+            }
+        }
+
+        // Legs carry the LSN and time of the record they were committed in
+        private void add(JournalRecord record, JournalRecord posting, TransactionKind kind, boolean transfer) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                accounts = Arrays.copyOf(accounts, capacity);
+                counterparties = Arrays.copyOf(counterparties, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+            }
+            if (size == 0) {
+                firstLsn = record.getLsn();
+            }
+            lastLsn = record.getLsn();
+            timestamps[size] = record.getTimestamp();
+            kinds[size] = (byte) kind.ordinal();
+            accounts[size] = id(posting.getAccountNumber());
+            counterparties[size] = transfer && posting.getCounterparty() != null ? id(posting.getCounterparty()) + 1 : 0;
+            amounts[size] = posting.getAmount();
+            size++;
+        }
+
+        private int id(String accountNumber) {
+            Integer id = ids.get(accountNumber);
+            if (id == null) {
+                id = words.size();
+                ids.put(accountNumber, id);
+                words.add(accountNumber);
+            }
+            return id;
+        }
+
+        /** The whole segment file: header, columns and a CRC32 of both. */
+        byte[] encode() {
+            long minTimestamp = Long.MAX_VALUE;
+            long maxTimestamp = Long.MIN_VALUE;
+            long minAmount = Long.MAX_VALUE;
+            long maxAmount = Long.MIN_VALUE;
+            int kindMask = 0;
+            for (int row = 0; row < size; row++) {
+                minTimestamp = Math.min(minTimestamp, timestamps[row]);
+                maxTimestamp = Math.max(maxTimestamp, timestamps[row]);
+                minAmount = Math.min(minAmount, amounts[row]);
+                maxAmount = Math.max(maxAmount, amounts[row]);
+                kindMask |= 1 << kinds[row];
+            }
+
+            ColumnWriter[] sections = new ColumnWriter[SECTIONS];
+            ColumnWriter dictionary = sections[DICTIONARY] = new ColumnWriter(words.size() * 12);
+            dictionary.putVarLong(words.size());
+            for (String word : words) {
+                byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                dictionary.putVarLong(bytes.length);
+                dictionary.put(bytes, 0, bytes.length);
+            }
+
+            // Mostly ascending, but appenders on different threads can be a millisecond out of order
+            ColumnWriter timestampColumn = sections[TIMESTAMPS] = new ColumnWriter(size * 2);
+            long previous = minTimestamp;
+            for (int row = 0; row < size; row++) {
+                long delta = timestamps[row] - previous;
+                timestampColumn.putVarLong((delta << 1) ^ (delta >> 63));
+                previous = timestamps[row];
+            }
+
+            byte[] codeOf = new byte[KIND_VALUES.length];
+            byte[] ordinals = new byte[KIND_VALUES.length];
+            int codes = 0;
+            for (int ordinal = 0; ordinal < KIND_VALUES.length; ordinal++) {
+                if ((kindMask & (1 << ordinal)) != 0) {
+                    codeOf[ordinal] = (byte) codes;
+                    ordinals[codes++] = (byte) ordinal;
+                }
+            }
+            ColumnWriter kindColumn = sections[KINDS] = new ColumnWriter(1 + codes + size);
+            kindColumn.put(new byte[] {(byte) codes}, 0, 1);
+            kindColumn.put(ordinals, 0, codes);
+            byte[] kindCodes = new byte[size];
+            for (int row = 0; row < size; row++) {
+                kindCodes[row] = codeOf[kinds[row]];
+            }
+            kindColumn.put(kindCodes, 0, size);
+
+            ColumnWriter accountColumn = sections[ACCOUNTS] = new ColumnWriter(size * 3);
+            ColumnWriter counterpartyColumn = sections[COUNTERPARTIES] = new ColumnWriter(size * 2);
+            ColumnWriter amountColumn = sections[AMOUNTS] = new ColumnWriter(size * 4);
+            for (int row = 0; row < size; row++) {
+                accountColumn.putVarLong(accounts[row]);
+                counterpartyColumn.putVarLong(counterparties[row]);
+                // Amounts are never negative
+                amountColumn.putVarLong(amounts[row]);
+            }
+
+            int length = HEADER_BYTES;
+            for (ColumnWriter section : sections) {
+                length += section.size;
+            }
+            ByteBuffer out = ByteBuffer.allocate(length + Integer.BYTES);
+            out.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(kindMask);
+            out.putLong(firstLsn).putLong(lastLsn).putLong(minTimestamp).putLong(maxTimestamp)
+                    .putLong(minAmount).putLong(maxAmount);
+            for (ColumnWriter section : sections) {
+                out.putInt(section.size);
+            }
+            for (ColumnWriter section : sections) {
+                out.put(section.bytes, 0, section.size);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(out.array(), 0, length);
+            out.putInt((int) crc.getValue());
+            return out.array();
+        }
+    }
+
+    /** A growable byte array for one column section. */
+    private static final class ColumnWriter {
+        byte[] bytes;
+        int size;
+
+        ColumnWriter(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void put(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        // Seven bits per byte, low bits first; the high bit says another byte follows
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void ensure(int more) {
+            if (size + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        int i = position[0];
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[i++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        position[0] = i;
+        return value;
+    }
+}
@@ -0,0 +1,210 @@
+package com.banking.persistence;
+
+import com.banking.model.OperationResult;
+import java.util.List;
+
+/**
+ * One committed operation as written to the transaction journal.
+ * Only the fields relevant to the record type are set.
+ */
+public final class JournalRecord {
+
+    public static final byte CREATE = 1;
+    public static final byte DEPOSIT = 2;
+    public static final byte WITHDRAW = 3;
+    public static final byte TRANSFER = 4;
+    public static final byte INTEREST = 5;
+    public static final byte BATCH = 6;
+    public static final byte INTEREST_RUN = 7;
+    // One partition's side of a transfer between partitions; reference is the transfer's id
+    public static final byte TRANSFER_DEBIT = 8;
+    public static final byte TRANSFER_CREDIT = 9;
+    public static final byte TRANSFER_REVERSAL = 10;
+    // A standing instruction set up or cancelled; reference is its id and, when set up,
+    // holderName its schedule ("FREQUENCY firstDueMillis occurrences")
+    public static final byte STANDING_INSTRUCTION = 11;
+    public static final byte INSTRUCTION_CANCELLED = 12;
+
+    private final byte type;
+    private final long timestamp;
+    private final String accountNumber;
+    private final String counterparty;
+    private final String holderName;
+    private final String accountType;
+    // Paise; for INTEREST_RUN, the interest period (yyyymm)
+    private final long amount;
+    // Records committed together under one LSN (BATCH and INTEREST_RUN only)
+    private final List<JournalRecord> legs;
+    private final String reference;
+    // What an operation with an idempotency key returned, so a retry gets the same answer
+    private OperationResult outcome = OperationResult.SUCCESS;
+    private long lsn;
+    // Set on an INTEREST record read from a journal written before interest carried its amount
+    private boolean amountMissing;
+
+    JournalRecord(byte type, long timestamp, String accountNumber, String counterparty,
+                  String holderName, String accountType, long amount) {
+        this(type, timestamp, accountNumber, counterparty, holderName, accountType, amount, null);
+    }
+
+    JournalRecord(byte type, long timestamp, String accountNumber, String counterparty,
+                  String holderName, String accountType, long amount, String reference) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.accountNumber = accountNumber;
+        this.counterparty = counterparty;
+        this.holderName = holderName;
+        this.accountType = accountType;
+        this.amount = amount;
+        this.legs = List.of();
+        this.reference = reference;
+    }
+
+    JournalRecord(byte type, long timestamp, long amount, List<JournalRecord> legs) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.accountNumber = "";
+        this.counterparty = null;
+        this.holderName = null;
+        this.accountType = null;
+        this.amount = amount;
+        this.legs = List.copyOf(legs);
+        this.reference = null;
+    }
+
+    public static JournalRecord create(String accountNumber, String holderName, String accountType, long initialBalance) {
+        return create(accountNumber, holderName, accountType, initialBalance, null);
+    }
+
+    /** idempotencyKey is the caller's key for the operation, or null; likewise for deposit, withdraw and transfer. */
+    public static JournalRecord create(String accountNumber, String holderName, String accountType, long initialBalance,
+                                       String idempotencyKey) {
+        return new JournalRecord(CREATE, System.currentTimeMillis(), accountNumber, null, holderName, accountType,
+                initialBalance, idempotencyKey);
+    }
+
+    public static JournalRecord deposit(String accountNumber, long amount) {
+        return deposit(accountNumber, amount, null);
+    }
+
+    public static JournalRecord deposit(String accountNumber, long amount, String idempotencyKey) {
+        return new JournalRecord(DEPOSIT, System.currentTimeMillis(), accountNumber, null, null, null, amount, idempotencyKey);
+    }
+
+    public static JournalRecord withdraw(String accountNumber, long amount) {
+        return withdraw(accountNumber, amount, null);
+    }
+
+    public static JournalRecord withdraw(String accountNumber, long amount, String idempotencyKey) {
+        return new JournalRecord(WITHDRAW, System.currentTimeMillis(), accountNumber, null, null, null, amount, idempotencyKey);
+    }
+
+    public static JournalRecord transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        return transfer(fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    public static JournalRecord transfer(String fromAccountNumber, String toAccountNumber, long amount,
+                                         String idempotencyKey) {
+        return new JournalRecord(TRANSFER, System.currentTimeMillis(), fromAccountNumber, toAccountNumber, null, null,
+                amount, idempotencyKey);
+    }
+
+    /**
+     * This partition's side of a transfer between partitions: accountNumber is the local
+     * account (the sender for a debit or reversal, the receiver for a credit).
+     */
+    public static JournalRecord transferLeg(byte type, String transferId, String accountNumber,
+                                            String counterparty, long amount) {
+        return new JournalRecord(type, System.currentTimeMillis(), accountNumber, counterparty, null, null, amount, transferId);
+    }
+
+    public static JournalRecord standingInstruction(String instructionId, String fromAccountNumber,
+                                                    String toAccountNumber, long amount, String schedule) {
+        return new JournalRecord(STANDING_INSTRUCTION, System.currentTimeMillis(), fromAccountNumber, toAccountNumber,
+                schedule, null, amount, instructionId);
+    }
+
+    public static JournalRecord instructionCancelled(String instructionId, String fromAccountNumber) {
+        return new JournalRecord(INSTRUCTION_CANCELLED, System.currentTimeMillis(), fromAccountNumber, null, null, null, 0,
+                instructionId);
+    }
+
+    /** Interest of a known amount credited, on its own or as a leg of INTEREST_RUN. */
+    public static JournalRecord interest(String accountNumber, long amount) {
+        return new JournalRecord(INTEREST, System.currentTimeMillis(), accountNumber, null, null, null, amount);
+    }
+
+    public static JournalRecord batch(List<JournalRecord> legs) {
+        return new JournalRecord(BATCH, System.currentTimeMillis(), 0, legs);
+    }
+
+    public static JournalRecord interestRun(int period, List<JournalRecord> legs) {
+        return new JournalRecord(INTEREST_RUN, System.currentTimeMillis(), period, legs);
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    public String getHolderName() {
+        return holderName;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /** False only for an INTEREST record old enough not to say how much was credited. */
+    public boolean hasAmount() {
+        return !amountMissing;
+    }
+
+    void markAmountMissing() {
+        this.amountMissing = true;
+    }
+
+    public List<JournalRecord> getLegs() {
+        return legs;
+    }
+
+    /**
+     * Id of the transfer a TRANSFER_DEBIT, TRANSFER_CREDIT or TRANSFER_REVERSAL belongs to,
+     * or of the standing instruction set up or cancelled; for the other operations, the
+     * caller's idempotency key if it gave one, else null.
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    public OperationResult getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(OperationResult outcome) {
+        this.outcome = outcome;
+    }
+
+    public long getLsn() {
+        return lsn;
+    }
+
+    void setLsn(long lsn) {
+        this.lsn = lsn;
+    }
+}
@@ -0,0 +1,380 @@
+package com.banking.persistence;
+
+import com.banking.model.Account;
+import com.banking.model.AccountNumbers;
+import com.banking.model.CurrentAccount;
+import com.banking.model.SavingsAccount;
+import com.banking.model.TransactionLog;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+/**
+ * Memory-mapped store of fixed-width account records, addressed directly by the numeric
+ * part of the account number (ACC1042 lives in slot 1042), so any account can be read in
+ * O(1) without parsing the rest of the book.
+ *
+ * Record layout (RECORD_SIZE bytes):
+ *   0  byte   state (0 empty, 1 present)
+ *   1  byte   type (1 savings, 2 current)
+ *   2  short  holder name length in bytes, or -1 when the name is kept in the history blob
+ *   4  int    history blob length
+ *   8  long   balance in paise
+ *   16 long   created date, epoch seconds (UTC-normalised LocalDateTime)
+ *   24 int    created date, nanos
+ *   28 int    last interest period credited (yyyymm), savings only; 0 if none
+ *   32 long   LSN of the last journal record reflected in the record
+ *   40 long   history blob offset in the sidecar file
+ *   48 ...    holder name, UTF-8
+ *
+ * Transaction history is variable length, so it lives in an append-only sidecar file and
+ * is only read when an account is materialized. Writes happen from checkpoints only.
+ */
+public class MappedAccountStore implements Closeable {
+
+    private static final int MAGIC = 0x42414353;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4096;
+    private static final int RECORD_SIZE = 160;
+    private static final int NAME_OFFSET = 48;
+    private static final int NAME_CAPACITY = RECORD_SIZE - NAME_OFFSET;
+    private static final int REGION_RECORDS = 1 << 16;
+
+    private static final byte STATE_PRESENT = 1;
+    private static final byte TYPE_SAVINGS = 1;
+    private static final byte TYPE_CURRENT = 2;
+
+    /** Receives the searchable fields of a stored record; see forEachRecord(). */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(String accountNumber, String holderName, String accountType, long balance);
+    }
+
+    private final FileChannel channel;
+    private final FileChannel historyChannel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+    private MappedAccountStore(FileChannel channel, FileChannel historyChannel) throws IOException {
+        this.channel = channel;
+        this.historyChannel = historyChannel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, RECORD_SIZE);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Unsupported account store format");
+        }
+        int existingRegions = (int) ((channel.size() - HEADER_SIZE + regionBytes() - 1) / regionBytes());
+        for (int i = 0; i < existingRegions; i++) {
+            mapRegion(i);
+        }
+    }
+
+    /** Opens (or creates) the store file and its history sidecar. Nothing is read eagerly. */
+    public static MappedAccountStore open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel historyChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".hist"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedAccountStore(channel, historyChannel);
+    }
+
+    /** Slot of an account number, or -1 if it does not have the ACC#### form. */
+    public static long slotOf(String accountNumber) {
+        long slot = AccountNumbers.toSequence(accountNumber);
+        // ACC0042 would share a slot with ACC42
+        return slot >= 0 && AccountNumbers.fromSequence(slot).equals(accountNumber) ? slot : -1;
+    }
+
+    public boolean contains(String accountNumber) {
+        long slot = slotOf(accountNumber);
+        ByteBuffer region = regionFor(slot);
+        return region != null && region.get(offsetInRegion(slot)) == STATE_PRESENT;
+    }
+
+    /** LSN stored with the account's record, or -1 when the account is not in the store. */
+    public long storedLsn(String accountNumber) {
+        long slot = slotOf(accountNumber);
+        ByteBuffer region = regionFor(slot);
+        if (region == null) {
+            return -1;
+        }
+        int base = offsetInRegion(slot);
+        return region.get(base) == STATE_PRESENT ? region.getLong(base + 32) : -1;
+    }
+
+    /** Type stored with the account's record, SAVINGS or CURRENT, or null when the account is not in the store. */
+    public String storedType(String accountNumber) {
+        long slot = slotOf(accountNumber);
+        ByteBuffer region = regionFor(slot);
+        if (region == null) {
+            return null;
+        }
+        int base = offsetInRegion(slot);
+        if (region.get(base) != STATE_PRESENT) {
+            return null;
+        }
+        return region.get(base + 1) == TYPE_SAVINGS ? "SAVINGS" : "CURRENT";
+    }
+
+    /** Balance stored with the account's record, read without its history; 0 when the account is not in the store. */
+    public long storedBalance(String accountNumber) {
+        long slot = slotOf(accountNumber);
+        ByteBuffer region = regionFor(slot);
+        if (region == null) {
+            return 0;
+        }
+        int base = offsetInRegion(slot);
+        return region.get(base) == STATE_PRESENT ? region.getLong(base + 8) : 0;
+    }
+
+    /** Materializes a single account from its record and history blob, or returns null. */
+    public Account load(String accountNumber) throws IOException {
+        long slot = slotOf(accountNumber);
+        ByteBuffer region = regionFor(slot);
+        if (region == null) {
+            return null;
+        }
+        int base = offsetInRegion(slot);
+        if (region.get(base) != STATE_PRESENT) {
+            return null;
+        }
+
+        byte type = region.get(base + 1);
+        short nameLength = region.getShort(base + 2);
+        int historyLength = region.getInt(base + 4);
+        long balance = region.getLong(base + 8);
+        LocalDateTime createdDate = LocalDateTime.ofEpochSecond(
+                region.getLong(base + 16), region.getInt(base + 24), ZoneOffset.UTC);
+        int lastInterestPeriod = region.getInt(base + 28);
+        long lastLsn = region.getLong(base + 32);
+        long historyOffset = region.getLong(base + 40);
+
+        DataInputStream blob = readBlob(historyOffset, historyLength);
+        String holderName;
+        if (nameLength >= 0) {
+            byte[] name = new byte[nameLength];
+            region.get(base + NAME_OFFSET, name);
+            holderName = new String(name, StandardCharsets.UTF_8);
+        } else {
+            holderName = blob.readUTF();
+        }
+        TransactionLog history = TransactionLog.readFrom(blob);
+
+        Account account;
+        if (type == TYPE_SAVINGS) {
+            SavingsAccount savings = new SavingsAccount(accountNumber, holderName, balance);
+            savings.setLastInterestPeriod(lastInterestPeriod);
+            account = savings;
+        } else {
+            account = new CurrentAccount(accountNumber, holderName, balance);
+        }
+        account.setCreatedDate(createdDate);
+        account.setTransactionLog(history);
+        account.setLastLsn(lastLsn);
+        return account;
+    }
+
+    /**
+     * Writes the account's record, appending its history to the sidecar. The caller must
+     * hold the account's lock. Returns the number of bytes written, or -1 if the account
+     * number cannot be stored here.
+     */
+    public long store(Account account) throws IOException {
+        long slot = slotOf(account.getAccountNumber());
+        if (slot < 0) {
+            return -1;
+        }
+
+        byte[] name = account.getAccountHolderName().getBytes(StandardCharsets.UTF_8);
+        boolean nameInline = name.length <= NAME_CAPACITY;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream blob = new DataOutputStream(bytes);
+        if (!nameInline) {
+            blob.writeUTF(account.getAccountHolderName());
+        }
+        account.getTransactionLog().writeTo(blob);
+        long historyOffset = appendBlob(bytes.toByteArray());
+
+        ByteBuffer region = ensureRegion(slot);
+        int base = offsetInRegion(slot);
+        boolean isNew = region.get(base) != STATE_PRESENT;
+        LocalDateTime createdDate = account.getCreatedDate();
+
+        region.put(base + 1, account.getAccountType().equals("SAVINGS") ? TYPE_SAVINGS : TYPE_CURRENT);
+        region.putShort(base + 2, (short) (nameInline ? name.length : -1));
+        region.putInt(base + 4, bytes.size());
+        region.putLong(base + 8, account.getBalance());
+        region.putLong(base + 16, createdDate.toEpochSecond(ZoneOffset.UTC));
+        region.putInt(base + 24, createdDate.getNano());
+        region.putInt(base + 28, account instanceof SavingsAccount savings ? savings.getLastInterestPeriod() : 0);
+        region.putLong(base + 32, account.getLastLsn());
+        region.putLong(base + 40, historyOffset);
+        if (nameInline) {
+            region.put(base + NAME_OFFSET, name);
+        }
+        region.put(base, STATE_PRESENT);
+
+        if (isNew) {
+            synchronized (header) {
+                header.putLong(32, header.getLong(32) + 1);
+                header.putLong(40, Math.max(header.getLong(40), slot));
+            }
+        }
+        return RECORD_SIZE + bytes.size();
+    }
+
+    /**
+     * Calls visitor with the holder, type and balance of every stored record, in slot order,
+     * without materializing accounts or reading their history (except for the rare holder
+     * name too long to be kept inline).
+     */
+    public void forEachRecord(RecordVisitor visitor) throws IOException {
+        long highest;
+        synchronized (header) {
+            highest = header.getLong(40);
+        }
+        for (long slot = 0; slot <= highest; slot++) {
+            ByteBuffer region = regionFor(slot);
+            if (region == null) {
+                continue;
+            }
+            int base = offsetInRegion(slot);
+            if (region.get(base) != STATE_PRESENT) {
+                continue;
+            }
+            short nameLength = region.getShort(base + 2);
+            String holderName;
+            if (nameLength >= 0) {
+                byte[] name = new byte[nameLength];
+                region.get(base + NAME_OFFSET, name);
+                holderName = new String(name, StandardCharsets.UTF_8);
+            } else {
+                holderName = readBlob(region.getLong(base + 40), region.getInt(base + 4)).readUTF();
+            }
+            visitor.visit(AccountNumbers.fromSequence(slot), holderName,
+                    region.get(base + 1) == TYPE_SAVINGS ? "SAVINGS" : "CURRENT", region.getLong(base + 8));
+        }
+    }
+
+    /** Calls action with the account number of every stored record, in slot order. */
+    public void forEachAccountNumber(Consumer<String> action) {
+        long highest;
+        synchronized (header) {
+            highest = header.getLong(40);
+        }
+        for (long slot = 0; slot <= highest; slot++) {
+            ByteBuffer region = regionFor(slot);
+            if (region != null && region.get(offsetInRegion(slot)) == STATE_PRESENT) {
+                action.accept(AccountNumbers.fromSequence(slot));
+            }
+        }
+    }
+
+    public long count() {
+        synchronized (header) {
+            return header.getLong(32);
+        }
+    }
+
+    /** Checkpoint LSN and account counter that the stored records are consistent with. */
+    public long getCheckpointLsn() {
+        synchronized (header) {
+            return header.getLong(16);
+        }
+    }
+
+    public int getAccountCounter() {
+        synchronized (header) {
+            return header.getInt(24);
+        }
+    }
+
+    /**
+     * Forces all record and history writes to disk, then records the checkpoint in the header.
+     */
+    public void commit(long checkpointLsn, int accountCounter) throws IOException {
+        historyChannel.force(false);
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        synchronized (header) {
+            header.putLong(16, checkpointLsn);
+            header.putInt(24, accountCounter);
+            header.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        historyChannel.close();
+        channel.close();
+    }
+
+    private DataInputStream readBlob(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (historyChannel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Truncated history blob");
+            }
+        }
+        return new DataInputStream(new ByteArrayInputStream(buffer.array()));
+    }
+
+    private synchronized long appendBlob(byte[] blob) throws IOException {
+        long offset = historyChannel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(blob);
+        while (buffer.hasRemaining()) {
+            historyChannel.write(buffer, offset + buffer.position());
+        }
+        return offset;
+    }
+
+    private ByteBuffer regionFor(long slot) {
+        if (slot < 0) {
+            return null;
+        }
+        MappedByteBuffer[] current = regions;
+        int index = (int) (slot / REGION_RECORDS);
+        return index < current.length ? current[index] : null;
+    }
+
+    private synchronized ByteBuffer ensureRegion(long slot) throws IOException {
+        int index = (int) (slot / REGION_RECORDS);
+        while (regions.length <= index) {
+            mapRegion(regions.length);
+        }
+        return regions[index];
+    }
+
+    private synchronized void mapRegion(int index) throws IOException {
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_SIZE + (long) index * regionBytes(), regionBytes());
+        MappedByteBuffer[] grown = new MappedByteBuffer[index + 1];
+        System.arraycopy(regions, 0, grown, 0, regions.length);
+        grown[index] = region;
+        regions = grown;
+    }
+
+    private static long regionBytes() {
+        return (long) REGION_RECORDS * RECORD_SIZE;
+    }
+
+    private static int offsetInRegion(long slot) {
+        return (int) (slot % REGION_RECORDS) * RECORD_SIZE;
+    }
+}
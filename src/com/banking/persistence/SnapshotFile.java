@@ -0,0 +1,155 @@
+package com.banking.persistence;
+
+import com.banking.model.Account;
+import com.banking.model.CurrentAccount;
+import com.banking.model.SavingsAccount;
+import com.banking.model.TransactionLog;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary snapshot of all accounts, written by checkpoints.
+ *
+ * The snapshot is fuzzy: accounts are copied one at a time under their own lock while
+ * other operations keep running, so each account carries the LSN of the last journal
+ * record it reflects. Recovery replays the journal and skips, per account, every record
+ * at or below that LSN.
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x42534E50;
+    private static final int VERSION = 4;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot to a temporary file, fsyncs it and atomically replaces path.
+     * Returns the number of bytes written.
+     */
+    public static long write(Path path, long checkpointLsn, int accountCounter, Iterable<Account> accounts) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 256 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checkpointLsn);
+            out.writeInt(accountCounter);
+
+            // Each account's history is serialized into this buffer under its lock, then
+            // written out after the lock is released
+            ByteArrayOutputStream historyBytes = new ByteArrayOutputStream(4096);
+            DataOutputStream historyOut = new DataOutputStream(historyBytes);
+
+            for (Account account : accounts) {
+                String holderName;
+                long balance;
+                String accountType;
+                LocalDateTime createdDate;
+                long lastLsn;
+                int lastInterestPeriod;
+
+                historyBytes.reset();
+                account.lock();
+                try {
+                    holderName = account.getAccountHolderName();
+                    balance = account.getBalance();
+                    accountType = account.getAccountType();
+                    createdDate = account.getCreatedDate();
+                    lastLsn = account.getLastLsn();
+                    lastInterestPeriod = account instanceof SavingsAccount savings ? savings.getLastInterestPeriod() : 0;
+                    account.getTransactionLog().writeTo(historyOut);
+                } finally {
+                    account.unlock();
+                }
+
+                out.writeBoolean(true);
+                out.writeUTF(account.getAccountNumber());
+                out.writeUTF(holderName);
+                out.writeLong(balance);
+                out.writeUTF(accountType);
+                out.writeUTF(createdDate.toString());
+                out.writeLong(lastLsn);
+                out.writeInt(lastInterestPeriod);
+                historyBytes.writeTo(out);
+            }
+            out.writeBoolean(false);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        long bytes = Files.size(temp);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+
+    public static Snapshot read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 256 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            long checkpointLsn = in.readLong();
+            int accountCounter = in.readInt();
+            List<Account> accounts = new ArrayList<>();
+
+            while (in.readBoolean()) {
+                String accountNumber = in.readUTF();
+                String holderName = in.readUTF();
+                long balance = in.readLong();
+                String accountType = in.readUTF();
+                LocalDateTime createdDate = LocalDateTime.parse(in.readUTF());
+                long lastLsn = in.readLong();
+                int lastInterestPeriod = in.readInt();
+                TransactionLog history = TransactionLog.readFrom(in);
+
+                Account account;
+                if (accountType.equals("SAVINGS")) {
+                    SavingsAccount savings = new SavingsAccount(accountNumber, holderName, balance);
+                    savings.setLastInterestPeriod(lastInterestPeriod);
+                    account = savings;
+                } else {
+                    account = new CurrentAccount(accountNumber, holderName, balance);
+                }
+                account.setCreatedDate(createdDate);
+                account.setTransactionLog(history);
+                account.setLastLsn(lastLsn);
+                accounts.add(account);
+            }
+            return new Snapshot(checkpointLsn, accountCounter, accounts);
+        }
+    }
+
+    public static final class Snapshot {
+
+        private final long checkpointLsn;
+        private final int accountCounter;
+        private final List<Account> accounts;
+
+        Snapshot(long checkpointLsn, int accountCounter, List<Account> accounts) {
+            this.checkpointLsn = checkpointLsn;
+            this.accountCounter = accountCounter;
+            this.accounts = accounts;
+        }
+
+        public long getCheckpointLsn() {
+            return checkpointLsn;
+        }
+
+        public int getAccountCounter() {
+            return accountCounter;
+        }
+
+        public List<Account> getAccounts() {
+            return accounts;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.banking.persistence;
+
+import com.banking.model.Account;
+import com.banking.model.AccountNumbers;
+import com.banking.model.Money;
+import com.banking.model.TransactionKind;
+import com.banking.model.TransactionLog;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streams an account's history as CSV statement rows. The history is read a chunk of
+ * entries at a time under the account's lock and written after it is released, so a
+ * statement of any length needs only one chunk of memory and never holds up operations
+ * on the account while the output is slow.
+ *
+ * Columns: account number, local time, entry kind, amount, balance after (blank when the
+ * entry did not record it), the other account of a transfer, and the rendered history line.
+ */
+public final class StatementWriter {
+
+    public static final String CSV_HEADER =
+            "account_number,timestamp,kind,amount,balance_after,counterparty,description";
+
+    private static final int CHUNK_SIZE = 256;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private StatementWriter() {
+    }
+
+    /**
+     * Writes a row for every entry with a time from "from" to "to" (epoch millis, inclusive)
+     * that the account had when the call started, oldest first. The header is not written.
+     * Returns the number of rows.
+     */
+    public static long writeCsv(Account account, long from, long to, Writer out) throws IOException {
+        TransactionLog log;
+        int index;
+        int end;
+        boolean ordered;
+        account.lock();
+        try {
+            log = account.getTransactionLog();
+            index = log.indexAtOrAfter(from);
+            end = log.size();
+            ordered = log.isTimeOrdered();
+        } finally {
+            account.unlock();
+        }
+
+        String accountNumber = account.getAccountNumber();
+        StringBuilder sb = new StringBuilder(CHUNK_SIZE * 160);
+        StringBuilder line = new StringBuilder(128);
+        long rows = 0;
+        while (index < end) {
+            sb.setLength(0);
+            int chunkEnd = Math.min(end, index + CHUNK_SIZE);
+            account.lock();
+            try {
+                for (; index < chunkEnd; index++) {
+                    long timestamp = log.timestamp(index);
+                    if (ordered && timestamp > to) {
+                        end = index;
+                        break;
+                    }
+                    if (timestamp >= from && timestamp <= to) {
+                        appendRow(sb, line, accountNumber, log, index);
+                        rows++;
+                    }
+                }
+            } finally {
+                account.unlock();
+            }
+            out.append(sb);
+        }
+        return rows;
+    }
+
+    private static void appendRow(StringBuilder sb, StringBuilder line, String accountNumber, TransactionLog log, int index) {
+        TransactionKind kind = log.kind(index);
+        line.setLength(0);
+        log.renderTo(index, line);
+        appendField(sb, accountNumber);
+        sb.append(',');
+        if (kind != TransactionKind.NOTE) {
+            // Typed entries render as "[yyyy-MM-dd HH:mm:ss] ...", so the time is already formatted
+            sb.append(line, 1, 20);
+        } else {
+            TIMESTAMP_FORMAT.formatTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(log.timestamp(index)), ZoneId.systemDefault()), sb);
+        }
+        sb.append(',').append(kind.name()).append(',');
+        if (kind != TransactionKind.NOTE) {
+            Money.appendTo(sb, log.amount(index));
+        }
+        sb.append(',');
+        long balance = log.balanceAfter(index);
+        if (kind != TransactionKind.NOTE && balance != TransactionLog.UNKNOWN_BALANCE) {
+            Money.appendTo(sb, balance);
+        }
+        sb.append(',');
+        long counterparty = log.counterparty(index);
+        if (counterparty >= 0) {
+            sb.append(AccountNumbers.fromSequence(counterparty));
+        }
+        sb.append(',');
+        appendField(sb, line);
+        sb.append('\n');
+    }
+
+    // Quotes a field when it holds a comma, quote or line break, doubling any quotes
+    private static void appendField(StringBuilder sb, CharSequence value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,623 @@
+package com.banking.persistence;
+
+import com.banking.model.OperationResult;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary write-ahead journal of committed operations, stored as a directory
+ * of segment files named after the first log sequence number (LSN) they may contain.
+ *
+ * Each record is framed as [int length][body][int crc32(body)] so a torn write at the
+ * tail after a crash is detected and dropped during replay. Appends only copy bytes into
+ * an in-memory buffer; a background flusher writes and fsyncs the buffer once
+ * groupCommitSize records are pending or maxDelayMillis has passed, so one fsync covers
+ * a whole group of commits. It also flushes early once every appender with a pending
+ * record is blocked in awaitDurable(), so waiting callers never sit out the full delay.
+ *
+ * Checkpoints call rollSegment() to close the active segment, snapshot the accounts, and
+ * then deleteSegmentsUpTo() the returned LSN.
+ */
+public class TransactionJournal implements Closeable {
+
+    public static final int DEFAULT_GROUP_COMMIT_SIZE = 64;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    // A batch of tens of thousands of legs is a single record
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+    // Set in the type byte of a create, deposit, withdraw or transfer (or batch leg of one)
+    // that carries an idempotency key; the key and the outcome follow the rest of the record
+    private static final int KEYED = 0x40;
+    // Set in the type byte of an INTEREST record that carries the amount credited; older
+    // ones did not, and replay recomputes the amount only for those
+    private static final int WITH_AMOUNT = 0x20;
+    // Set alongside KEYED when the outcome is stored by its constant name; older records
+    // stored its ordinal, which adding or reordering results would have changed
+    private static final int NAMED_OUTCOME = 0x10;
+
+    private final Path directory;
+    private final int groupCommitSize;
+    private final long maxDelayMillis;
+
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(128);
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // Guarded by lock
+    private FileChannel channel;
+    private long activeSegmentStart;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private ByteArrayOutputStream flushing = new ByteArrayOutputStream(64 * 1024);
+    private DataOutputStream pendingOut = new DataOutputStream(pending);
+    private int pendingRecords;
+    private int waiters;
+    private long lastLsn;
+    private long durableLsn;
+    private boolean flushInProgress;
+    private boolean closed;
+    private IOException failure;
+
+    private final Thread flusher;
+
+    private TransactionJournal(Path directory, long activeSegmentStart, long lastLsn,
+                               int groupCommitSize, long maxDelayMillis) throws IOException {
+        this.directory = directory;
+        this.groupCommitSize = Math.max(1, groupCommitSize);
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        this.activeSegmentStart = activeSegmentStart;
+        this.channel = openSegment(activeSegmentStart);
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Replays every intact record in the journal directory, cuts off a torn tail, and
+     * opens the journal for appending. New LSNs continue after both the last replayed
+     * record and baseLsn (the LSN covered by the snapshot that was loaded).
+     */
+    public static TransactionJournal open(Path directory, long baseLsn, int groupCommitSize, long maxDelayMillis,
+                                          Consumer<JournalRecord> replay) throws IOException {
+        Files.createDirectories(directory);
+        long lastLsn = baseLsn;
+        List<Long> segments = listSegments(directory);
+
+        for (long segmentStart : segments) {
+            Path segment = segmentPath(directory, segmentStart);
+            long validLength = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                JournalRecord record;
+                long[] position = {0};
+                while ((record = readRecord(in, position)) != null) {
+                    replay.accept(record);
+                    lastLsn = Math.max(lastLsn, record.getLsn());
+                    validLength = position[0];
+                }
+            }
+            if (validLength < Files.size(segment)) {
+                try (FileChannel truncate = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    truncate.truncate(validLength);
+                }
+            }
+        }
+
+        long activeStart = segments.isEmpty() ? lastLsn + 1 : segments.get(segments.size() - 1);
+        return new TransactionJournal(directory, activeStart, lastLsn, groupCommitSize, maxDelayMillis);
+    }
+
+    /**
+     * Buffers the record and returns its log sequence number. Must be called while the
+     * locks of the affected accounts are held so the journal order matches the apply order.
+     */
+    public long append(JournalRecord record) throws IOException {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+
+            long lsn = ++lastLsn;
+            record.setLsn(lsn);
+
+            scratch.reset();
+            writeBody(scratchOut, record);
+            crc.reset();
+            byte[] body = scratch.toByteArray();
+            crc.update(body, 0, body.length);
+
+            pendingOut.writeInt(body.length);
+            pendingOut.write(body);
+            pendingOut.writeInt((int) crc.getValue());
+
+            pendingRecords++;
+            if (pendingRecords == 1 || pendingRecords >= groupCommitSize) {
+                flushNeeded.signal();
+            }
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Blocks until every record up to and including lsn has been fsynced. */
+    public void awaitDurable(long lsn) throws IOException {
+        lock.lock();
+        try {
+            waiters++;
+            if (durableLsn < lsn) {
+                flushNeeded.signal();
+            }
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw failure;
+                }
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for journal sync");
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+    }
+
+    /** Forces everything appended so far to disk. */
+    public void sync() throws IOException {
+        awaitDurable(getLastLsn());
+    }
+
+    /**
+     * Writes out everything pending, closes the active segment and starts a new one.
+     * Returns the last LSN contained in the closed segments.
+     */
+    public long rollSegment() throws IOException {
+        lock.lock();
+        try {
+            while (flushInProgress) {
+                flushed.await();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (pendingRecords > 0) {
+                writeFully(channel, pending.toByteArray());
+                pending.reset();
+                pendingRecords = 0;
+            }
+            channel.force(false);
+            durableLsn = lastLsn;
+            flushed.signalAll();
+
+            long cutLsn = lastLsn;
+            if (channel.size() > 0) {
+                channel.close();
+                activeSegmentStart = cutLsn + 1;
+                channel = openSegment(activeSegmentStart);
+            }
+            return cutLsn;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for journal flush");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes closed segments whose records are all at or below cutLsn.
+     */
+    public void deleteSegmentsUpTo(long cutLsn) throws IOException {
+        for (long start : closedSegmentsUpTo(cutLsn)) {
+            Files.deleteIfExists(segmentPath(directory, start));
+        }
+    }
+
+    /**
+     * Reads, in LSN order, every record in the segments deleteSegmentsUpTo(cutLsn) would
+     * delete, so they can be kept elsewhere first.
+     */
+    public void readSegmentsUpTo(long cutLsn, Consumer<JournalRecord> action) throws IOException {
+        for (long start : closedSegmentsUpTo(cutLsn)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(segmentPath(directory, start))))) {
+                JournalRecord record;
+                long[] position = {0};
+                while ((record = readRecord(in, position)) != null) {
+                    action.accept(record);
+                }
+            }
+        }
+    }
+
+    private List<Long> closedSegmentsUpTo(long cutLsn) throws IOException {
+        List<Long> segments = listSegments(directory);
+        long active;
+        lock.lock();
+        try {
+            active = activeSegmentStart;
+        } finally {
+            lock.unlock();
+        }
+        List<Long> closed = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            long start = segments.get(i);
+            long nextStart = i + 1 < segments.size() ? segments.get(i + 1) : Long.MAX_VALUE;
+            if (start != active && nextStart - 1 <= cutLsn) {
+                closed.add(start);
+            }
+        }
+        return closed;
+    }
+
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Total bytes across all segments still on disk, including unflushed records. */
+    public long size() throws IOException {
+        long total = 0;
+        for (long segmentStart : listSegments(directory)) {
+            Path segment = segmentPath(directory, segmentStart);
+            if (Files.exists(segment)) {
+                total += Files.size(segment);
+            }
+        }
+        lock.lock();
+        try {
+            return total + pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private FileChannel openSegment(long segmentStart) throws IOException {
+        FileChannel segment = FileChannel.open(segmentPath(directory, segmentStart),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        return segment;
+    }
+
+    private static Path segmentPath(Path directory, long segmentStart) {
+        return directory.resolve(String.format("%020d", segmentStart) + SEGMENT_SUFFIX);
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static void writeFully(FileChannel target, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchLsn;
+            FileChannel target;
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + maxDelayMillis * 1_000_000;
+                // Flush once the group is full, the delay is up, or every pending record's
+                // appender is already blocked waiting for it (nobody else is about to join)
+                while (!closed && (pendingRecords == 0
+                        || (pendingRecords < groupCommitSize && waiters < pendingRecords
+                            && System.nanoTime() < deadline))) {
+                    if (pendingRecords == 0) {
+                        flushNeeded.await();
+                        deadline = System.nanoTime() + maxDelayMillis * 1_000_000;
+                    } else {
+                        flushNeeded.awaitNanos(deadline - System.nanoTime());
+                    }
+                }
+                if (closed && pendingRecords == 0) {
+                    return;
+                }
+                batch = pending;
+                batchLsn = lastLsn;
+                pending = flushing;
+                pending.reset();
+                pendingOut = new DataOutputStream(pending);
+                flushing = batch;
+                pendingRecords = 0;
+                flushInProgress = true;
+                target = channel;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                writeFully(target, batch.toByteArray());
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error == null) {
+                    durableLsn = Math.max(durableLsn, batchLsn);
+                } else {
+                    failure = error;
+                }
+                flushInProgress = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        lock.lock();
+        try {
+            closed = true;
+            flushNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private static void writeBody(DataOutputStream out, JournalRecord record) throws IOException {
+        out.writeLong(record.getLsn());
+        out.writeLong(record.getTimestamp());
+        boolean keyed = isKeyed(record);
+        int flags = (keyed ? KEYED | NAMED_OUTCOME : 0) | (record.getType() == JournalRecord.INTEREST ? WITH_AMOUNT : 0);
+        out.writeByte(record.getType() | flags);
+        out.writeUTF(record.getAccountNumber());
+        switch (record.getType()) {
+            case JournalRecord.CREATE:
+                out.writeUTF(record.getHolderName());
+                out.writeUTF(record.getAccountType());
+                out.writeLong(record.getAmount());
+                break;
+            case JournalRecord.TRANSFER:
+                out.writeUTF(record.getCounterparty());
+                out.writeLong(record.getAmount());
+                break;
+            case JournalRecord.DEPOSIT:
+            case JournalRecord.WITHDRAW:
+            case JournalRecord.INTEREST:
+                out.writeLong(record.getAmount());
+                break;
+            case JournalRecord.TRANSFER_DEBIT:
+            case JournalRecord.TRANSFER_CREDIT:
+            case JournalRecord.TRANSFER_REVERSAL:
+                out.writeUTF(record.getCounterparty());
+                out.writeLong(record.getAmount());
+                out.writeUTF(record.getReference());
+                break;
+            case JournalRecord.STANDING_INSTRUCTION:
+                out.writeUTF(record.getCounterparty());
+                out.writeLong(record.getAmount());
+                out.writeUTF(record.getHolderName());
+                out.writeUTF(record.getReference());
+                break;
+            case JournalRecord.INSTRUCTION_CANCELLED:
+                out.writeUTF(record.getReference());
+                break;
+            case JournalRecord.BATCH:
+                writeLegs(out, record.getLegs());
+                break;
+            case JournalRecord.INTEREST_RUN:
+                out.writeLong(record.getAmount());
+                writeLegs(out, record.getLegs());
+                break;
+            default:
+                break;
+        }
+        if (keyed) {
+            out.writeUTF(record.getReference());
+            out.writeUTF(record.getOutcome().name());
+        }
+    }
+
+    private static boolean isKeyed(JournalRecord record) {
+        if (record.getReference() == null) {
+            return false;
+        }
+        switch (record.getType()) {
+            case JournalRecord.CREATE:
+            case JournalRecord.DEPOSIT:
+            case JournalRecord.WITHDRAW:
+            case JournalRecord.TRANSFER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void writeLegs(DataOutputStream out, List<JournalRecord> legs) throws IOException {
+        out.writeInt(legs.size());
+        for (JournalRecord leg : legs) {
+            boolean keyed = isKeyed(leg);
+            out.writeByte(keyed ? leg.getType() | KEYED | NAMED_OUTCOME : leg.getType());
+            out.writeUTF(leg.getAccountNumber());
+            if (leg.getType() == JournalRecord.TRANSFER) {
+                out.writeUTF(leg.getCounterparty());
+            }
+            out.writeLong(leg.getAmount());
+            if (keyed) {
+                out.writeUTF(leg.getReference());
+                out.writeUTF(leg.getOutcome().name());
+            }
+        }
+    }
+
+    private static JournalRecord readRecord(DataInputStream in, long[] position) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            int expected = in.readInt();
+
+            CRC32 check = new CRC32();
+            check.update(body, 0, length);
+            if ((int) check.getValue() != expected) {
+                return null;
+            }
+            position[0] += 8 + length;
+            return readBody(new DataInputStream(new ByteArrayInputStream(body)));
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static JournalRecord readBody(DataInputStream in) throws IOException {
+        long lsn = in.readLong();
+        long timestamp = in.readLong();
+        byte stored = in.readByte();
+        byte type = (byte) (stored & ~(KEYED | WITH_AMOUNT | NAMED_OUTCOME));
+        String accountNumber = in.readUTF();
+        String counterparty = null;
+        String holderName = null;
+        String accountType = null;
+        long amount = 0;
+        switch (type) {
+            case JournalRecord.CREATE:
+                holderName = in.readUTF();
+                accountType = in.readUTF();
+                amount = in.readLong();
+                break;
+            case JournalRecord.TRANSFER:
+                counterparty = in.readUTF();
+                amount = in.readLong();
+                break;
+            case JournalRecord.DEPOSIT:
+            case JournalRecord.WITHDRAW:
+                amount = in.readLong();
+                break;
+            case JournalRecord.INTEREST:
+                amount = (stored & WITH_AMOUNT) != 0 ? in.readLong() : 0;
+                break;
+            case JournalRecord.TRANSFER_DEBIT:
+            case JournalRecord.TRANSFER_CREDIT:
+            case JournalRecord.TRANSFER_REVERSAL:
+                counterparty = in.readUTF();
+                amount = in.readLong();
+                JournalRecord leg = new JournalRecord(type, timestamp, accountNumber, counterparty, null, null,
+                        amount, in.readUTF());
+                leg.setLsn(lsn);
+                return leg;
+            case JournalRecord.STANDING_INSTRUCTION:
+            case JournalRecord.INSTRUCTION_CANCELLED:
+                if (type == JournalRecord.STANDING_INSTRUCTION) {
+                    counterparty = in.readUTF();
+                    amount = in.readLong();
+                    holderName = in.readUTF();
+                }
+                JournalRecord instruction = new JournalRecord(type, timestamp, accountNumber, counterparty, holderName,
+                        null, amount, in.readUTF());
+                instruction.setLsn(lsn);
+                return instruction;
+            case JournalRecord.BATCH:
+            case JournalRecord.INTEREST_RUN:
+                amount = type == JournalRecord.INTEREST_RUN ? in.readLong() : 0;
+                JournalRecord group = new JournalRecord(type, timestamp, amount, readLegs(in, timestamp));
+                group.setLsn(lsn);
+                return group;
+            default:
+                break;
+        }
+        String idempotencyKey = (stored & KEYED) != 0 ? in.readUTF() : null;
+        JournalRecord record = new JournalRecord(type, timestamp, accountNumber, counterparty, holderName, accountType,
+                amount, idempotencyKey);
+        if (idempotencyKey != null) {
+            record.setOutcome(readOutcome(in, stored));
+        }
+        if (type == JournalRecord.INTEREST && (stored & WITH_AMOUNT) == 0) {
+            record.markAmountMissing();
+        }
+        record.setLsn(lsn);
+        return record;
+    }
+
+    private static OperationResult readOutcome(DataInputStream in, byte stored) throws IOException {
+        return (stored & NAMED_OUTCOME) != 0 ? OperationResult.valueOf(in.readUTF()) : OperationResult.values()[in.readByte()];
+    }
+
+    private static List<JournalRecord> readLegs(DataInputStream in, long timestamp) throws IOException {
+        int count = in.readInt();
+        List<JournalRecord> legs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte stored = in.readByte();
+            byte legType = (byte) (stored & ~(KEYED | NAMED_OUTCOME));
+            String legAccount = in.readUTF();
+            String legCounterparty = legType == JournalRecord.TRANSFER ? in.readUTF() : null;
+            long legAmount = in.readLong();
+            JournalRecord leg = new JournalRecord(legType, timestamp, legAccount, legCounterparty, null, null, legAmount,
+                    (stored & KEYED) != 0 ? in.readUTF() : null);
+            if (leg.getReference() != null) {
+                leg.setOutcome(readOutcome(in, stored));
+            }
+            legs.add(leg);
+        }
+        return legs;
+    }
+}
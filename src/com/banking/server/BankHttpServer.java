@@ -0,0 +1,495 @@
+package com.banking.server;
+
+import com.banking.model.HistoryPage;
+import com.banking.model.Money;
+import com.banking.model.OperationResult;
+import com.banking.service.BankService;
+import com.banking.service.InterestRunSummary;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP/JSON front end for BankService, built on the JDK's own HTTP server. Every request
+ * runs on its own virtual thread, so a request waiting for its journal fsync costs no
+ * platform thread.
+ *
+ * Admission is bounded: at most maxConcurrent requests run at once and up to maxQueued
+ * more wait for a slot; anything beyond that is turned away at once with 503 and a
+ * Retry-After header rather than piling up.
+ *
+ * Amounts are rupee strings or numbers with at most two decimals ("1500.50"), as in the
+ * console. Endpoints:
+ *
+ *   POST /accounts                      {"name", "type": SAVINGS|CURRENT, "initialDeposit"}
+ *   GET  /accounts/{number}             balance
+ *   GET  /accounts/{number}/history     a page of rendered history lines, oldest first;
+ *                                       ?offset=0&limit=100 plus a time range, see below
+ *   GET  /accounts/{number}/statement   CSV statement for a time range, streamed
+ *   POST /accounts/{number}/deposit     {"amount"}
+ *   POST /accounts/{number}/withdraw    {"amount"}
+ *   POST /accounts/{number}/interest    credit one savings account
+ *   POST /transfers                     {"from", "to", "amount"}
+ *   POST /interest-runs                 {"period": "2024-03"}, blank for this month
+ *   POST /transfer-legs/{id}/{leg}      {"from", "to", "amount"}; leg is debit, credit or
+ *                                       reverse. One partition's side of a transfer between
+ *                                       partitions, for PartitionRouter; retrying is safe
+ *
+ * Account opening, deposits, withdrawals and transfers take an optional Idempotency-Key
+ * header (up to 100 letters, digits and . _ : -). Retrying with the same key returns the
+ * first request's outcome instead of applying it again; reusing a key for a different
+ * request is refused with 409.
+ *
+ * Operation responses carry the OperationResult name in "result". History and statements
+ * take an optional time range: ?period=2024-03, or ?from=2024-03-01&to=2024-03-31 (whole
+ * days, either end may be left open); without one they cover all time. A history page's
+ * "nextOffset" is passed back as offset for the next page, and is null on the last one.
+ */
+public final class BankHttpServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_CONCURRENT = 1024;
+    public static final int DEFAULT_MAX_QUEUED = 4096;
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_HISTORY_PAGE = 100;
+    private static final int MAX_HISTORY_PAGE = 1_000;
+    private static final long MINIMUM_OPENING_DEPOSIT = Money.ofRupees(500);
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final Pattern IDEMPOTENCY_KEY = Pattern.compile("[A-Za-z0-9._:-]{1,100}");
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle on, every response
+        // then waits out the client's delayed ACK (~40 ms). Read once, when the first server starts.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private final BankService bankService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final int admissionLimit;
+
+    public BankHttpServer(BankService bankService, int port) throws IOException {
+        this(bankService, port, DEFAULT_MAX_CONCURRENT, DEFAULT_MAX_QUEUED);
+    }
+
+    public BankHttpServer(BankService bankService, int port, int maxConcurrent, int maxQueued) throws IOException {
+        this.bankService = bankService;
+        this.running = new Semaphore(maxConcurrent);
+        this.admissionLimit = maxConcurrent + maxQueued;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/accounts", exchange -> admit(exchange, this::accounts));
+        server.createContext("/transfers", exchange -> admit(exchange, this::transfers));
+        server.createContext("/interest-runs", exchange -> admit(exchange, this::interestRuns));
+        server.createContext("/transfer-legs", exchange -> admit(exchange, this::transferLegs));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops accepting requests and waits up to delaySeconds for running ones to finish. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /** The bound port, useful when the server was created with port 0. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void admit(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            if (admitted.incrementAndGet() > admissionLimit) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, error("Server busy, try again shortly"));
+                return;
+            }
+            running.acquire();
+            try {
+                handler.handle(exchange);
+            } finally {
+                running.release();
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed JSON and amounts (NumberFormatException) end up here
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("Server shutting down"));
+        } finally {
+            admitted.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void accounts(HttpExchange exchange) throws IOException {
+        // "", "/ACC1001" or "/ACC1001/deposit"
+        String rest = exchange.getRequestURI().getPath().substring("/accounts".length());
+        String[] parts = rest.isEmpty() || rest.equals("/") ? new String[0] : rest.substring(1).split("/");
+        String method = exchange.getRequestMethod();
+
+        if (parts.length == 0) {
+            if (requireMethod(exchange, "POST")) {
+                createAccount(exchange);
+            }
+            return;
+        }
+
+        String accountNumber = parts[0];
+        String action = parts.length > 1 ? parts[1] : "";
+        if (parts.length > 2) {
+            respond(exchange, 404, error("Not found"));
+        } else if (action.isEmpty()) {
+            if (requireMethod(exchange, "GET")) {
+                balance(exchange, accountNumber);
+            }
+        } else if (action.equals("history")) {
+            if (requireMethod(exchange, "GET")) {
+                history(exchange, accountNumber);
+            }
+        } else if (action.equals("statement")) {
+            if (requireMethod(exchange, "GET")) {
+                statement(exchange, accountNumber);
+            }
+        } else if (!method.equals("POST")) {
+            requireMethod(exchange, "POST");
+        } else if (action.equals("deposit")) {
+            long amount = amount(Json.parseObject(body(exchange)), "amount");
+            respondResult(exchange, bankService.deposit(accountNumber, amount, idempotencyKey(exchange)), accountNumber);
+        } else if (action.equals("withdraw")) {
+            long amount = amount(Json.parseObject(body(exchange)), "amount");
+            respondResult(exchange, bankService.withdraw(accountNumber, amount, idempotencyKey(exchange)), accountNumber);
+        } else if (action.equals("interest")) {
+            respondResult(exchange, bankService.calculateAndAddInterest(accountNumber), accountNumber);
+        } else {
+            respond(exchange, 404, error("Not found"));
+        }
+    }
+
+    private void createAccount(HttpExchange exchange) throws IOException {
+        Map<String, String> request = Json.parseObject(body(exchange));
+        String name = required(request, "name");
+        String type = required(request, "type");
+        long initialDeposit = amount(request, "initialDeposit");
+        String idempotencyKey = idempotencyKey(exchange);
+
+        OperationResult rejection = null;
+        if (!type.equalsIgnoreCase("SAVINGS") && !type.equalsIgnoreCase("CURRENT")) {
+            rejection = OperationResult.INVALID_ACCOUNT_TYPE;
+        } else if (initialDeposit < MINIMUM_OPENING_DEPOSIT) {
+            rejection = OperationResult.INVALID_AMOUNT;
+        }
+        if (rejection != null) {
+            StringBuilder sb = new StringBuilder("{\"result\":");
+            Json.appendString(sb, rejection.name());
+            respond(exchange, statusOf(rejection), sb.append('}'));
+            return;
+        }
+
+        String accountNumber = bankService.createAccount(name, type.toUpperCase(), initialDeposit, idempotencyKey);
+        if (accountNumber == null && idempotencyKey != null && bankService.isIdempotencyKeyUsed(idempotencyKey)) {
+            StringBuilder sb = new StringBuilder("{\"result\":");
+            Json.appendString(sb, OperationResult.IDEMPOTENCY_KEY_REUSED.name());
+            respond(exchange, statusOf(OperationResult.IDEMPOTENCY_KEY_REUSED), sb.append('}'));
+            return;
+        }
+        if (accountNumber == null) {
+            respond(exchange, 500, error("Account could not be created"));
+            return;
+        }
+        StringBuilder sb = new StringBuilder("{\"result\":\"SUCCESS\",\"accountNumber\":");
+        Json.appendString(sb, accountNumber);
+        sb.append(",\"balance\":\"");
+        Money.appendTo(sb, initialDeposit);
+        respond(exchange, 201, sb.append("\"}"));
+    }
+
+    private void balance(HttpExchange exchange, String accountNumber) throws IOException {
+        long balance = bankService.getBalance(accountNumber);
+        if (balance == BankService.ACCOUNT_NOT_FOUND) {
+            respondResult(exchange, OperationResult.ACCOUNT_NOT_FOUND, accountNumber);
+            return;
+        }
+        StringBuilder sb = new StringBuilder("{\"accountNumber\":");
+        Json.appendString(sb, accountNumber);
+        sb.append(",\"balance\":\"");
+        Money.appendTo(sb, balance);
+        respond(exchange, 200, sb.append("\"}"));
+    }
+
+    private void history(HttpExchange exchange, String accountNumber) throws IOException {
+        Map<String, String> query = query(exchange);
+        long[] range = timeRange(query);
+        int offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+        int limit = Math.min(MAX_HISTORY_PAGE, Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_HISTORY_PAGE))));
+        HistoryPage page = bankService.getTransactionHistory(accountNumber, range[0], range[1], offset, limit);
+        if (page == null) {
+            respondResult(exchange, OperationResult.ACCOUNT_NOT_FOUND, accountNumber);
+            return;
+        }
+        StringBuilder sb = new StringBuilder("{\"accountNumber\":");
+        Json.appendString(sb, accountNumber);
+        sb.append(",\"history\":[");
+        for (int i = 0; i < page.getEntries().size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            Json.appendString(sb, page.getEntries().get(i));
+        }
+        sb.append("],\"nextOffset\":").append(page.hasMore() ? String.valueOf(page.getNextOffset()) : "null");
+        respond(exchange, 200, sb.append('}'));
+    }
+
+    // Streamed with chunked encoding, so a long statement is never held in memory
+    private void statement(HttpExchange exchange, String accountNumber) throws IOException {
+        long[] range = timeRange(query(exchange));
+        if (bankService.getBalance(accountNumber) == BankService.ACCOUNT_NOT_FOUND) {
+            respondResult(exchange, OperationResult.ACCOUNT_NOT_FOUND, accountNumber);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (WritableByteChannel channel = Channels.newChannel(exchange.getResponseBody())) {
+            bankService.exportStatement(accountNumber, range[0], range[1], channel);
+        }
+    }
+
+    private void transfers(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/transfers")) {
+            respond(exchange, 404, error("Not found"));
+            return;
+        }
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> request = Json.parseObject(body(exchange));
+        String from = required(request, "from");
+        String to = required(request, "to");
+        long amount = amount(request, "amount");
+        respondResult(exchange, bankService.transfer(from, to, amount, idempotencyKey(exchange)), from);
+    }
+
+    private void transferLegs(HttpExchange exchange) throws IOException {
+        // "/T42/debit"
+        String[] parts = exchange.getRequestURI().getPath().substring("/transfer-legs".length()).split("/");
+        if (parts.length != 3 || !parts[0].isEmpty() || parts[1].isEmpty()) {
+            respond(exchange, 404, error("Not found"));
+            return;
+        }
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        String transferId = parts[1];
+        Map<String, String> request = Json.parseObject(body(exchange));
+        String from = required(request, "from");
+        String to = required(request, "to");
+        long amount = amount(request, "amount");
+        switch (parts[2]) {
+            case "debit":
+                respondResult(exchange, bankService.debitTransferLeg(transferId, from, to, amount), from);
+                break;
+            case "credit":
+                respondResult(exchange, bankService.creditTransferLeg(transferId, from, to, amount), to);
+                break;
+            case "reverse":
+                respondResult(exchange, bankService.reverseTransferLeg(transferId, from, to, amount), from);
+                break;
+            default:
+                respond(exchange, 404, error("Not found"));
+                break;
+        }
+    }
+
+    private void interestRuns(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/interest-runs")) {
+            respond(exchange, 404, error("Not found"));
+            return;
+        }
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        String text = body(exchange);
+        String input = text.isBlank() ? null : Json.parseObject(text).get("period");
+        YearMonth period;
+        try {
+            period = input == null || input.isBlank() ? YearMonth.now() : YearMonth.parse(input.trim());
+        } catch (DateTimeParseException e) {
+            respond(exchange, 400, error("Invalid period, use the form 2024-03"));
+            return;
+        }
+
+        InterestRunSummary summary = bankService.runInterest(period);
+        StringBuilder sb = new StringBuilder("{\"period\":");
+        Json.appendString(sb, summary.getPeriod().toString());
+        sb.append(",\"accountsCredited\":").append(summary.getAccountsCredited());
+        sb.append(",\"accountsSkipped\":").append(summary.getAccountsSkipped());
+        sb.append(",\"totalInterest\":\"");
+        Money.appendTo(sb, summary.getTotalInterest());
+        sb.append("\",\"elapsedMillis\":").append(summary.getElapsedMillis());
+        respond(exchange, 200, sb.append('}'));
+    }
+
+    // Reports the outcome together with the account's balance as it is now
+    private void respondResult(HttpExchange exchange, OperationResult result, String accountNumber) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"result\":");
+        Json.appendString(sb, result.name());
+        sb.append(",\"accountNumber\":");
+        Json.appendString(sb, accountNumber);
+        long balance = result == OperationResult.ACCOUNT_NOT_FOUND
+                ? BankService.ACCOUNT_NOT_FOUND : bankService.getBalance(accountNumber);
+        if (balance != BankService.ACCOUNT_NOT_FOUND) {
+            sb.append(",\"balance\":\"");
+            Money.appendTo(sb, balance);
+            sb.append('"');
+        }
+        respond(exchange, statusOf(result), sb.append('}'));
+    }
+
+    static int statusOf(OperationResult result) {
+        switch (result) {
+            case SUCCESS:
+            case OVERDRAFT_ENTERED:
+                return 200;
+            case ACCOUNT_NOT_FOUND:
+                return 404;
+            case INVALID_AMOUNT:
+            case INVALID_ACCOUNT_TYPE:
+            case SAME_ACCOUNT:
+                return 400;
+            case IDEMPOTENCY_KEY_REUSED:
+                return 409;
+            case JOURNAL_FAILED:
+                return 503;
+            default:
+                // Well-formed, but the account's rules refuse it
+                return 422;
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // {from, to} in epoch millis, inclusive, from period or from/to dates; all time by default
+    private static long[] timeRange(Map<String, String> query) {
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            String period = query.get("period");
+            if (period != null && !period.isBlank()) {
+                YearMonth month = YearMonth.parse(period.trim());
+                return new long[] {
+                        month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                        month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1
+                };
+            }
+            String from = query.get("from");
+            String to = query.get("to");
+            return new long[] {
+                    from == null || from.isBlank() ? Long.MIN_VALUE
+                            : LocalDate.parse(from.trim()).atStartOfDay(zone).toInstant().toEpochMilli(),
+                    to == null || to.isBlank() ? Long.MAX_VALUE
+                            : LocalDate.parse(to.trim()).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1
+            };
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid time range, use period=2024-03 or from=2024-03-01&to=2024-03-31");
+        }
+    }
+
+    static boolean requireMethod(HttpExchange exchange, String method) throws IOException {
+        if (exchange.getRequestMethod().equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        respond(exchange, 405, error("Use " + method));
+        return false;
+    }
+
+    static String body(HttpExchange exchange) throws IOException {
+        byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body too large");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The Idempotency-Key header, or null if there is none
+    static String idempotencyKey(HttpExchange exchange) {
+        String key = exchange.getRequestHeaders().getFirst(IDEMPOTENCY_KEY_HEADER);
+        if (key == null) {
+            return null;
+        }
+        if (!IDEMPOTENCY_KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid Idempotency-Key, use up to 100 letters, digits and . _ : -");
+        }
+        return key;
+    }
+
+    static String required(Map<String, String> request, String field) {
+        String value = request.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value;
+    }
+
+    static long amount(Map<String, String> request, String field) {
+        return Money.parse(required(request, field));
+    }
+
+    static StringBuilder error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        Json.appendString(sb, message);
+        return sb.append('}');
+    }
+
+    static void respond(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
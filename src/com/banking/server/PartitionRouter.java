@@ -0,0 +1,482 @@
+package com.banking.server;
+
+import com.banking.model.AccountNumbers;
+import com.banking.model.Money;
+import com.banking.model.OperationResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routing layer in front of a bank split across partition processes, each a BankHttpServer
+ * over a BankService that owns the accounts AccountNumbers.partitionOf() assigns to it.
+ * Serves the same API as BankHttpServer:
+ *
+ *   - requests for one account go to the partition that owns it, and are relayed as is;
+ *   - new accounts go to the partitions in turn;
+ *   - a transfer within one partition is relayed to it; a transfer between two partitions
+ *     runs as a TransferSaga over the partitions' /transfer-legs endpoints;
+ *   - an interest run runs on every partition and the summaries are added up.
+ *
+ * GET /cluster reports the partitions and how many transfers are still in flight.
+ *
+ * A saga's legs are idempotent, so any leg whose answer was lost (partition down, timed
+ * out, busy) is simply sent again, backing off up to MAX_BACKOFF_MILLIS. A transfer
+ * caller waits up to CALLER_WAIT_MILLIS for the outcome and is otherwise answered 202 with
+ * "result": "PENDING" and the transfer's id while the saga carries on in the background.
+ * Sagas left unfinished by a crashed router are resumed from the SagaLog when it starts.
+ *
+ * An Idempotency-Key header is passed on to the partition, which remembers it. A keyed new
+ * account always goes to the same partition first, and a keyed transfer between partitions
+ * takes an id made from the key and the transfer's details: a retry then joins the saga
+ * still in flight, or reruns its legs, which the partitions have already applied.
+ */
+public final class PartitionRouter {
+
+    private static final long CALLER_WAIT_MILLIS = 10_000;
+    private static final long MAX_BACKOFF_MILLIS = 1_000;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private final List<URI> partitions;
+    private final HttpClient client;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SagaLog sagaLog;
+    private final Map<String, TransferSaga> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger nextForCreate = new AtomicInteger();
+    private volatile boolean stopping;
+
+    /** partitions are the base URIs of partition 0, 1, ... in order, e.g. http://localhost:8081. */
+    public PartitionRouter(List<URI> partitions, Path sagaLogFile, int port) throws IOException {
+        if (partitions.isEmpty()) {
+            throw new IllegalArgumentException("No partitions to route to");
+        }
+        this.partitions = List.copyOf(partitions);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(executor)
+                .build();
+        this.sagaLog = SagaLog.open(sagaLogFile);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/accounts", exchange -> serve(exchange, this::accounts));
+        server.createContext("/transfers", exchange -> serve(exchange, this::transfers));
+        server.createContext("/interest-runs", exchange -> serve(exchange, this::interestRuns));
+        server.createContext("/cluster", exchange -> serve(exchange, this::cluster));
+    }
+
+    /** Starts serving and resumes any sagas a previous run left unfinished. */
+    public void start() {
+        for (TransferSaga saga : sagaLog.unfinished()) {
+            inFlight.put(saga.id, saga);
+            executor.execute(() -> drive(saga, Long.MAX_VALUE));
+        }
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to delaySeconds for running ones. Sagas still
+     * in flight stay in the SagaLog and are resumed by the next start().
+     */
+    public void stop(int delaySeconds) {
+        stopping = true;
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+            sagaLog.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("⚠️  Error closing saga log: " + e.getMessage());
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Transfers between partitions that have not finished yet. */
+    public int getTransfersInFlight() {
+        return inFlight.size();
+    }
+
+    private void serve(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            BankHttpServer.respond(exchange, 400, BankHttpServer.error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void accounts(HttpExchange exchange) throws IOException {
+        String rest = exchange.getRequestURI().getPath().substring("/accounts".length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            createAccount(exchange);
+            return;
+        }
+        int slash = rest.indexOf('/', 1);
+        String accountNumber = rest.substring(1, slash < 0 ? rest.length() : slash);
+        relay(exchange, AccountNumbers.partitionOf(accountNumber, partitions.size()), BankHttpServer.body(exchange));
+    }
+
+    // Only a refused connection means the partition never saw the request, so only then is
+    // the next partition tried; otherwise the account might be opened twice
+    private void createAccount(HttpExchange exchange) throws IOException {
+        String body = BankHttpServer.body(exchange);
+        String idempotencyKey = BankHttpServer.idempotencyKey(exchange);
+        int first = idempotencyKey != null
+                ? AccountNumbers.partitionOf(idempotencyKey, partitions.size())
+                : Math.floorMod(nextForCreate.getAndIncrement(), partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            try {
+                relay(exchange, (first + i) % partitions.size(), body, true);
+                return;
+            } catch (ConnectException e) {
+                // Down; try the next one
+            }
+        }
+        unavailable(exchange, "No partition is available");
+    }
+
+    private void transfers(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/transfers")) {
+            BankHttpServer.respond(exchange, 404, BankHttpServer.error("Not found"));
+            return;
+        }
+        if (!BankHttpServer.requireMethod(exchange, "POST")) {
+            return;
+        }
+        String body = BankHttpServer.body(exchange);
+        Map<String, String> request = Json.parseObject(body);
+        String from = BankHttpServer.required(request, "from");
+        String to = BankHttpServer.required(request, "to");
+        long amount = BankHttpServer.amount(request, "amount");
+        int fromPartition = AccountNumbers.partitionOf(from, partitions.size());
+        if (fromPartition == AccountNumbers.partitionOf(to, partitions.size())) {
+            relay(exchange, fromPartition, body);
+            return;
+        }
+        if (amount <= 0) {
+            respondTransfer(exchange, OperationResult.INVALID_AMOUNT, null, from);
+            return;
+        }
+
+        String idempotencyKey = BankHttpServer.idempotencyKey(exchange);
+        String id = idempotencyKey != null
+                ? idempotencyKey + "." + from + "." + to + "." + amount : UUID.randomUUID().toString();
+        TransferSaga saga = new TransferSaga(id, from, to, amount, TransferSaga.State.STARTED);
+        TransferSaga running = inFlight.putIfAbsent(id, saga);
+        if (running != null) {
+            awaitFinal(running, System.currentTimeMillis() + CALLER_WAIT_MILLIS);
+            respondTransfer(exchange, running.state.isFinal() ? running.result : null, running, from);
+            return;
+        }
+        sagaLog.record(saga, TransferSaga.State.STARTED);
+        if (!drive(saga, System.currentTimeMillis() + CALLER_WAIT_MILLIS)) {
+            if (!stopping) {
+                executor.execute(() -> drive(saga, Long.MAX_VALUE));
+            }
+            respondTransfer(exchange, null, saga, from);
+            return;
+        }
+        respondTransfer(exchange, saga.result, saga, from);
+    }
+
+    /**
+     * Runs the saga's remaining steps until it is finished (true) or the deadline passes
+     * while a partition is unavailable (false). Only one thread drives a saga at a time.
+     */
+    private boolean drive(TransferSaga saga, long deadline) {
+        long backoff = 10;
+        while (!saga.state.isFinal()) {
+            if (stopping) {
+                return false;
+            }
+            boolean progressed;
+            try {
+                progressed = step(saga);
+            } catch (IOException e) {
+                System.err.println("⚠️  Error writing saga log: " + e.getMessage());
+                progressed = false;
+            }
+            if (progressed) {
+                backoff = 10;
+                continue;
+            }
+            if (System.currentTimeMillis() + backoff > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+        }
+        inFlight.remove(saga.id);
+        return true;
+    }
+
+    // For a retried transfer whose saga another thread is driving
+    private static void awaitFinal(TransferSaga saga, long deadline) {
+        while (!saga.state.isFinal() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Sends the leg for the saga's current state; false if no answer came back
+    private boolean step(TransferSaga saga) throws IOException {
+        int fromPartition = AccountNumbers.partitionOf(saga.from, partitions.size());
+        switch (saga.state) {
+            case STARTED: {
+                OperationResult result = leg(fromPartition, saga, "debit");
+                if (result == null) {
+                    return false;
+                }
+                TransferSaga.State next = result.isSuccess() ? TransferSaga.State.DEBITED : TransferSaga.State.FAILED;
+                sagaLog.record(saga, next);
+                saga.result = result;
+                saga.state = next;
+                return true;
+            }
+            case DEBITED: {
+                OperationResult result = leg(AccountNumbers.partitionOf(saga.to, partitions.size()), saga, "credit");
+                if (result == null) {
+                    return false;
+                }
+                TransferSaga.State next = result.isSuccess() ? TransferSaga.State.COMPLETED : TransferSaga.State.REVERSING;
+                sagaLog.record(saga, next);
+                if (!result.isSuccess()) {
+                    saga.result = result;
+                }
+                saga.state = next;
+                return true;
+            }
+            case REVERSING: {
+                // Crediting back cannot be refused unless the sender's account is gone; keep retrying then
+                OperationResult result = leg(fromPartition, saga, "reverse");
+                if (result == null || !result.isSuccess()) {
+                    return false;
+                }
+                sagaLog.record(saga, TransferSaga.State.REVERSED);
+                saga.state = TransferSaga.State.REVERSED;
+                return true;
+            }
+            default:
+                return true;
+        }
+    }
+
+    // The partition's answer, or null if there was none to act on
+    private OperationResult leg(int partition, TransferSaga saga, String leg) {
+        StringBuilder body = new StringBuilder("{\"from\":");
+        Json.appendString(body, saga.from);
+        body.append(",\"to\":");
+        Json.appendString(body, saga.to);
+        body.append(",\"amount\":\"");
+        Money.appendTo(body, saga.amount);
+        body.append("\"}");
+        HttpRequest request = HttpRequest.newBuilder(partitions.get(partition).resolve("/transfer-legs/" + saga.id + "/" + leg))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 500) {
+                return null;
+            }
+            String result = Json.parseObject(response.body()).get("result");
+            return result == null ? null : OperationResult.valueOf(result);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // result is null while the saga is still in flight
+    private void respondTransfer(HttpExchange exchange, OperationResult result, TransferSaga saga, String from)
+            throws IOException {
+        StringBuilder sb = new StringBuilder("{\"result\":");
+        Json.appendString(sb, result == null ? "PENDING" : result.name());
+        sb.append(",\"accountNumber\":");
+        Json.appendString(sb, from);
+        if (saga != null) {
+            sb.append(",\"transferId\":");
+            Json.appendString(sb, saga.id);
+            sb.append(",\"state\":");
+            Json.appendString(sb, saga.state.name());
+        }
+        BankHttpServer.respond(exchange, result == null ? 202 : BankHttpServer.statusOf(result), sb.append('}'));
+    }
+
+    private void interestRuns(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/interest-runs")) {
+            BankHttpServer.respond(exchange, 404, BankHttpServer.error("Not found"));
+            return;
+        }
+        if (!BankHttpServer.requireMethod(exchange, "POST")) {
+            return;
+        }
+        String body = BankHttpServer.body(exchange);
+        String period = null;
+        long credited = 0;
+        long skipped = 0;
+        long totalInterest = 0;
+        long elapsedMillis = 0;
+        for (int partition = 0; partition < partitions.size(); partition++) {
+            HttpResponse<String> response;
+            try {
+                response = send(partition, exchange, body, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                unavailable(exchange, "Partition " + partition + " is unavailable; run again to finish the run");
+                return;
+            }
+            if (response.statusCode() != 200) {
+                relayed(exchange, response.statusCode(), response.headers().firstValue("Content-Type").orElse(null),
+                        response.body().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            Map<String, String> summary = Json.parseObject(response.body());
+            period = summary.get("period");
+            credited += Long.parseLong(summary.get("accountsCredited"));
+            skipped += Long.parseLong(summary.get("accountsSkipped"));
+            totalInterest += Money.parse(summary.get("totalInterest"));
+            elapsedMillis = Math.max(elapsedMillis, Long.parseLong(summary.get("elapsedMillis")));
+        }
+        StringBuilder sb = new StringBuilder("{\"period\":");
+        Json.appendString(sb, period);
+        sb.append(",\"accountsCredited\":").append(credited);
+        sb.append(",\"accountsSkipped\":").append(skipped);
+        sb.append(",\"totalInterest\":\"");
+        Money.appendTo(sb, totalInterest);
+        sb.append("\",\"elapsedMillis\":").append(elapsedMillis);
+        BankHttpServer.respond(exchange, 200, sb.append('}'));
+    }
+
+    private void cluster(HttpExchange exchange) throws IOException {
+        if (!BankHttpServer.requireMethod(exchange, "GET")) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("{\"partitions\":[");
+        for (int i = 0; i < partitions.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            Json.appendString(sb, partitions.get(i).toString());
+        }
+        sb.append("],\"transfersInFlight\":").append(inFlight.size());
+        BankHttpServer.respond(exchange, 200, sb.append('}'));
+    }
+
+    private void relay(HttpExchange exchange, int partition, String body) throws IOException {
+        try {
+            relay(exchange, partition, body, false);
+        } catch (ConnectException e) {
+            unavailable(exchange, "Partition " + partition + " is unavailable");
+        }
+    }
+
+    // Streams the partition's response back, so statements are never held here either.
+    // Throws ConnectException only if throwRefused and the partition refused the connection.
+    private void relay(HttpExchange exchange, int partition, String body, boolean throwRefused) throws IOException {
+        HttpResponse<InputStream> response;
+        try {
+            response = send(partition, exchange, body, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (ConnectException e) {
+            if (throwRefused) {
+                throw e;
+            }
+            unavailable(exchange, "Partition " + partition + " is unavailable");
+            return;
+        } catch (IOException e) {
+            // The partition may or may not have applied the request
+            BankHttpServer.respond(exchange, 504, BankHttpServer.error("Partition " + partition + " did not answer: "
+                    + e.getMessage()));
+            return;
+        }
+        response.headers().firstValue("Content-Type").ifPresent(type -> exchange.getResponseHeaders().set("Content-Type", type));
+        response.headers().firstValue("Retry-After").ifPresent(after -> exchange.getResponseHeaders().set("Retry-After", after));
+        exchange.sendResponseHeaders(response.statusCode(), 0);
+        try (InputStream in = response.body(); OutputStream out = exchange.getResponseBody()) {
+            in.transferTo(out);
+        }
+    }
+
+    private <T> HttpResponse<T> send(int partition, HttpExchange exchange, String body, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        URI uri = exchange.getRequestURI();
+        String target = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        HttpRequest.Builder request = HttpRequest.newBuilder(partitions.get(partition).resolve(target))
+                .timeout(REQUEST_TIMEOUT)
+                .method(exchange.getRequestMethod(), body.isEmpty()
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        String idempotencyKey = exchange.getRequestHeaders().getFirst(BankHttpServer.IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey != null) {
+            request.header(BankHttpServer.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        try {
+            return client.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private static void relayed(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void unavailable(HttpExchange exchange, String message) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        BankHttpServer.respond(exchange, 503, BankHttpServer.error(message));
+    }
+}
@@ -0,0 +1,125 @@
+package com.banking.server;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable log of transfer saga states, one "id STATE from to amount" line per change.
+ * Appends are fsynced before they count; threads that sync at the same time share one
+ * fsync. Opening the log returns the sagas that had not finished and rewrites the file
+ * with just those, so it only grows by what is in flight between restarts. A line torn by
+ * a crash has no newline yet and is ignored: its state change had not been acknowledged.
+ */
+final class SagaLog implements Closeable {
+
+    private final FileChannel channel;
+    private final List<TransferSaga> unfinished;
+    private final Object syncLock = new Object();
+    // Guarded by this
+    private long written;
+    // Guarded by syncLock
+    private long synced;
+
+    private SagaLog(FileChannel channel, List<TransferSaga> unfinished) throws IOException {
+        this.channel = channel;
+        this.unfinished = unfinished;
+        this.written = channel.size();
+        this.synced = written;
+    }
+
+    static SagaLog open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Map<String, TransferSaga> latest = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            readLines(Files.readString(file, StandardCharsets.UTF_8), latest);
+        }
+        latest.values().removeIf(saga -> saga.state.isFinal());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (TransferSaga saga : latest.values()) {
+                writer.write(line(saga, saga.state));
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new SagaLog(channel, new ArrayList<>(latest.values()));
+    }
+
+    private static void readLines(String text, Map<String, TransferSaga> latest) {
+        int start = 0;
+        for (int end = text.indexOf('\n'); end >= 0; start = end + 1, end = text.indexOf('\n', start)) {
+            String[] parts = text.substring(start, end).split(" ");
+            if (parts.length != 5) {
+                continue;
+            }
+            try {
+                TransferSaga.State state = TransferSaga.State.valueOf(parts[1]);
+                TransferSaga saga = latest.get(parts[0]);
+                if (saga == null) {
+                    latest.put(parts[0], new TransferSaga(parts[0], parts[2], parts[3], Long.parseLong(parts[4]), state));
+                } else {
+                    saga.state = state;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a line this log wrote; skip it
+            }
+        }
+    }
+
+    /** Sagas that had not finished when the log was opened, oldest first. */
+    List<TransferSaga> unfinished() {
+        return unfinished;
+    }
+
+    /** Durably records that saga has reached state. */
+    void record(TransferSaga saga, TransferSaga.State state) throws IOException {
+        long end;
+        synchronized (this) {
+            ByteBuffer bytes = ByteBuffer.wrap(line(saga, state).getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            written += bytes.capacity();
+            end = written;
+        }
+        synchronized (syncLock) {
+            if (synced >= end) {
+                // Someone else's fsync covered this line
+                return;
+            }
+            long upTo;
+            synchronized (this) {
+                upTo = written;
+            }
+            channel.force(false);
+            synced = upTo;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String line(TransferSaga saga, TransferSaga.State state) {
+        return saga.id + " " + state + " " + saga.from + " " + saga.to + " " + saga.amount + "\n";
+    }
+}
@@ -0,0 +1,49 @@
+package com.banking.server;
+
+import com.banking.model.OperationResult;
+
+/**
+ * A transfer between accounts on different partitions, run by PartitionRouter as a saga:
+ * debit the sender's partition, then credit the receiver's, and if the credit is refused,
+ * compensate by crediting the sender back. Every state is written to the SagaLog before
+ * the step it leads to is attempted, so a restarted router carries on where it stopped.
+ */
+final class TransferSaga {
+
+    enum State {
+        // Logged before the debit is sent
+        STARTED,
+        // The sender's partition applied the debit; the money is between partitions
+        DEBITED,
+        // The receiver's partition refused the credit; the debit is being credited back
+        REVERSING,
+        // Done: the receiver was credited
+        COMPLETED,
+        // Done: the debit was refused, so nothing moved
+        FAILED,
+        // Done: the sender was credited back
+        REVERSED;
+
+        boolean isFinal() {
+            return this == COMPLETED || this == FAILED || this == REVERSED;
+        }
+    }
+
+    final String id;
+    final String from;
+    final String to;
+    final long amount;
+
+    // Only changed by the thread driving the saga
+    volatile State state;
+    // Outcome of the debit once DEBITED, or why the saga failed or was reversed; not logged
+    volatile OperationResult result;
+
+    TransferSaga(String id, String from, String to, long amount, State state) {
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.state = state;
+    }
+}
@@ -0,0 +1,101 @@
+package com.banking.service;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for the account cache: lookups served from memory, accounts loaded from
+ * the account store and how long that took, and accounts evicted (written back first when
+ * they had unsaved changes). Only lookups of the account store mode are counted.
+ */
+public class AccountCacheStats {
+
+    private final AccountRegistry accounts;
+    private volatile int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAccumulator maxLoadNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+
+    AccountCacheStats(AccountRegistry accounts) {
+        this.accounts = accounts;
+    }
+
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void loaded(long nanos) {
+        loads.increment();
+        loadNanos.add(nanos);
+        maxLoadNanos.accumulate(nanos);
+    }
+
+    void evicted(boolean writtenBack) {
+        evictions.increment();
+        if (writtenBack) {
+            writeBacks.increment();
+        }
+    }
+
+    /** Most accounts kept in memory, 0 for no bound. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return accounts.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** Lookups that read the account store, including ones for accounts that do not exist. */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + loads.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public double getAverageLoadMicros() {
+        long count = loads.sum();
+        return count == 0 ? 0 : loadNanos.sum() / 1e3 / count;
+    }
+
+    public double getMaxLoadMicros() {
+        return maxLoadNanos.get() / 1e3;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** Evicted accounts that had changes not yet in the account store. */
+    public long getWriteBacks() {
+        return writeBacks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "capacity=" + capacity
+                + ", size=" + getSize()
+                + ", hits=" + getHits()
+                + ", loads=" + getLoads()
+                + ", hitRatio=" + String.format("%.4f", getHitRatio())
+                + ", averageLoadMicros=" + String.format("%.1f", getAverageLoadMicros())
+                + ", maxLoadMicros=" + String.format("%.1f", getMaxLoadMicros())
+                + ", evictions=" + getEvictions()
+                + ", writeBacks=" + getWriteBacks();
+    }
+}
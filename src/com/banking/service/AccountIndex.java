@@ -0,0 +1,405 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.BalanceObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Secondary indexes over every account, materialized or still only in the account store:
+ * holder-name word prefixes, and balance order within each account type. Balances are kept current by
+ * each account's BalanceObserver, which runs under the account's lock, so an account's
+ * index entry moves in step with its balance and never needs a rescan.
+ *
+ * Balance order is kept in fixed buckets about 0.1% wide (exact below 1024 paise), so a
+ * balance change only touches the index when it crosses into another bucket; most
+ * deposits and transfers just update the entry's balance. Queries walk the buckets in
+ * order and sort within each one.
+ *
+ * The same observer keeps running totals per account type: money held in accounts in
+ * credit, overdraft drawn by accounts below zero, and how many of each. Each balance change
+ * adds its difference to LongAdders, which stripe their cells across threads, so deposits
+ * on different accounts do not contend and reading the totals costs the same with any
+ * number of accounts.
+ *
+ * Queries are weakly consistent, like the concurrent collections underneath: each row is
+ * a balance the account really had, but an account that moves while a query walks past it
+ * may be seen at either position or, briefly, at neither. Totals read while balances are
+ * changing may include part of a transfer.
+ */
+final class AccountIndex {
+
+    // Each power of two is split into 2^SUB_BITS buckets; magnitudes below 2^SUB_BITS are exact
+    private static final int SUB_BITS = 10;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS_PER_SIGN = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+    private static final int BUCKET_COUNT = 2 * BUCKETS_PER_SIGN;
+
+    private static final Comparator<AccountSummary> ASCENDING =
+            Comparator.comparingLong(AccountSummary::getBalance).thenComparing(AccountSummary::getAccountNumber);
+
+    /** Running totals of one account type; every balance change adds its difference. */
+    private static final class Totals {
+        final LongAdder accounts = new LongAdder();
+        // Sum of the balances above zero, and of the overdrafts below it
+        final LongAdder deposits = new LongAdder();
+        final LongAdder overdraft = new LongAdder();
+        final LongAdder overdrawn = new LongAdder();
+
+        void change(long oldBalance, long newBalance) {
+            long deposited = Math.max(newBalance, 0) - Math.max(oldBalance, 0);
+            if (deposited != 0) {
+                deposits.add(deposited);
+            }
+            long drawn = Math.min(oldBalance, 0) - Math.min(newBalance, 0);
+            if (drawn != 0) {
+                overdraft.add(drawn);
+            }
+            if ((oldBalance < 0) != (newBalance < 0)) {
+                overdrawn.add(newBalance < 0 ? 1 : -1);
+            }
+        }
+    }
+
+    /** One account's place in the indexes; also the observer that moves it on balance changes. */
+    private final class Entry implements BalanceObserver {
+        final String accountNumber;
+        final String holderName;
+        final String accountType;
+        // This account type's balance buckets and totals
+        final AtomicReferenceArray<Set<Entry>> buckets;
+        final Totals totals;
+        // Lower-cased holder-name words, kept so name queries can filter without re-splitting;
+        // once indexed they are the name index's own keys, shared by every holder of the word
+        final String[] words;
+        volatile long balance;
+        int bucket;
+
+        Entry(String accountNumber, String holderName, String accountType, long balance) {
+            this.accountNumber = accountNumber;
+            this.holderName = holderName;
+            this.accountType = accountType;
+            this.buckets = bucketsFor(accountType);
+            this.totals = totalsByType.computeIfAbsent(accountType, type -> new Totals());
+            this.words = words(holderName).toArray(new String[0]);
+            this.balance = balance;
+            this.bucket = bucketOf(balance);
+        }
+
+        @Override
+        public void balanceChanged(Account account, long oldBalance, long newBalance) {
+            moveTo(newBalance);
+        }
+
+        // Callers hold the account's lock (or are loading), so moves of one entry never overlap
+        void moveTo(long newBalance) {
+            totals.change(balance, newBalance);
+            balance = newBalance;
+            int target = bucketOf(newBalance);
+            if (target != bucket) {
+                // Added before it leaves the old bucket, so the account is never missing
+                occupy(target);
+                bucket(buckets, target).add(this);
+                int old = bucket;
+                bucket = target;
+                bucket(buckets, old).remove(this);
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Account type -> balance buckets; an account is in exactly one bucket, so the type index costs nothing extra
+    private final ConcurrentHashMap<String, AtomicReferenceArray<Set<Entry>>> byTypeAndBalance = new ConcurrentHashMap<>();
+    // The same bucket arrays, for walks across all types without an iterator per bucket
+    private final List<AtomicReferenceArray<Set<Entry>>> allTypes = new CopyOnWriteArrayList<>();
+    // Bounds of the buckets ever used, so walks skip the empty ends of the balance range
+    private final AtomicInteger lowestBucket = new AtomicInteger(BUCKET_COUNT);
+    private final AtomicInteger highestBucket = new AtomicInteger(-1);
+    // Holder names share a small vocabulary, so the sorted map holds each word once and a new
+    // account is usually just added to an existing word's set
+    private final ConcurrentSkipListMap<String, Set<Entry>> byNameWord = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Totals> totalsByType = new ConcurrentHashMap<>();
+
+    // Bucket numbers rise with the balance
+    private static int bucketOf(long balance) {
+        return balance >= 0
+                ? BUCKETS_PER_SIGN + magnitudeBucket(balance)
+                : BUCKETS_PER_SIGN - 1 - magnitudeBucket(-(balance + 1));
+    }
+
+    private static int magnitudeBucket(long magnitude) {
+        if (magnitude < SUB_BUCKETS) {
+            return (int) magnitude;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(magnitude);
+        int sub = (int) (magnitude >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    private AtomicReferenceArray<Set<Entry>> bucketsFor(String accountType) {
+        AtomicReferenceArray<Set<Entry>> buckets = byTypeAndBalance.get(accountType);
+        if (buckets == null) {
+            buckets = byTypeAndBalance.computeIfAbsent(accountType, type -> {
+                AtomicReferenceArray<Set<Entry>> created = new AtomicReferenceArray<>(BUCKET_COUNT);
+                allTypes.add(created);
+                return created;
+            });
+        }
+        return buckets;
+    }
+
+    private void occupy(int bucket) {
+        if (bucket < lowestBucket.get()) {
+            lowestBucket.accumulateAndGet(bucket, Math::min);
+        }
+        if (bucket > highestBucket.get()) {
+            highestBucket.accumulateAndGet(bucket, Math::max);
+        }
+    }
+
+    private static Set<Entry> bucket(AtomicReferenceArray<Set<Entry>> buckets, int index) {
+        Set<Entry> bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, ConcurrentHashMap.newKeySet());
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+
+    /**
+     * Indexes a live account, or takes over the entry it already has from the account store,
+     * and starts following its balance.
+     */
+    void add(Account account) {
+        Entry entry = entryFor(account.getAccountNumber(), account.getAccountHolderName(),
+                account.getAccountType(), account.getBalance());
+        account.lock();
+        try {
+            entry.moveTo(account.getBalance());
+            account.setBalanceObserver(entry);
+        } finally {
+            account.unlock();
+        }
+    }
+
+    /** Drops the entry of an account whose opening could not be journaled, so was undone. */
+    void remove(Account account) {
+        Entry entry = entries.remove(account.getAccountNumber());
+        if (entry == null) {
+            return;
+        }
+        account.setBalanceObserver(null);
+        entry.totals.accounts.decrement();
+        entry.totals.change(entry.balance, 0);
+        bucket(entry.buckets, entry.bucket).remove(entry);
+        for (String word : entry.words) {
+            Set<Entry> named = byNameWord.get(word);
+            if (named != null) {
+                named.remove(entry);
+            }
+        }
+    }
+
+    /** Indexes an account that is only in the account store; add() takes over once it is loaded. */
+    void addStored(String accountNumber, String holderName, String accountType, long balance) {
+        entryFor(accountNumber, holderName, accountType, balance);
+    }
+
+    private Entry entryFor(String accountNumber, String holderName, String accountType, long balance) {
+        Entry created = new Entry(accountNumber, holderName, accountType, balance);
+        Entry existing = entries.putIfAbsent(accountNumber, created);
+        if (existing != null) {
+            return existing;
+        }
+        created.totals.accounts.increment();
+        created.totals.change(0, created.balance);
+        occupy(created.bucket);
+        bucket(created.buckets, created.bucket).add(created);
+        for (int i = 0; i < created.words.length; i++) {
+            Set<Entry> named = byNameWord.get(created.words[i]);
+            if (named == null) {
+                named = byNameWord.computeIfAbsent(created.words[i], w -> ConcurrentHashMap.newKeySet());
+            }
+            created.words[i] = byNameWord.ceilingKey(created.words[i]);
+            named.add(created);
+        }
+        return created;
+    }
+
+    /**
+     * Accounts with a holder-name word starting with each word of the query, so "ra sh"
+     * finds "Rahul Sharma". Case-insensitive. The longest query word, usually the most
+     * selective, picks the words that are walked; results are in word order.
+     */
+    List<AccountSummary> byHolderName(String query, int limit) {
+        List<String> wanted = words(query);
+        if (wanted.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String driver = wanted.get(0);
+        for (String word : wanted) {
+            if (word.length() > driver.length()) {
+                driver = word;
+            }
+        }
+        List<AccountSummary> result = new ArrayList<>();
+        Set<Entry> seen = new HashSet<>();
+        for (Set<Entry> named : byNameWord.subMap(driver, true, driver + Character.MAX_VALUE, false).values()) {
+            for (Entry entry : named) {
+                if (result.size() == limit) {
+                    return result;
+                }
+                if (matchesAll(entry.words, wanted) && seen.add(entry)) {
+                    result.add(summary(entry, entry.balance));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matchesAll(String[] nameWords, List<String> wanted) {
+        for (String prefix : wanted) {
+            boolean found = false;
+            for (String word : nameWords) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Highest balances first. */
+    List<AccountSummary> topBalances(int limit) {
+        return descending(null, limit);
+    }
+
+    /** Accounts of one type, highest balance first. */
+    List<AccountSummary> byType(String accountType, int limit) {
+        return descending(accountType.toUpperCase(Locale.ROOT), limit);
+    }
+
+    /** Balances from min to max inclusive, lowest first. */
+    List<AccountSummary> balanceRange(long min, long max, int limit) {
+        return ascending(min, max, null, limit);
+    }
+
+    /** Current accounts below zero, most overdrawn first. */
+    List<AccountSummary> overdrawn(int limit) {
+        return ascending(Long.MIN_VALUE, -1, "CURRENT", limit);
+    }
+
+    /** The running totals, summed over the account types; does not walk any accounts. */
+    BankTotals totals() {
+        Totals savings = totalsByType.get("SAVINGS");
+        Totals current = totalsByType.get("CURRENT");
+        long count = 0;
+        long overdraft = 0;
+        long overdrawn = 0;
+        for (Totals type : totalsByType.values()) {
+            count += type.accounts.sum();
+            overdraft += type.overdraft.sum();
+            overdrawn += type.overdrawn.sum();
+        }
+        return new BankTotals(count, savings == null ? 0 : savings.deposits.sum(),
+                current == null ? 0 : current.deposits.sum(), overdraft, overdrawn);
+    }
+
+    private List<AccountSummary> descending(String accountType, int limit) {
+        List<AccountSummary> result = new ArrayList<>();
+        Set<Entry> seen = new HashSet<>();
+        int lowest = lowestBucket.get();
+        for (int index = highestBucket.get(); index >= lowest && result.size() < limit; index--) {
+            List<AccountSummary> rows = rows(index, Long.MIN_VALUE, Long.MAX_VALUE, accountType, seen);
+            rows.sort(ASCENDING.reversed());
+            addUpTo(result, rows, limit);
+        }
+        return result;
+    }
+
+    private List<AccountSummary> ascending(long min, long max, String accountType, int limit) {
+        List<AccountSummary> result = new ArrayList<>();
+        if (min > max) {
+            return result;
+        }
+        Set<Entry> seen = new HashSet<>();
+        int last = Math.min(bucketOf(max), highestBucket.get());
+        for (int index = Math.max(bucketOf(min), lowestBucket.get()); index <= last && result.size() < limit; index++) {
+            List<AccountSummary> rows = rows(index, min, max, accountType, seen);
+            rows.sort(ASCENDING);
+            addUpTo(result, rows, limit);
+        }
+        return result;
+    }
+
+    // Rows of one bucket within [min, max], of one account type or all of them; an account
+    // caught mid-move may be in two buckets, so seen keeps it to the first
+    private List<AccountSummary> rows(int index, long min, long max, String accountType, Set<Entry> seen) {
+        List<AccountSummary> rows = new ArrayList<>();
+        if (accountType != null) {
+            AtomicReferenceArray<Set<Entry>> buckets = byTypeAndBalance.get(accountType);
+            if (buckets != null) {
+                addRows(rows, buckets.get(index), min, max, seen);
+            }
+        } else {
+            for (int i = 0; i < allTypes.size(); i++) {
+                addRows(rows, allTypes.get(i).get(index), min, max, seen);
+            }
+        }
+        return rows;
+    }
+
+    private static void addRows(List<AccountSummary> rows, Set<Entry> bucket, long min, long max, Set<Entry> seen) {
+        if (bucket == null) {
+            return;
+        }
+        for (Entry entry : bucket) {
+            long balance = entry.balance;
+            if (balance >= min && balance <= max && seen.add(entry)) {
+                rows.add(summary(entry, balance));
+            }
+        }
+    }
+
+    private static void addUpTo(List<AccountSummary> result, List<AccountSummary> rows, int limit) {
+        for (int i = 0; i < rows.size() && result.size() < limit; i++) {
+            result.add(rows.get(i));
+        }
+    }
+
+    private static AccountSummary summary(Entry entry, long balance) {
+        return new AccountSummary(entry.accountNumber, entry.holderName, entry.accountType, balance);
+    }
+
+    // Lower-cased runs of letters and digits
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>(3);
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,149 @@
+package com.banking.service;
+
+import com.banking.model.AccountNumbers;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands out account sequence numbers without a shared lock. Threads lease blocks of
+ * BLOCK_SIZE numbers from one atomic counter into per-thread-stripe slots and take numbers
+ * from their slot with a single CAS, so concurrent creates only meet once per block.
+ *
+ * Numbers are unique but not dense. Before a block past the persisted high-water mark is
+ * used, the mark is moved RESERVE_SIZE numbers ahead and synced, so after a crash numbers
+ * restart above anything that may have been handed out. A clean close() writes the exact
+ * mark, so a restart normally carries on without a gap.
+ */
+final class AccountNumberAllocator {
+
+    static final int FIRST_SEQUENCE = 1001;
+    private static final int BLOCK_SIZE = 64;
+    private static final int RESERVE_SIZE = 1024;
+    // Slots are spaced a cache line apart so stripes do not false-share
+    private static final int SLOT_SPACING = 8;
+
+    private final AtomicLong nextBlock = new AtomicLong(FIRST_SEQUENCE);
+    // Where numbering stood once loading finished
+    private volatile long floor = FIRST_SEQUENCE;
+    // Each slot packs a leased block as (next << 32) | end; 0 means no lease
+    private final AtomicLongArray slots;
+    private final int stripeMask;
+
+    // Where the high-water mark is kept; null for a bank that is never persisted
+    private Path markFile;
+    private volatile long reservedUpTo = Long.MAX_VALUE;
+
+    AccountNumberAllocator() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        slots = new AtomicLongArray(stripes * SLOT_SPACING);
+        stripeMask = stripes - 1;
+    }
+
+    /**
+     * Starts persisting the high-water mark in markFile, first raising the next number to
+     * the mark already stored there. Like advancePast(), only for use while loading.
+     */
+    void attach(Path markFile) throws IOException {
+        Files.createDirectories(markFile.toAbsolutePath().getParent());
+        if (Files.exists(markFile)) {
+            String stored = Files.readString(markFile, StandardCharsets.US_ASCII).trim();
+            advancePast(Long.parseLong(stored) - 1);
+        }
+        this.markFile = markFile;
+        this.reservedUpTo = nextBlock.get();
+    }
+
+    /**
+     * Makes sure numbers up to and including sequence are never handed out, e.g. for
+     * accounts found while loading. Only for use before any number has been allocated.
+     */
+    void advancePast(long sequence) {
+        floor = nextBlock.accumulateAndGet(sequence + 1, Math::max);
+    }
+
+    String next() throws IOException {
+        int slot = (int) (Thread.currentThread().threadId() & stripeMask) * SLOT_SPACING;
+        while (true) {
+            long lease = slots.get(slot);
+            long next = lease >>> 32;
+            long end = lease & 0xFFFF_FFFFL;
+            if (next < end) {
+                if (slots.compareAndSet(slot, lease, lease + (1L << 32))) {
+                    return AccountNumbers.fromSequence(next);
+                }
+                continue;
+            }
+
+            long start = nextBlock.getAndAdd(BLOCK_SIZE);
+            if (start + BLOCK_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Account numbers exhausted");
+            }
+            reserve(start + BLOCK_SIZE);
+            // If another thread refilled the slot first, this block is simply never used
+            if (slots.compareAndSet(slot, lease, (start + 1) << 32 | (start + BLOCK_SIZE))) {
+                return AccountNumbers.fromSequence(start);
+            }
+        }
+    }
+
+    private void reserve(long upTo) throws IOException {
+        if (upTo <= reservedUpTo) {
+            return;
+        }
+        synchronized (this) {
+            if (upTo > reservedUpTo) {
+                long mark = upTo + RESERVE_SIZE;
+                writeMark(mark);
+                reservedUpTo = mark;
+            }
+        }
+    }
+
+    /**
+     * One past the highest number handed out so far. Blocks that were leased but never
+     * installed in a slot, and the unused tail of each slot's block, are not counted.
+     */
+    long highWaterMark() {
+        long mark = floor;
+        for (int slot = 0; slot < slots.length(); slot += SLOT_SPACING) {
+            long lease = slots.get(slot);
+            if (lease != 0) {
+                mark = Math.max(mark, lease >>> 32);
+            }
+        }
+        return mark;
+    }
+
+    /**
+     * Writes the exact high-water mark. Must not race with next(), so it is only called
+     * once the bank is shutting down.
+     */
+    synchronized void close() throws IOException {
+        if (markFile != null) {
+            long mark = highWaterMark();
+            writeMark(mark);
+            reservedUpTo = mark;
+        }
+    }
+
+    private void writeMark(long mark) throws IOException {
+        if (markFile == null) {
+            return;
+        }
+        Path temp = markFile.resolveSibling(markFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((mark + "\n").getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        }
+        Files.move(temp, markFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,170 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The in-memory accounts, split by account number into independent maps. Each shard
+ * resizes and counts on its own, so onboarding a large batch never makes every lookup wait
+ * on one big table being rehashed, and concurrent creates rarely touch the same table.
+ *
+ * When BankService bounds the number of accounts in memory, each shard gets an equal share
+ * of the capacity and a clock hand: a second-chance approximation of LRU that sweeps the
+ * shard in table order, clearing each account's used mark and picking the first account
+ * whose mark was already clear, i.e. not looked up for a whole turn of the hand.
+ */
+final class AccountRegistry implements Iterable<Account> {
+
+    private final ConcurrentHashMap<String, Account>[] shards;
+    private final int mask;
+    private final Iterator<Account>[] hands;
+    private volatile int shardCapacity = Integer.MAX_VALUE;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    AccountRegistry() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        shards = new ConcurrentHashMap[count];
+        hands = new Iterator[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        mask = count - 1;
+    }
+
+    int shardOf(String accountNumber) {
+        // Numbers differ mostly in their last digits, so spread the hash before masking
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) * 0x9E3779B9 >>> 16 & mask;
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    private ConcurrentHashMap<String, Account> shard(String accountNumber) {
+        return shards[shardOf(accountNumber)];
+    }
+
+    /** Splits capacity evenly over the shards; 0 removes the bound. */
+    void setCapacity(int capacity) {
+        shardCapacity = capacity == 0 ? Integer.MAX_VALUE : Math.max(1, capacity / shards.length);
+    }
+
+    boolean overCapacity(int shard) {
+        return shardCapacity != Integer.MAX_VALUE && shards[shard].size() > shardCapacity;
+    }
+
+    /**
+     * Moves the shard's clock hand to the next account that was not used since the hand last
+     * passed it, clearing the marks of those that were, and returns it. Null if the shard is
+     * empty. The account is still in the registry; the caller decides whether to remove it.
+     */
+    Account evictionCandidate(int shard) {
+        ConcurrentHashMap<String, Account> accounts = shards[shard];
+        synchronized (hands) {
+            // Within two turns every mark has been cleared once
+            long steps = 2L * accounts.size() + 1;
+            Iterator<Account> hand = hands[shard];
+            for (long i = 0; i < steps; i++) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = accounts.values().iterator();
+                    if (!hand.hasNext()) {
+                        break;
+                    }
+                }
+                Account account = hand.next();
+                if (!account.clearUsed()) {
+                    hands[shard] = hand;
+                    return account;
+                }
+            }
+            hands[shard] = hand;
+            return null;
+        }
+    }
+
+    /**
+     * The registered account, or the one loader returns, which is then registered. Loading
+     * and remove() of the same account number exclude each other, so a load never reads
+     * what an eviction is still writing.
+     */
+    Account getOrLoad(String accountNumber, Function<String, Account> loader) {
+        return shard(accountNumber).computeIfAbsent(accountNumber, loader);
+    }
+
+    /**
+     * Removes the account if it is still the registered one and beforeRemove (e.g. writing
+     * it back) returns true for it; returns whether it was removed.
+     */
+    boolean remove(String accountNumber, Account account, Predicate<Account> beforeRemove) {
+        boolean[] removed = {false};
+        shard(accountNumber).computeIfPresent(accountNumber, (number, current) -> {
+            if (current != account || !beforeRemove.test(current)) {
+                return current;
+            }
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    Account get(String accountNumber) {
+        return shard(accountNumber).get(accountNumber);
+    }
+
+    void put(String accountNumber, Account account) {
+        shard(accountNumber).put(accountNumber, account);
+    }
+
+    Account putIfAbsent(String accountNumber, Account account) {
+        return shard(accountNumber).putIfAbsent(accountNumber, account);
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, Account> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Account> action) {
+        for (ConcurrentHashMap<String, Account> shard : shards) {
+            shard.values().forEach(action);
+        }
+    }
+
+    /** Weakly consistent, like the shard maps themselves. */
+    @Override
+    public Iterator<Account> iterator() {
+        return new Iterator<>() {
+            private int shard;
+            private Iterator<Account> current = shards[0].values().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (++shard == shards.length) {
+                        return false;
+                    }
+                    current = shards[shard].values().iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Account next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+}
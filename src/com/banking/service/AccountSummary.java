@@ -0,0 +1,44 @@
+package com.banking.service;
+
+import com.banking.model.Money;
+
+/**
+ * One row of an index query: who holds the account, its type, and its balance as of the
+ * moment the query read it.
+ */
+public final class AccountSummary {
+
+    private final String accountNumber;
+    private final String holderName;
+    private final String accountType;
+    private final long balance;
+
+    AccountSummary(String accountNumber, String holderName, String accountType, long balance) {
+        this.accountNumber = accountNumber;
+        this.holderName = holderName;
+        this.accountType = accountType;
+        this.balance = balance;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getHolderName() {
+        return holderName;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    /** Paise. */
+    public long getBalance() {
+        return balance;
+    }
+
+    @Override
+    public String toString() {
+        return accountNumber + " " + holderName + " " + accountType + " " + Money.format(balance);
+    }
+}
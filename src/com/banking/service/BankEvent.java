@@ -0,0 +1,94 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+
+/**
+ * Notification published by BankService to its listeners. Amounts and balances are in
+ * paise; fields that do not apply to the event type are null or zero.
+ */
+public final class BankEvent {
+
+    public enum Type {
+        ACCOUNT_CREATED,
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+        INTEREST_CREDITED,
+        // A withdrawal or transfer succeeded but left a current account below zero
+        OVERDRAFT_ENTERED,
+        // An operation failed; getResult() says why
+        REJECTED,
+        // Lifecycle information, e.g. how many accounts were loaded
+        NOTICE,
+        // A persistence failure; getMessage() holds the cause
+        ERROR
+    }
+
+    private final Type type;
+    private final OperationResult result;
+    private final String accountNumber;
+    private final String counterparty;
+    private final long amount;
+    private final long balance;
+    private final String message;
+    private final boolean standingInstruction;
+
+    BankEvent(Type type, OperationResult result, String accountNumber, String counterparty,
+              long amount, long balance, String message, boolean standingInstruction) {
+        this.type = type;
+        this.result = result;
+        this.accountNumber = accountNumber;
+        this.counterparty = counterparty;
+        this.amount = amount;
+        this.balance = balance;
+        this.message = message;
+        this.standingInstruction = standingInstruction;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public OperationResult getResult() {
+        return result;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    /** The other account of a transfer. */
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /** Balance of getAccountNumber() after the operation. */
+    public long getBalance() {
+        return balance;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * True for an event raised while standing instructions were being made, e.g. one of
+     * their transfers rejected for lack of funds. With the instruction scheduler running
+     * these come from its background thread, not from anything the user did.
+     */
+    public boolean isStandingInstruction() {
+        return standingInstruction;
+    }
+
+    @Override
+    public String toString() {
+        return type + (result != null ? " " + result : "")
+                + (accountNumber != null ? " " + accountNumber : "")
+                + (counterparty != null ? " -> " + counterparty : "")
+                + (message != null ? ": " + message : "");
+    }
+}
@@ -0,0 +1,13 @@
+package com.banking.service;
+
+/**
+ * Receives what BankService would otherwise have printed. Listeners are called on the
+ * thread that ran the operation, after its account locks are released (persistence ERROR
+ * events excepted), so they should be quick and must not block. With no listeners
+ * registered, no events are built at all.
+ */
+@FunctionalInterface
+public interface BankEventListener {
+
+    void onEvent(BankEvent event);
+}
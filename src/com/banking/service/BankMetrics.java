@@ -0,0 +1,178 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters and latency histograms for a BankService: every operation is counted by
+ * outcome (so failed withdrawals show up split by minimum-balance and overdraft-limit
+ * rejections) in striped LongAdders, and one in every latencySampleInterval operations is
+ * timed into a LatencyHistogram. Reading the clock costs about as much as the whole budget
+ * for an operation's instrumentation, so timing is sampled; persistence operations (save,
+ * load, checkpoint) are rare and always timed. INSTRUCTION_RUN counts each standing
+ * instruction tried by the outcome of its transfer, and times whole runs. Read it with
+ * snapshot(), over JMX as com.banking:type=BankMetrics once registered, or as text with
+ * dump().
+ */
+public class BankMetrics implements BankMetricsMXBean {
+
+    public enum Operation {
+        CREATE_ACCOUNT, DEPOSIT, WITHDRAW, TRANSFER, TRANSFER_LEG, BATCH, INTEREST, INTEREST_RUN, SAVE, LOAD, CHECKPOINT,
+        INSTRUCTION_RUN;
+
+        /** Name used for keys and in the dump, e.g. create-account. */
+        public String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final OperationResult[] RESULTS = OperationResult.values();
+    // Outcome slot for operations that failed on an I/O error rather than with a result
+    private static final int ERROR = RESULTS.length;
+
+    private final LongAdder[][] outcomes = new LongAdder[OPERATIONS.length][RESULTS.length + 1];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder errorsReported = new LongAdder();
+    // A power of two less one; an operation is timed when a random int has none of these bits
+    private volatile int sampleMask = DEFAULT_SAMPLE_INTERVAL - 1;
+    // False for a service that keeps no metrics at all (see BankService.disableMetrics)
+    private final boolean counting;
+
+    BankMetrics() {
+        this(true);
+    }
+
+    BankMetrics(boolean counting) {
+        this.counting = counting;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            for (int outcome = 0; outcome <= RESULTS.length; outcome++) {
+                outcomes[op][outcome] = new LongAdder();
+            }
+            latencies[op] = new LatencyHistogram();
+        }
+    }
+
+    /** Start time to pass to record(), or 0 when this operation is not one of the timed ones. */
+    long startTimer() {
+        if (!counting) {
+            return 0;
+        }
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0 ? System.nanoTime() : 0;
+    }
+
+    void record(Operation operation, OperationResult result, long start) {
+        if (!counting) {
+            return;
+        }
+        outcomes[operation.ordinal()][result.ordinal()].increment();
+        if (start != 0) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /** Times an operation without counting it, for one whose outcomes are counted one by one. */
+    void recordTime(Operation operation, long start) {
+        if (!counting) {
+            return;
+        }
+        latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    void recordError(Operation operation, long start) {
+        if (!counting) {
+            return;
+        }
+        outcomes[operation.ordinal()][ERROR].increment();
+        if (start != 0) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    void errorReported() {
+        errorsReported.increment();
+    }
+
+    long errorsReported() {
+        return errorsReported.sum();
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<Operation, OperationMetrics> operations = new EnumMap<>(Operation.class);
+        for (Operation operation : OPERATIONS) {
+            LongAdder[] counters = outcomes[operation.ordinal()];
+            Map<OperationResult, Long> byResult = new EnumMap<>(OperationResult.class);
+            for (OperationResult result : RESULTS) {
+                long count = counters[result.ordinal()].sum();
+                if (count > 0) {
+                    byResult.put(result, count);
+                }
+            }
+            LatencyHistogram histogram = latencies[operation.ordinal()];
+            operations.put(operation, new OperationMetrics(operation, byResult, counters[ERROR].sum(),
+                    histogram.counts(), histogram.totalNanos(), histogram.maxNanos()));
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), getLatencySampleInterval(),
+                errorsReported.sum(), operations);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        for (OperationMetrics metrics : snapshot().getOperations()) {
+            String prefix = metrics.getOperation().label() + ".";
+            counters.put(prefix + "count", metrics.getCount());
+            for (Map.Entry<OperationResult, Long> outcome : metrics.getOutcomes().entrySet()) {
+                counters.put(prefix + outcome.getKey(), outcome.getValue());
+            }
+            if (metrics.getErrors() > 0) {
+                counters.put(prefix + "ERROR", metrics.getErrors());
+            }
+        }
+        counters.put("errors-reported", errorsReported.sum());
+        return counters;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMicros() {
+        Map<String, Double> latencyMicros = new LinkedHashMap<>();
+        for (OperationMetrics metrics : snapshot().getOperations()) {
+            if (metrics.getTimed() == 0) {
+                continue;
+            }
+            String prefix = metrics.getOperation().label() + ".";
+            latencyMicros.put(prefix + "mean", metrics.getMeanMicros());
+            latencyMicros.put(prefix + "p50", metrics.getPercentileMicros(50));
+            latencyMicros.put(prefix + "p90", metrics.getPercentileMicros(90));
+            latencyMicros.put(prefix + "p99", metrics.getPercentileMicros(99));
+            latencyMicros.put(prefix + "p99.9", metrics.getPercentileMicros(99.9));
+            latencyMicros.put(prefix + "max", metrics.getMaxMicros());
+        }
+        return latencyMicros;
+    }
+
+    @Override
+    public int getLatencySampleInterval() {
+        return sampleMask + 1;
+    }
+
+    /** Times one in this many operations (rounded up to a power of two); 1 times all of them. */
+    @Override
+    public void setLatencySampleInterval(int interval) {
+        if (interval < 1 || interval > 1 << 30) {
+            throw new IllegalArgumentException("Sample interval must be between 1 and 2^30");
+        }
+        sampleMask = Integer.highestOneBit(interval * 2 - 1) - 1;
+    }
+
+    @Override
+    public String dump() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,20 @@
+package com.banking.service;
+
+import java.util.Map;
+
+/** JMX view of BankMetrics, registered by BankService.registerMetricsMBean(). */
+public interface BankMetricsMXBean {
+
+    /** Operation counts, then counts by outcome, keyed like deposit.count and withdraw.INSUFFICIENT_FUNDS. */
+    Map<String, Long> getCounters();
+
+    /** Sampled latencies, keyed like deposit.p99; operations never timed are left out. */
+    Map<String, Double> getLatencyMicros();
+
+    int getLatencySampleInterval();
+
+    void setLatencySampleInterval(int interval);
+
+    /** The same plain-text table as MetricsSnapshot.toString(). */
+    String dump();
+}
@@ -1,210 +1,2670 @@
 package com.banking.service;
 
 import com.banking.model.*;
+import com.banking.persistence.AccountsTextFile;
+import com.banking.persistence.ArchiveFilter;
+import com.banking.persistence.ArchiveSummary;
+import com.banking.persistence.ArchivedPosting;
+import com.banking.persistence.HistoryArchive;
+import com.banking.persistence.JournalRecord;
+import com.banking.persistence.MappedAccountStore;
+import com.banking.persistence.SnapshotFile;
+import com.banking.persistence.StatementWriter;
+import com.banking.persistence.TransactionJournal;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class BankService {
 
-    private Map<String, Account> accounts;
+    // Returned by getBalance() for unknown accounts; any real balance, overdrawn or not, is larger
+    public static final long ACCOUNT_NOT_FOUND = Long.MIN_VALUE;
+
+    private AccountRegistry accounts;
     private static final String DATA_FILE = "data/accounts.txt";
-    private int accountCounter;
+    private static final String SNAPSHOT_FILE = "data/snapshot.bin";
+    private static final String JOURNAL_DIR = "data/journal";
+    // What journal() returns for a record the journal could not take
+    private static final long NOT_JOURNALED = -1;
+    private static final String ACCOUNT_STORE_FILE = "data/accounts.dat";
+    private static final String ACCOUNT_NUMBERS_FILE = "data/account-numbers";
+    private static final String HISTORY_SPILL_DIR = "data/history";
+    private static final String TRANSFER_LEGS_FILE = "data/transfer-legs";
+    private static final String IDEMPOTENCY_KEYS_FILE = "data/idempotency-keys";
+    private static final String STANDING_INSTRUCTIONS_FILE = "data/standing-instructions";
+    private static final String HISTORY_ARCHIVE_DIR = "data/archive";
+    // accounts.txt is written in this order; for ACC numbers it is numeric order
+    private static final Comparator<String> ACCOUNT_NUMBER_ORDER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+    private final AccountNumberAllocator accountNumbers;
+    private final AccountIndex index = new AccountIndex();
+
+    private TransactionJournal journal;
+    private int journalGroupCommitSize = TransactionJournal.DEFAULT_GROUP_COMMIT_SIZE;
+    private long journalMaxDelayMillis = TransactionJournal.DEFAULT_MAX_DELAY_MILLIS;
+
+    private final Object checkpointLock = new Object();
+    private final CheckpointStats checkpointStats = new CheckpointStats();
+    private Checkpointer checkpointer;
+
+    // Copy-on-write so publishing reads a plain array with no locking or iteration garbage
+    private volatile BankEventListener[] listeners = new BankEventListener[0];
+
+    // When set, accounts live in the memory-mapped store and are only materialized into
+    // the accounts map the first time they are looked up
+    private boolean useAccountStore;
+    private MappedAccountStore store;
+
+    private static final int MIN_CACHE_CAPACITY = 4_096;
+    // Candidates a lookup tries before giving up on getting its shard back under capacity
+    private static final int EVICTION_ATTEMPTS = 8;
+    // With the account store, at most this many accounts stay materialized (0 = no bound).
+    // Evicting starts once loading is done, so journal replay never loses an account it holds.
+    private int cacheCapacity;
+    private volatile boolean evicting;
+    private final AccountCacheStats cacheStats;
+
+    private static final String METRICS_MBEAN_NAME = "com.banking:type=BankMetrics";
+    private BankMetrics metrics = new BankMetrics();
+    private ObjectName metricsMBean;
+    // Full scans checkTotals() makes before it reports running totals as wrong
+    private static final int TOTALS_CHECK_ATTEMPTS = 3;
+
+    // When set, deposits, withdrawals and transfers are applied by one writer thread per
+    // partition of accounts instead of under locks taken by each caller
+    private volatile Sequencer[] sequencers;
+    // Most commands a writer applies under one journal record
+    private static final int SEQUENCER_MAX_BATCH = 256;
+
+    // Which partition of a cluster this service is (see usePartition); one of one by default
+    private int partitionIndex;
+    private int partitionCount = 1;
+    private final TransferLegs transferLegs = new TransferLegs();
+
+    private final IdempotencyCache idempotency = new IdempotencyCache();
+
+    // Set by useVelocityRules(); null while no velocity rules apply
+    private volatile VelocityLimiter velocity;
+
+    private final StandingInstructions standing = new StandingInstructions();
+
+    // Set by useHistoryArchive(); opened by loadAccountsFromFile()
+    private boolean useHistoryArchive;
+    private HistoryArchive archive;
+    private InstructionScheduler instructionScheduler;
+    // Due instructions one worker makes its transfers for, one after the other
+    private static final int INSTRUCTION_BATCH_SIZE = 256;
+    // Set on those workers, so the events their transfers raise are marked as coming from
+    // standing instructions (see BankEvent.isStandingInstruction)
+    private static final ThreadLocal<Boolean> MAKING_INSTRUCTIONS = new ThreadLocal<>();
+
+    public BankService() {
+        this.accounts = new AccountRegistry();
+        this.accountNumbers = new AccountNumberAllocator();
+        this.cacheStats = new AccountCacheStats(accounts);
+    }
+
+    /**
+     * Sets the fsync batching used by the journal opened in loadAccountsFromFile():
+     * one fsync per groupCommitSize records, or after maxDelayMillis at the latest.
+     */
+    public void configureJournal(int groupCommitSize, long maxDelayMillis) {
+        this.journalGroupCommitSize = groupCommitSize;
+        this.journalMaxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Keeps accounts in the memory-mapped account store instead of a full snapshot. Must be
+     * called before loadAccountsFromFile().
+     */
+    public void useAccountStore() {
+        this.useAccountStore = true;
+    }
+
+    /**
+     * Keeps at most capacity accounts (but no fewer than 4,096) materialized from the account
+     * store, so the bank can hold more accounts than fit in the heap. Past that, looking up
+     * an account evicts one not used recently, writing its changes back to the store first.
+     * Accounts created since the last checkpoint are only evicted once it has stored them.
+     * Only applies with useAccountStore(); must be called before loadAccountsFromFile().
+     */
+    public void useAccountCache(int capacity) {
+        cacheCapacity = capacity == 0 ? 0 : Math.max(MIN_CACHE_CAPACITY, capacity);
+        accounts.setCapacity(cacheCapacity);
+        cacheStats.setCapacity(cacheCapacity);
+    }
+
+    public AccountCacheStats getAccountCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * Keeps only each account's last hotEntries history entries, and none older than
+     * hotDays, in memory; older history is spilled to disk and read back when viewed.
+     * maxHotBytes bounds the history kept in memory by all accounts together (0 = none).
+     * Must be called before loadAccountsFromFile(); see HistoryTiering.
+     */
+    public void useHistoryTiering(int hotEntries, int hotDays, long maxHotBytes) {
+        try {
+            HistoryTiering.enable(Paths.get(HISTORY_SPILL_DIR), hotEntries, TimeUnit.DAYS.toMillis(hotDays), maxHotBytes);
+        } catch (IOException e) {
+            error("Error preparing history spill directory, keeping all history in memory: " + e.getMessage());
+        }
+    }
+
+    public HistoryTierStats getHistoryTierStats() {
+        return HistoryTiering.stats();
+    }
+
+    /**
+     * Keeps no operation counters or latencies, so every snapshot reads zero; for measuring
+     * what the metrics cost. Must be called before the service is used.
+     */
+    public void disableMetrics() {
+        this.metrics = new BankMetrics(false);
+    }
+
+    /** Live operation counters and latencies; snapshot() them to read a consistent copy. */
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Publishes the metrics over JMX as com.banking:type=BankMetrics; only one service in
+     * the JVM can hold the name at a time. close() unregisters them.
+     */
+    public void registerMetricsMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+            server.registerMBean(metrics, name);
+            metricsMBean = name;
+        } catch (JMException e) {
+            error("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Switches deposits, withdrawals and transfers to the single-writer engine: each one is
+     * queued on the ring buffer of its account's partition (a transfer on its source
+     * account's) and applied by that partition's writer thread, which journals everything
+     * it applied in one go as a single record. Hot accounts are then only ever locked by
+     * writers, never by the callers queueing up on them. Other operations keep taking
+     * account locks, which the writers also hold while applying, so the two mix safely.
+     * Must be called before loadAccountsFromFile().
+     */
+    public void useSequencer(int partitions, int ringSize) {
+        if (partitions < 1 || sequencers != null) {
+            return;
+        }
+        Sequencer[] started = new Sequencer[partitions];
+        for (int i = 0; i < partitions; i++) {
+            started[i] = new Sequencer("sequencer-" + i, ringSize, SEQUENCER_MAX_BATCH, new SequencedBatch());
+        }
+        sequencers = started;
+    }
+
+    /**
+     * Makes this service partition index of count in a cluster (see PartitionRouter): new
+     * accounts only get numbers that AccountNumbers.partitionOf() assigns to this partition.
+     * Must be called before loadAccountsFromFile().
+     */
+    public void usePartition(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Partition " + index + " of " + count + " does not exist");
+        }
+        this.partitionIndex = index;
+        this.partitionCount = count;
+    }
+
+    /**
+     * Checks rules before every withdrawal and outgoing transfer, with the account locked,
+     * and refuses the debit with VELOCITY_LIMIT_EXCEEDED or NEW_ACCOUNT_HOLD if it would
+     * break one; null turns the checks off. Recent debits are counted in memory only: called
+     * before loadAccountsFromFile(), replaying the journal counts the ones it still holds.
+     */
+    public void useVelocityRules(VelocityRules rules) {
+        this.velocity = rules == null ? null : new VelocityLimiter(rules);
+    }
+
+    /**
+     * Archives every posting in the columnar history archive as checkpoints drop the journal
+     * segments recording it, for summarizeArchive() and searchArchive(). Postings made
+     * before it was first used are not archived. Must be called before loadAccountsFromFile().
+     */
+    public void useHistoryArchive() {
+        this.useHistoryArchive = true;
+    }
+
+    /**
+     * Remembers at most capacity idempotency keys, each for at most ttlMillis; by default a
+     * million keys for a day. A retry with a key forgotten since is applied again.
+     */
+    public void configureIdempotency(int capacity, long ttlMillis) {
+        idempotency.configure(capacity, ttlMillis);
+    }
+
+    /**
+     * Whether idempotencyKey is remembered for an earlier call, which is why a createAccount()
+     * with it and different details returns null.
+     */
+    public boolean isIdempotencyKeyUsed(String idempotencyKey) {
+        return idempotency.contains(idempotencyKey);
+    }
+
+    public String createAccount(String name, String type, long initialDeposit) {
+        return createAccount(name, type, initialDeposit, null);
+    }
+
+    /**
+     * As createAccount(name, type, initialDeposit), but a retry with the same idempotencyKey
+     * (null for none) returns the account the first call opened instead of opening another.
+     * A key already used for different details is refused with null.
+     */
+    public String createAccount(String name, String type, long initialDeposit, String idempotencyKey) {
+        long start = metrics.startTimer();
+        IdempotencyCache.Entry claim = null;
+        if (idempotencyKey != null) {
+            String request = IdempotencyCache.request("create", name, type.toUpperCase(), initialDeposit);
+            claim = idempotency.claim(idempotencyKey, request);
+            if (!claim.isOwner()) {
+                String accountNumber = claim.matches(request) ? claim.getAccountNumber() : null;
+                if (accountNumber == null) {
+                    rejected(OperationResult.IDEMPOTENCY_KEY_REUSED, null, null, initialDeposit, 0);
+                }
+                metrics.record(BankMetrics.Operation.CREATE_ACCOUNT,
+                        accountNumber != null ? OperationResult.SUCCESS : OperationResult.IDEMPOTENCY_KEY_REUSED, start);
+                return accountNumber;
+            }
+        }
+        try {
+            return doCreateAccount(name, type, initialDeposit, claim, start);
+        } finally {
+            if (claim != null) {
+                idempotency.finish(claim);
+            }
+        }
+    }
+
+    private String doCreateAccount(String name, String type, long initialDeposit, IdempotencyCache.Entry claim,
+                                   long start) {
+        if (!type.equalsIgnoreCase("SAVINGS") && !type.equalsIgnoreCase("CURRENT")) {
+            rejected(OperationResult.INVALID_ACCOUNT_TYPE, null, null, initialDeposit, 0);
+            metrics.record(BankMetrics.Operation.CREATE_ACCOUNT, OperationResult.INVALID_ACCOUNT_TYPE, start);
+            return null;
+        }
+        String accountNumber;
+        try {
+            do {
+                accountNumber = accountNumbers.next();
+            } while (partitionCount > 1 && AccountNumbers.partitionOf(accountNumber, partitionCount) != partitionIndex);
+        } catch (IOException e) {
+            error("Error allocating account number: " + e.getMessage());
+            metrics.recordError(BankMetrics.Operation.CREATE_ACCOUNT, start);
+            return null;
+        }
+        Account account = newAccount(accountNumber, name, type, initialDeposit);
+
+        // Published before it is journaled (under its lock) so a concurrent checkpoint either
+        // copies it or sees its create record land after the checkpoint cut
+        long lsn;
+        account.lock();
+        try {
+            register(account);
+            if (claim != null) {
+                claim.succeeded(OperationResult.SUCCESS, accountNumber);
+            }
+            lsn = journal(JournalRecord.create(accountNumber, name, account.getAccountType(), initialDeposit,
+                    claim != null ? claim.key : null), account);
+            if (lsn == NOT_JOURNALED) {
+                // Nobody has been given the number yet, so taking the account back is safe
+                accounts.remove(accountNumber, account, current -> true);
+                index.remove(account);
+            }
+        } finally {
+            account.unlock();
+        }
+        if (lsn == NOT_JOURNALED || !awaitDurable(lsn)) {
+            rejected(notJournaled(claim), accountNumber, null, initialDeposit, 0);
+            metrics.record(BankMetrics.Operation.CREATE_ACCOUNT, OperationResult.JOURNAL_FAILED, start);
+            return null;
+        }
+        publish(BankEvent.Type.ACCOUNT_CREATED, OperationResult.SUCCESS, accountNumber, null, initialDeposit, initialDeposit);
+        metrics.record(BankMetrics.Operation.CREATE_ACCOUNT, OperationResult.SUCCESS, start);
+        return accountNumber;
+    }
+
+    private Account newAccount(String accountNumber, String name, String type, long initialBalance) {
+        if (type.equalsIgnoreCase("SAVINGS")) {
+            return new SavingsAccount(accountNumber, name, initialBalance);
+        } else if (type.equalsIgnoreCase("CURRENT")) {
+            return new CurrentAccount(accountNumber, name, initialBalance);
+        }
+        return null;
+    }
+
+    public OperationResult deposit(String accountNumber, long amount) {
+        return deposit(accountNumber, amount, null);
+    }
+
+    /**
+     * As deposit(accountNumber, amount), but a retry with the same idempotencyKey (null for
+     * none) gets the first call's result back instead of depositing again, even across a
+     * restart. A key already used for a different request gets IDEMPOTENCY_KEY_REUSED. Only
+     * calls that succeeded are remembered; a retry of a rejected one is evaluated afresh.
+     * Same for withdraw() and transfer().
+     */
+    public OperationResult deposit(String accountNumber, long amount, String idempotencyKey) {
+        long start = metrics.startTimer();
+        OperationResult result = once(idempotencyKey, BankEvent.Type.DEPOSIT, accountNumber, null, amount);
+        metrics.record(BankMetrics.Operation.DEPOSIT, result, start);
+        return result;
+    }
+
+    // Runs a deposit, withdrawal or transfer, unless idempotencyKey says it has already run;
+    // a concurrent retry waits here until the first call is durable or rejected
+    private OperationResult once(String idempotencyKey, BankEvent.Type type, String accountNumber,
+                                 String counterparty, long amount) {
+        if (idempotencyKey == null) {
+            return run(type, accountNumber, counterparty, amount, null);
+        }
+        String operation = type == BankEvent.Type.DEPOSIT ? "deposit"
+                : type == BankEvent.Type.WITHDRAWAL ? "withdraw" : "transfer";
+        String request = IdempotencyCache.request(operation, accountNumber, counterparty, amount);
+        IdempotencyCache.Entry claim = idempotency.claim(idempotencyKey, request);
+        if (!claim.isOwner()) {
+            return claim.matches(request) ? claim.getResult()
+                    : rejected(OperationResult.IDEMPOTENCY_KEY_REUSED, accountNumber, counterparty, amount, 0);
+        }
+        try {
+            return run(type, accountNumber, counterparty, amount, claim);
+        } finally {
+            idempotency.finish(claim);
+        }
+    }
+
+    private OperationResult run(BankEvent.Type type, String accountNumber, String counterparty, long amount,
+                                IdempotencyCache.Entry claim) {
+        Sequencer[] partitions = sequencers;
+        if (partitions != null) {
+            return sequenced(partitions, type, accountNumber, counterparty, amount, claim);
+        }
+        switch (type) {
+            case DEPOSIT:
+                return doDeposit(accountNumber, amount, claim);
+            case WITHDRAWAL:
+                return doWithdraw(accountNumber, amount, claim);
+            default:
+                return doTransfer(accountNumber, counterparty, amount, claim);
+        }
+    }
+
+    private OperationResult doDeposit(String accountNumber, long amount, IdempotencyCache.Entry claim) {
+        Account account = lockCurrent(accountNumber);
+        if (account == null) {
+            return rejected(OperationResult.ACCOUNT_NOT_FOUND, accountNumber, null, amount, 0);
+        }
+
+        OperationResult result;
+        long balance;
+        long lsn = 0;
+        try {
+            result = amount > 0 ? OperationResult.SUCCESS : OperationResult.INVALID_AMOUNT;
+            if (result.isSuccess()) {
+                lsn = journal(keyed(JournalRecord.deposit(accountNumber, amount, keyOf(claim)), claim, result), account);
+                if (lsn == NOT_JOURNALED) {
+                    result = notJournaled(claim);
+                } else {
+                    account.postCredit(amount, null);
+                }
+            }
+            balance = account.getBalance();
+        } finally {
+            account.unlock();
+        }
+        if (!result.isSuccess()) {
+            return rejected(result, accountNumber, null, amount, balance);
+        }
+        if (!awaitDurable(lsn)) {
+            return rejected(notJournaled(claim), accountNumber, null, amount, balance);
+        }
+        return completed(BankEvent.Type.DEPOSIT, result, accountNumber, null, amount, balance);
+    }
+
+    public OperationResult withdraw(String accountNumber, long amount) {
+        return withdraw(accountNumber, amount, null);
+    }
+
+    public OperationResult withdraw(String accountNumber, long amount, String idempotencyKey) {
+        long start = metrics.startTimer();
+        OperationResult result = once(idempotencyKey, BankEvent.Type.WITHDRAWAL, accountNumber, null, amount);
+        metrics.record(BankMetrics.Operation.WITHDRAW, result, start);
+        return result;
+    }
+
+    private OperationResult doWithdraw(String accountNumber, long amount, IdempotencyCache.Entry claim) {
+        Account account = lockCurrent(accountNumber);
+        if (account == null) {
+            return rejected(OperationResult.ACCOUNT_NOT_FOUND, accountNumber, null, amount, 0);
+        }
+
+        OperationResult result;
+        long balance;
+        long lsn = 0;
+        try {
+            result = checkVelocity(account, false, amount);
+            if (result == OperationResult.SUCCESS) {
+                result = account.checkWithdrawal(account.getBalance(), amount);
+            }
+            if (result.isSuccess()) {
+                lsn = journal(keyed(JournalRecord.withdraw(accountNumber, amount, keyOf(claim)), claim, result), account);
+                if (lsn == NOT_JOURNALED) {
+                    result = notJournaled(claim);
+                } else {
+                    account.postDebit(amount, null);
+                    countDebit(accountNumber, amount);
+                }
+            }
+            balance = account.getBalance();
+        } finally {
+            account.unlock();
+        }
+        if (!result.isSuccess()) {
+            return rejected(result, accountNumber, null, amount, balance);
+        }
+        if (!awaitDurable(lsn)) {
+            return rejected(notJournaled(claim), accountNumber, null, amount, balance);
+        }
+        return completed(BankEvent.Type.WITHDRAWAL, result, accountNumber, null, amount, balance);
+    }
+
+    public OperationResult transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        return transfer(fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    public OperationResult transfer(String fromAccountNumber, String toAccountNumber, long amount,
+                                    String idempotencyKey) {
+        long start = metrics.startTimer();
+        OperationResult result = once(idempotencyKey, BankEvent.Type.TRANSFER, fromAccountNumber, toAccountNumber, amount);
+        metrics.record(BankMetrics.Operation.TRANSFER, result, start);
+        return result;
+    }
+
+    private OperationResult doTransfer(String fromAccountNumber, String toAccountNumber, long amount,
+                                       IdempotencyCache.Entry claim) {
+        Account fromAccount = findAccount(fromAccountNumber);
+        Account toAccount = findAccount(toAccountNumber);
+
+        if (fromAccount == null || toAccount == null) {
+            return rejected(OperationResult.ACCOUNT_NOT_FOUND, fromAccountNumber, toAccountNumber, amount, 0);
+        }
+
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            return rejected(OperationResult.SAME_ACCOUNT, fromAccountNumber, toAccountNumber, amount, 0);
+        }
+
+        OperationResult result;
+        long balance;
+        long lsn = 0;
+        Account.lockInOrder(fromAccount, toAccount);
+        while (!isCurrent(fromAccount) || !isCurrent(toAccount)) {
+            Account.unlockBoth(fromAccount, toAccount);
+            fromAccount = findAccount(fromAccountNumber);
+            toAccount = findAccount(toAccountNumber);
+            if (fromAccount == null || toAccount == null) {
+                return rejected(OperationResult.ACCOUNT_NOT_FOUND, fromAccountNumber, toAccountNumber, amount, 0);
+            }
+            Account.lockInOrder(fromAccount, toAccount);
+        }
+        try {
+            result = checkVelocity(fromAccount, true, amount);
+            if (result == OperationResult.SUCCESS) {
+                result = fromAccount.checkWithdrawal(fromAccount.getBalance(), amount);
+            }
+            if (result.isSuccess()) {
+                lsn = journal(keyed(JournalRecord.transfer(fromAccountNumber, toAccountNumber, amount, keyOf(claim)),
+                        claim, result), fromAccount);
+                if (lsn == NOT_JOURNALED) {
+                    result = notJournaled(claim);
+                } else {
+                    if (lsn != 0) {
+                        toAccount.setLastLsn(lsn);
+                    }
+                    fromAccount.postDebit(amount, toAccountNumber);
+                    toAccount.postCredit(amount, fromAccountNumber);
+                    countDebit(fromAccountNumber, amount);
+                }
+            }
+            balance = fromAccount.getBalance();
+        } finally {
+            Account.unlockBoth(fromAccount, toAccount);
+        }
+        if (!result.isSuccess()) {
+            return rejected(result, fromAccountNumber, toAccountNumber, amount, balance);
+        }
+        if (!awaitDurable(lsn)) {
+            return rejected(notJournaled(claim), fromAccountNumber, toAccountNumber, amount, balance);
+        }
+        return completed(BankEvent.Type.TRANSFER, result, fromAccountNumber, toAccountNumber, amount, balance);
+    }
+
+    /**
+     * Sending side of a transfer to an account on another partition, applied here on its own
+     * and keyed by the transfer's id: if this leg of the transfer was already applied, it is
+     * not applied again and SUCCESS is returned, so a coordinator can retry it after a
+     * timeout or crash. Same for creditTransferLeg() and reverseTransferLeg().
+     */
+    public OperationResult debitTransferLeg(String transferId, String fromAccountNumber, String toAccountNumber,
+                                            long amount) {
+        return transferLeg(JournalRecord.TRANSFER_DEBIT, transferId, fromAccountNumber, toAccountNumber, amount);
+    }
+
+    /** Receiving side of a transfer from an account on another partition. */
+    public OperationResult creditTransferLeg(String transferId, String fromAccountNumber, String toAccountNumber,
+                                             long amount) {
+        return transferLeg(JournalRecord.TRANSFER_CREDIT, transferId, toAccountNumber, fromAccountNumber, amount);
+    }
+
+    /**
+     * Compensates a debited transfer whose receiving side could not be applied: credits the
+     * amount back to the sender, recorded in its history as a reversal of the transfer.
+     */
+    public OperationResult reverseTransferLeg(String transferId, String fromAccountNumber, String toAccountNumber,
+                                              long amount) {
+        return transferLeg(JournalRecord.TRANSFER_REVERSAL, transferId, fromAccountNumber, toAccountNumber, amount);
+    }
+
+    private OperationResult transferLeg(byte type, String transferId, String accountNumber, String counterparty,
+                                        long amount) {
+        long start = metrics.startTimer();
+        OperationResult result = doTransferLeg(type, transferId, accountNumber, counterparty, amount);
+        metrics.record(BankMetrics.Operation.TRANSFER_LEG, result, start);
+        return result;
+    }
+
+    private OperationResult doTransferLeg(byte type, String transferId, String accountNumber, String counterparty,
+                                          long amount) {
+        if (amount <= 0) {
+            return rejected(OperationResult.INVALID_AMOUNT, accountNumber, counterparty, amount, 0);
+        }
+        Account account = lockCurrent(accountNumber);
+        if (account == null) {
+            return rejected(OperationResult.ACCOUNT_NOT_FOUND, accountNumber, counterparty, amount, 0);
+        }
+
+        OperationResult result;
+        long balance;
+        long lsn;
+        try {
+            if (transferLegs.contains(type, transferId)) {
+                // Applied before; wait for that to be durable rather than applying it again
+                result = OperationResult.SUCCESS;
+                lsn = account.getLastLsn();
+            } else {
+                result = OperationResult.SUCCESS;
+                if (type == JournalRecord.TRANSFER_DEBIT) {
+                    result = checkVelocity(account, true, amount);
+                    if (result == OperationResult.SUCCESS) {
+                        result = account.checkWithdrawal(account.getBalance(), amount);
+                    }
+                }
+                lsn = 0;
+                if (result.isSuccess()) {
+                    JournalRecord record = JournalRecord.transferLeg(type, transferId, accountNumber, counterparty, amount);
+                    // Remembered before it can fall behind a checkpoint cut, so that checkpoint writes it out
+                    transferLegs.add(type, transferId, record.getTimestamp());
+                    lsn = journal(record, account);
+                    if (lsn == NOT_JOURNALED) {
+                        transferLegs.remove(type, transferId);
+                        result = OperationResult.JOURNAL_FAILED;
+                    } else if (type == JournalRecord.TRANSFER_DEBIT) {
+                        account.postDebit(amount, counterparty);
+                        countDebit(accountNumber, amount);
+                    } else if (type == JournalRecord.TRANSFER_CREDIT) {
+                        account.postCredit(amount, counterparty);
+                    } else {
+                        account.reverseTransfer(counterparty, amount);
+                    }
+                }
+            }
+            balance = account.getBalance();
+        } finally {
+            account.unlock();
+        }
+        if (!result.isSuccess()) {
+            return rejected(result, accountNumber, counterparty, amount, balance);
+        }
+        if (!awaitDurable(lsn)) {
+            return rejected(OperationResult.JOURNAL_FAILED, accountNumber, counterparty, amount, balance);
+        }
+        return completed(type == JournalRecord.TRANSFER_DEBIT ? BankEvent.Type.TRANSFER : BankEvent.Type.DEPOSIT,
+                result, accountNumber, counterparty, amount, balance);
+    }
+
+    // Velocity rules for a debit about to be made from account, which is locked; SUCCESS if none apply
+    private OperationResult checkVelocity(Account account, boolean transfer, long amount) {
+        VelocityLimiter limiter = velocity;
+        return limiter == null ? OperationResult.SUCCESS
+                : limiter.check(account, transfer, amount, 0, 0, System.currentTimeMillis());
+    }
+
+    // Counts a debit just made, with its account still locked
+    private void countDebit(String accountNumber, long amount) {
+        VelocityLimiter limiter = velocity;
+        if (limiter != null) {
+            limiter.record(accountNumber, amount, System.currentTimeMillis());
+        }
+    }
+
+    private static String keyOf(IdempotencyCache.Entry claim) {
+        return claim != null ? claim.key : null;
+    }
+
+    // Records a keyed operation's success before it is journaled, under its account's lock,
+    // so a checkpoint that cuts the journal after it also writes its key out
+    private static JournalRecord keyed(JournalRecord record, IdempotencyCache.Entry claim, OperationResult result) {
+        if (claim != null) {
+            claim.succeeded(result, null);
+            record.setOutcome(result);
+        }
+        return record;
+    }
+
+    // Queues the operation on its partition's writer, then does the caller's part: waiting
+    // for the journal and publishing, exactly as the lock-based path does after unlocking
+    private OperationResult sequenced(Sequencer[] partitions, BankEvent.Type type, String accountNumber,
+                                      String counterparty, long amount, IdempotencyCache.Entry claim) {
+        Sequencer sequencer = partitions[Math.floorMod(Objects.hashCode(accountNumber), partitions.length)];
+        Sequencer.Command command = sequencer.submit(
+                new Sequencer.Command(type, accountNumber, counterparty, amount, claim));
+        if (command.failure != null) {
+            throw command.failure;
+        }
+        if (!command.result.isSuccess()) {
+            return rejected(command.result, accountNumber, counterparty, amount, command.balance);
+        }
+        if (!awaitDurable(command.lsn)) {
+            return rejected(notJournaled(claim), accountNumber, counterparty, amount, command.balance);
+        }
+        return completed(type, command.result, accountNumber, counterparty, amount, command.balance);
+    }
+
+    /**
+     * Applies the commands of one sequencer writer. Every account a run of commands touches
+     * stays locked until the single journal record covering the run is appended, so as in
+     * the lock-based path a change is always journaled before a checkpoint can copy it; the
+     * run is only posted to the accounts once that record has been appended.
+     * While holding any lock the writer only uses tryLock, so it never waits for a lock
+     * while holding one: an account locked elsewhere (a checkpoint copying it, a lock-based
+     * operation, another partition's writer) ends the run, and that command is then applied
+     * on its own, locking in account-number order like any other transfer.
+     */
+    private final class SequencedBatch implements Sequencer.Executor {
+
+        private final List<Account> held = new ArrayList<>();
+        // Balances of the held accounts with the run's commands applied, before they are posted
+        private final Map<Account, Long> working = new IdentityHashMap<>();
+        // Commands that passed their checks, and for each its account and counterparty (or null)
+        private final List<Sequencer.Command> postings = new ArrayList<>();
+        private final List<Account> posted = new ArrayList<>();
+        private final List<JournalRecord> records = new ArrayList<>();
+        private final List<Sequencer.Command> applied = new ArrayList<>();
+        private boolean blocked;
+
+        @Override
+        public void execute(Sequencer.Command[] commands, int count) {
+            for (int i = 0; i < count; i++) {
+                Sequencer.Command command = commands[i];
+                try {
+                    if (!tryApply(command)) {
+                        flush();
+                        applyAlone(command);
+                    }
+                } catch (RuntimeException e) {
+                    command.failure = e;
+                    applied.add(command);
+                }
+            }
+            flush();
+        }
+
+        // Applies the command if every account it needs is held already or free; returns
+        // false, having changed nothing, if one is locked elsewhere
+        private boolean tryApply(Sequencer.Command command) {
+            blocked = false;
+            Account account = tryHold(command.accountNumber);
+            Account counterparty = null;
+            if (account != null && command.type == BankEvent.Type.TRANSFER
+                    && !command.accountNumber.equals(command.counterparty)) {
+                counterparty = tryHold(command.counterparty);
+            }
+            if (blocked) {
+                return false;
+            }
+            apply(command, account, counterparty);
+            return true;
+        }
+
+        // The current copy of the account, now held; null if it does not exist, or if it is
+        // locked elsewhere, in which case blocked is set
+        private Account tryHold(String accountNumber) {
+            while (accountNumber != null) {
+                Account account = findAccount(accountNumber);
+                if (account == null || account.isHeldByCurrentThread()) {
+                    return account;
+                }
+                if (!account.tryLock()) {
+                    blocked = true;
+                    return null;
+                }
+                if (isCurrent(account)) {
+                    held.add(account);
+                    return account;
+                }
+                account.unlock();
+            }
+            return null;
+        }
+
+        // Called with nothing held
+        private void applyAlone(Sequencer.Command command) {
+            while (true) {
+                Account account = command.accountNumber != null ? findAccount(command.accountNumber) : null;
+                Account counterparty = command.type == BankEvent.Type.TRANSFER && command.counterparty != null
+                        ? findAccount(command.counterparty) : null;
+                if (account == null) {
+                    apply(command, null, null);
+                    return;
+                }
+                if (counterparty == null) {
+                    account.lock();
+                } else {
+                    Account.lockInOrder(account, counterparty);
+                }
+                held.add(account);
+                if (counterparty != null && counterparty != account) {
+                    held.add(counterparty);
+                }
+                if (isCurrent(account) && (counterparty == null || isCurrent(counterparty))) {
+                    apply(command, account, counterparty == account ? null : counterparty);
+                    return;
+                }
+                for (Account stale : held) {
+                    stale.unlock();
+                }
+                held.clear();
+            }
+        }
+
+        // Called with account and counterparty held; either is null if it does not exist.
+        // Only checks the command against the run's working balances; it is posted once the
+        // run's journal record has been appended
+        private void apply(Sequencer.Command command, Account account, Account counterparty) {
+            OperationResult result;
+            if (account == null) {
+                result = OperationResult.ACCOUNT_NOT_FOUND;
+            } else if (command.type == BankEvent.Type.DEPOSIT) {
+                result = command.amount > 0 ? OperationResult.SUCCESS : OperationResult.INVALID_AMOUNT;
+            } else if (command.type == BankEvent.Type.WITHDRAWAL) {
+                result = checkVelocity(account, false, command.amount);
+                if (result == OperationResult.SUCCESS) {
+                    result = account.checkWithdrawal(balanceOf(account), command.amount);
+                }
+            } else if (command.accountNumber.equals(command.counterparty)) {
+                result = OperationResult.SAME_ACCOUNT;
+            } else if (counterparty == null) {
+                result = OperationResult.ACCOUNT_NOT_FOUND;
+            } else {
+                result = checkVelocity(account, true, command.amount);
+                if (result == OperationResult.SUCCESS) {
+                    result = account.checkWithdrawal(balanceOf(account), command.amount);
+                }
+            }
+            command.result = result;
+            applied.add(command);
+            if (!result.isSuccess()) {
+                if (account != null) {
+                    command.balance = balanceOf(account);
+                }
+                return;
+            }
+            if (command.type == BankEvent.Type.DEPOSIT) {
+                working.put(account, Math.addExact(balanceOf(account), command.amount));
+            } else {
+                working.put(account, Math.subtractExact(balanceOf(account), command.amount));
+                if (counterparty != null) {
+                    working.put(counterparty, Math.addExact(balanceOf(counterparty), command.amount));
+                }
+                // Counted now so the run's later debits are checked against it
+                countDebit(command.accountNumber, command.amount);
+            }
+            command.balance = balanceOf(account);
+            postings.add(command);
+            posted.add(account);
+            posted.add(counterparty);
+            if (journal == null) {
+                if (command.claim != null) {
+                    command.claim.succeeded(result, null);
+                }
+                return;
+            }
+            String key = keyOf(command.claim);
+            switch (command.type) {
+                case DEPOSIT:
+                    records.add(keyed(JournalRecord.deposit(command.accountNumber, command.amount, key),
+                            command.claim, result));
+                    break;
+                case WITHDRAWAL:
+                    records.add(keyed(JournalRecord.withdraw(command.accountNumber, command.amount, key),
+                            command.claim, result));
+                    break;
+                default:
+                    records.add(keyed(JournalRecord.transfer(command.accountNumber, command.counterparty,
+                            command.amount, key), command.claim, result));
+                    break;
+            }
+        }
+
+        // The account's balance once the run's commands so far are posted
+        private long balanceOf(Account account) {
+            Long balance = working.get(account);
+            return balance != null ? balance : account.getBalance();
+        }
+
+        // Journals the run as one record and posts it, then releases its accounts and callers.
+        // If the journal refuses the record nothing is posted and every command in it fails
+        private void flush() {
+            long lsn = 0;
+            if (!records.isEmpty()) {
+                JournalRecord record = records.size() == 1 ? records.get(0) : JournalRecord.batch(records);
+                lsn = journal(record, posted.get(0));
+            }
+            for (int i = 0; i < postings.size(); i++) {
+                Sequencer.Command command = postings.get(i);
+                Account account = posted.get(2 * i);
+                Account counterparty = posted.get(2 * i + 1);
+                if (lsn == NOT_JOURNALED) {
+                    command.result = notJournaled(command.claim);
+                    command.balance = account.getBalance();
+                    continue;
+                }
+                switch (command.type) {
+                    case DEPOSIT:
+                        account.postCredit(command.amount, null);
+                        break;
+                    case WITHDRAWAL:
+                        account.postDebit(command.amount, null);
+                        break;
+                    default:
+                        account.postDebit(command.amount, command.counterparty);
+                        counterparty.postCredit(command.amount, command.accountNumber);
+                        break;
+                }
+                if (lsn > 0) {
+                    account.setLastLsn(lsn);
+                    if (counterparty != null) {
+                        counterparty.setLastLsn(lsn);
+                    }
+                }
+            }
+            for (Account account : held) {
+                account.unlock();
+            }
+            for (Sequencer.Command command : applied) {
+                command.complete(lsn);
+            }
+            held.clear();
+            working.clear();
+            postings.clear();
+            posted.clear();
+            records.clear();
+            applied.clear();
+        }
+    }
+
+    /**
+     * Applies many deposit, withdraw and transfer legs as one unit. Every leg is validated
+     * before anything changes, each touched account is locked once (in account-number
+     * order) for the whole batch, and the applied legs are journaled as a single record.
+     * In ALL_OR_NOTHING mode one failing leg leaves every account untouched; in INDEPENDENT
+     * mode legs are applied or rejected one by one in list order. No per-leg events are
+     * published; the result is the report.
+     */
+    public BatchResult submitBatch(List<BatchLeg> legs, BatchMode mode) {
+        long start = metrics.startTimer();
+        BatchResult batch = doSubmitBatch(legs, mode);
+        // A batch counts as the first leg that failed on its own, else ABORTED if any leg was,
+        // else SUCCESS
+        OperationResult result = OperationResult.SUCCESS;
+        for (int i = 0; i < batch.size(); i++) {
+            OperationResult status = batch.getStatus(i);
+            if (status == OperationResult.ABORTED) {
+                result = OperationResult.ABORTED;
+            } else if (!status.isSuccess()) {
+                result = status;
+                break;
+            }
+        }
+        metrics.record(BankMetrics.Operation.BATCH, result, start);
+        return batch;
+    }
+
+    private BatchResult doSubmitBatch(List<BatchLeg> legs, BatchMode mode) {
+        int count = legs.size();
+        OperationResult[] statuses = new OperationResult[count];
+        // Each touched account gets a slot; legs refer to their accounts by slot from here on
+        Map<String, Integer> slots = new HashMap<>();
+        List<Account> touched = new ArrayList<>();
+        int[] debitSlot = new int[count];
+        int[] creditSlot = new int[count];
+
+        boolean failed = false;
+        for (int i = 0; i < count; i++) {
+            BatchLeg leg = legs.get(i);
+            int account = slotOf(leg.getAccountNumber(), slots, touched);
+            int counterparty = leg.getType() == BatchLeg.Type.TRANSFER
+                    ? slotOf(leg.getCounterparty(), slots, touched) : -1;
+
+            if (leg.getAmount() <= 0) {
+                statuses[i] = OperationResult.INVALID_AMOUNT;
+            } else if (account < 0 || (leg.getType() == BatchLeg.Type.TRANSFER && counterparty < 0)) {
+                statuses[i] = OperationResult.ACCOUNT_NOT_FOUND;
+            } else if (account == counterparty) {
+                statuses[i] = OperationResult.SAME_ACCOUNT;
+            } else {
+                debitSlot[i] = leg.getType() == BatchLeg.Type.DEPOSIT ? -1 : account;
+                creditSlot[i] = leg.getType() == BatchLeg.Type.DEPOSIT ? account : counterparty;
+                continue;
+            }
+            failed = true;
+        }
+        if (failed && mode == BatchMode.ALL_OR_NOTHING) {
+            return abortBatch(statuses);
+        }
+
+        List<Account> lockOrder = lockAllCurrent(touched);
+        if (lockOrder == null) {
+            return abortBatch(statuses);
+        }
+        long lsn = 0;
+        try {
+            // Run every leg against working balances first so nothing is posted unless it fits
+            long[] working = new long[touched.size()];
+            for (int slot = 0; slot < working.length; slot++) {
+                working[slot] = touched.get(slot).getBalance();
+            }
+            // Debits each account has taken so far in this batch, for the velocity rules
+            VelocityLimiter limiter = velocity;
+            int[] batchDebits = limiter != null ? new int[touched.size()] : null;
+            long[] batchDebitAmounts = limiter != null ? new long[touched.size()] : null;
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                if (statuses[i] != null) {
+                    continue;
+                }
+                long amount = legs.get(i).getAmount();
+                int debit = debitSlot[i];
+                OperationResult result = OperationResult.SUCCESS;
+                if (debit >= 0) {
+                    if (limiter != null) {
+                        result = limiter.check(touched.get(debit), legs.get(i).getType() == BatchLeg.Type.TRANSFER,
+                                amount, batchDebits[debit], batchDebitAmounts[debit], now);
+                    }
+                    if (result == OperationResult.SUCCESS) {
+                        result = touched.get(debit).checkWithdrawal(working[debit], amount);
+                    }
+                    if (!result.isSuccess()) {
+                        statuses[i] = result;
+                        failed = true;
+                        continue;
+                    }
+                    working[debit] -= amount;
+                    if (limiter != null) {
+                        batchDebits[debit]++;
+                        batchDebitAmounts[debit] += amount;
+                    }
+                }
+                if (creditSlot[i] >= 0) {
+                    working[creditSlot[i]] = Math.addExact(working[creditSlot[i]], amount);
+                }
+                statuses[i] = result;
+            }
+            if (failed && mode == BatchMode.ALL_OR_NOTHING) {
+                return abortBatch(statuses);
+            }
+
+            // Journaled before anything is posted, so a record the journal refuses changes nothing
+            if (journal != null) {
+                List<JournalRecord> records = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    if (!statuses[i].isSuccess()) {
+                        continue;
+                    }
+                    BatchLeg leg = legs.get(i);
+                    switch (leg.getType()) {
+                        case DEPOSIT:
+                            records.add(JournalRecord.deposit(leg.getAccountNumber(), leg.getAmount()));
+                            break;
+                        case WITHDRAW:
+                            records.add(JournalRecord.withdraw(leg.getAccountNumber(), leg.getAmount()));
+                            break;
+                        default:
+                            records.add(JournalRecord.transfer(leg.getAccountNumber(), leg.getCounterparty(),
+                                    leg.getAmount()));
+                            break;
+                    }
+                }
+                if (!records.isEmpty()) {
+                    lsn = journal(JournalRecord.batch(records), lockOrder.get(0));
+                    if (lsn == NOT_JOURNALED) {
+                        return notJournaled(statuses);
+                    }
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (!statuses[i].isSuccess()) {
+                    continue;
+                }
+                BatchLeg leg = legs.get(i);
+                switch (leg.getType()) {
+                    case DEPOSIT:
+                        touched.get(creditSlot[i]).postCredit(leg.getAmount(), null);
+                        break;
+                    case WITHDRAW:
+                        touched.get(debitSlot[i]).postDebit(leg.getAmount(), null);
+                        break;
+                    default:
+                        touched.get(debitSlot[i]).postDebit(leg.getAmount(), leg.getCounterparty());
+                        touched.get(creditSlot[i]).postCredit(leg.getAmount(), leg.getAccountNumber());
+                        break;
+                }
+                if (debitSlot[i] >= 0) {
+                    if (lsn > 0) {
+                        touched.get(debitSlot[i]).setLastLsn(lsn);
+                    }
+                    if (limiter != null) {
+                        limiter.record(leg.getAccountNumber(), leg.getAmount(), now);
+                    }
+                }
+                if (creditSlot[i] >= 0 && lsn > 0) {
+                    touched.get(creditSlot[i]).setLastLsn(lsn);
+                }
+            }
+        } finally {
+            for (Account account : lockOrder) {
+                account.unlock();
+            }
+        }
+        if (!awaitDurable(lsn)) {
+            return notJournaled(statuses);
+        }
+        return new BatchResult(statuses);
+    }
+
+    // Reports every leg that was to be applied as JOURNAL_FAILED
+    private static BatchResult notJournaled(OperationResult[] statuses) {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i].isSuccess()) {
+                statuses[i] = OperationResult.JOURNAL_FAILED;
+            }
+        }
+        return new BatchResult(statuses);
+    }
+
+    // Slot of the account in touched, adding it on first sight; -1 if it does not exist
+    private int slotOf(String accountNumber, Map<String, Integer> slots, List<Account> touched) {
+        Integer slot = slots.get(accountNumber);
+        if (slot != null) {
+            return slot;
+        }
+        Account account = accountNumber != null ? findAccount(accountNumber) : null;
+        if (account == null) {
+            return -1;
+        }
+        slots.put(accountNumber, touched.size());
+        touched.add(account);
+        return touched.size() - 1;
+    }
+
+    private static BatchResult abortBatch(OperationResult[] statuses) {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == null || statuses[i].isSuccess()) {
+                statuses[i] = OperationResult.ABORTED;
+            }
+        }
+        return new BatchResult(statuses);
+    }
+
+    public long getBalance(String accountNumber) {
+        Account account = findAccount(accountNumber);
+        if (account == null) {
+            return ACCOUNT_NOT_FOUND;
+        }
+        return account.getBalance();
+    }
+
+    /** Rendered history lines, oldest first, or null if the account does not exist. */
+    public List<String> getTransactionHistory(String accountNumber) {
+        Account account = findAccount(accountNumber);
+        return account != null ? account.getTransactionHistory() : null;
+    }
+
+    /**
+     * A page of the account's history between from and to (epoch millis, inclusive), or null
+     * if the account does not exist; see Account.getTransactionHistory(long, long, int, int).
+     */
+    public HistoryPage getTransactionHistory(String accountNumber, long from, long to, int offset, int limit) {
+        Account account = findAccount(accountNumber);
+        return account != null ? account.getTransactionHistory(from, to, offset, limit) : null;
+    }
+
+    /**
+     * Streams the account's CSV statement for from..to (epoch millis, inclusive), header
+     * first, to out, which is flushed but left open. Returns the number of rows, or -1 if
+     * the account does not exist.
+     */
+    public long exportStatement(String accountNumber, long from, long to, Writer out) throws IOException {
+        Account account = findAccount(accountNumber);
+        if (account == null) {
+            return -1;
+        }
+        out.write(StatementWriter.CSV_HEADER);
+        out.write('\n');
+        long rows = StatementWriter.writeCsv(account, from, to, out);
+        out.flush();
+        return rows;
+    }
+
+    /** As above, writing UTF-8 to a channel such as a FileChannel or socket; the channel is left open. */
+    public long exportStatement(String accountNumber, long from, long to, WritableByteChannel channel) throws IOException {
+        // Flushed by the call above, not closed, since closing it would close the channel
+        Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 64 * 1024);
+        return exportStatement(accountNumber, from, to, out);
+    }
+
+    /**
+     * Month-end statement run: writes "<account number>.csv", the statement for from..to,
+     * for every account into directory, spread over the common fork-join pool. Accounts that
+     * are only in the account store are read for their statement without being materialized.
+     */
+    public StatementRunSummary exportStatements(long from, long to, Path directory) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            error("Error creating statement directory: " + e.getMessage());
+            return new StatementRunSummary(directory, 0, 0, 0, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        List<String> numbers = allAccountNumbers();
+        long[] totals = ForkJoinPool.commonPool().invoke(new StatementTask(numbers, 0, numbers.size(), from, to, directory));
+        return new StatementRunSummary(directory, totals[0], totals[1], totals[2],
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Writes the statements of a slice of accounts: {written, failed, rows}. */
+    @SuppressWarnings("serial")
+    private final class StatementTask extends RecursiveTask<long[]> {
+
+        private static final int LEAF_SIZE = 64;
+
+        private final List<String> numbers;
+        private final int fromIndex;
+        private final int toIndex;
+        private final long from;
+        private final long to;
+        private final Path directory;
+
+        StatementTask(List<String> numbers, int fromIndex, int toIndex, long from, long to, Path directory) {
+            this.numbers = numbers;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.from = from;
+            this.to = to;
+            this.directory = directory;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (toIndex - fromIndex > LEAF_SIZE) {
+                int middle = (fromIndex + toIndex) >>> 1;
+                StatementTask left = new StatementTask(numbers, fromIndex, middle, from, to, directory);
+                left.fork();
+                long[] right = new StatementTask(numbers, middle, toIndex, from, to, directory).compute();
+                long[] totals = left.join();
+                totals[0] += right[0];
+                totals[1] += right[1];
+                totals[2] += right[2];
+                return totals;
+            }
+
+            long[] totals = new long[3];
+            for (String accountNumber : numbers.subList(fromIndex, toIndex)) {
+                try {
+                    Account account = peekAccount(accountNumber);
+                    if (account == null) {
+                        continue;
+                    }
+                    try (Writer out = Files.newBufferedWriter(directory.resolve(accountNumber + ".csv"))) {
+                        out.write(StatementWriter.CSV_HEADER);
+                        out.write('\n');
+                        totals[2] += StatementWriter.writeCsv(account, from, to, out);
+                    }
+                    totals[0]++;
+                } catch (IOException e) {
+                    totals[1]++;
+                    error("Error writing statement for " + accountNumber + ": " + e.getMessage());
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Counts and sums the archived postings the filter matches, e.g. every transfer of
+     * ₹1,00,000 or more in a quarter, scanning the archive's segments in parallel without
+     * looking at any account. Postings since the last checkpoint are not archived yet.
+     */
+    public ArchiveSummary summarizeArchive(ArchiveFilter filter) throws IOException {
+        return requireArchive().summarize(filter);
+    }
+
+    /** The first limit archived postings the filter matches, oldest first. */
+    public List<ArchivedPosting> searchArchive(ArchiveFilter filter, int limit) throws IOException {
+        return requireArchive().find(filter, limit);
+    }
+
+    private HistoryArchive requireArchive() {
+        HistoryArchive current = archive;
+        if (current == null) {
+            throw new IllegalStateException("No history archive; call useHistoryArchive() before loading");
+        }
+        return current;
+    }
+
+    // Every account number, including accounts that are only in the account store
+    private List<String> allAccountNumbers() {
+        List<String> numbers = new ArrayList<>(accounts.size());
+        if (store == null) {
+            for (Account account : accounts) {
+                numbers.add(account.getAccountNumber());
+            }
+            return numbers;
+        }
+        synchronized (checkpointLock) {
+            store.forEachAccountNumber(numbers::add);
+            for (Account account : accounts) {
+                if (!store.contains(account.getAccountNumber())) {
+                    numbers.add(account.getAccountNumber());
+                }
+            }
+        }
+        return numbers;
+    }
+
+    // Like findAccount, but an account only in the account store is read without materializing it
+    private Account peekAccount(String accountNumber) throws IOException {
+        Account account = accounts.get(accountNumber);
+        if (account == null && store != null) {
+            account = store.load(accountNumber);
+        }
+        return account;
+    }
+
+    private void register(Account account) {
+        accounts.put(account.getAccountNumber(), account);
+        index.add(account);
+        account.markUsed();
+        evictIfFull(accounts.shardOf(account.getAccountNumber()));
+    }
+
+    private Account findAccount(String accountNumber) {
+        Account account = accounts.get(accountNumber);
+        if (store == null) {
+            return account;
+        }
+        if (account != null) {
+            account.markUsed();
+            cacheStats.hit();
+            return account;
+        }
+
+        Account[] loaded = new Account[1];
+        try {
+            account = accounts.getOrLoad(accountNumber, number -> {
+                long start = System.nanoTime();
+                try {
+                    loaded[0] = store.load(number);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                cacheStats.loaded(System.nanoTime() - start);
+                return loaded[0];
+            });
+        } catch (UncheckedIOException e) {
+            error("Error reading account store: " + e.getCause().getMessage());
+            return null;
+        }
+        if (account == null) {
+            return null;
+        }
+        account.markUsed();
+        if (account == loaded[0]) {
+            index.add(account);
+            evictIfFull(accounts.shardOf(accountNumber));
+        }
+        return account;
+    }
+
+    // An account can be evicted between being looked up and being locked. Once locked, a
+    // copy that is no longer the registered one must not be changed: its state is in the
+    // store, and the next lookup loads it from there.
+    private boolean isCurrent(Account account) {
+        return !evicting || accounts.get(account.getAccountNumber()) == account;
+    }
+
+    /** Looks the account up and locks it; null if it does not exist. */
+    private Account lockCurrent(String accountNumber) {
+        while (true) {
+            Account account = findAccount(accountNumber);
+            if (account == null) {
+                return null;
+            }
+            account.lock();
+            if (isCurrent(account)) {
+                return account;
+            }
+            account.unlock();
+        }
+    }
+
+    /**
+     * Locks the accounts in account-number order, first replacing in the list any that were
+     * evicted since they were looked up. Returns the accounts in lock order, or null (with
+     * nothing locked) if one of them can no longer be loaded.
+     */
+    private List<Account> lockAllCurrent(List<Account> touched) {
+        while (true) {
+            List<Account> lockOrder = new ArrayList<>(touched);
+            lockOrder.sort(Comparator.comparing(Account::getAccountNumber));
+            boolean current = true;
+            for (Account account : lockOrder) {
+                account.lock();
+                current &= isCurrent(account);
+            }
+            if (current) {
+                return lockOrder;
+            }
+            for (Account account : lockOrder) {
+                account.unlock();
+            }
+            for (int i = 0; i < touched.size(); i++) {
+                if (!isCurrent(touched.get(i))) {
+                    Account found = findAccount(touched.get(i).getAccountNumber());
+                    if (found == null) {
+                        return null;
+                    }
+                    touched.set(i, found);
+                }
+            }
+        }
+    }
+
+    private void evictIfFull(int shard) {
+        if (!evicting) {
+            return;
+        }
+        for (int attempt = 0; attempt < EVICTION_ATTEMPTS && accounts.overCapacity(shard); attempt++) {
+            Account victim = accounts.evictionCandidate(shard);
+            if (victim == null) {
+                return;
+            }
+            evict(victim);
+        }
+    }
+
+    // Brings every shard back within capacity, e.g. after loading or once a checkpoint has
+    // stored the accounts created before it
+    private void trimCache() {
+        for (int shard = 0; shard < accounts.shardCount(); shard++) {
+            int failed = 0;
+            while (failed < EVICTION_ATTEMPTS && accounts.overCapacity(shard)) {
+                Account victim = accounts.evictionCandidate(shard);
+                if (victim == null) {
+                    break;
+                }
+                if (!evict(victim)) {
+                    failed++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the account from memory, first writing it to the store if it has changes the
+     * store lacks. Skipped for accounts in use right now and for ones never stored yet,
+     * which the checkpoint adds; evicting those would change which accounts are in the
+     * store while forEachAccount() walks it.
+     */
+    private boolean evict(Account account) {
+        // A sequencer writer may look up an account while holding this one for its batch
+        if (account.isHeldByCurrentThread() || !account.tryLock()) {
+            return false;
+        }
+        try {
+            String accountNumber = account.getAccountNumber();
+            long storedLsn = store.storedLsn(accountNumber);
+            if (storedLsn < 0) {
+                return false;
+            }
+            boolean dirty = account.getLastLsn() != storedLsn;
+            boolean removed = accounts.remove(accountNumber, account, current -> {
+                if (!dirty) {
+                    return true;
+                }
+                try {
+                    // The store must never get ahead of the journal, or a crash could leave
+                    // it holding one side of a transfer whose record was lost
+                    journal.awaitDurable(current.getLastLsn());
+                    store.store(current);
+                    return true;
+                } catch (IOException e) {
+                    error("Error writing back evicted account: " + e.getMessage());
+                    return false;
+                }
+            });
+            if (removed) {
+                cacheStats.evicted(dirty);
+            }
+            return removed;
+        } finally {
+            account.unlock();
+        }
+    }
+
+    /**
+     * Accounts whose holder name has a word starting with each word of query, e.g. "ra sh"
+     * for Rahul Sharma. Like the other index queries below, this reads only the indexes, so
+     * it costs the same with millions of accounts, and covers accounts never loaded from the
+     * account store.
+     */
+    public List<AccountSummary> searchByHolderName(String query, int limit) {
+        return index.byHolderName(query, limit);
+    }
+
+    public List<AccountSummary> getTopBalances(int limit) {
+        return index.topBalances(limit);
+    }
+
+    /** Balances between min and max paise inclusive, lowest first. */
+    public List<AccountSummary> findByBalanceRange(long min, long max, int limit) {
+        return index.balanceRange(min, max, limit);
+    }
+
+    /** Current accounts in overdraft, most overdrawn first. */
+    public List<AccountSummary> findOverdrawnAccounts(int limit) {
+        return index.overdrawn(limit);
+    }
+
+    /** Accounts of one type (SAVINGS or CURRENT), highest balance first. */
+    public List<AccountSummary> findByAccountType(String accountType, int limit) {
+        return index.byType(accountType, limit);
+    }
+
+    /**
+     * Deposits, overdraft exposure and account counts, kept as running totals that every
+     * balance change updates, so this reads a few counters however many accounts there are.
+     * While money is moving the totals may include part of a transfer.
+     */
+    public BankTotals getTotals() {
+        return index.totals();
+    }
+
+    /**
+     * The same totals summed from every account's balance, spread over the common fork-join
+     * pool. Accounts that are only in the account store are read from their record, without
+     * their history.
+     */
+    public BankTotals scanTotals() {
+        // Holding the checkpoint lock keeps the store contents fixed while we walk it
+        synchronized (checkpointLock) {
+            List<String> numbers = allAccountNumbers();
+            long[] totals = ForkJoinPool.commonPool().invoke(new TotalsTask(numbers, 0, numbers.size()));
+            return new BankTotals(totals[0], totals[1], totals[2], totals[3], totals[4]);
+        }
+    }
+
+    /**
+     * Compares the running totals with a full scan and reports the outcome. Accounts are
+     * scanned one at a time, so a scan that overlaps transfers can disagree without anything
+     * being wrong; the check is repeated a few times and only a difference that every scan
+     * sees is reported. Run it while the bank is quiet to be sure.
+     */
+    public boolean checkTotals() {
+        BankTotals running = null;
+        BankTotals scanned = null;
+        for (int attempt = 0; attempt < TOTALS_CHECK_ATTEMPTS; attempt++) {
+            BankTotals before = getTotals();
+            scanned = scanTotals();
+            running = getTotals();
+            if (scanned.equals(before) || scanned.equals(running)) {
+                notice("Running totals match a scan of " + scanned.getAccounts() + " accounts.");
+                return true;
+            }
+        }
+        error("Running totals differ from a full scan: running " + running + "; scanned " + scanned);
+        return false;
+    }
+
+    /** Sums a slice of accounts: {accounts, savings deposits, current deposits, overdraft, overdrawn}. */
+    @SuppressWarnings("serial")
+    private final class TotalsTask extends RecursiveTask<long[]> {
+
+        private static final int LEAF_SIZE = 4096;
+
+        private final List<String> numbers;
+        private final int from;
+        private final int to;
+
+        TotalsTask(List<String> numbers, int from, int to) {
+            this.numbers = numbers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                TotalsTask left = new TotalsTask(numbers, from, middle);
+                left.fork();
+                long[] right = new TotalsTask(numbers, middle, to).compute();
+                long[] totals = left.join();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += right[i];
+                }
+                return totals;
+            }
+
+            long[] totals = new long[5];
+            for (String accountNumber : numbers.subList(from, to)) {
+                Account account = accounts.get(accountNumber);
+                String type;
+                long balance;
+                if (account != null) {
+                    type = account.getAccountType();
+                    balance = account.getBalance();
+                } else if (store != null && (type = store.storedType(accountNumber)) != null) {
+                    balance = store.storedBalance(accountNumber);
+                } else {
+                    continue;
+                }
+                totals[0]++;
+                if (balance >= 0) {
+                    totals[type.equals("SAVINGS") ? 1 : 2] += balance;
+                } else {
+                    totals[3] -= balance;
+                    totals[4]++;
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Visits every account once, including ones that were never materialized from the
+     * account store; those are loaded for the visit only, so changes made to them are lost.
+     */
+    public void forEachAccount(Consumer<Account> action) {
+        if (store == null) {
+            accounts.forEach(action);
+            return;
+        }
+
+        // Holding the checkpoint lock keeps the store contents fixed while we walk it
+        synchronized (checkpointLock) {
+            store.forEachAccountNumber(accountNumber -> {
+                Account account = accounts.get(accountNumber);
+                if (account == null) {
+                    try {
+                        account = store.load(accountNumber);
+                    } catch (IOException e) {
+                        error("Error reading account store: " + e.getMessage());
+                    }
+                }
+                if (account != null) {
+                    action.accept(account);
+                }
+            });
+            for (Account account : accounts) {
+                if (!store.contains(account.getAccountNumber())) {
+                    action.accept(account);
+                }
+            }
+        }
+    }
+
+    public OperationResult calculateAndAddInterest(String accountNumber) {
+        long start = metrics.startTimer();
+        OperationResult result = doCalculateAndAddInterest(accountNumber);
+        metrics.record(BankMetrics.Operation.INTEREST, result, start);
+        return result;
+    }
+
+    private OperationResult doCalculateAndAddInterest(String accountNumber) {
+        Account account = lockCurrent(accountNumber);
+
+        if (account == null) {
+            return rejected(OperationResult.ACCOUNT_NOT_FOUND, accountNumber, null, 0, 0);
+        }
+
+        long interest = 0;
+        long balance;
+        long lsn = 0;
+        try {
+            if (account instanceof SavingsAccount savingsAccount) {
+                interest = savingsAccount.interestDue();
+                lsn = journal(JournalRecord.interest(accountNumber, interest), savingsAccount);
+                if (lsn != NOT_JOURNALED) {
+                    savingsAccount.postInterest(interest);
+                }
+            }
+            balance = account.getBalance();
+        } finally {
+            account.unlock();
+        }
 
-    public BankService() {
-        this.accounts = new HashMap<>();
-        this.accountCounter = 1001;
+        if (!(account instanceof SavingsAccount)) {
+            return rejected(OperationResult.NOT_SAVINGS_ACCOUNT, accountNumber, null, 0, balance);
+        }
+        if (lsn == NOT_JOURNALED || !awaitDurable(lsn)) {
+            return rejected(OperationResult.JOURNAL_FAILED, accountNumber, null, interest, balance);
+        }
+        return completed(BankEvent.Type.INTEREST_CREDITED, OperationResult.SUCCESS, accountNumber, null, interest, balance);
     }
 
-    public String createAccount(String name, String type, double initialDeposit) {
-        String accountNumber = "ACC" + accountCounter++;
-        Account account;
+    public synchronized void addListener(BankEventListener listener) {
+        BankEventListener[] current = listeners;
+        BankEventListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
 
-        if (type.equalsIgnoreCase("SAVINGS")) {
-            account = new SavingsAccount(accountNumber, name, initialDeposit);
-        } else if (type.equalsIgnoreCase("CURRENT")) {
-            account = new CurrentAccount(accountNumber, name, initialDeposit);
-        } else {
-            return null;
+    public synchronized void removeListener(BankEventListener listener) {
+        List<BankEventListener> remaining = new ArrayList<>(Arrays.asList(listeners));
+        remaining.remove(listener);
+        listeners = remaining.toArray(new BankEventListener[0]);
+    }
+
+    // Events are only built when someone is listening, so an unobserved service does no
+    // work for them at all
+    private void publish(BankEvent.Type type, OperationResult result, String accountNumber,
+                         String counterparty, long amount, long balance) {
+        BankEventListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+        BankEvent event = new BankEvent(type, result, accountNumber, counterparty, amount, balance, null,
+                makingInstructions());
+        for (BankEventListener listener : current) {
+            listener.onEvent(event);
         }
+    }
 
-        accounts.put(accountNumber, account);
-        return accountNumber;
+    private static boolean makingInstructions() {
+        return MAKING_INSTRUCTIONS.get() != null;
     }
 
-    public boolean deposit(String accountNumber, double amount) {
-        Account account = accounts.get(accountNumber);
-        if (account == null) {
-            System.out.println("❌ Account not found!");
-            return false;
+    private OperationResult completed(BankEvent.Type type, OperationResult result, String accountNumber,
+                                      String counterparty, long amount, long balance) {
+        publish(type, result, accountNumber, counterparty, amount, balance);
+        if (result == OperationResult.OVERDRAFT_ENTERED) {
+            publish(BankEvent.Type.OVERDRAFT_ENTERED, result, accountNumber, counterparty, amount, balance);
         }
+        return result;
+    }
 
-        return account.deposit(amount);
+    // balance is the account's current balance, or 0 when it does not exist
+    private OperationResult rejected(OperationResult result, String accountNumber, String counterparty,
+                                     long amount, long balance) {
+        publish(BankEvent.Type.REJECTED, result, accountNumber, counterparty, amount, balance);
+        return result;
     }
 
-    public boolean withdraw(String accountNumber, double amount) {
-        Account account = accounts.get(accountNumber);
-        if (account == null) {
-            System.out.println("❌ Account not found!");
-            return false;
+    private void notice(String message) {
+        message(BankEvent.Type.NOTICE, message);
+    }
+
+    private void error(String message) {
+        metrics.errorReported();
+        message(BankEvent.Type.ERROR, message);
+    }
+
+    private void message(BankEvent.Type type, String message) {
+        BankEventListener[] current = listeners;
+        if (current.length == 0) {
+            return;
         }
+        BankEvent event = new BankEvent(type, null, null, null, 0, 0, message, makingInstructions());
+        for (BankEventListener listener : current) {
+            listener.onEvent(event);
+        }
+    }
+
+    /**
+     * Credits one month of interest (the annual rate / 12) to every savings account, split
+     * across the fork-join pool, without console output. Each account remembers the last period it was credited
+     * for (persisted with it and journaled with the credit), so running the same period
+     * again, e.g. after a crash part-way through, only credits the accounts that were missed.
+     */
+    public InterestRunSummary runInterest(YearMonth period) {
+        long start = System.nanoTime();
+        int periodKey = period.getYear() * 100 + period.getMonthValue();
+
+        List<String> accountNumbers = new ArrayList<>();
+        forEachAccount(account -> {
+            if (account instanceof SavingsAccount) {
+                accountNumbers.add(account.getAccountNumber());
+            }
+        });
+        // Sorted so each slice can lock its accounts in the same global order as transfers
+        Collections.sort(accountNumbers);
 
-        return account.withdraw(amount);
+        long[] totals = ForkJoinPool.commonPool().invoke(new InterestTask(accountNumbers, 0, accountNumbers.size(), periodKey));
+        OperationResult result = awaitDurable(totals[3]) ? OperationResult.SUCCESS : OperationResult.JOURNAL_FAILED;
+        metrics.record(BankMetrics.Operation.INTEREST_RUN, result, start);
+        return new InterestRunSummary(period, totals[0], totals[1], totals[2],
+                (System.nanoTime() - start) / 1_000_000);
     }
 
-    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
-        Account fromAccount = accounts.get(fromAccountNumber);
-        Account toAccount = accounts.get(toAccountNumber);
+    /**
+     * Credits a slice of accounts: {credited, skipped, interest paise, highest LSN}. Each
+     * leaf looks up and locks its slice once and journals it as one INTEREST_RUN record, so
+     * with a bounded account cache only a leaf's worth of accounts is held at a time.
+     */
+    @SuppressWarnings("serial")
+    private final class InterestTask extends RecursiveTask<long[]> {
 
-        if (fromAccount == null || toAccount == null) {
-            System.out.println("❌ One or both accounts not found!");
-            return false;
+        private static final int LEAF_SIZE = 512;
+
+        private final List<String> accountNumbers;
+        private final int from;
+        private final int to;
+        private final int period;
+
+        InterestTask(List<String> accountNumbers, int from, int to, int period) {
+            this.accountNumbers = accountNumbers;
+            this.from = from;
+            this.to = to;
+            this.period = period;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                InterestTask left = new InterestTask(accountNumbers, from, middle, period);
+                left.fork();
+                long[] right = new InterestTask(accountNumbers, middle, to, period).compute();
+                long[] totals = left.join();
+                totals[0] += right[0];
+                totals[1] += right[1];
+                totals[2] += right[2];
+                totals[3] = Math.max(totals[3], right[3]);
+                return totals;
+            }
+
+            long[] totals = new long[4];
+            List<Account> found = new ArrayList<>(to - from);
+            for (String accountNumber : accountNumbers.subList(from, to)) {
+                Account account = findAccount(accountNumber);
+                if (account instanceof SavingsAccount) {
+                    found.add(account);
+                }
+            }
+            List<Account> locked = lockAllCurrent(found);
+            if (locked == null) {
+                // Reported by the lookup; running the period again credits whatever was missed
+                return totals;
+            }
+            List<SavingsAccount> slice = new ArrayList<>(locked.size());
+            for (Account account : locked) {
+                slice.add((SavingsAccount) account);
+            }
+            try {
+                List<SavingsAccount> due = new ArrayList<>(slice.size());
+                List<JournalRecord> legs = new ArrayList<>(slice.size());
+                for (SavingsAccount account : slice) {
+                    if (account.getLastInterestPeriod() >= period) {
+                        totals[1]++;
+                        continue;
+                    }
+                    due.add(account);
+                    legs.add(JournalRecord.interest(account.getAccountNumber(), account.monthlyInterestDue()));
+                }
+                // Journaled before anything is credited; if the journal refuses the record,
+                // the slice is left for the period to be run again
+                long lsn = legs.isEmpty() ? 0 : journal(JournalRecord.interestRun(period, legs), slice.get(0));
+                if (lsn == NOT_JOURNALED) {
+                    return totals;
+                }
+                for (int i = 0; i < due.size(); i++) {
+                    SavingsAccount account = due.get(i);
+                    long interest = legs.get(i).getAmount();
+                    account.postInterest(interest);
+                    account.setLastInterestPeriod(period);
+                    if (lsn > 0) {
+                        account.setLastLsn(lsn);
+                    }
+                    totals[0]++;
+                    totals[2] += interest;
+                }
+                totals[3] = lsn;
+            } finally {
+                for (SavingsAccount account : slice) {
+                    account.unlock();
+                }
+            }
+            return totals;
         }
+    }
 
+    /**
+     * Sets up a standing instruction: amount paise from one account to another every period,
+     * starting at firstDue, occurrences times in all or, for 0, until cancelled. Returns its
+     * id, or null if it was rejected. Instructions run when runStandingInstructions() is
+     * called, or by themselves after startInstructionScheduler().
+     */
+    public String addStandingInstruction(String fromAccountNumber, String toAccountNumber, long amount,
+                                         StandingInstruction.Frequency frequency, LocalDateTime firstDue,
+                                         int occurrences) {
+        if (frequency == null || occurrences < 0) {
+            throw new IllegalArgumentException("Invalid schedule: " + frequency + " x " + occurrences);
+        }
+        if (amount <= 0) {
+            rejected(OperationResult.INVALID_AMOUNT, fromAccountNumber, toAccountNumber, amount, 0);
+            return null;
+        }
         if (fromAccountNumber.equals(toAccountNumber)) {
-            System.out.println("❌ Cannot transfer to the same account!");
+            rejected(OperationResult.SAME_ACCOUNT, fromAccountNumber, toAccountNumber, amount, 0);
+            return null;
+        }
+        if (findAccount(fromAccountNumber) == null || findAccount(toAccountNumber) == null) {
+            rejected(OperationResult.ACCOUNT_NOT_FOUND, fromAccountNumber, toAccountNumber, amount, 0);
+            return null;
+        }
+
+        long firstDueMillis = firstDue.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        StandingInstructions.Scheduled instruction = standing.create(fromAccountNumber, toAccountNumber, amount,
+                frequency, firstDueMillis, occurrences);
+        long lsn = journal(JournalRecord.standingInstruction(instruction.id, fromAccountNumber, toAccountNumber,
+                amount, instruction.schedule()));
+        if (lsn == NOT_JOURNALED || !awaitDurable(lsn)) {
+            standing.cancel(instruction.id);
+            rejected(OperationResult.JOURNAL_FAILED, fromAccountNumber, toAccountNumber, amount, 0);
+            return null;
+        }
+        standing.schedule(instruction, firstDueMillis);
+        notice("Standing instruction " + instruction.id + " set up.");
+        return instruction.id;
+    }
+
+    /**
+     * Returns false if there is no standing instruction with that id, or if its cancellation
+     * could not be journaled, in which case it stays in place.
+     */
+    public boolean cancelStandingInstruction(String instructionId) {
+        StandingInstructions.Scheduled instruction = standing.get(instructionId);
+        if (instruction == null) {
+            return false;
+        }
+        long lsn = journal(JournalRecord.instructionCancelled(instructionId, instruction.fromAccountNumber));
+        if (lsn == NOT_JOURNALED || !awaitDurable(lsn)) {
             return false;
         }
+        return standing.cancel(instructionId) != null;
+    }
 
-        return fromAccount.transfer(toAccount, amount);
+    /** Standing instructions paying out of or into the account. */
+    public List<StandingInstruction> getStandingInstructions(String accountNumber) {
+        return standing.forAccount(accountNumber);
     }
 
-    public double getBalance(String accountNumber) {
-        Account account = accounts.get(accountNumber);
-        if (account == null) {
-            return -1;
+    public int getStandingInstructionCount() {
+        return standing.size();
+    }
+
+    /**
+     * Makes the transfer of every standing instruction due at or before now, through
+     * transfer() with the key "id#occurrence" so no occurrence is paid twice. Due
+     * instructions are split into batches, each run on its own virtual thread: transfers
+     * mostly wait for the journal, and with many of them waiting at once each fsync commits
+     * a full group. A transfer rejected for lack of funds or by a limit is retried with
+     * backoff; one that can never succeed cancels its instruction.
+     */
+    public InstructionRunSummary runStandingInstructions(LocalDateTime now) {
+        return runStandingInstructions(now.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    InstructionRunSummary runStandingInstructions(long nowMillis) {
+        long start = System.nanoTime();
+        List<StandingInstructions.Scheduled> due = standing.takeDue(nowMillis);
+        List<Future<long[]>> batches = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < due.size(); from += INSTRUCTION_BATCH_SIZE) {
+                List<StandingInstructions.Scheduled> batch =
+                        due.subList(from, Math.min(due.size(), from + INSTRUCTION_BATCH_SIZE));
+                batches.add(workers.submit(() -> runInstructions(batch, nowMillis)));
+            }
         }
-        return account.getBalance();
+        long[] totals = new long[4];
+        for (Future<long[]> batch : batches) {
+            long[] counts = batch.resultNow();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counts[i];
+            }
+        }
+        metrics.recordTime(BankMetrics.Operation.INSTRUCTION_RUN, start);
+        return new InstructionRunSummary(totals[0], totals[1], totals[2], totals[3],
+                (System.nanoTime() - start) / 1_000_000);
     }
 
-    public void displayTransactionHistory(String accountNumber) {
-        Account account = accounts.get(accountNumber);
-        if (account == null) {
-            System.out.println("❌ Account not found!");
+    // Run by InstructionScheduler. The run's own events are marked, and the console does not
+    // print them in the middle of a prompt, so one notice sums up whatever was not made
+    void runDueInstructions() {
+        InstructionRunSummary summary = runStandingInstructions(System.currentTimeMillis());
+        if (summary.getRetried() + summary.getSkipped() + summary.getCancelled() > 0) {
+            notice("Standing instructions run: " + summary.getMade() + " made, " + summary.getRetried()
+                    + " to be retried, " + summary.getSkipped() + " skipped, " + summary.getCancelled() + " cancelled.");
+        }
+    }
+
+    // {made, retried, skipped, cancelled}
+    private long[] runInstructions(List<StandingInstructions.Scheduled> batch, long nowMillis) {
+        MAKING_INSTRUCTIONS.set(Boolean.TRUE);
+        try {
+            return makeInstructions(batch, nowMillis);
+        } finally {
+            MAKING_INSTRUCTIONS.remove();
+        }
+    }
+
+    private long[] makeInstructions(List<StandingInstructions.Scheduled> batch, long nowMillis) {
+        long[] totals = new long[4];
+        for (StandingInstructions.Scheduled instruction : batch) {
+            if (instruction.cancelled) {
+                continue;
+            }
+            OperationResult result = transfer(instruction.fromAccountNumber, instruction.toAccountNumber,
+                    instruction.amount, instruction.key());
+            metrics.record(BankMetrics.Operation.INSTRUCTION_RUN, result, 0);
+            switch (result) {
+                case SUCCESS:
+                case OVERDRAFT_ENTERED:
+                    standing.made(instruction);
+                    totals[0]++;
+                    break;
+                case ACCOUNT_NOT_FOUND:
+                case INVALID_AMOUNT:
+                case SAME_ACCOUNT:
+                case IDEMPOTENCY_KEY_REUSED:
+                    if (cancelStandingInstruction(instruction.id)) {
+                        notice("Standing instruction " + instruction.id + " cancelled: " + result);
+                        totals[3]++;
+                    }
+                    break;
+                default:
+                    totals[standing.failed(instruction, nowMillis) ? 1 : 2]++;
+                    break;
+            }
+        }
+        return totals;
+    }
+
+    /** Starts the background thread that runs standing instructions as they fall due. */
+    public void startInstructionScheduler() {
+        if (instructionScheduler != null) {
             return;
         }
+        instructionScheduler = new InstructionScheduler(this);
+        instructionScheduler.start();
+    }
+
+    long nextInstructionDueMillis() {
+        return standing.nextDueMillis();
+    }
+
+    // Called with the account's lock held, before the change the record describes is made
+    private long journal(JournalRecord record, Account account) {
+        long lsn = journal(record);
+        if (lsn > 0) {
+            account.setLastLsn(lsn);
+        }
+        return lsn;
+    }
+
+    // For records that change no account. Returns 0 when there is no journal, and
+    // NOT_JOURNALED when the journal refused the record: the caller must then leave
+    // everything as it was and report JOURNAL_FAILED
+    private long journal(JournalRecord record) {
+        if (journal == null) {
+            return 0;
+        }
+        try {
+            return journal.append(record);
+        } catch (IOException e) {
+            error("Error writing journal: " + e.getMessage());
+            return NOT_JOURNALED;
+        }
+    }
+
+    // False if the journal failed before lsn was synced; the operation must not be reported
+    // as done, as it may be lost on a crash
+    private boolean awaitDurable(long lsn) {
+        if (journal == null || lsn <= 0) {
+            return true;
+        }
+        try {
+            journal.awaitDurable(lsn);
+            return true;
+        } catch (IOException e) {
+            error("Error syncing journal: " + e.getMessage());
+            return false;
+        }
+    }
 
-        account.displayTransactionHistory();
+    // An operation that could not be journaled is not remembered under its idempotency key,
+    // so a retry is evaluated afresh
+    private static OperationResult notJournaled(IdempotencyCache.Entry claim) {
+        if (claim != null) {
+            claim.notJournaled();
+        }
+        return OperationResult.JOURNAL_FAILED;
     }
 
-    public void displayAllAccounts() {
-        if (accounts.isEmpty()) {
-            System.out.println("No accounts found in the system.");
+    /**
+     * Re-applies one journaled operation on top of the loaded snapshot. Only operations that
+     * succeeded were journaled, so they succeed again when replayed in order. Accounts whose
+     * snapshot copy already reflects the record (lastLsn at or past it) are left alone; for a
+     * transfer that check is made for each side separately.
+     */
+    private void applyJournalRecord(JournalRecord record) {
+        long lsn = record.getLsn();
+        restoreKey(record);
+        recountDebit(record);
+
+        if (record.getType() == JournalRecord.CREATE) {
+            accountNumbers.advancePast(AccountNumbers.toSequence(record.getAccountNumber()));
+            if (findAccount(record.getAccountNumber()) != null) {
+                return;
+            }
+            Account account = newAccount(record.getAccountNumber(), record.getHolderName(),
+                    record.getAccountType(), record.getAmount());
+            if (account != null) {
+                account.setCreatedDate(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(record.getTimestamp()), ZoneId.systemDefault()));
+                account.setLastLsn(lsn);
+                register(account);
+            }
+            return;
+        }
+
+        if (record.getType() == JournalRecord.BATCH) {
+            applyBatchRecord(record);
+            return;
+        }
+        if (record.getType() == JournalRecord.INTEREST_RUN) {
+            applyInterestRunRecord(record);
+            return;
+        }
+        if (record.getType() == JournalRecord.TRANSFER_DEBIT || record.getType() == JournalRecord.TRANSFER_CREDIT
+                || record.getType() == JournalRecord.TRANSFER_REVERSAL) {
+            applyTransferLegRecord(record);
+            return;
+        }
+        if (record.getType() == JournalRecord.STANDING_INSTRUCTION) {
+            standing.restore(record.getReference(), record.getAccountNumber(), record.getCounterparty(),
+                    record.getAmount(), record.getHolderName(), 0);
+            return;
+        }
+        if (record.getType() == JournalRecord.INSTRUCTION_CANCELLED) {
+            standing.cancel(record.getReference());
+            return;
+        }
+
+        Account account = findAccount(record.getAccountNumber());
+        if (record.getType() == JournalRecord.TRANSFER) {
+            Account toAccount = findAccount(record.getCounterparty());
+            if (account != null && account.getLastLsn() < lsn) {
+                account.debitTransfer(record.getCounterparty(), record.getAmount());
+                account.setLastLsn(lsn);
+            }
+            if (toAccount != null && toAccount.getLastLsn() < lsn) {
+                toAccount.creditTransfer(record.getAccountNumber(), record.getAmount());
+                toAccount.setLastLsn(lsn);
+            }
             return;
         }
 
-        System.out.println("\n╔════════════════════════════════════════════════════════════════════╗");
-        System.out.println("║                        ALL BANK ACCOUNTS                           ║");
-        System.out.println("╠════════════════════════════════════════════════════════════════════╣");
-        System.out.printf("║ %-12s ║ %-20s ║ %-10s ║ %-12s ║%n",
-                "A/C Number", "Holder Name", "Type", "Balance");
-        System.out.println("╠════════════════════════════════════════════════════════════════════╣");
+        if (account == null || account.getLastLsn() >= lsn) {
+            return;
+        }
 
-        for (Account account : accounts.values()) {
-            System.out.printf("║ %-12s ║ %-20s ║ %-10s ║ ₹%-11.2f ║%n",
-                    account.getAccountNumber(),
-                    truncate(account.getAccountHolderName(), 20),
-                    account.getAccountType(),
-                    account.getBalance()
-            );
+        switch (record.getType()) {
+            case JournalRecord.DEPOSIT:
+                account.deposit(record.getAmount());
+                break;
+            case JournalRecord.WITHDRAW:
+                account.withdraw(record.getAmount());
+                break;
+            case JournalRecord.INTEREST:
+                if (account instanceof SavingsAccount savings) {
+                    if (!record.hasAmount()) {
+                        savings.creditInterest();
+                        break;
+                    }
+                    savings.lock();
+                    try {
+                        savings.postInterest(record.getAmount());
+                    } finally {
+                        savings.unlock();
+                    }
+                }
+                break;
+            default:
+                break;
         }
+        account.setLastLsn(lsn);
+    }
 
-        System.out.println("╚════════════════════════════════════════════════════════════════════╝");
-        System.out.println("Total Accounts: " + accounts.size());
+    // The leg is remembered even when the account already reflects it, so it is never applied twice
+    private void applyTransferLegRecord(JournalRecord record) {
+        transferLegs.add(record.getType(), record.getReference(), record.getTimestamp());
+        Account account = findAccount(record.getAccountNumber());
+        if (account == null || account.getLastLsn() >= record.getLsn()) {
+            return;
+        }
+        switch (record.getType()) {
+            case JournalRecord.TRANSFER_DEBIT:
+                account.debitTransfer(record.getCounterparty(), record.getAmount());
+                break;
+            case JournalRecord.TRANSFER_CREDIT:
+                account.creditTransfer(record.getCounterparty(), record.getAmount());
+                break;
+            default:
+                account.reverseTransfer(record.getCounterparty(), record.getAmount());
+                break;
+        }
+        account.setLastLsn(record.getLsn());
     }
 
-    public void calculateAndAddInterest(String accountNumber) {
-        Account account = accounts.get(accountNumber);
+    /**
+     * Every leg of a batch carries the batch's LSN, so which accounts still need it is
+     * decided once, before any leg is applied.
+     */
+    private void applyBatchRecord(JournalRecord record) {
+        long lsn = record.getLsn();
+        Map<String, Account> behind = new HashMap<>();
+        for (JournalRecord leg : record.getLegs()) {
+            collectBehind(leg.getAccountNumber(), lsn, behind);
+            collectBehind(leg.getCounterparty(), lsn, behind);
+        }
 
-        if (account == null) {
-            System.out.println("❌ Account not found!");
+        for (JournalRecord leg : record.getLegs()) {
+            restoreKey(leg);
+            recountDebit(leg);
+            Account account = behind.get(leg.getAccountNumber());
+            switch (leg.getType()) {
+                case JournalRecord.DEPOSIT:
+                    if (account != null) {
+                        account.postCredit(leg.getAmount(), null);
+                    }
+                    break;
+                case JournalRecord.WITHDRAW:
+                    if (account != null) {
+                        account.postDebit(leg.getAmount(), null);
+                    }
+                    break;
+                case JournalRecord.TRANSFER:
+                    if (account != null) {
+                        account.postDebit(leg.getAmount(), leg.getCounterparty());
+                    }
+                    Account toAccount = behind.get(leg.getCounterparty());
+                    if (toAccount != null) {
+                        toAccount.postCredit(leg.getAmount(), leg.getAccountNumber());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        for (Account account : behind.values()) {
+            account.setLastLsn(lsn);
+        }
+    }
+
+    // Counted whether or not the account already reflects the record, as windows are not checkpointed
+    private void recountDebit(JournalRecord record) {
+        VelocityLimiter limiter = velocity;
+        if (limiter == null) {
             return;
         }
+        switch (record.getType()) {
+            case JournalRecord.WITHDRAW:
+            case JournalRecord.TRANSFER:
+            case JournalRecord.TRANSFER_DEBIT:
+                limiter.record(record.getAccountNumber(), record.getAmount(), record.getTimestamp());
+                break;
+            default:
+                break;
+        }
+    }
 
-        if (!(account instanceof SavingsAccount)) {
-            System.out.println("❌ Interest calculation is only available for Savings Accounts!");
+    // Keys are restored whether or not the accounts already reflect the record
+    private void restoreKey(JournalRecord record) {
+        if (record.getReference() == null) {
             return;
         }
+        switch (record.getType()) {
+            case JournalRecord.CREATE:
+                idempotency.restore(record.getReference(), IdempotencyCache.request("create", record.getHolderName(),
+                        record.getAccountType(), record.getAmount()), record.getOutcome(), record.getAccountNumber(),
+                        record.getTimestamp());
+                break;
+            case JournalRecord.DEPOSIT:
+            case JournalRecord.WITHDRAW:
+            case JournalRecord.TRANSFER:
+                String operation = record.getType() == JournalRecord.DEPOSIT ? "deposit"
+                        : record.getType() == JournalRecord.WITHDRAW ? "withdraw" : "transfer";
+                idempotency.restore(record.getReference(), IdempotencyCache.request(operation,
+                        record.getAccountNumber(), record.getCounterparty(), record.getAmount()), record.getOutcome(),
+                        null, record.getTimestamp());
+                if (record.getType() == JournalRecord.TRANSFER) {
+                    standing.replayed(record.getReference());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Journaled amounts are posted as they were, not recomputed; the period check keeps it idempotent
+    private void applyInterestRunRecord(JournalRecord record) {
+        int period = (int) record.getAmount();
+        for (JournalRecord leg : record.getLegs()) {
+            Account account = findAccount(leg.getAccountNumber());
+            if (!(account instanceof SavingsAccount savings)
+                    || savings.getLastLsn() >= record.getLsn() || savings.getLastInterestPeriod() >= period) {
+                continue;
+            }
+            savings.lock();
+            try {
+                savings.postInterest(leg.getAmount());
+                savings.setLastInterestPeriod(period);
+                savings.setLastLsn(record.getLsn());
+            } finally {
+                savings.unlock();
+            }
+        }
+    }
 
-        SavingsAccount savingsAccount = (SavingsAccount) account;
-        savingsAccount.calculateInterest();
+    private void collectBehind(String accountNumber, long lsn, Map<String, Account> behind) {
+        if (accountNumber == null || behind.containsKey(accountNumber)) {
+            return;
+        }
+        Account account = findAccount(accountNumber);
+        if (account != null && account.getLastLsn() < lsn) {
+            behind.put(accountNumber, account);
+        }
     }
 
+    /**
+     * Exports every account to accounts.txt, in account number order and rendered in
+     * parallel (see AccountsTextFile), and then checkpoints, which makes the binary snapshot
+     * current and empties the journal.
+     */
     public void saveAccountsToFile() {
+        long start = System.nanoTime();
         try {
             File directory = new File("data");
             if (!directory.exists()) {
                 directory.mkdir();
             }
 
-            try (PrintWriter writer = new PrintWriter(new FileWriter(DATA_FILE))) {
-                writer.println(accountCounter);
+            // Holding the checkpoint lock keeps the store contents fixed while we walk it
+            synchronized (checkpointLock) {
+                List<String> numbers = allAccountNumbers();
+                String[] sorted = numbers.toArray(new String[0]);
+                Arrays.parallelSort(sorted, ACCOUNT_NUMBER_ORDER);
+                AccountsTextFile.write(Paths.get(DATA_FILE), Arrays.asList(sorted), this::peekAccount);
+            }
+
+            checkpoint();
+            metrics.record(BankMetrics.Operation.SAVE, OperationResult.SUCCESS, start);
+            notice("Data saved successfully!");
+        } catch (IOException e) {
+            metrics.recordError(BankMetrics.Operation.SAVE, start);
+            error("Error saving data: " + e.getMessage());
+        }
+    }
 
-                for (Account account : accounts.values()) {
-                    writer.println(account.toFileString());
+    /**
+     * Writes a snapshot of all accounts and drops the journal segments it covers, without
+     * pausing other operations. The journal is rolled first; every record up to the cut is
+     * then guaranteed to be visible when each account is copied under its own lock.
+     * With the account store, only materialized accounts changed since they were last
+     * stored are written, after which a bounded account cache can evict the ones it had to
+     * keep because they were not stored yet. Transfer legs applied for other partitions,
+     * remembered idempotency keys and standing instructions are written out, and the
+     * postings journaled moved to the history archive, before the segments recording them
+     * are dropped. Velocity windows with no recent debits left are dropped afterwards.
+     */
+    public void checkpoint() {
+        if (journal == null) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            long start = System.nanoTime();
+            try {
+                long cutLsn = journal.rollSegment();
+                long bytes = store != null
+                        ? writeDirtyAccounts(cutLsn)
+                        : SnapshotFile.write(Paths.get(SNAPSHOT_FILE), cutLsn,
+                                (int) accountNumbers.highWaterMark(), accounts);
+                // The journal is all that records the older legs until this is written
+                transferLegs.write(Paths.get(TRANSFER_LEGS_FILE), System.currentTimeMillis());
+                idempotency.write(Paths.get(IDEMPOTENCY_KEYS_FILE));
+                standing.write(Paths.get(STANDING_INSTRUCTIONS_FILE));
+                if (archive != null) {
+                    archive.archive(journal, cutLsn);
                 }
+                journal.deleteSegmentsUpTo(cutLsn);
+                checkpointStats.record((System.nanoTime() - start) / 1_000_000, bytes, cutLsn);
+                metrics.record(BankMetrics.Operation.CHECKPOINT, OperationResult.SUCCESS, start);
+            } catch (IOException e) {
+                metrics.recordError(BankMetrics.Operation.CHECKPOINT, start);
+                error("Error writing checkpoint: " + e.getMessage());
+            }
+        }
+        if (evicting) {
+            trimCache();
+        }
+        VelocityLimiter limiter = velocity;
+        if (limiter != null) {
+            limiter.prune(System.currentTimeMillis());
+        }
+    }
 
-                System.out.println("✅ Data saved successfully!");
+    private long writeDirtyAccounts(long cutLsn) throws IOException {
+        long bytes = 0;
+        for (Account account : accounts) {
+            account.lock();
+            try {
+                if (account.getLastLsn() != store.storedLsn(account.getAccountNumber())) {
+                    bytes += Math.max(0, store.store(account));
+                }
+            } finally {
+                account.unlock();
             }
+        }
+        store.commit(cutLsn, (int) accountNumbers.highWaterMark());
+        return bytes;
+    }
+
+    /**
+     * Starts the background checkpointer. A checkpoint runs once the journal reaches
+     * maxJournalBytes or maxIntervalMillis has passed; zero disables either trigger.
+     */
+    public void startCheckpointer(long maxJournalBytes, long maxIntervalMillis) {
+        if (checkpointer != null) {
+            return;
+        }
+        checkpointer = new Checkpointer(this, maxJournalBytes, maxIntervalMillis);
+        checkpointer.start();
+    }
+
+    public CheckpointStats getCheckpointStats() {
+        return checkpointStats;
+    }
+
+    long getJournalSize() {
+        if (journal == null) {
+            return 0;
+        }
+        try {
+            return journal.size();
         } catch (IOException e) {
-            System.out.println("❌ Error saving data: " + e.getMessage());
+            return 0;
         }
     }
 
+    /** Counted as a failed load in the metrics if anything went wrong while loading. */
     public void loadAccountsFromFile() {
+        long start = System.nanoTime();
+        long errorsBefore = metrics.errorsReported();
+        loadAccounts();
+        // Only now is it known which occurrences the journal says were made
+        standing.scheduleAll();
+        if (metrics.errorsReported() == errorsBefore) {
+            metrics.record(BankMetrics.Operation.LOAD, OperationResult.SUCCESS, start);
+        } else {
+            metrics.recordError(BankMetrics.Operation.LOAD, start);
+        }
+        // Without a journal nothing records what an evicted account's changes were
+        if (cacheCapacity > 0 && store != null && journal != null) {
+            evicting = true;
+            trimCache();
+        }
+    }
+
+    private void loadAccounts() {
+        try {
+            accountNumbers.attach(Paths.get(ACCOUNT_NUMBERS_FILE));
+        } catch (IOException | NumberFormatException e) {
+            error("Error reading account numbers: " + e.getMessage());
+        }
+        try {
+            transferLegs.load(Paths.get(TRANSFER_LEGS_FILE));
+        } catch (IOException | NumberFormatException e) {
+            error("Error reading transfer legs: " + e.getMessage());
+        }
+        try {
+            idempotency.load(Paths.get(IDEMPOTENCY_KEYS_FILE));
+        } catch (IOException | RuntimeException e) {
+            error("Error reading idempotency keys: " + e.getMessage());
+        }
+        try {
+            standing.load(Paths.get(STANDING_INSTRUCTIONS_FILE));
+        } catch (IOException | RuntimeException e) {
+            error("Error reading standing instructions: " + e.getMessage());
+        }
+        if (useHistoryArchive) {
+            try {
+                archive = HistoryArchive.open(Paths.get(HISTORY_ARCHIVE_DIR));
+            } catch (IOException e) {
+                error("Error opening history archive: " + e.getMessage());
+            }
+        }
+
+        if (useAccountStore && openAccountStore()) {
+            return;
+        }
+
+        File snapshot = new File(SNAPSHOT_FILE);
+        if (snapshot.exists()) {
+            loadSnapshot(snapshot);
+            return;
+        }
+
         File file = new File(DATA_FILE);
         if (!file.exists()) {
-            System.out.println("📝 No previous data found. Starting fresh!");
+            if (!new File(JOURNAL_DIR).exists()) {
+                notice("No previous data found. Starting fresh!");
+            }
+            openJournal(0);
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(DATA_FILE))) {
-            String line = reader.readLine();
-            if (line != null) {
-                accountCounter = Integer.parseInt(line);
+        try {
+            long nextAccountNumber = AccountsTextFile.read(file.toPath(), account -> {
+                register(account);
+                accountNumbers.advancePast(AccountNumbers.toSequence(account.getAccountNumber()));
+            });
+            if (nextAccountNumber > 0) {
+                accountNumbers.advancePast(nextAccountNumber - 1);
             }
+            notice("Loaded " + accounts.size() + " accounts from file.");
+        } catch (IOException | RuntimeException e) {
+            error("Error loading data: " + e.getMessage());
+        }
 
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 5) {
-                    String accNum = parts[0];
-                    String name = parts[1];
-                    double balance = Double.parseDouble(parts[2]);
-                    String type = parts[3];
-                    LocalDateTime createdDate = LocalDateTime.parse(parts[4]);
-
-                    Account account;
-                    if (type.equals("SAVINGS")) {
-                        account = new SavingsAccount(accNum, name, balance);
-                    } else {
-                        account = new CurrentAccount(accNum, name, balance);
-                    }
+        openJournal(0);
+    }
 
-                    account.setCreatedDate(createdDate);
+    /**
+     * Opens the account store. If it already holds a checkpoint, only the journal tail is
+     * replayed (materializing just the accounts it touches) and true is returned; otherwise
+     * the caller falls back to loading a snapshot or accounts.txt, and the first checkpoint
+     * moves those accounts into the store.
+     */
+    private boolean openAccountStore() {
+        try {
+            store = MappedAccountStore.open(Paths.get(ACCOUNT_STORE_FILE));
+        } catch (IOException e) {
+            error("Error opening account store: " + e.getMessage());
+            return false;
+        }
+        if (store.count() == 0 && store.getCheckpointLsn() == 0) {
+            return false;
+        }
 
-                    if (parts.length > 5 && !parts[5].isEmpty()) {
-                        List<String> transactions = Arrays.asList(parts[5].split(";;"));
-                        account.setTransactionHistory(transactions);
-                    }
+        try {
+            store.forEachRecord(index::addStored);
+        } catch (IOException e) {
+            error("Error indexing account store: " + e.getMessage());
+        }
+        accountNumbers.advancePast(store.getAccountCounter() - 1);
+        notice("Opened account store with " + store.count() + " accounts.");
+        openJournal(store.getCheckpointLsn());
+        return true;
+    }
 
-                    accounts.put(accNum, account);
-                }
+    private void loadSnapshot(File snapshotFile) {
+        long checkpointLsn = 0;
+        try {
+            SnapshotFile.Snapshot snapshot = SnapshotFile.read(snapshotFile.toPath());
+            for (Account account : snapshot.getAccounts()) {
+                register(account);
             }
+            accountNumbers.advancePast(snapshot.getAccountCounter() - 1);
+            checkpointLsn = snapshot.getCheckpointLsn();
+            notice("Loaded " + accounts.size() + " accounts from snapshot.");
+        } catch (IOException e) {
+            error("Error loading snapshot: " + e.getMessage());
+        }
 
-            System.out.println("✅ Loaded " + accounts.size() + " accounts from file.");
+        openJournal(checkpointLsn);
+    }
+
+    private void openJournal(long baseLsn) {
+        int[] replayed = {0};
+        try {
+            journal = TransactionJournal.open(Paths.get(JOURNAL_DIR), baseLsn, journalGroupCommitSize, journalMaxDelayMillis,
+                    record -> {
+                        // History entries get the time the operation originally committed
+                        Account.setEffectiveTimestamp(record.getTimestamp());
+                        try {
+                            applyJournalRecord(record);
+                        } finally {
+                            Account.setEffectiveTimestamp(0);
+                        }
+                        replayed[0]++;
+                    });
+            if (replayed[0] > 0) {
+                notice("Replayed " + replayed[0] + " journaled operations.");
+            }
         } catch (IOException e) {
-            System.out.println("⚠️  Error loading data: " + e.getMessage());
+            error("Error opening journal: " + e.getMessage());
         }
     }
 
-    private String truncate(String str, int length) {
-        if (str.length() <= length) {
-            return str;
+    /**
+     * Stops the checkpointer and instruction scheduler, flushes and closes the journal and
+     * account store, and records exactly where account numbering stopped.
+     */
+    public void close() {
+        if (checkpointer != null) {
+            checkpointer.stop();
+            checkpointer = null;
+        }
+        if (instructionScheduler != null) {
+            instructionScheduler.stop();
+            instructionScheduler = null;
+        }
+        Sequencer[] partitions = sequencers;
+        if (partitions != null) {
+            // Back to the lock-based path for anything still coming in
+            sequencers = null;
+            for (Sequencer sequencer : partitions) {
+                sequencer.stop();
+            }
+        }
+        if (metricsMBean != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsMBean);
+            } catch (JMException e) {
+                error("Error unregistering metrics MBean: " + e.getMessage());
+            }
+            metricsMBean = null;
+        }
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+        } catch (IOException e) {
+            error("Error closing journal: " + e.getMessage());
+        }
+        try {
+            accountNumbers.close();
+        } catch (IOException e) {
+            error("Error saving account numbers: " + e.getMessage());
         }
-        return str.substring(0, length - 3) + "...";
     }
 
     public int getTotalAccounts() {
-        return accounts.size();
+        if (store == null) {
+            return accounts.size();
+        }
+        long total = store.count();
+        for (Account account : accounts) {
+            if (!store.contains(account.getAccountNumber())) {
+                total++;
+            }
+        }
+        return (int) total;
     }
 }
\ No newline at end of file
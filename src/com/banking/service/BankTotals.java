@@ -0,0 +1,82 @@
+package com.banking.service;
+
+import com.banking.model.Money;
+
+/**
+ * Bank-wide totals, in paise: what accounts in credit hold (the bank's liabilities to its
+ * customers), split by account type, and what accounts in overdraft have drawn (its
+ * exposure). From BankService.getTotals(), or from a full scan by BankService.scanTotals().
+ */
+public final class BankTotals {
+
+    private final long accounts;
+    private final long savingsDeposits;
+    private final long currentDeposits;
+    private final long overdraftExposure;
+    private final long overdrawnAccounts;
+
+    BankTotals(long accounts, long savingsDeposits, long currentDeposits,
+               long overdraftExposure, long overdrawnAccounts) {
+        this.accounts = accounts;
+        this.savingsDeposits = savingsDeposits;
+        this.currentDeposits = currentDeposits;
+        this.overdraftExposure = overdraftExposure;
+        this.overdrawnAccounts = overdrawnAccounts;
+    }
+
+    public long getAccounts() {
+        return accounts;
+    }
+
+    /** Sum of savings balances. */
+    public long getSavingsDeposits() {
+        return savingsDeposits;
+    }
+
+    /** Sum of current account balances above zero. */
+    public long getCurrentDeposits() {
+        return currentDeposits;
+    }
+
+    /** Sum of balances above zero: what the bank owes its customers. */
+    public long getTotalDeposits() {
+        return savingsDeposits + currentDeposits;
+    }
+
+    /** Overdraft drawn, as a positive amount. */
+    public long getOverdraftExposure() {
+        return overdraftExposure;
+    }
+
+    public long getOverdrawnAccounts() {
+        return overdrawnAccounts;
+    }
+
+    /** Sum of all balances: deposits less overdraft. */
+    public long getNetBalance() {
+        return getTotalDeposits() - overdraftExposure;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BankTotals)) {
+            return false;
+        }
+        BankTotals that = (BankTotals) other;
+        return accounts == that.accounts && savingsDeposits == that.savingsDeposits
+                && currentDeposits == that.currentDeposits && overdraftExposure == that.overdraftExposure
+                && overdrawnAccounts == that.overdrawnAccounts;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(accounts) * 31 + Long.hashCode(getNetBalance());
+    }
+
+    @Override
+    public String toString() {
+        return accounts + " accounts, deposits ₹" + Money.format(getTotalDeposits())
+                + " (savings ₹" + Money.format(savingsDeposits) + ", current ₹" + Money.format(currentDeposits)
+                + "), overdraft ₹" + Money.format(overdraftExposure) + " in " + overdrawnAccounts + " accounts";
+    }
+}
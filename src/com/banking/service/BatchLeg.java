@@ -0,0 +1,55 @@
+package com.banking.service;
+
+/**
+ * One posting in a batch submitted to BankService.submitBatch(). Amounts are in paise.
+ */
+public final class BatchLeg {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER
+    }
+
+    private final Type type;
+    private final String accountNumber;
+    private final String counterparty;
+    private final long amount;
+
+    private BatchLeg(Type type, String accountNumber, String counterparty, long amount) {
+        this.type = type;
+        this.accountNumber = accountNumber;
+        this.counterparty = counterparty;
+        this.amount = amount;
+    }
+
+    public static BatchLeg deposit(String accountNumber, long amount) {
+        return new BatchLeg(Type.DEPOSIT, accountNumber, null, amount);
+    }
+
+    public static BatchLeg withdraw(String accountNumber, long amount) {
+        return new BatchLeg(Type.WITHDRAW, accountNumber, null, amount);
+    }
+
+    public static BatchLeg transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        return new BatchLeg(Type.TRANSFER, fromAccountNumber, toAccountNumber, amount);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /** The account debited or credited; the sending account for a transfer. */
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    /** The receiving account of a transfer, otherwise null. */
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,8 @@
+package com.banking.service;
+
+public enum BatchMode {
+    // Either every leg is applied or none is
+    ALL_OR_NOTHING,
+    // Each leg is applied or rejected on its own, in list order
+    INDEPENDENT
+}
@@ -0,0 +1,48 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of BankService.submitBatch(): one status per leg, in the order the legs were given.
+ * A leg was applied if its status isSuccess(); legs of a failed all-or-nothing batch that
+ * were fine on their own are ABORTED.
+ */
+public final class BatchResult {
+
+    private final OperationResult[] statuses;
+    private final int appliedCount;
+
+    BatchResult(OperationResult[] statuses) {
+        this.statuses = statuses;
+        int applied = 0;
+        for (OperationResult status : statuses) {
+            if (status.isSuccess()) {
+                applied++;
+            }
+        }
+        this.appliedCount = applied;
+    }
+
+    public OperationResult getStatus(int leg) {
+        return statuses[leg];
+    }
+
+    public List<OperationResult> getStatuses() {
+        return Collections.unmodifiableList(Arrays.asList(statuses));
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public int getAppliedCount() {
+        return appliedCount;
+    }
+
+    public boolean isFullyApplied() {
+        return appliedCount == statuses.length;
+    }
+}
@@ -0,0 +1,57 @@
+package com.banking.service;
+
+/**
+ * Running totals for checkpoints: how many ran, how long they took and how much they wrote.
+ */
+public class CheckpointStats {
+
+    private long checkpoints;
+    private long lastDurationMillis;
+    private long lastBytesWritten;
+    private long totalDurationMillis;
+    private long totalBytesWritten;
+    private long lastCheckpointLsn;
+
+    synchronized void record(long durationMillis, long bytesWritten, long checkpointLsn) {
+        checkpoints++;
+        lastDurationMillis = durationMillis;
+        lastBytesWritten = bytesWritten;
+        totalDurationMillis += durationMillis;
+        totalBytesWritten += bytesWritten;
+        lastCheckpointLsn = checkpointLsn;
+    }
+
+    public synchronized long getCheckpoints() {
+        return checkpoints;
+    }
+
+    public synchronized long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    public synchronized long getLastBytesWritten() {
+        return lastBytesWritten;
+    }
+
+    public synchronized long getTotalDurationMillis() {
+        return totalDurationMillis;
+    }
+
+    public synchronized long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+
+    public synchronized long getLastCheckpointLsn() {
+        return lastCheckpointLsn;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "checkpoints=" + checkpoints
+                + ", lastDurationMillis=" + lastDurationMillis
+                + ", lastBytesWritten=" + lastBytesWritten
+                + ", totalDurationMillis=" + totalDurationMillis
+                + ", totalBytesWritten=" + totalBytesWritten
+                + ", lastCheckpointLsn=" + lastCheckpointLsn;
+    }
+}
@@ -0,0 +1,58 @@
+package com.banking.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread that checkpoints the bank once the journal has grown past
+ * maxJournalBytes or maxIntervalMillis has elapsed since the last checkpoint.
+ */
+class Checkpointer {
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final BankService bankService;
+    private final long maxJournalBytes;
+    private final long maxIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private volatile long lastCheckpointMillis;
+
+    Checkpointer(BankService bankService, long maxJournalBytes, long maxIntervalMillis) {
+        this.bankService = bankService;
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.lastCheckpointMillis = System.currentTimeMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        long journalBytes = bankService.getJournalSize();
+        if (journalBytes <= 0) {
+            return;
+        }
+        boolean sizeDue = maxJournalBytes > 0 && journalBytes >= maxJournalBytes;
+        boolean timeDue = maxIntervalMillis > 0 && System.currentTimeMillis() - lastCheckpointMillis >= maxIntervalMillis;
+        if (sizeDue || timeDue) {
+            bankService.checkpoint();
+            lastCheckpointMillis = System.currentTimeMillis();
+        }
+    }
+
+    void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recent idempotency keys and the outcome of the call that used each one, so a client
+ * retrying a deposit, withdrawal, transfer or account opening gets the original outcome
+ * back instead of the operation being applied again.
+ *
+ * Keys live in a ConcurrentHashMap, so a lookup is one hash probe and callers with
+ * different keys never share a lock. They are also queued in the order they were added;
+ * whoever adds a key drops keys from the old end of the queue while there are more than
+ * capacity or the oldest has outlived the time to live, which keeps the cache bounded
+ * without a sweeper thread or a global lock.
+ *
+ * Only calls that changed something are remembered: their key is journaled with the
+ * operation and written out at checkpoints, so it survives restarts. A rejected call is
+ * forgotten, and a retry of it is simply evaluated again; it changed nothing to protect.
+ */
+final class IdempotencyCache {
+
+    static final int DEFAULT_CAPACITY = 1_000_000;
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+    // Starts files that store outcomes by constant name; older ones began with the key count
+    // and stored the ordinal, which adding or reordering results would have changed
+    private static final int NAMED_OUTCOMES = -1;
+
+    /** One key; owned by the call that added it until that call finishes or abandons it. */
+    static final class Entry {
+        final String key;
+        // What the call did, e.g. "deposit ACC1001 50000"; a retry must match it
+        final String request;
+        final long createdMillis;
+        // Cleared once the owner finishes, so its own retries are not taken for the original
+        private volatile Thread owner;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        // Set, before the operation is journaled, once it has succeeded
+        private volatile OperationResult result;
+        private volatile String accountNumber;
+        private volatile boolean abandoned;
+
+        private Entry(String key, String request, long createdMillis, Thread owner) {
+            this.key = key;
+            this.request = request;
+            this.createdMillis = createdMillis;
+            this.owner = owner;
+        }
+
+        /** Whether the calling thread added this entry and so has to run the operation. */
+        boolean isOwner() {
+            return owner == Thread.currentThread();
+        }
+
+        boolean matches(String request) {
+            return this.request.equals(request);
+        }
+
+        OperationResult getResult() {
+            return result;
+        }
+
+        /** Number of the account opened, for a createAccount key. */
+        String getAccountNumber() {
+            return accountNumber;
+        }
+
+        /** Records the outcome; the owner calls it before journaling, with the account locked. */
+        void succeeded(OperationResult result, String accountNumber) {
+            this.accountNumber = accountNumber;
+            this.result = result;
+        }
+
+        /** Takes back succeeded() when the operation could not be journaled after all. */
+        void notJournaled() {
+            this.result = null;
+            this.accountNumber = null;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Oldest first; may still hold entries already removed from the map, which are dropped
+    // without counting once they reach the old end
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    // Entries in the map, which is what capacity bounds; dead ones still queued do not count
+    private final AtomicInteger live = new AtomicInteger();
+    private volatile int capacity = DEFAULT_CAPACITY;
+    private volatile long ttlMillis = DEFAULT_TTL_MILLIS;
+
+    /** A call's request, as keys are matched on: e.g. "deposit ACC1001 50000" or "transfer ACC1001 ACC1002 50000". */
+    static String request(String operation, String subject, String counterparty, long amount) {
+        return counterparty == null
+                ? operation + " " + subject + " " + amount
+                : operation + " " + subject + " " + counterparty + " " + amount;
+    }
+
+    void configure(int capacity, long ttlMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * The entry for key. If the key is new (or had expired), a fresh entry owned by the
+     * calling thread, which must then run the operation and call finish(). Otherwise the
+     * earlier call's entry once that call has finished; if its request differs from this
+     * one it is returned at once, and if it was rejected the key is claimed afresh.
+     */
+    Entry claim(String key, String request) {
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry mine = new Entry(key, request, now, Thread.currentThread());
+            Entry earlier = entries.putIfAbsent(key, mine);
+            if (earlier == null) {
+                enqueue(mine, now);
+                return mine;
+            }
+            if (earlier.createdMillis <= now - ttlMillis) {
+                remove(earlier);
+                continue;
+            }
+            if (!earlier.matches(request)) {
+                return earlier;
+            }
+            awaitFinished(earlier);
+            if (!earlier.abandoned) {
+                return earlier;
+            }
+            remove(earlier);
+        }
+    }
+
+    /**
+     * Called by the owner once the operation is durable or was rejected. A rejected call's
+     * key is dropped, and callers waiting on it claim it again.
+     */
+    void finish(Entry entry) {
+        entry.owner = null;
+        if (entry.result == null) {
+            entry.abandoned = true;
+            remove(entry);
+        }
+        entry.finished.countDown();
+    }
+
+    /** Re-adds a key found in the journal or the checkpoint file, unless it has expired or is known already. */
+    void restore(String key, String request, OperationResult result, String accountNumber, long createdMillis) {
+        long now = System.currentTimeMillis();
+        if (createdMillis <= now - ttlMillis) {
+            return;
+        }
+        Entry entry = new Entry(key, request, createdMillis, null);
+        entry.succeeded(result, accountNumber);
+        entry.finished.countDown();
+        if (entries.putIfAbsent(key, entry) == null) {
+            enqueue(entry, now);
+        }
+    }
+
+    boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Loads the keys written by write(), if the file exists. */
+    void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            boolean named = count == NAMED_OUTCOMES;
+            if (named) {
+                count = in.readInt();
+            }
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String request = in.readUTF();
+                long createdMillis = in.readLong();
+                OperationResult result = named ? OperationResult.valueOf(in.readUTF())
+                        : OperationResult.values()[in.readByte()];
+                String accountNumber = in.readBoolean() ? in.readUTF() : null;
+                restore(key, request, result, accountNumber, createdMillis);
+            }
+        }
+    }
+
+    /** Durably replaces file with every key that is remembered and has not expired. */
+    void write(Path file) throws IOException {
+        long oldest = System.currentTimeMillis() - ttlMillis;
+        List<Entry> live = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.result != null && entry.createdMillis > oldest) {
+                live.add(entry);
+            }
+        }
+        // Oldest first, so load() queues them for eviction in the right order
+        live.sort(Comparator.comparingLong(entry -> entry.createdMillis));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(NAMED_OUTCOMES);
+            out.writeInt(live.size());
+            for (Entry entry : live) {
+                out.writeUTF(entry.key);
+                out.writeUTF(entry.request);
+                out.writeLong(entry.createdMillis);
+                out.writeUTF(entry.result.name());
+                out.writeBoolean(entry.accountNumber != null);
+                if (entry.accountNumber != null) {
+                    out.writeUTF(entry.accountNumber);
+                }
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void awaitFinished(Entry entry) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                entry.finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Evicts from the old end: past capacity, or expired. Entries at the old end that have
+    // left the map already (rejected calls, expired keys) are dropped on the way
+    private void enqueue(Entry entry, long now) {
+        order.add(entry);
+        live.incrementAndGet();
+        Entry oldest;
+        while ((oldest = order.peek()) != null && (entries.get(oldest.key) != oldest
+                || live.get() > capacity || oldest.createdMillis <= now - ttlMillis)) {
+            Entry polled = order.poll();
+            if (polled == null) {
+                break;
+            }
+            remove(polled);
+        }
+    }
+
+    // Takes the entry out of the map unless it has left already; counted only if it was there
+    private void remove(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            live.decrementAndGet();
+        }
+    }
+}
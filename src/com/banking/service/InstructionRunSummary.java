@@ -0,0 +1,49 @@
+package com.banking.service;
+
+/**
+ * Totals of one BankService.runStandingInstructions() call. An occurrence that failed is
+ * retried later unless it has been tried too often, in which case it is skipped; an
+ * instruction that can never succeed, e.g. because an account was closed, is cancelled.
+ */
+public final class InstructionRunSummary {
+
+    private final long made;
+    private final long retried;
+    private final long skipped;
+    private final long cancelled;
+    private final long elapsedMillis;
+
+    InstructionRunSummary(long made, long retried, long skipped, long cancelled, long elapsedMillis) {
+        this.made = made;
+        this.retried = retried;
+        this.skipped = skipped;
+        this.cancelled = cancelled;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getMade() {
+        return made;
+    }
+
+    public long getRetried() {
+        return retried;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getCancelled() {
+        return cancelled;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "made=" + made + ", retried=" + retried + ", skipped=" + skipped + ", cancelled=" + cancelled
+                + ", elapsedMillis=" + elapsedMillis;
+    }
+}
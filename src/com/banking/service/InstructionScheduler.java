@@ -0,0 +1,44 @@
+package com.banking.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread that runs the bank's standing instructions as they fall due.
+ */
+class InstructionScheduler {
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final BankService bankService;
+    private final ScheduledExecutorService scheduler;
+
+    InstructionScheduler(BankService bankService) {
+        this.bankService = bankService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "standing-instructions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        if (bankService.nextInstructionDueMillis() <= System.currentTimeMillis()) {
+            bankService.runDueInstructions();
+        }
+    }
+
+    void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.banking.service;
+
+import com.banking.model.Money;
+import java.time.YearMonth;
+
+/**
+ * Totals of one BankService.runInterest() call. Accounts already credited for the period,
+ * by an earlier or interrupted run, are counted as skipped.
+ */
+public final class InterestRunSummary {
+
+    private final YearMonth period;
+    private final long accountsCredited;
+    private final long accountsSkipped;
+    private final long totalInterest;
+    private final long elapsedMillis;
+
+    InterestRunSummary(YearMonth period, long accountsCredited, long accountsSkipped,
+                       long totalInterest, long elapsedMillis) {
+        this.period = period;
+        this.accountsCredited = accountsCredited;
+        this.accountsSkipped = accountsSkipped;
+        this.totalInterest = totalInterest;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public YearMonth getPeriod() {
+        return period;
+    }
+
+    public long getAccountsCredited() {
+        return accountsCredited;
+    }
+
+    public long getAccountsSkipped() {
+        return accountsSkipped;
+    }
+
+    /** Paise. */
+    public long getTotalInterest() {
+        return totalInterest;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "period=" + period + ", credited=" + accountsCredited + ", skipped=" + accountsSkipped
+                + ", totalInterest=" + Money.format(totalInterest) + ", elapsedMillis=" + elapsedMillis;
+    }
+}
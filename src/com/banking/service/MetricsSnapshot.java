@@ -0,0 +1,79 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operation metrics of a BankService at one point in time; see BankMetrics. Counters are
+ * read one after another while operations continue, so they are each exact but not
+ * necessarily from the same instant. toString() is the plain-text dump.
+ */
+public final class MetricsSnapshot {
+
+    private final long takenAtMillis;
+    private final int latencySampleInterval;
+    private final long errorsReported;
+    private final Map<BankMetrics.Operation, OperationMetrics> operations;
+
+    MetricsSnapshot(long takenAtMillis, int latencySampleInterval, long errorsReported,
+                    Map<BankMetrics.Operation, OperationMetrics> operations) {
+        this.takenAtMillis = takenAtMillis;
+        this.latencySampleInterval = latencySampleInterval;
+        this.errorsReported = errorsReported;
+        this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    public long getTakenAtMillis() {
+        return takenAtMillis;
+    }
+
+    /** One in this many operations was timed; save, load and checkpoint always are. */
+    public int getLatencySampleInterval() {
+        return latencySampleInterval;
+    }
+
+    /** Error messages the service published (I/O failures of any kind). */
+    public long getErrorsReported() {
+        return errorsReported;
+    }
+
+    public OperationMetrics get(BankMetrics.Operation operation) {
+        return operations.get(operation);
+    }
+
+    public Collection<OperationMetrics> getOperations() {
+        return operations.values();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-15s %10s %8s %8s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "failed",
+                "timed", "mean µs", "p50 µs", "p90 µs", "p99 µs", "p99.9 µs", "max µs"));
+        for (OperationMetrics metrics : operations.values()) {
+            if (metrics.getCount() == 0) {
+                continue;
+            }
+            text.append(metrics).append(System.lineSeparator());
+            List<String> failures = new ArrayList<>();
+            for (Map.Entry<OperationResult, Long> outcome : metrics.getOutcomes().entrySet()) {
+                if (outcome.getKey() != OperationResult.SUCCESS) {
+                    failures.add(outcome.getKey() + "=" + outcome.getValue());
+                }
+            }
+            if (metrics.getErrors() > 0) {
+                failures.add("ERROR=" + metrics.getErrors());
+            }
+            if (!failures.isEmpty()) {
+                text.append("    ").append(String.join(", ", failures)).append(System.lineSeparator());
+            }
+        }
+        text.append("errors reported: ").append(errorsReported)
+                .append(", latency sampled 1 in ").append(latencySampleInterval);
+        return text.toString();
+    }
+}
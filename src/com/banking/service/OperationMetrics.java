@@ -0,0 +1,101 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+import java.util.Collections;
+import java.util.Map;
+
+/** One operation's counts by outcome and sampled latencies, as of a MetricsSnapshot. */
+public final class OperationMetrics {
+
+    private final BankMetrics.Operation operation;
+    private final Map<OperationResult, Long> outcomes;
+    private final long errors;
+    private final long count;
+    private final long succeeded;
+    private final long[] latencyCounts;
+    private final long timed;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    OperationMetrics(BankMetrics.Operation operation, Map<OperationResult, Long> outcomes, long errors,
+                     long[] latencyCounts, long totalNanos, long maxNanos) {
+        this.operation = operation;
+        this.outcomes = Collections.unmodifiableMap(outcomes);
+        this.errors = errors;
+        this.latencyCounts = latencyCounts;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+
+        long total = errors;
+        long ok = 0;
+        for (Map.Entry<OperationResult, Long> outcome : outcomes.entrySet()) {
+            total += outcome.getValue();
+            if (outcome.getKey().isSuccess()) {
+                ok += outcome.getValue();
+            }
+        }
+        this.count = total;
+        this.succeeded = ok;
+        long sampled = 0;
+        for (long latencyCount : latencyCounts) {
+            sampled += latencyCount;
+        }
+        this.timed = sampled;
+    }
+
+    public BankMetrics.Operation getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Operations that went through, OVERDRAFT_ENTERED included. */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return count - succeeded;
+    }
+
+    /** Counts by result; results that never occurred are left out. */
+    public Map<OperationResult, Long> getOutcomes() {
+        return outcomes;
+    }
+
+    public long getOutcome(OperationResult result) {
+        return outcomes.getOrDefault(result, 0L);
+    }
+
+    /** Operations that failed on an I/O error (save, load and checkpoint only). */
+    public long getErrors() {
+        return errors;
+    }
+
+    /** How many of the operations were timed. */
+    public long getTimed() {
+        return timed;
+    }
+
+    public double getMeanMicros() {
+        return timed == 0 ? 0 : totalNanos / 1e3 / timed;
+    }
+
+    /** Latency at or below which the given percentage of the timed operations finished, to within about 3%. */
+    public double getPercentileMicros(double percent) {
+        return Math.min(LatencyHistogram.percentile(latencyCounts, percent), maxNanos) / 1e3;
+    }
+
+    public double getMaxMicros() {
+        return maxNanos / 1e3;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-15s %10d %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f",
+                operation.label(), count, getFailed(), timed, getMeanMicros(), getPercentileMicros(50),
+                getPercentileMicros(90), getPercentileMicros(99), getPercentileMicros(99.9), getMaxMicros());
+    }
+}
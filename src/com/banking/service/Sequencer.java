@@ -0,0 +1,162 @@
+package com.banking.service;
+
+import com.banking.model.OperationResult;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer command queue for one partition of accounts, in the style of the LMAX
+ * Disruptor: callers claim a sequence on a ring buffer, put their command in its slot and
+ * wait; one writer thread takes whatever has been published, in sequence order, and hands
+ * it to the executor as one batch. Claiming is one atomic increment and publishing one
+ * volatile write, so callers never contend on a lock; the ring applies back-pressure once
+ * it is full.
+ *
+ * Both sides spin briefly before parking, except on a single core. Java cannot pin the
+ * writer to a core; it is a dedicated platform thread per partition.
+ */
+final class Sequencer {
+
+    /** One deposit, withdrawal or transfer and, once done, its outcome. */
+    static final class Command {
+        final BankEvent.Type type;
+        final String accountNumber;
+        final String counterparty;
+        final long amount;
+        // The caller's idempotency key, if it gave one
+        final IdempotencyCache.Entry claim;
+        private final Thread caller = Thread.currentThread();
+
+        // Set by the writer before done; failure is rethrown to the caller
+        OperationResult result;
+        long balance;
+        long lsn;
+        RuntimeException failure;
+        private volatile boolean done;
+
+        Command(BankEvent.Type type, String accountNumber, String counterparty, long amount,
+                IdempotencyCache.Entry claim) {
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.counterparty = counterparty;
+            this.amount = amount;
+            this.claim = claim;
+        }
+
+        /** Called by the writer once the command is applied and journaled. */
+        void complete(long lsn) {
+            this.lsn = lsn;
+            done = true;
+            LockSupport.unpark(caller);
+        }
+    }
+
+    /** Applies a batch of commands on the writer thread and completes every one of them. */
+    interface Executor {
+        void execute(Command[] commands, int count);
+    }
+
+    // On a single core a spinning thread only holds up the one it waits for
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+    // Callers wake a sleeping writer; the timeout only bounds an idle writer's sleep
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<Command> ring;
+    private final int mask;
+    private final int maxBatch;
+    private final AtomicLong claimed = new AtomicLong();
+    // Next sequence the writer will take; only the writer writes it
+    private volatile long taken;
+    private volatile boolean sleeping;
+    private volatile boolean stopping;
+    private final Executor executor;
+    private final Thread writer;
+
+    /** ringSize is rounded up to a power of two; at most maxBatch commands go to the executor at once. */
+    Sequencer(String name, int ringSize, int maxBatch, Executor executor) {
+        int size = Integer.highestOneBit(Math.max(2, ringSize) * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBatch = maxBatch;
+        this.executor = executor;
+        this.writer = new Thread(this::writeLoop, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Queues the command and waits until the writer has completed it. */
+    Command submit(Command command) {
+        long sequence = claimed.getAndIncrement();
+        for (int spins = 0; sequence - taken >= ring.length(); spins++) {
+            // Full: wait for the writer to take the command a lap behind this one
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        ring.set((int) sequence & mask, command);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+
+        for (int spins = 0; !command.done; spins++) {
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        return command;
+    }
+
+    /** Lets the writer finish what has been submitted, then stops it. */
+    void stop() {
+        stopping = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        Command[] batch = new Command[maxBatch];
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            int count = 0;
+            Command command;
+            while (count < maxBatch && (command = ring.get((int) next & mask)) != null) {
+                // Ordered before callers reuse the slot by the write of taken below
+                ring.setRelease((int) next & mask, null);
+                batch[count++] = command;
+                next++;
+            }
+            if (count > 0) {
+                taken = next;
+                executor.execute(batch, count);
+                Arrays.fill(batch, 0, count, null);
+                idle = 0;
+                continue;
+            }
+
+            if (stopping && next == claimed.get()) {
+                return;
+            }
+            if (idle++ < SPINS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            sleeping = true;
+            if (ring.get((int) next & mask) == null && !stopping) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.banking.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A recurring transfer, as returned by BankService.getStandingInstructions(): amount paise
+ * from one account to another every period, starting at firstDue, either a fixed number of
+ * times or until cancelled.
+ */
+public final class StandingInstruction {
+
+    public enum Frequency {
+        DAILY,
+        WEEKLY,
+        MONTHLY;
+
+        /**
+         * Due time of occurrence n (from 0), counted from first so that a transfer on the
+         * 31st falls on the last day of shorter months and returns to the 31st after them.
+         */
+        public LocalDateTime occurrence(LocalDateTime first, int n) {
+            switch (this) {
+                case DAILY:
+                    return first.plusDays(n);
+                case WEEKLY:
+                    return first.plusWeeks(n);
+                default:
+                    return first.plusMonths(n);
+            }
+        }
+    }
+
+    private final String id;
+    private final String fromAccountNumber;
+    private final String toAccountNumber;
+    private final long amount;
+    private final Frequency frequency;
+    private final long firstDueMillis;
+    private final int occurrences;
+    private final int completed;
+    private final long nextDueMillis;
+
+    StandingInstruction(String id, String fromAccountNumber, String toAccountNumber, long amount, Frequency frequency,
+                        long firstDueMillis, int occurrences, int completed, long nextDueMillis) {
+        this.id = id;
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.firstDueMillis = firstDueMillis;
+        this.occurrences = occurrences;
+        this.completed = completed;
+        this.nextDueMillis = nextDueMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    /** Paise. */
+    public long getAmount() {
+        return amount;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public LocalDateTime getFirstDue() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(firstDueMillis), ZoneId.systemDefault());
+    }
+
+    /** Transfers to make in all, or 0 for every period until cancelled. */
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    /** Occurrences made or given up on so far. */
+    public int getCompleted() {
+        return completed;
+    }
+
+    /** When the next attempt is due; later than the occurrence itself while retrying it. */
+    public LocalDateTime getNextDue() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(nextDueMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,315 @@
+package com.banking.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bank's standing instructions and when each is next due.
+ *
+ * Due times are kept in a wheel of one-minute slots: a sorted map from slot to the
+ * instructions due in it, so adding one is a lookup in a map of a few thousand slots at
+ * most and taking what is due removes whole slots from the front. A month-start burst of a
+ * million instructions is one slot, handed out as one list. Cancelled instructions are
+ * dropped from the wheel when their slot comes round rather than searched for.
+ *
+ * Each occurrence is made as a transfer with the idempotency key "id#n", so it is applied
+ * at most once however often it is tried: replaying a journaled transfer with such a key
+ * marks the occurrence made, and a retry after a crash that the journal did not see gets
+ * the original outcome back from the idempotency cache. Setting up and cancelling
+ * instructions is journaled; checkpoints write the whole table to a file.
+ */
+final class StandingInstructions {
+
+    static final long SLOT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // Failed attempts at one occurrence before it is skipped; the first retry waits
+    // RETRY_MILLIS and each one after twice as long as the one before
+    static final int MAX_ATTEMPTS = 4;
+    static final long RETRY_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final String ID_PREFIX = "SI";
+
+    /** One instruction and its progress. */
+    static final class Scheduled {
+        final String id;
+        final String fromAccountNumber;
+        final String toAccountNumber;
+        final long amount;
+        final StandingInstruction.Frequency frequency;
+        final long firstDueMillis;
+        final int occurrences;
+        // Occurrence to make next, from 0; advanced by the run that makes it, or by replay
+        volatile int next;
+        // Failed attempts at occurrence next; only touched by the run holding the instruction
+        int attempts;
+        // When it is due in the wheel; later than occurrence next while that is being retried
+        volatile long dueMillis;
+        volatile boolean cancelled;
+
+        Scheduled(String id, String fromAccountNumber, String toAccountNumber, long amount,
+                  StandingInstruction.Frequency frequency, long firstDueMillis, int occurrences, int next) {
+            this.id = id;
+            this.fromAccountNumber = fromAccountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amount = amount;
+            this.frequency = frequency;
+            this.firstDueMillis = firstDueMillis;
+            this.occurrences = occurrences;
+            this.next = next;
+        }
+
+        /** The idempotency key the transfer for occurrence next is made with. */
+        String key() {
+            return id + "#" + next;
+        }
+
+        /** "FREQUENCY firstDueMillis occurrences", as journaled. */
+        String schedule() {
+            return frequency + " " + firstDueMillis + " " + occurrences;
+        }
+
+        boolean finished() {
+            return occurrences > 0 && next >= occurrences;
+        }
+
+        long occurrenceMillis(int n) {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDateTime first = LocalDateTime.ofInstant(Instant.ofEpochMilli(firstDueMillis), zone);
+            return frequency.occurrence(first, n).atZone(zone).toInstant().toEpochMilli();
+        }
+
+        StandingInstruction view() {
+            return new StandingInstruction(id, fromAccountNumber, toAccountNumber, amount, frequency, firstDueMillis,
+                    occurrences, next, dueMillis);
+        }
+    }
+
+    private final Map<String, Scheduled> byId = new ConcurrentHashMap<>();
+    // Slot (due time / SLOT_MILLIS) -> instructions due in it; guarded by itself
+    private final TreeMap<Long, List<Scheduled>> wheel = new TreeMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    /** Registers a new instruction under a fresh id; it is not due until schedule() is called. */
+    Scheduled create(String fromAccountNumber, String toAccountNumber, long amount,
+                     StandingInstruction.Frequency frequency, long firstDueMillis, int occurrences) {
+        Scheduled instruction = new Scheduled(ID_PREFIX + lastId.incrementAndGet(), fromAccountNumber,
+                toAccountNumber, amount, frequency, firstDueMillis, occurrences, 0);
+        byId.put(instruction.id, instruction);
+        return instruction;
+    }
+
+    /**
+     * Re-adds an instruction found in the table file or the journal, unless it is known
+     * already. Nothing is due until scheduleAll() runs once loading is done.
+     */
+    void restore(String id, String fromAccountNumber, String toAccountNumber, long amount, String schedule, int next) {
+        String[] parts = schedule.split(" ");
+        byId.putIfAbsent(id, new Scheduled(id, fromAccountNumber, toAccountNumber, amount,
+                StandingInstruction.Frequency.valueOf(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                next));
+        advancePast(id);
+    }
+
+    /** Marks the occurrence a replayed transfer's idempotency key names as made, if it names one. */
+    void replayed(String idempotencyKey) {
+        int hash = idempotencyKey.lastIndexOf('#');
+        if (hash < 0 || !idempotencyKey.startsWith(ID_PREFIX)) {
+            return;
+        }
+        Scheduled instruction = byId.get(idempotencyKey.substring(0, hash));
+        try {
+            int made = Integer.parseInt(idempotencyKey.substring(hash + 1));
+            if (instruction != null && instruction.next <= made) {
+                instruction.next = made + 1;
+                instruction.attempts = 0;
+            }
+        } catch (NumberFormatException e) {
+            // Not one of ours
+        }
+    }
+
+    /** Removes an instruction; returns it, or null if there was none with that id. */
+    Scheduled cancel(String id) {
+        Scheduled instruction = byId.remove(id);
+        if (instruction != null) {
+            instruction.cancelled = true;
+        }
+        return instruction;
+    }
+
+    /** Puts every instruction in the wheel at its next occurrence, dropping finished ones; after loading. */
+    void scheduleAll() {
+        for (Scheduled instruction : byId.values()) {
+            if (instruction.finished()) {
+                byId.remove(instruction.id, instruction);
+            } else {
+                schedule(instruction, instruction.occurrenceMillis(instruction.next));
+            }
+        }
+    }
+
+    void schedule(Scheduled instruction, long dueMillis) {
+        instruction.dueMillis = dueMillis;
+        synchronized (wheel) {
+            wheel.computeIfAbsent(dueMillis / SLOT_MILLIS, slot -> new ArrayList<>()).add(instruction);
+        }
+    }
+
+    /** Takes every instruction due at or before now out of the wheel; the caller runs each and hands it back. */
+    List<Scheduled> takeDue(long now) {
+        long current = now / SLOT_MILLIS;
+        List<Scheduled> due = new ArrayList<>();
+        List<Scheduled> early = null;
+        synchronized (wheel) {
+            Map.Entry<Long, List<Scheduled>> slot;
+            while ((slot = wheel.firstEntry()) != null && slot.getKey() <= current) {
+                wheel.pollFirstEntry();
+                for (Scheduled instruction : slot.getValue()) {
+                    if (instruction.cancelled) {
+                        continue;
+                    }
+                    if (instruction.dueMillis <= now) {
+                        due.add(instruction);
+                    } else {
+                        if (early == null) {
+                            early = new ArrayList<>();
+                        }
+                        early.add(instruction);
+                    }
+                }
+            }
+            if (early != null) {
+                wheel.put(current, early);
+            }
+        }
+        return due;
+    }
+
+    /** When the earliest instruction in the wheel falls due, or Long.MAX_VALUE if none does. */
+    long nextDueMillis() {
+        synchronized (wheel) {
+            return wheel.isEmpty() ? Long.MAX_VALUE : wheel.firstKey() * SLOT_MILLIS;
+        }
+    }
+
+    /** Occurrence next was made: schedules the one after, or drops the instruction if that was the last. */
+    void made(Scheduled instruction) {
+        instruction.next++;
+        instruction.attempts = 0;
+        if (instruction.finished()) {
+            byId.remove(instruction.id, instruction);
+        } else if (!instruction.cancelled) {
+            schedule(instruction, instruction.occurrenceMillis(instruction.next));
+        }
+    }
+
+    /**
+     * An attempt at occurrence next failed with a result that may clear, e.g. too little
+     * money. Schedules a retry with backoff and returns true, or, once MAX_ATTEMPTS have
+     * failed or the retry would run into the next occurrence, gives up on this occurrence,
+     * moves on to the next and returns false.
+     */
+    boolean failed(Scheduled instruction, long now) {
+        instruction.attempts++;
+        long retryAt = now + (RETRY_MILLIS << (instruction.attempts - 1));
+        if (instruction.attempts >= MAX_ATTEMPTS || retryAt >= instruction.occurrenceMillis(instruction.next + 1)) {
+            made(instruction);
+            return false;
+        }
+        if (!instruction.cancelled) {
+            schedule(instruction, retryAt);
+        }
+        return true;
+    }
+
+    Scheduled get(String id) {
+        return byId.get(id);
+    }
+
+    /** Instructions paying out of or into accountNumber. */
+    List<StandingInstruction> forAccount(String accountNumber) {
+        List<StandingInstruction> result = new ArrayList<>();
+        for (Scheduled instruction : byId.values()) {
+            if (instruction.fromAccountNumber.equals(accountNumber) || instruction.toAccountNumber.equals(accountNumber)) {
+                result.add(instruction.view());
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    /**
+     * Adds the instructions recorded in file, if it exists: a "next <last id>" line, then one
+     * "id from to amount frequency firstDueMillis occurrences next" per line.
+     */
+    void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] parts = line.split(" ");
+                if (parts.length == 2 && parts[0].equals("next")) {
+                    lastId.accumulateAndGet(Long.parseLong(parts[1]), Math::max);
+                } else if (parts.length == 8) {
+                    restore(parts[0], parts[1], parts[2], Long.parseLong(parts[3]),
+                            parts[4] + " " + parts[5] + " " + parts[6], Integer.parseInt(parts[7]));
+                }
+            }
+        }
+    }
+
+    /** Durably replaces file with every instruction that is not cancelled or finished. */
+    void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 256 * 1024)) {
+            // Ids are never reused, also not those of instructions cancelled since
+            writer.write("next " + lastId.get());
+            writer.newLine();
+            for (Scheduled instruction : byId.values()) {
+                writer.write(instruction.id);
+                writer.write(' ');
+                writer.write(instruction.fromAccountNumber);
+                writer.write(' ');
+                writer.write(instruction.toAccountNumber);
+                writer.write(' ');
+                writer.write(Long.toString(instruction.amount));
+                writer.write(' ');
+                writer.write(instruction.schedule());
+                writer.write(' ');
+                writer.write(Integer.toString(instruction.next));
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void advancePast(String id) {
+        try {
+            lastId.accumulateAndGet(Long.parseLong(id.substring(ID_PREFIX.length())), Math::max);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // Not an id this class handed out; it cannot clash with one
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.banking.service;
+
+import java.nio.file.Path;
+
+/**
+ * Totals of one BankService.exportStatements() call: one CSV file per account in the
+ * directory. Accounts whose file could not be written are counted as failed.
+ */
+public final class StatementRunSummary {
+
+    private final Path directory;
+    private final long statementsWritten;
+    private final long statementsFailed;
+    private final long rowsWritten;
+    private final long elapsedMillis;
+
+    StatementRunSummary(Path directory, long statementsWritten, long statementsFailed,
+                        long rowsWritten, long elapsedMillis) {
+        this.directory = directory;
+        this.statementsWritten = statementsWritten;
+        this.statementsFailed = statementsFailed;
+        this.rowsWritten = rowsWritten;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getStatementsWritten() {
+        return statementsWritten;
+    }
+
+    public long getStatementsFailed() {
+        return statementsFailed;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "directory=" + directory + ", statements=" + statementsWritten + ", failed=" + statementsFailed
+                + ", rows=" + rowsWritten + ", elapsedMillis=" + elapsedMillis;
+    }
+}
@@ -0,0 +1,88 @@
+package com.banking.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cross-partition transfer legs this partition has applied, by leg type and transfer
+ * id, so a coordinator retrying a leg after a timeout or crash never applies it twice.
+ *
+ * Legs are journaled with their transfer id, so replay rebuilds the set; a checkpoint
+ * writes it to a file before dropping the journal segments that held them. Legs older than
+ * RETENTION_MILLIS are dropped at checkpoints: a coordinator has long since finished or
+ * given up on their transfer by then.
+ */
+final class TransferLegs {
+
+    static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    // "<type>:<transfer id>" to the time the leg was applied
+    private final Map<String, Long> applied = new ConcurrentHashMap<>();
+
+    boolean contains(byte type, String transferId) {
+        return applied.containsKey(key(type, transferId));
+    }
+
+    void add(byte type, String transferId, long timestamp) {
+        applied.merge(key(type, transferId), timestamp, Math::min);
+    }
+
+    /** Forgets a leg added just before its journal record was refused. */
+    void remove(byte type, String transferId) {
+        applied.remove(key(type, transferId));
+    }
+
+    int size() {
+        return applied.size();
+    }
+
+    /** Adds the legs recorded in file, if it exists; one "type timestamp id" per line. */
+    void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] parts = line.split(" ", 3);
+                if (parts.length == 3) {
+                    add(Byte.parseByte(parts[0]), parts[2], Long.parseLong(parts[1]));
+                }
+            }
+        }
+    }
+
+    /** Durably replaces file with every leg applied since now - RETENTION_MILLIS and forgets the rest. */
+    void write(Path file, long now) throws IOException {
+        applied.values().removeIf(timestamp -> timestamp < now - RETENTION_MILLIS);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Long> leg : applied.entrySet()) {
+                int colon = leg.getKey().indexOf(':');
+                writer.write(leg.getKey().substring(0, colon));
+                writer.write(' ');
+                writer.write(Long.toString(leg.getValue()));
+                writer.write(' ');
+                writer.write(leg.getKey(), colon + 1, leg.getKey().length() - colon - 1);
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(byte type, String transferId) {
+        return type + ":" + transferId;
+    }
+}
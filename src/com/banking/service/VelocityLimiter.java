@@ -0,0 +1,131 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.OperationResult;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates VelocityRules against each account's recent debits.
+ *
+ * An account's window is a ring of BUCKETS time buckets packed into one long[]: per
+ * bucket, its bucket number and debit count in one long and the amount in the next. A
+ * check sums the buckets still inside the window and a debit bumps the current one, so
+ * neither allocates once the account has a window, and the window slides in steps of
+ * 1/BUCKETS of its length. Windows are only touched with their account locked, like the
+ * balance; prune() drops the ones with nothing left in them.
+ */
+final class VelocityLimiter {
+
+    static final int BUCKETS = 16;
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static final class Window {
+        // [2i] = bucket number << COUNT_BITS | debits, [2i + 1] = amount, for bucket i
+        final long[] slots = new long[2 * BUCKETS];
+        // Set by prune() once the window is dropped from the map; nothing is recorded in it after
+        boolean retired;
+    }
+
+    private final VelocityRules rules;
+    private final long bucketMillis;
+    private final ZoneRules zone = ZoneId.systemDefault().getRules();
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    VelocityLimiter(VelocityRules rules) {
+        this.rules = rules;
+        this.bucketMillis = Math.max(1, rules.getWindowMillis() / BUCKETS);
+    }
+
+    /**
+     * Whether account may be debited amount at now, counting pendingDebits debits of
+     * pendingAmount that are about to be made but not recorded yet (a batch's earlier legs):
+     * SUCCESS, NEW_ACCOUNT_HOLD or VELOCITY_LIMIT_EXCEEDED. Called with the account locked.
+     */
+    OperationResult check(Account account, boolean transfer, long amount, int pendingDebits, long pendingAmount,
+                          long now) {
+        if (transfer && rules.getNewAccountMillis() > 0 && amount > rules.getNewAccountMaxTransfer()
+                && createdMillis(account) > now - rules.getNewAccountMillis()) {
+            return OperationResult.NEW_ACCOUNT_HOLD;
+        }
+        if (rules.getMaxDebits() <= 0 && rules.getMaxDebitAmount() <= 0) {
+            return OperationResult.SUCCESS;
+        }
+        long debits = pendingDebits + 1;
+        long total = pendingAmount + amount;
+        Window window = windows.get(account.getAccountNumber());
+        if (window != null) {
+            long oldest = now / bucketMillis - BUCKETS;
+            long[] slots = window.slots;
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] >>> COUNT_BITS > oldest) {
+                    debits += slots[i] & COUNT_MASK;
+                    total += slots[i + 1];
+                }
+            }
+        }
+        if ((rules.getMaxDebits() > 0 && debits > rules.getMaxDebits())
+                || (rules.getMaxDebitAmount() > 0 && total > rules.getMaxDebitAmount())) {
+            return OperationResult.VELOCITY_LIMIT_EXCEEDED;
+        }
+        return OperationResult.SUCCESS;
+    }
+
+    /**
+     * Counts a debit made at when. Called with the account locked, or during journal replay,
+     * where debits come in time order; one older than the bucket it falls in is dropped.
+     */
+    void record(String accountNumber, long amount, long when) {
+        long bucket = when / bucketMillis;
+        int i = (int) (bucket % BUCKETS) * 2;
+        while (true) {
+            Window window = windows.computeIfAbsent(accountNumber, number -> new Window());
+            synchronized (window) {
+                if (window.retired) {
+                    continue;
+                }
+                long[] slots = window.slots;
+                long stamp = slots[i] >>> COUNT_BITS;
+                if (stamp == bucket) {
+                    slots[i] = bucket << COUNT_BITS | Math.min(COUNT_MASK, (slots[i] & COUNT_MASK) + 1);
+                    slots[i + 1] += amount;
+                } else if (stamp < bucket) {
+                    slots[i] = bucket << COUNT_BITS | 1;
+                    slots[i + 1] = amount;
+                }
+                return;
+            }
+        }
+    }
+
+    /** Drops the windows of accounts with no debits left inside the window. */
+    void prune(long now) {
+        long oldest = now / bucketMillis - BUCKETS;
+        windows.forEach((accountNumber, window) -> {
+            synchronized (window) {
+                for (int i = 0; i < window.slots.length; i += 2) {
+                    if (window.slots[i] >>> COUNT_BITS > oldest) {
+                        return;
+                    }
+                }
+                window.retired = true;
+                windows.remove(accountNumber, window);
+            }
+        });
+    }
+
+    /** Accounts with a window; each takes about 330 bytes. */
+    int size() {
+        return windows.size();
+    }
+
+    // Without going through ZonedDateTime and Instant, which would allocate on every check
+    private long createdMillis(Account account) {
+        LocalDateTime created = account.getCreatedDate();
+        return created.toEpochSecond(zone.getOffset(created)) * 1000 + created.getNano() / 1_000_000;
+    }
+}
@@ -0,0 +1,52 @@
+package com.banking.service;
+
+/**
+ * Limits on how fast money can leave an account, checked before every withdrawal and
+ * outgoing transfer once installed with BankService.useVelocityRules(). Amounts are in
+ * paise; a limit of zero is off.
+ */
+public final class VelocityRules {
+
+    private final long windowMillis;
+    private final int maxDebits;
+    private final long maxDebitAmount;
+    private final long newAccountMillis;
+    private final long newAccountMaxTransfer;
+
+    /**
+     * In any windowMillis, at most maxDebits withdrawals and outgoing transfers per account,
+     * together moving at most maxDebitAmount; and while an account is younger than
+     * newAccountMillis, no single transfer out of it above newAccountMaxTransfer.
+     */
+    public VelocityRules(long windowMillis, int maxDebits, long maxDebitAmount,
+                         long newAccountMillis, long newAccountMaxTransfer) {
+        if (windowMillis <= 0 && (maxDebits > 0 || maxDebitAmount > 0)) {
+            throw new IllegalArgumentException("A debit limit needs a window");
+        }
+        this.windowMillis = windowMillis;
+        this.maxDebits = maxDebits;
+        this.maxDebitAmount = maxDebitAmount;
+        this.newAccountMillis = newAccountMillis;
+        this.newAccountMaxTransfer = newAccountMaxTransfer;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getMaxDebits() {
+        return maxDebits;
+    }
+
+    public long getMaxDebitAmount() {
+        return maxDebitAmount;
+    }
+
+    public long getNewAccountMillis() {
+        return newAccountMillis;
+    }
+
+    public long getNewAccountMaxTransfer() {
+        return newAccountMaxTransfer;
+    }
+}